@@ -15,7 +15,8 @@ USE expense_tracker_db;
 --     email VARCHAR(100) UNIQUE NOT NULL,
 --     password VARCHAR(255) NOT NULL,
 --     created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
---     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+--     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+--     expenses_version BIGINT NOT NULL DEFAULT 0
 -- );
 -- 
 -- CREATE TABLE expenses (
@@ -24,13 +25,152 @@ USE expense_tracker_db;
 --     description TEXT,
 --     amount DECIMAL(10,2) NOT NULL,
 --     category VARCHAR(100) NOT NULL,
+--     tags VARCHAR(340),
 --     expense_date DATE NOT NULL,
 --     created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
 --     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+--     change_seq BIGINT NOT NULL DEFAULT 0,
+--     fingerprint BIGINT,
+--     version BIGINT NOT NULL DEFAULT 0,
 --     user_id BIGINT NOT NULL,
+--     INDEX idx_expenses_user_change_seq (user_id, change_seq),
+--     INDEX idx_expenses_user_fingerprint (user_id, fingerprint),
+--     INDEX idx_expenses_user_date (user_id, expense_date),
 --     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
 -- );
 
+-- Migrations for databases created before the columns and tables above existed
+-- (production runs with ddl-auto=validate), in order:
+-- ALTER TABLE users ADD COLUMN expenses_version BIGINT NOT NULL DEFAULT 0;
+-- ALTER TABLE expenses ADD COLUMN change_seq BIGINT NOT NULL DEFAULT 0;
+-- CREATE INDEX idx_expenses_user_change_seq ON expenses (user_id, change_seq);
+-- CREATE TABLE expense_tombstones (
+--     id BIGINT AUTO_INCREMENT PRIMARY KEY,
+--     expense_id BIGINT NOT NULL,
+--     user_id BIGINT NOT NULL,
+--     change_seq BIGINT NOT NULL,
+--     deleted_at DATETIME(6),
+--     INDEX idx_tombstones_user_change_seq (user_id, change_seq)
+-- );
+-- Give pre-existing rows distinct sequence numbers below every future one:
+-- UPDATE expenses SET change_seq = id WHERE change_seq = 0;
+-- UPDATE users u SET expenses_version = GREATEST(u.expenses_version,
+--     (SELECT COALESCE(MAX(e.id), 0) FROM expenses e WHERE e.user_id = u.id));
+-- Recurring expenses:
+-- CREATE TABLE recurring_expenses (
+--     id BIGINT AUTO_INCREMENT PRIMARY KEY,
+--     title VARCHAR(255) NOT NULL,
+--     description VARCHAR(255),
+--     amount DECIMAL(10,2) NOT NULL,
+--     category VARCHAR(255) NOT NULL,
+--     schedule VARCHAR(100) NOT NULL,
+--     start_date DATE NOT NULL,
+--     end_date DATE,
+--     next_due_date DATE,
+--     created_at DATETIME(6),
+--     updated_at DATETIME(6),
+--     user_id BIGINT NOT NULL,
+--     INDEX idx_recurring_next_due (next_due_date),
+--     FOREIGN KEY (user_id) REFERENCES users(id)
+-- );
+-- CREATE TABLE recurring_expense_runs (
+--     id BIGINT AUTO_INCREMENT PRIMARY KEY,
+--     run_date DATE NOT NULL,
+--     last_recurring_id BIGINT NOT NULL,
+--     instances BIGINT NOT NULL,
+--     started_at DATETIME(6),
+--     finished_at DATETIME(6)
+-- );
+-- Budgets and the running month totals they are checked against:
+-- CREATE TABLE budgets (
+--     id BIGINT AUTO_INCREMENT PRIMARY KEY,
+--     category VARCHAR(255) NOT NULL,
+--     monthly_limit DECIMAL(10,2) NOT NULL,
+--     created_at DATETIME(6),
+--     updated_at DATETIME(6),
+--     user_id BIGINT NOT NULL,
+--     UNIQUE KEY uk_budgets_user_category (user_id, category),
+--     FOREIGN KEY (user_id) REFERENCES users(id)
+-- );
+-- CREATE TABLE expense_month_totals (
+--     id BIGINT AUTO_INCREMENT PRIMARY KEY,
+--     user_id BIGINT NOT NULL,
+--     month_start DATE NOT NULL,
+--     category VARCHAR(255) NOT NULL,
+--     total DECIMAL(14,2) NOT NULL,
+--     UNIQUE KEY uk_month_totals_user_month_category (user_id, month_start, category)
+-- );
+-- Seed the totals once from the existing expenses (before archiving any):
+-- INSERT INTO expense_month_totals (user_id, month_start, category, total)
+--     SELECT user_id, DATE_FORMAT(expense_date, '%Y-%m-01'), category, SUM(amount)
+--     FROM expenses GROUP BY user_id, DATE_FORMAT(expense_date, '%Y-%m-01'), category;
+-- ALTER TABLE expenses ADD COLUMN tags VARCHAR(340);
+-- ALTER TABLE expense_month_totals ADD COLUMN amount_sketch VARBINARY(8192);
+-- ALTER TABLE expense_month_totals ADD COLUMN title_counts VARBINARY(4096);
+-- ALTER TABLE expense_month_totals ADD COLUMN title_amounts VARBINARY(4096);
+-- (Existing totals get these built from the expenses on the first distribution or top-titles query.)
+-- ALTER TABLE expenses ADD COLUMN fingerprint BIGINT;
+-- CREATE INDEX idx_expenses_user_fingerprint ON expenses (user_id, fingerprint);
+-- (Existing expenses get theirs on the user's first create after the migration.)
+-- Receipt attachments (the files live under receipts.storage.directory):
+-- CREATE TABLE expense_receipts (
+--     id BIGINT AUTO_INCREMENT PRIMARY KEY,
+--     expense_id BIGINT NOT NULL,
+--     user_id BIGINT NOT NULL,
+--     sha256 VARCHAR(64) NOT NULL,
+--     content_type VARCHAR(100) NOT NULL,
+--     size BIGINT NOT NULL,
+--     filename VARCHAR(255),
+--     created_at DATETIME(6),
+--     INDEX idx_receipts_user_expense (user_id, expense_id),
+--     INDEX idx_receipts_sha256 (sha256)
+-- );
+-- Background reports (the results live under reports.directory):
+-- CREATE TABLE report_jobs (
+--     id BIGINT AUTO_INCREMENT PRIMARY KEY,
+--     user_id BIGINT NOT NULL,
+--     type VARCHAR(20) NOT NULL,
+--     from_month DATE NOT NULL,
+--     to_month DATE NOT NULL,
+--     status VARCHAR(10) NOT NULL,
+--     priority INT NOT NULL,
+--     data_version BIGINT NOT NULL,
+--     cache_key VARCHAR(64) NOT NULL,
+--     attempts INT NOT NULL,
+--     result_bytes BIGINT,
+--     error VARCHAR(500),
+--     created_at DATETIME(6),
+--     started_at DATETIME(6),
+--     finished_at DATETIME(6),
+--     lease_until DATETIME(6),
+--     INDEX idx_report_jobs_user_cache_key (user_id, cache_key),
+--     INDEX idx_report_jobs_status (status)
+-- );
+-- CREATE INDEX idx_expenses_user_date ON expenses (user_id, expense_date);
+-- Optimistic locking of expense updates and deletes:
+-- ALTER TABLE expenses ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+-- Sharding (datasource.shards.urls): create this schema on every shard and give each shard its own
+-- id range so users can move between shards with their ids. For shard k of at most 16 shards, in my.cnf:
+--   auto_increment_increment = 16
+--   auto_increment_offset = k + 1
+-- New shards must also start above the highest id shard 0 handed out before sharding in every table a
+-- move copies (moves onto a shard that already holds one of the ids are refused), e.g.:
+-- ALTER TABLE users AUTO_INCREMENT = 1000001;
+-- ALTER TABLE expenses AUTO_INCREMENT = 1000001;
+-- ALTER TABLE expense_tombstones AUTO_INCREMENT = 1000001;
+-- ALTER TABLE recurring_expenses AUTO_INCREMENT = 1000001;
+-- ALTER TABLE budgets AUTO_INCREMENT = 1000001;
+-- ALTER TABLE expense_month_totals AUTO_INCREMENT = 1000001;
+-- ALTER TABLE expense_receipts AUTO_INCREMENT = 1000001;
+-- ALTER TABLE report_jobs AUTO_INCREMENT = 1000001;
+-- The shard directory is created on shard 0 at startup:
+-- CREATE TABLE shard_directory (
+--     username VARCHAR(50) NOT NULL PRIMARY KEY,
+--     user_id BIGINT,
+--     shard INT NOT NULL,
+--     moving BOOLEAN NOT NULL DEFAULT FALSE
+-- );
+
 -- Grant privileges (adjust username as needed)
 -- GRANT ALL PRIVILEGES ON expense_tracker_db.* TO 'root'@'localhost';
 -- FLUSH PRIVILEGES;
@@ -0,0 +1,387 @@
+package com.expensetracker.archive;
+
+import com.expensetracker.entity.Expense;
+import com.expensetracker.sharding.ShardContext;
+import com.expensetracker.sharding.ShardRoutingDataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+/**
+ * Hot/cold tiering for expenses ({@code expenses.archive.enabled}).
+ * <p>
+ * A nightly job moves each user's expenses dated before the horizon out of MySQL into an
+ * {@link ExpenseSegment} file under {@code expenses.archive.directory}/&lt;userId&gt;/. A
+ * user has at most one current segment; each run writes a new one holding the old rows plus
+ * the newly aged ones, and only then deletes those rows from the table. Reads merge the
+ * segment with the hot rows, which always win: an archived expense that is updated or
+ * deleted is first restored into the table with its original id and version, so a client
+ * holding that version can still write it.
+ */
+@Service
+public class ExpenseArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpenseArchiveService.class);
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final String EXPENSE_COLUMNS =
+            "id, title, description, amount, category, tags, expense_date, created_at, updated_at, change_seq, version";
+
+    @Value("${expenses.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${expenses.archive.directory:./data/archive}")
+    private String directory;
+
+    @Value("${expenses.archive.horizon-days:180}")
+    private int horizonDays;
+
+    @Value("${expenses.archive.open-segments:256}")
+    private int maxOpenSegments;
+
+    // Bind temporal values the way Hibernate does, so JPA reads these rows back unchanged
+    @Value("${spring.jpa.properties.hibernate.jdbc.time_zone:}")
+    private String jdbcTimeZone;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Present only when sharding is configured
+    @Autowired(required = false)
+    private ShardRoutingDataSource shardRouting;
+
+    // Mapped segments by path; a path is never rewritten, so entries never go stale
+    private final Map<Path, ExpenseSegment> openSegments = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, ExpenseSegment> eldest) {
+            return size() > maxOpenSegments;
+        }
+    };
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The user's archived expenses that have not been deleted since, in id order. Some of
+     * them may also be hot again after a restore; callers let the hot row win.
+     */
+    public List<Expense> findArchived(Long userId) {
+        if (!enabled) {
+            return List.of();
+        }
+        Optional<ExpenseSegment> segment = openSegment(userId);
+        if (segment.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return withoutDeleted(userId, read(segment.get()), segment.get().getMinChangeSeq());
+    }
+
+    /**
+     * The user's archived expenses changed after {@code since}, as {@link #findArchived(Long)}
+     * would list them. A segment whose changes are all older is not decoded at all.
+     */
+    public List<Expense> findArchivedChanges(Long userId, long since) {
+        if (!enabled) {
+            return List.of();
+        }
+        Optional<ExpenseSegment> segment = openSegment(userId);
+        if (segment.isEmpty() || since >= segment.get().getMaxChangeSeq()) {
+            return new ArrayList<>();
+        }
+        List<Expense> changed = read(segment.get());
+        changed.removeIf(expense -> expense.getChangeSeq() <= since);
+        return withoutDeleted(userId, changed, since);
+    }
+
+    /**
+     * One archived expense, unless it was deleted since. Only the segment's id column is
+     * searched, and ids outside its range are answered from the header.
+     */
+    public Optional<Expense> findArchived(Long userId, Long id) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Optional<ExpenseSegment> segment = openSegment(userId);
+        if (segment.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<Expense> archived;
+        try {
+            archived = segment.get().find(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archived expenses", e);
+        }
+        if (archived.isPresent() && jdbcTemplate.queryForObject("select count(*) from expense_tombstones "
+                + "where user_id = ? and expense_id = ? and change_seq > ?",
+                Integer.class, userId, id, archived.get().getChangeSeq()) > 0) {
+            return Optional.empty();
+        }
+        return archived;
+    }
+
+    // Drops the rows deleted after they were archived, all of which have tombstones after minSeq
+    private List<Expense> withoutDeleted(Long userId, List<Expense> archived, long minSeq) {
+        if (archived.isEmpty()) {
+            return archived;
+        }
+        Set<Long> deleted = new HashSet<>(jdbcTemplate.queryForList(
+                "select expense_id from expense_tombstones where user_id = ? and change_seq > ?",
+                Long.class, userId, minSeq));
+        if (!deleted.isEmpty()) {
+            archived.removeIf(expense -> deleted.contains(expense.getId()));
+        }
+        // Segments before format version 4 are in date order
+        archived.sort(Comparator.comparing(Expense::getId));
+        return archived;
+    }
+
+    /**
+     * Copies an archived expense back into the table under its original id, in the caller's
+     * transaction, so it can be updated or deleted like any other. The segment keeps its copy
+     * until the next archival run drops it.
+     */
+    public boolean restore(Long userId, Long id) {
+        Optional<Expense> archived = findArchived(userId, id);
+        if (archived.isEmpty()) {
+            return false;
+        }
+        Expense expense = archived.get();
+        Calendar calendar = calendar();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement("insert into expenses (" + EXPENSE_COLUMNS
+                    + ", user_id) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            ps.setLong(1, expense.getId());
+            ps.setString(2, expense.getTitle());
+            ps.setString(3, expense.getDescription());
+            ps.setBigDecimal(4, expense.getAmount());
+            ps.setString(5, expense.getCategory());
+            ps.setString(6, expense.getTags());
+            ps.setDate(7, Date.valueOf(expense.getExpenseDate()), calendar);
+            ps.setTimestamp(8, toTimestamp(expense.getCreatedAt()), calendar);
+            ps.setTimestamp(9, toTimestamp(expense.getUpdatedAt()), calendar);
+            ps.setLong(10, expense.getChangeSeq());
+            ps.setLong(11, expense.getVersion());
+            ps.setLong(12, userId);
+            return ps;
+        });
+        return true;
+    }
+
+    @Scheduled(cron = "${expenses.archive.cron:0 30 3 * * *}")
+    public void archiveScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            logger.info("Archived {} expenses", archiveAll());
+        } catch (RuntimeException e) {
+            logger.error("Expense archival failed", e);
+        }
+    }
+
+    /**
+     * Archives every user's expenses dated before the horizon and returns how many rows left
+     * the table.
+     */
+    public long archiveAll() {
+        if (shardRouting == null) {
+            return archiveUsers();
+        }
+        long archived = 0;
+        for (int shard = 0; shard < shardRouting.getShardCount(); shard++) {
+            archived += ShardContext.callOnShard(shard, this::archiveUsers);
+        }
+        return archived;
+    }
+
+    private long archiveUsers() {
+        LocalDate horizon = LocalDate.now().minusDays(horizonDays);
+        List<Long> userIds = jdbcTemplate.queryForList(
+                "select distinct user_id from expenses where expense_date < ?", Long.class, Date.valueOf(horizon));
+        long archived = 0;
+        for (Long userId : userIds) {
+            try {
+                archived += archiveUser(userId, horizon);
+            } catch (IOException | RuntimeException e) {
+                // The user's rows stay hot and the next run tries again
+                logger.error("Failed to archive expenses of user {}", userId, e);
+            }
+        }
+        return archived;
+    }
+
+    int archiveUser(Long userId, LocalDate horizon) throws IOException {
+        // A user being copied to another shard would keep these rows there; the next run gets them
+        if (isMoving(userId)) {
+            return 0;
+        }
+        List<Expense> aged = jdbcTemplate.query("select " + EXPENSE_COLUMNS
+                + " from expenses where user_id = ? and expense_date < ?", this::mapExpense, userId, Date.valueOf(horizon));
+        if (aged.isEmpty()) {
+            return 0;
+        }
+
+        // Keep the old segment's rows unless they were deleted or are hot again
+        Set<Long> superseded = new HashSet<>(jdbcTemplate.queryForList(
+                "select id from expenses where user_id = ?", Long.class, userId));
+        List<Expense> rows = new ArrayList<>(aged);
+        for (Expense expense : findArchived(userId)) {
+            if (!superseded.contains(expense.getId())) {
+                rows.add(expense);
+            }
+        }
+
+        Path userDirectory = userDirectory(userId);
+        Files.createDirectories(userDirectory);
+        Optional<Path> previous = currentSegment(userId);
+        long generation = previous.map(ExpenseArchiveService::generation).orElse(0L) + 1;
+        Path segment = userDirectory.resolve(generation + SEGMENT_SUFFIX);
+        ExpenseSegment.write(segment, rows);
+        if (isMoving(userId)) {
+            Files.deleteIfExists(segment);
+            return 0;
+        }
+
+        // A row changed since it was read keeps its new change_seq and stays hot
+        int removed = new TransactionTemplate(transactionManager).execute(status -> {
+            int count = 0;
+            for (Expense expense : aged) {
+                count += jdbcTemplate.update("delete from expenses where id = ? and change_seq = ?",
+                        expense.getId(), expense.getChangeSeq());
+            }
+            return count;
+        });
+        if (previous.isPresent()) {
+            synchronized (openSegments) {
+                openSegments.remove(previous.get());
+            }
+            Files.deleteIfExists(previous.get());
+        }
+        return removed;
+    }
+
+    private boolean isMoving(Long userId) {
+        if (shardRouting == null) {
+            return false;
+        }
+        String username = jdbcTemplate.queryForObject("select username from users where id = ?", String.class, userId);
+        return shardRouting.isMoving(username);
+    }
+
+    private Optional<ExpenseSegment> openSegment(Long userId) {
+        Optional<Path> path = currentSegment(userId);
+        if (path.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            ExpenseSegment segment;
+            synchronized (openSegments) {
+                segment = openSegments.get(path.get());
+            }
+            if (segment == null) {
+                segment = ExpenseSegment.open(path.get());
+                synchronized (openSegments) {
+                    openSegments.put(path.get(), segment);
+                }
+            }
+            return Optional.of(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archived expenses", e);
+        }
+    }
+
+    private static List<Expense> read(ExpenseSegment segment) {
+        try {
+            return segment.readAll();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archived expenses", e);
+        }
+    }
+
+    private Optional<Path> currentSegment(Long userId) {
+        Path userDirectory = userDirectory(userId);
+        if (!Files.isDirectory(userDirectory)) {
+            return Optional.empty();
+        }
+        try (Stream<Path> files = Files.list(userDirectory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .max(Comparator.comparingLong(ExpenseArchiveService::generation));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list archived expenses", e);
+        }
+    }
+
+    private Path userDirectory(Long userId) {
+        return Paths.get(directory, userId.toString());
+    }
+
+    private static long generation(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private Expense mapExpense(ResultSet rs, int rowNum) throws SQLException {
+        Calendar calendar = calendar();
+        Expense expense = new Expense();
+        expense.setId(rs.getLong("id"));
+        expense.setTitle(rs.getString("title"));
+        expense.setDescription(rs.getString("description"));
+        expense.setAmount(rs.getBigDecimal("amount"));
+        expense.setCategory(rs.getString("category"));
+        expense.setTags(rs.getString("tags"));
+        expense.setExpenseDate(rs.getDate("expense_date", calendar).toLocalDate());
+        expense.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at", calendar)));
+        expense.setUpdatedAt(toLocalDateTime(rs.getTimestamp("updated_at", calendar)));
+        expense.setChangeSeq(rs.getLong("change_seq"));
+        expense.setVersion(rs.getLong("version"));
+        return expense;
+    }
+
+    private Calendar calendar() {
+        return StringUtils.hasText(jdbcTimeZone)
+                ? Calendar.getInstance(TimeZone.getTimeZone(jdbcTimeZone)) : Calendar.getInstance();
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime value) {
+        return value == null ? null : Timestamp.valueOf(value);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp value) {
+        return value == null ? null : value.toLocalDateTime();
+    }
+}
@@ -0,0 +1,498 @@
+package com.expensetracker.archive;
+
+import com.expensetracker.entity.Expense;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * An immutable file of one user's archived expenses, stored column by column.
+ * <p>
+ * Each column is encoded on its own (deltas for ids, sequence numbers and dates, a
+ * dictionary for categories, length-prefixed UTF-8 for text) and deflated separately, so
+ * a reader only inflates the columns it needs. Files are memory-mapped for reading.
+ * <p>
+ * Rows are stored in id order and the header records the id and change_seq ranges, so a
+ * reader can tell from the header alone that a segment holds no id or change it is after,
+ * and find one id by a binary search of the id column without decoding the others past it.
+ * Version 2 added the tags column, version 3 the optimistic-locking version column and
+ * version 4 the id order and ranges; version 1 files read as untagged, files before version
+ * 3 as version 0, and for files before version 4 the ranges are worked out when opened.
+ */
+public final class ExpenseSegment {
+
+    private static final int MAGIC = 0x45585347; // "EXSG"
+
+    private static final byte VERSION = 4;
+
+    private static final int ID = 0;
+    private static final int CHANGE_SEQ = 1;
+    private static final int EXPENSE_DATE = 2;
+    private static final int CREATED_AT = 3;
+    private static final int UPDATED_AT = 4;
+    private static final int AMOUNT = 5;
+    private static final int CATEGORY = 6;
+    private static final int TITLE = 7;
+    private static final int DESCRIPTION = 8;
+    private static final int TAGS = 9;
+    private static final int ROW_VERSION = 10;
+    private static final int COLUMNS = 11;
+    private static final int VERSION_1_COLUMNS = 9;
+    private static final int VERSION_2_COLUMNS = 10;
+
+    private final MappedByteBuffer buffer;
+
+    private final int rowCount;
+
+    private final int columnCount;
+
+    private final boolean idOrdered;
+
+    private long minId;
+
+    private long maxId;
+
+    private long minChangeSeq;
+
+    private long maxChangeSeq;
+
+    // Decoded on first lookup; the file never changes, so neither do they
+    private long[] decodedIds;
+
+    private final int[] offsets = new int[COLUMNS];
+
+    private final int[] compressedLengths = new int[COLUMNS];
+
+    private final int[] rawLengths = new int[COLUMNS];
+
+    private ExpenseSegment(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        ByteBuffer header = buffer.duplicate();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not an expense segment");
+        }
+        byte version = header.get();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported expense segment version " + version);
+        }
+        columnCount = version == 1 ? VERSION_1_COLUMNS : version == 2 ? VERSION_2_COLUMNS : COLUMNS;
+        idOrdered = version >= 4;
+        rowCount = header.getInt();
+        if (idOrdered) {
+            minId = header.getLong();
+            maxId = header.getLong();
+            minChangeSeq = header.getLong();
+            maxChangeSeq = header.getLong();
+        }
+        for (int column = 0; column < columnCount; column++) {
+            rawLengths[column] = header.getInt();
+            compressedLengths[column] = header.getInt();
+            offsets[column] = header.position();
+            header.position(header.position() + compressedLengths[column]);
+        }
+        if (!idOrdered && rowCount > 0) {
+            computeRanges();
+        }
+    }
+
+    private void computeRanges() throws IOException {
+        long[] allIds = ids();
+        ByteBuffer seqs = inflate(CHANGE_SEQ);
+        minId = Long.MAX_VALUE;
+        maxId = Long.MIN_VALUE;
+        minChangeSeq = Long.MAX_VALUE;
+        maxChangeSeq = Long.MIN_VALUE;
+        long seq = 0;
+        for (int row = 0; row < rowCount; row++) {
+            seq += readSigned(seqs);
+            minId = Math.min(minId, allIds[row]);
+            maxId = Math.max(maxId, allIds[row]);
+            minChangeSeq = Math.min(minChangeSeq, seq);
+            maxChangeSeq = Math.max(maxChangeSeq, seq);
+        }
+    }
+
+    public static ExpenseSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new ExpenseSegment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the expenses to {@code path} in id order, atomically: readers see either no file
+     * or all of it.
+     */
+    public static void write(Path path, List<Expense> rows) throws IOException {
+        List<Expense> expenses = new ArrayList<>(rows);
+        expenses.sort(Comparator.comparing(Expense::getId));
+        Column[] columns = new Column[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            columns[i] = new Column();
+        }
+        long previousId = 0;
+        long previousSeq = 0;
+        long previousDay = 0;
+        Map<String, Integer> categories = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        ByteArrayOutputStream categoryIndexes = new ByteArrayOutputStream();
+        long[] previousTimes = new long[2];
+        long minSeq = expenses.isEmpty() ? 0 : Long.MAX_VALUE;
+        long maxSeq = expenses.isEmpty() ? 0 : Long.MIN_VALUE;
+        for (Expense expense : expenses) {
+            minSeq = Math.min(minSeq, expense.getChangeSeq());
+            maxSeq = Math.max(maxSeq, expense.getChangeSeq());
+            columns[ID].writeSigned(expense.getId() - previousId);
+            previousId = expense.getId();
+            columns[CHANGE_SEQ].writeSigned(expense.getChangeSeq() - previousSeq);
+            previousSeq = expense.getChangeSeq();
+            long day = expense.getExpenseDate().toEpochDay();
+            columns[EXPENSE_DATE].writeSigned(day - previousDay);
+            previousDay = day;
+            writeTime(columns[CREATED_AT], expense.getCreatedAt(), previousTimes, 0);
+            writeTime(columns[UPDATED_AT], expense.getUpdatedAt(), previousTimes, 1);
+            columns[AMOUNT].write(expense.getAmount().scale());
+            columns[AMOUNT].writeSigned(expense.getAmount().unscaledValue().longValueExact());
+            Integer index = categories.get(expense.getCategory());
+            if (index == null) {
+                index = dictionary.size();
+                categories.put(expense.getCategory(), index);
+                dictionary.add(expense.getCategory());
+            }
+            writeUnsigned(categoryIndexes, index);
+            columns[TITLE].writeString(expense.getTitle());
+            columns[DESCRIPTION].writeNullableString(expense.getDescription());
+            columns[TAGS].writeNullableString(expense.getTags());
+            columns[ROW_VERSION].writeUnsigned(expense.getVersion());
+        }
+        columns[CATEGORY].writeUnsigned(dictionary.size());
+        dictionary.forEach(columns[CATEGORY]::writeString);
+        categoryIndexes.writeTo(columns[CATEGORY]);
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        ByteBuffer header = ByteBuffer.allocate(41);
+        header.putInt(MAGIC).put(VERSION).putInt(expenses.size());
+        header.putLong(expenses.isEmpty() ? 0 : expenses.get(0).getId())
+                .putLong(expenses.isEmpty() ? 0 : expenses.get(expenses.size() - 1).getId())
+                .putLong(minSeq)
+                .putLong(maxSeq);
+        file.write(header.array());
+        Deflater deflater = new Deflater();
+        try {
+            for (Column column : columns) {
+                byte[] raw = column.toByteArray();
+                byte[] compressed = deflate(deflater, raw);
+                file.write(ByteBuffer.allocate(8).putInt(raw.length).putInt(compressed.length).array());
+                file.write(compressed);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(file.toByteArray()));
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public long getMinId() {
+        return minId;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public long getMinChangeSeq() {
+        return minChangeSeq;
+    }
+
+    public long getMaxChangeSeq() {
+        return maxChangeSeq;
+    }
+
+    /**
+     * Decodes every row. The returned expenses are detached and carry no user.
+     */
+    public List<Expense> readAll() throws IOException {
+        return read(0, rowCount);
+    }
+
+    /**
+     * The expense with this id, if the segment holds it. Only the id column is searched; the
+     * other columns are decoded up to that row only.
+     */
+    public Optional<Expense> find(long id) throws IOException {
+        if (rowCount == 0 || id < minId || id > maxId) {
+            return Optional.empty();
+        }
+        long[] allIds = ids();
+        int row;
+        if (idOrdered) {
+            row = Arrays.binarySearch(allIds, id);
+        } else {
+            row = -1;
+            for (int i = 0; i < allIds.length && row < 0; i++) {
+                if (allIds[i] == id) {
+                    row = i;
+                }
+            }
+        }
+        return row < 0 ? Optional.empty() : Optional.of(read(row, row + 1).get(0));
+    }
+
+    // Decodes rows [from, to), skipping over the text of the rows before them
+    private List<Expense> read(int from, int to) throws IOException {
+        ByteBuffer ids = inflate(ID);
+        ByteBuffer seqs = inflate(CHANGE_SEQ);
+        ByteBuffer days = inflate(EXPENSE_DATE);
+        ByteBuffer created = inflate(CREATED_AT);
+        ByteBuffer updated = inflate(UPDATED_AT);
+        ByteBuffer amounts = inflate(AMOUNT);
+        ByteBuffer categories = inflate(CATEGORY);
+        ByteBuffer titles = inflate(TITLE);
+        ByteBuffer descriptions = inflate(DESCRIPTION);
+        ByteBuffer tags = columnCount > TAGS ? inflate(TAGS) : null;
+        ByteBuffer versions = columnCount > ROW_VERSION ? inflate(ROW_VERSION) : null;
+
+        String[] dictionary = new String[(int) readUnsigned(categories)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = readString(categories);
+        }
+
+        List<Expense> expenses = new ArrayList<>(to - from);
+        long id = 0;
+        long seq = 0;
+        long day = 0;
+        long[] previousTimes = new long[2];
+        for (int row = 0; row < to; row++) {
+            id += readSigned(ids);
+            seq += readSigned(seqs);
+            day += readSigned(days);
+            if (row < from) {
+                readTime(created, previousTimes, 0);
+                readTime(updated, previousTimes, 1);
+                amounts.get();
+                readSigned(amounts);
+                readUnsigned(categories);
+                skipString(titles, 0);
+                skipString(descriptions, 1);
+                if (tags != null) {
+                    skipString(tags, 1);
+                }
+                if (versions != null) {
+                    readUnsigned(versions);
+                }
+                continue;
+            }
+            Expense expense = new Expense();
+            expense.setId(id);
+            expense.setChangeSeq(seq);
+            expense.setExpenseDate(LocalDate.ofEpochDay(day));
+            expense.setCreatedAt(readTime(created, previousTimes, 0));
+            expense.setUpdatedAt(readTime(updated, previousTimes, 1));
+            int scale = amounts.get();
+            expense.setAmount(new BigDecimal(BigInteger.valueOf(readSigned(amounts)), scale));
+            expense.setCategory(dictionary[(int) readUnsigned(categories)]);
+            expense.setTitle(readString(titles));
+            expense.setDescription(readNullableString(descriptions));
+            expense.setTags(tags == null ? null : readNullableString(tags));
+            expense.setVersion(versions == null ? 0 : readUnsigned(versions));
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+
+    /**
+     * Ids only, for lookups that should not inflate the text columns.
+     */
+    public long[] readIds() throws IOException {
+        return ids().clone();
+    }
+
+    private synchronized long[] ids() throws IOException {
+        if (decodedIds == null) {
+            ByteBuffer column = inflate(ID);
+            long[] decoded = new long[rowCount];
+            long id = 0;
+            for (int row = 0; row < rowCount; row++) {
+                id += readSigned(column);
+                decoded[row] = id;
+            }
+            decodedIds = decoded;
+        }
+        return decodedIds;
+    }
+
+    private ByteBuffer inflate(int column) throws IOException {
+        ByteBuffer compressed = buffer.slice(offsets[column], compressedLengths[column]);
+        byte[] raw = new byte[rawLengths[column]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                length += inflater.inflate(raw, length, raw.length - length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt expense segment", e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(chunk, 0, deflater.deflate(chunk));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Timestamps as seconds (delta to the previous row, 0 meaning null) plus nanoseconds.
+     */
+    private static void writeTime(Column column, LocalDateTime time, long[] previous, int slot) {
+        if (time == null) {
+            column.writeUnsigned(0);
+            return;
+        }
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        column.writeUnsigned(zigzag(seconds - previous[slot]) + 1);
+        column.writeUnsigned(time.getNano());
+        previous[slot] = seconds;
+    }
+
+    private static LocalDateTime readTime(ByteBuffer column, long[] previous, int slot) {
+        long encoded = readUnsigned(column);
+        if (encoded == 0) {
+            return null;
+        }
+        long seconds = previous[slot] + unzigzag(encoded - 1);
+        previous[slot] = seconds;
+        return LocalDateTime.ofEpochSecond(seconds, (int) readUnsigned(column), ZoneOffset.UTC);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeUnsigned(OutputStream out, long value) {
+        try {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long readUnsigned(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static long readSigned(ByteBuffer in) {
+        return unzigzag(readUnsigned(in));
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readUnsigned(in);
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    // Skips a string written with its length plus bias: 0 for plain strings, 1 for nullable ones
+    private static void skipString(ByteBuffer in, int bias) {
+        int length = (int) readUnsigned(in) - bias;
+        if (length > 0) {
+            in.position(in.position() + length);
+        }
+    }
+
+    private static String readNullableString(ByteBuffer in) {
+        int length = (int) readUnsigned(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static final class Column extends ByteArrayOutputStream {
+
+        void writeUnsigned(long value) {
+            ExpenseSegment.writeUnsigned(this, value);
+        }
+
+        void writeSigned(long value) {
+            writeUnsigned(zigzag(value));
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeNullableString(String value) {
+            if (value == null) {
+                writeUnsigned(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(bytes.length + 1L);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.expensetracker.config;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.Schedules;
+
+/**
+ * Turns on {@code @Scheduled} methods, such as the nightly expense archival.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    /**
+     * Keeps beans with {@code @Scheduled} methods eager under
+     * {@code spring.main.lazy-initialization}. Scheduling is registered when a bean is created,
+     * so a lazy job that nothing else asks for would never run.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter scheduledBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> {
+            if (!AnnotationUtils.isCandidateClass(beanType, Set.of(Scheduled.class, Schedules.class))) {
+                return false;
+            }
+            Map<Method, Boolean> scheduled = MethodIntrospector.selectMethods(beanType,
+                    (MethodIntrospector.MetadataLookup<Boolean>) method ->
+                            AnnotatedElementUtils.hasAnnotation(method, Scheduled.class) ? Boolean.TRUE : null);
+            return !scheduled.isEmpty();
+        };
+    }
+}
@@ -0,0 +1,113 @@
+package com.expensetracker.config;
+
+import com.expensetracker.datasource.ConnectionMetrics;
+import com.expensetracker.datasource.ReadYourWritesTracker;
+import com.expensetracker.sharding.ShardAdminRunner;
+import com.expensetracker.sharding.ShardAdminService;
+import com.expensetracker.sharding.ShardDirectory;
+import com.expensetracker.sharding.ShardMigrationService;
+import com.expensetracker.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * User sharding, active when {@code datasource.shards.urls} lists the additional shards.
+ * Shard 0 is the database configured by spring.datasource.* and also holds the directory.
+ * Takes precedence over read replicas, which are not combined with shards.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.shards.urls")
+public class ShardingConfig {
+
+    @Value("${datasource.shards.urls}")
+    private String[] shardUrls;
+
+    @Value("${datasource.shards.username:${spring.datasource.username:}}")
+    private String shardUsername;
+
+    @Value("${datasource.shards.password:${spring.datasource.password:}}")
+    private String shardPassword;
+
+    @Value("${datasource.shards.maximum-pool-size:10}")
+    private int shardPoolSize;
+
+    @Value("${datasource.shards.directory-ttl-ms:5000}")
+    private long directoryTtlMs;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ShardDirectory shardDirectory(HikariDataSource primaryDataSource) {
+        return new ShardDirectory(new JdbcTemplate(primaryDataSource), shardUrls.length + 1, directoryTtlMs);
+    }
+
+    /**
+     * Runs once the schema exists, before the web server starts taking requests.
+     */
+    @Bean
+    public SmartInitializingSingleton shardDirectoryInitializer(ShardDirectory shardDirectory) {
+        return shardDirectory::initialize;
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(HikariDataSource primaryDataSource,
+                                                         DataSourceProperties properties,
+                                                         ShardDirectory shardDirectory,
+                                                         ReadYourWritesTracker readYourWrites,
+                                                         ConnectionMetrics connectionMetrics) {
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(primaryDataSource);
+        for (int i = 0; i < shardUrls.length; i++) {
+            HikariDataSource shard = new HikariDataSource();
+            shard.setPoolName("shard-" + (i + 1));
+            shard.setJdbcUrl(shardUrls[i].trim());
+            shard.setDriverClassName(properties.determineDriverClassName());
+            shard.setUsername(shardUsername);
+            shard.setPassword(shardPassword);
+            shard.setLeakDetectionThreshold(primaryDataSource.getLeakDetectionThreshold());
+            connectionMetrics.instrument(shard);
+            shard.setMaximumPoolSize(shardPoolSize);
+            shards.add(shard);
+        }
+        return new ShardRoutingDataSource(shards, shardDirectory, readYourWrites);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public ShardMigrationService shardMigrationService(ShardRoutingDataSource shardRoutingDataSource,
+                                                       ShardDirectory shardDirectory) {
+        return new ShardMigrationService(shardRoutingDataSource, shardDirectory);
+    }
+
+    @Bean
+    public ShardAdminService shardAdminService(ShardRoutingDataSource shardRoutingDataSource) {
+        return new ShardAdminService(shardRoutingDataSource);
+    }
+
+    @Bean
+    public ShardAdminRunner shardAdminRunner(ShardAdminService shardAdminService,
+                                             ShardMigrationService shardMigrationService) {
+        return new ShardAdminRunner(shardAdminService, shardMigrationService);
+    }
+}
@@ -0,0 +1,55 @@
+package com.expensetracker.config;
+
+import com.expensetracker.datasource.ConnectionMetrics;
+import com.expensetracker.web.ConnectionMetricsFilter;
+import com.expensetracker.web.PrecompressedListFilter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+@Configuration
+public class WebConfig {
+    
+    /**
+     * application/cbor, built from Boot's builder so it serialises exactly like the JSON converter.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+    
+    /**
+     * application/x-jackson-smile. Smile already back-references repeated field names; sharing
+     * short string values as well collapses the categories repeated on every list element.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        SmileFactory factory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(factory).build());
+    }
+    
+    @Bean
+    public PrecompressedListFilter precompressedListFilter() {
+        return new PrecompressedListFilter();
+    }
+    
+    /**
+     * First in the chain; see {@link ConnectionMetricsFilter}.
+     */
+    @Bean
+    public FilterRegistrationBean<ConnectionMetricsFilter> connectionMetricsFilter(ConnectionMetrics connectionMetrics) {
+        FilterRegistrationBean<ConnectionMetricsFilter> registration =
+                new FilterRegistrationBean<>(new ConnectionMetricsFilter(connectionMetrics));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,56 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.dto.BudgetRequest;
+import com.expensetracker.dto.BudgetResponse;
+import com.expensetracker.dto.BudgetStatusResponse;
+import com.expensetracker.dto.ErrorResponse;
+import com.expensetracker.service.BudgetService;
+import jakarta.validation.Valid;
+import java.time.YearMonth;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+
+@RestController
+@RequestMapping("/api/budgets")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class BudgetController {
+    
+    @Autowired
+    private BudgetService budgetService;
+    
+    /**
+     * Creates the budget for the category, or replaces its limit.
+     */
+    @PostMapping
+    public ResponseEntity<?> saveBudget(@Valid @RequestBody BudgetRequest request) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            return ResponseEntity.ok(budgetService.saveBudget(request, username));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<BudgetResponse>> getBudgets() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(budgetService.getBudgets(username));
+    }
+    
+    @GetMapping("/status")
+    public ResponseEntity<List<BudgetStatusResponse>> getStatus(@RequestParam(required = false) YearMonth month) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(budgetService.getStatus(month == null ? YearMonth.now() : month, username));
+    }
+    
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteBudget(@PathVariable Long id) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        budgetService.deleteBudget(id, username);
+        return ResponseEntity.ok().body("Budget deleted successfully!");
+    }
+}
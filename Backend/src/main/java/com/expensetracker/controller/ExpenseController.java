@@ -1,14 +1,32 @@
 package com.expensetracker.controller;
 
+import com.expensetracker.dto.ErrorResponse;
+import com.expensetracker.dto.ExpenseChangesResponse;
+import com.expensetracker.dto.ExpensePatch;
 import com.expensetracker.dto.ExpenseRequest;
 import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.index.AutocompleteIndex;
+import com.expensetracker.index.ExpenseFilter;
+import com.expensetracker.service.DuplicateExpenseException;
+import com.expensetracker.service.ExpenseConflictException;
+import com.expensetracker.service.ExpenseIngestService;
 import com.expensetracker.service.ExpenseService;
+import com.expensetracker.service.ExpenseStreamService;
 import jakarta.validation.Valid;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 
 @RestController
@@ -16,42 +34,168 @@ import org.springframework.web.bind.annotation.*;
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class ExpenseController {
     
+    // Let clients keep a private copy but always revalidate it with the ETag
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+    
+    private static final int MAX_SUGGESTIONS = 20;
+    
+    // RFC 7386; Jackson reads it as it reads any +json type
+    private static final String MERGE_PATCH_JSON = "application/merge-patch+json";
+    
     @Autowired
     private ExpenseService expenseService;
     
+    @Autowired
+    private ExpenseStreamService expenseStreamService;
+    
+    @Autowired
+    private ExpenseIngestService expenseIngestService;
+    
+    /**
+     * Creates an expense, or answers 409 Conflict when it repeats one the user already has;
+     * {@code allowDuplicate=true} creates it anyway.
+     */
     @PostMapping
-    public ResponseEntity<ExpenseResponse> createExpense(@Valid @RequestBody ExpenseRequest request) {
+    public ResponseEntity<?> createExpense(@Valid @RequestBody ExpenseRequest request,
+                                           @RequestParam(defaultValue = "false") boolean allowDuplicate) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        ExpenseResponse response = expenseService.createExpense(request, username);
-        return ResponseEntity.ok(response);
+        try {
+            // Group commit waits outside any transaction, so it must not go through ExpenseService
+            ExpenseResponse response = expenseIngestService.isEnabled()
+                    ? expenseIngestService.createExpense(request, username, allowDuplicate)
+                    : expenseService.createExpense(request, username, allowDuplicate);
+            return ResponseEntity.ok(response);
+        } catch (DuplicateExpenseException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse(e.getMessage()));
+        }
     }
     
     @GetMapping
-    public ResponseEntity<List<ExpenseResponse>> getAllExpenses() {
+    public ResponseEntity<List<ExpenseResponse>> getAllExpenses(WebRequest webRequest) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        String etag = expenseService.getExpensesEtag(username);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        
         List<ExpenseResponse> expenses = expenseService.getAllExpenses(username);
-        return ResponseEntity.ok(expenses);
+        return ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .varyBy(HttpHeaders.AUTHORIZATION, HttpHeaders.ACCEPT)
+                .eTag(etag)
+                .body(expenses);
+    }
+    
+    @GetMapping("/changes")
+    public ResponseEntity<ExpenseChangesResponse> getChanges(@RequestParam(defaultValue = "0") long since,
+                                                             @RequestParam(defaultValue = "500") int limit) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        ExpenseChangesResponse changes = expenseService.getChanges(since, limit, username);
+        return ResponseEntity.ok(changes);
+    }
+    
+    /**
+     * Any of the categories (all when none are given), with every {@code tag}, with no
+     * {@code excludeTag}, dated from..to inclusive.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<ExpenseResponse>> searchExpenses(
+            @RequestParam(name = "category", required = false) List<String> categories,
+            @RequestParam(name = "tag", required = false) List<String> tags,
+            @RequestParam(name = "excludeTag", required = false) List<String> excludedTags,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        ExpenseFilter filter = new ExpenseFilter(categories, tags, excludedTags, from, to);
+        return ResponseEntity.ok(expenseService.searchExpenses(filter, username));
+    }
+    
+    /**
+     * The user's most used titles ({@code field=title}) or categories ({@code field=category})
+     * starting with {@code prefix}, for the expense forms.
+     */
+    @GetMapping("/suggestions")
+    public ResponseEntity<?> getSuggestions(@RequestParam(defaultValue = "title") String field,
+                                            @RequestParam(defaultValue = "") String prefix,
+                                            @RequestParam(defaultValue = "8") int limit) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        AutocompleteIndex.Field suggestionField;
+        try {
+            suggestionField = AutocompleteIndex.Field.of(field);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+        return ResponseEntity.ok(expenseService.suggest(suggestionField, prefix,
+                Math.max(1, Math.min(limit, MAX_SUGGESTIONS)), username));
+    }
+    
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return expenseStreamService.subscribe(username);
     }
     
     @GetMapping("/{id}")
     public ResponseEntity<ExpenseResponse> getExpenseById(@PathVariable Long id) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         ExpenseResponse expense = expenseService.getExpenseById(id, username);
-        return ResponseEntity.ok(expense);
+        // Spring answers a matching If-None-Match with 304 for us once the ETag is set
+        return ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .varyBy(HttpHeaders.AUTHORIZATION, HttpHeaders.ACCEPT)
+                .eTag(itemEtag(expense))
+                .body(expense);
     }
     
+    /**
+     * Replaces the expense. Sending the {@code version} it was read at makes this answer 409
+     * Conflict instead of overwriting a newer change; so does a change racing this one.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<ExpenseResponse> updateExpense(@PathVariable Long id, 
-                                                        @Valid @RequestBody ExpenseRequest request) {
+    public ResponseEntity<?> updateExpense(@PathVariable Long id,
+                                           @Valid @RequestBody ExpenseRequest request) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            ExpenseResponse response = expenseService.updateExpense(id, request, username);
+            return ResponseEntity.ok(response);
+        } catch (ExpenseConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse(e.getMessage()));
+        }
+    }
+    
+    /**
+     * Changes only the fields a JSON Merge Patch sends, writing just the columns that differ;
+     * {@code null} clears description or tags. {@code version} and conflicts work as for PUT.
+     */
+    @PatchMapping(path = "/{id}", consumes = MERGE_PATCH_JSON)
+    public ResponseEntity<?> patchExpense(@PathVariable Long id, @Valid @RequestBody ExpensePatch patch) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        ExpenseResponse response = expenseService.updateExpense(id, request, username);
-        return ResponseEntity.ok(response);
+        try {
+            return ResponseEntity.ok(expenseService.patchExpense(id, patch, username));
+        } catch (ExpenseConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse(e.getMessage()));
+        }
     }
     
+    /**
+     * Deletes the expense; with {@code version}, only while it is at that version (409 otherwise).
+     */
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteExpense(@PathVariable Long id) {
+    public ResponseEntity<?> deleteExpense(@PathVariable Long id, @RequestParam(required = false) Long version) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        expenseService.deleteExpense(id, username);
-        return ResponseEntity.ok().body("Expense deleted successfully!");
+        try {
+            expenseService.deleteExpense(id, version, username);
+            return ResponseEntity.ok().body("Expense deleted successfully!");
+        } catch (ExpenseConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse(e.getMessage()));
+        }
+    }
+    
+    private static String itemEtag(ExpenseResponse expense) {
+        // Microseconds, the precision updated_at is stored with
+        long updatedAt = expense.getUpdatedAt() == null ? 0L
+                : expense.getUpdatedAt().toEpochSecond(ZoneOffset.UTC) * 1_000_000L
+                        + expense.getUpdatedAt().getNano() / 1_000;
+        return "W/\"" + expense.getId() + "-" + updatedAt + "\"";
     }
 }
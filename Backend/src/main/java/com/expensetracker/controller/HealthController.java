@@ -0,0 +1,60 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.datasource.AdaptivePoolSizer;
+import com.expensetracker.datasource.ConnectionMetrics;
+import com.expensetracker.dto.ConnectionStatsResponse;
+import com.expensetracker.dto.PoolSizeResponse;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+
+/**
+ * Operational endpoints, outside {@code /api} so they are not rate limited. The readiness
+ * probe needs no token.
+ */
+@RestController
+@RequestMapping("/health")
+public class HealthController {
+    
+    @Autowired
+    private ApplicationAvailability availability;
+    
+    @Autowired
+    private ConnectionMetrics connectionMetrics;
+    
+    @Autowired
+    private AdaptivePoolSizer poolSizer;
+    
+    /**
+     * 200 once startup, including the JIT warm-up, has finished; 503 before that.
+     */
+    @GetMapping("/readiness")
+    public ResponseEntity<Map<String, String>> readiness() {
+        ReadinessState state = availability.getReadinessState();
+        HttpStatus status = state == ReadinessState.ACCEPTING_TRAFFIC ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(status).body(Map.of("status", state.name()));
+    }
+    
+    /**
+     * Connection acquire and hold times per endpoint, the endpoints that kept connections
+     * busy longest first.
+     */
+    @GetMapping("/connections")
+    public ResponseEntity<List<ConnectionStatsResponse>> connections() {
+        return ResponseEntity.ok(connectionMetrics.snapshot());
+    }
+    
+    /**
+     * The latest sizing decision for each connection pool and the usage behind it.
+     */
+    @GetMapping("/pools")
+    public ResponseEntity<List<PoolSizeResponse>> pools() {
+        return ResponseEntity.ok(poolSizer.snapshot());
+    }
+}
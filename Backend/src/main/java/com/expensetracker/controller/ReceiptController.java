@@ -0,0 +1,81 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.dto.ErrorResponse;
+import com.expensetracker.dto.ReceiptResponse;
+import com.expensetracker.service.ReceiptService;
+import com.expensetracker.storage.ReceiptTooLargeException;
+import com.expensetracker.web.RangeFileWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+
+@RestController
+@RequestMapping("/api/expenses/{expenseId}/receipts")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class ReceiptController {
+    
+    @Autowired
+    private ReceiptService receiptService;
+    
+    /**
+     * Attaches the request body, a JPEG, PNG, WebP or PDF file sent as is, to the expense.
+     * The body streams to disk, so it is not a multipart form.
+     */
+    @PostMapping
+    public ResponseEntity<?> uploadReceipt(@PathVariable Long expenseId,
+                                           @RequestParam(required = false) String filename,
+                                           HttpServletRequest request) throws IOException {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            return ResponseEntity.ok(receiptService.upload(expenseId, filename, request.getContentLengthLong(),
+                    request.getInputStream(), username));
+        } catch (ReceiptTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(new ErrorResponse(e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<ReceiptResponse>> getReceipts(@PathVariable Long expenseId) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(receiptService.getReceipts(expenseId, username));
+    }
+    
+    /**
+     * The receipt's bytes, honouring Range, If-Range and If-None-Match.
+     */
+    @GetMapping("/{receiptId}")
+    public ResponseEntity<?> downloadReceipt(@PathVariable Long expenseId, @PathVariable Long receiptId,
+                                             HttpServletRequest request,
+                                             HttpServletResponse response) throws IOException {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        ReceiptResponse receipt;
+        try {
+            receipt = receiptService.getReceipt(expenseId, receiptId, username);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+        RangeFileWriter.write(request, response, receiptService.getFile(receipt), receipt.getSize(),
+                "\"" + receipt.getSha256() + "\"", receipt.getContentType(), receipt.getFilename());
+        return null;
+    }
+    
+    @DeleteMapping("/{receiptId}")
+    public ResponseEntity<?> deleteReceipt(@PathVariable Long expenseId, @PathVariable Long receiptId) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            receiptService.deleteReceipt(expenseId, receiptId, username);
+            return ResponseEntity.ok().body("Receipt deleted successfully!");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.dto.ErrorResponse;
+import com.expensetracker.dto.RecurringExpenseRequest;
+import com.expensetracker.dto.RecurringExpenseResponse;
+import com.expensetracker.service.RecurringExpenseService;
+import jakarta.validation.Valid;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+
+@RestController
+@RequestMapping("/api/recurring-expenses")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class RecurringExpenseController {
+    
+    @Autowired
+    private RecurringExpenseService recurringExpenseService;
+    
+    @PostMapping
+    public ResponseEntity<?> createRecurringExpense(@Valid @RequestBody RecurringExpenseRequest request) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            return ResponseEntity.ok(recurringExpenseService.createRecurringExpense(request, username));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<RecurringExpenseResponse>> getRecurringExpenses() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(recurringExpenseService.getRecurringExpenses(username));
+    }
+    
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteRecurringExpense(@PathVariable Long id) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        recurringExpenseService.deleteRecurringExpense(id, username);
+        return ResponseEntity.ok().body("Recurring expense deleted successfully!");
+    }
+}
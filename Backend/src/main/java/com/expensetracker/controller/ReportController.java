@@ -0,0 +1,80 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.dto.ErrorResponse;
+import com.expensetracker.dto.ReportJobResponse;
+import com.expensetracker.dto.ReportRequest;
+import com.expensetracker.entity.ReportJob;
+import com.expensetracker.report.ReportJobService;
+import com.expensetracker.report.ReportNotReadyException;
+import com.expensetracker.web.RangeFileWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import java.io.IOException;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+
+@RestController
+@RequestMapping("/api/reports")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class ReportController {
+    
+    @Autowired
+    private ReportJobService reportJobService;
+    
+    /**
+     * Queues a report: 202 with the job to poll, or 200 when the same report is already built.
+     */
+    @PostMapping
+    public ResponseEntity<?> requestReport(@Valid @RequestBody ReportRequest request) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            ReportJobResponse job = reportJobService.submit(request, username);
+            HttpStatus status = job.getStatus() == ReportJob.Status.DONE ? HttpStatus.OK : HttpStatus.ACCEPTED;
+            return ResponseEntity.status(status).body(job);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<ReportJobResponse>> getReports() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(reportJobService.getRecentJobs(username));
+    }
+    
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getReport(@PathVariable Long id) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            return ResponseEntity.ok(reportJobService.getJob(id, username));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+    
+    /**
+     * The report's CSV once it is done, honouring Range, If-Range and If-None-Match; 409 before.
+     */
+    @GetMapping("/{id}/download")
+    public ResponseEntity<?> downloadReport(@PathVariable Long id, HttpServletRequest request,
+                                            HttpServletResponse response) throws IOException {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        ReportJobService.Result result;
+        try {
+            result = reportJobService.getResult(id, username);
+        } catch (ReportNotReadyException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorResponse(e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+        RangeFileWriter.write(request, response, result.getFile(), result.getSize(), result.getEtag(),
+                "text/csv;charset=UTF-8", result.getFilename());
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.expensetracker.controller;
+
+import com.expensetracker.dto.ErrorResponse;
+import com.expensetracker.service.SpendingDistributionService;
+import java.time.YearMonth;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+
+@RestController
+@RequestMapping("/api/spending")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class SpendingController {
+    
+    private static final int MAX_TITLES = 50;
+    
+    @Autowired
+    private SpendingDistributionService distributionService;
+    
+    /**
+     * Median, p90, p99 and a histogram of expense amounts per category, over the months
+     * {@code from} to {@code to} (both default to the current month).
+     */
+    @GetMapping("/distribution")
+    public ResponseEntity<?> getDistribution(@RequestParam(required = false) YearMonth from,
+                                             @RequestParam(required = false) YearMonth to,
+                                             @RequestParam(required = false) String category) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        YearMonth end = to == null ? YearMonth.now() : to;
+        try {
+            return ResponseEntity.ok(distributionService.getDistribution(from == null ? end : from, end, category,
+                    username));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+    
+    /**
+     * Where the money goes: the {@code limit} expense titles with the most expenses and with
+     * the highest amount over the months {@code from} to {@code to}.
+     */
+    @GetMapping("/top-titles")
+    public ResponseEntity<?> getTopTitles(@RequestParam(required = false) YearMonth from,
+                                          @RequestParam(required = false) YearMonth to,
+                                          @RequestParam(required = false) String category,
+                                          @RequestParam(defaultValue = "10") int limit) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        YearMonth end = to == null ? YearMonth.now() : to;
+        try {
+            return ResponseEntity.ok(distributionService.getTopTitles(from == null ? end : from, end, category,
+                    Math.max(1, Math.min(limit, MAX_TITLES)), username));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.expensetracker.datasource;
+
+import com.expensetracker.dto.PoolSizeResponse;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Resizes every Hikari pool (primary, replicas and shards) each interval from how it was used,
+ * within {@code datasource.pool.adaptive.min-size}..{@code max-size}; see
+ * {@link PoolSizingPolicy}. The configured pool sizes are only the starting point.
+ * <p>
+ * With {@code datasource.pool.adaptive.enabled=false} the decisions are still made and
+ * reported (GET /health/pools) but not applied. Growing takes effect at once; connections
+ * above a smaller size are closed by Hikari once they have been idle for its idle-timeout.
+ */
+@Component
+public class AdaptivePoolSizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptivePoolSizer.class);
+
+    @Autowired
+    private ConnectionMetrics connectionMetrics;
+
+    @Value("${datasource.pool.adaptive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${datasource.pool.adaptive.min-size:2}")
+    private int minSize;
+
+    @Value("${datasource.pool.adaptive.max-size:40}")
+    private int maxSize;
+
+    @Value("${datasource.pool.adaptive.target-wait-ms:5}")
+    private double targetWaitMs;
+
+    @Value("${datasource.pool.adaptive.headroom:2.0}")
+    private double headroom;
+
+    @Value("${datasource.pool.adaptive.saturation-gradient:0.8}")
+    private double saturationGradient;
+
+    private final Map<String, PoolSizingPolicy> policies = new ConcurrentHashMap<>();
+
+    private final Map<String, PoolSizeResponse> decisions = new ConcurrentHashMap<>();
+
+    @Scheduled(fixedDelayString = "${datasource.pool.adaptive.interval-ms:10000}",
+            initialDelayString = "${datasource.pool.adaptive.interval-ms:10000}")
+    public void adjustScheduled() {
+        for (HikariDataSource dataSource : connectionMetrics.dataSources()) {
+            if (!dataSource.isRunning()) {
+                continue;
+            }
+            PoolUsage usage = connectionMetrics.usage(dataSource.getPoolName());
+            if (usage != null) {
+                adjust(dataSource.getHikariConfigMXBean(), usage);
+            }
+        }
+    }
+
+    /**
+     * One sizing step for one pool: drains its usage window, decides and, if enabled, applies.
+     */
+    public PoolSizeResponse adjust(HikariConfigMXBean pool, PoolUsage usage) {
+        String poolName = pool.getPoolName();
+        PoolUsage.Window window = usage.drain();
+        PoolSizingPolicy policy = policies.computeIfAbsent(poolName,
+                name -> new PoolSizingPolicy(minSize, maxSize, targetWaitMs, headroom, saturationGradient));
+        int currentSize = pool.getMaximumPoolSize();
+        PoolSizingPolicy.Decision decision = policy.decide(currentSize, window);
+
+        PoolSizeResponse previous = decisions.get(poolName);
+        long resizes = previous == null ? 0 : previous.getResizes();
+        if (enabled) {
+            if (decision.getMaximumPoolSize() >= currentSize) {
+                pool.setMaximumPoolSize(decision.getMaximumPoolSize());
+                pool.setMinimumIdle(decision.getMinimumIdle());
+            } else {
+                pool.setMinimumIdle(decision.getMinimumIdle());
+                pool.setMaximumPoolSize(decision.getMaximumPoolSize());
+            }
+            if (decision.getMaximumPoolSize() != currentSize) {
+                resizes++;
+                logger.info("Pool {}: {} from {} to {} connections ({})", poolName, decision.getAction(),
+                        currentSize, decision.getMaximumPoolSize(), decision.getReason());
+            }
+        }
+        PoolSizeResponse response = new PoolSizeResponse();
+        response.setPool(poolName);
+        response.setApplied(enabled);
+        response.setDecision(decision.getAction());
+        response.setReason(decision.getReason());
+        response.setMaximumPoolSize(decision.getMaximumPoolSize());
+        response.setMinimumIdle(decision.getMinimumIdle());
+        response.setActiveConnections(usage.getActiveConnections());
+        response.setIdleConnections(usage.getIdleConnections());
+        response.setPendingThreads(usage.getPendingThreads());
+        response.setBorrowsPerSecond(window.getBorrowsPerSecond());
+        response.setHoldMeanMs(window.getHoldMeanMs());
+        response.setAcquireMeanMs(window.getAcquireMeanMs());
+        response.setAcquireMaxMs(window.getAcquireMaxMs());
+        response.setTimeouts(window.getTimeouts());
+        response.setConcurrency(decision.getConcurrency());
+        response.setHoldGradient(decision.getGradient());
+        response.setResizes(resizes);
+        decisions.put(poolName, response);
+        return response;
+    }
+
+    /**
+     * The latest decision for every pool, by pool name.
+     */
+    public List<PoolSizeResponse> snapshot() {
+        return decisions.values().stream()
+                .sorted(Comparator.comparing(PoolSizeResponse::getPool))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,304 @@
+package com.expensetracker.datasource;
+
+import com.expensetracker.dto.ConnectionStatsResponse;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * How long requests wait for and then hold JDBC connections, per endpoint, across every
+ * Hikari pool (primary, replicas and shards).
+ * <p>
+ * Hikari reports each borrow and each return on the thread that makes it. While a request is
+ * in {@link #beginRequest()}/{@link #endRequest(String)}, its samples are buffered on the
+ * thread and credited to the endpoint once the request is done and its handler is known;
+ * anything else (scheduled jobs, group commit, async work) counts as {@value #BACKGROUND}.
+ * A hold of at least {@code spring.datasource.hikari.leak-detection-threshold} counts as a
+ * leak; Hikari itself logs where such a connection was borrowed while it is still out.
+ * <p>
+ * The same samples are also counted per pool ({@link PoolUsage}), for pool sizing.
+ */
+@Component
+public class ConnectionMetrics implements MetricsTrackerFactory, BeanPostProcessor {
+
+    public static final String BACKGROUND = "background";
+
+    @Value("${spring.datasource.hikari.leak-detection-threshold:0}")
+    private long leakThresholdMs;
+
+    private final ThreadLocal<Samples> requestSamples = new ThreadLocal<>();
+
+    private final Map<String, Stats> endpoints = new ConcurrentHashMap<>();
+
+    private final List<HikariDataSource> dataSources = new CopyOnWriteArrayList<>();
+
+    private final Map<String, PoolUsage> pools = new ConcurrentHashMap<>();
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource dataSource) {
+            instrument(dataSource);
+        }
+        return bean;
+    }
+
+    /**
+     * For pools that are not beans themselves, such as the replica and shard pools.
+     */
+    public void instrument(HikariDataSource dataSource) {
+        dataSource.setMetricsTrackerFactory(this);
+        dataSources.add(dataSource);
+    }
+
+    /**
+     * Every instrumented pool, whether or not it has started yet.
+     */
+    public List<HikariDataSource> dataSources() {
+        return dataSources;
+    }
+
+    /**
+     * The usage of a started pool, or null if no pool of that name has started.
+     */
+    public PoolUsage usage(String poolName) {
+        return pools.get(poolName);
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        PoolUsage usage = new PoolUsage(poolStats);
+        pools.put(poolName, usage);
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                usage.acquired(elapsedAcquiredNanos);
+                Samples samples = requestSamples.get();
+                if (samples != null) {
+                    samples.acquired(elapsedAcquiredNanos);
+                } else {
+                    stats(BACKGROUND).acquired(elapsedAcquiredNanos);
+                }
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.released(elapsedBorrowedMillis);
+                Samples samples = requestSamples.get();
+                if (samples != null) {
+                    samples.released(elapsedBorrowedMillis);
+                } else {
+                    stats(BACKGROUND).released(elapsedBorrowedMillis, leakThresholdMs);
+                }
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                usage.timedOut();
+                Samples samples = requestSamples.get();
+                if (samples != null) {
+                    samples.timeouts++;
+                } else {
+                    stats(BACKGROUND).timeouts.increment();
+                }
+            }
+        };
+    }
+
+    public void beginRequest() {
+        requestSamples.set(new Samples());
+    }
+
+    public void endRequest(String endpoint) {
+        Samples samples = requestSamples.get();
+        requestSamples.remove();
+        if (samples == null) {
+            return;
+        }
+        Stats stats = stats(endpoint);
+        stats.requests.increment();
+        for (int i = 0; i < samples.acquires; i++) {
+            stats.acquired(samples.acquireNanos[i]);
+        }
+        for (int i = 0; i < samples.releases; i++) {
+            stats.released(samples.holdMillis[i], leakThresholdMs);
+        }
+        stats.timeouts.add(samples.timeouts);
+    }
+
+    /**
+     * Every endpoint seen so far, the ones that kept connections busy longest first.
+     */
+    public List<ConnectionStatsResponse> snapshot() {
+        return endpoints.entrySet().stream()
+                .map(entry -> entry.getValue().toResponse(entry.getKey()))
+                .sorted(Comparator.comparingDouble(ConnectionStatsResponse::getHoldTotalMs).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private Stats stats(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, key -> new Stats());
+    }
+
+    /**
+     * One request's samples; only ever touched by the request's thread.
+     */
+    private static final class Samples {
+
+        private long[] acquireNanos = new long[4];
+
+        private int acquires;
+
+        private long[] holdMillis = new long[4];
+
+        private int releases;
+
+        private int timeouts;
+
+        void acquired(long nanos) {
+            if (acquires == acquireNanos.length) {
+                acquireNanos = Arrays.copyOf(acquireNanos, acquires * 2);
+            }
+            acquireNanos[acquires++] = nanos;
+        }
+
+        void released(long millis) {
+            if (releases == holdMillis.length) {
+                holdMillis = Arrays.copyOf(holdMillis, releases * 2);
+            }
+            holdMillis[releases++] = millis;
+        }
+    }
+
+    private static final class Stats {
+
+        private final LongAdder requests = new LongAdder();
+
+        private final LongAdder timeouts = new LongAdder();
+
+        private final LongAdder leaks = new LongAdder();
+
+        private final Histogram acquireNanos = new Histogram();
+
+        private final Histogram holdMillis = new Histogram();
+
+        void acquired(long nanos) {
+            acquireNanos.record(nanos);
+        }
+
+        void released(long millis, long leakThresholdMs) {
+            holdMillis.record(millis);
+            if (leakThresholdMs > 0 && millis >= leakThresholdMs) {
+                leaks.increment();
+            }
+        }
+
+        ConnectionStatsResponse toResponse(String endpoint) {
+            double nanosPerMilli = TimeUnit.MILLISECONDS.toNanos(1);
+            return new ConnectionStatsResponse(endpoint, requests.sum(), acquireNanos.count(),
+                    acquireNanos.mean() / nanosPerMilli, acquireNanos.percentile(0.99) / nanosPerMilli,
+                    acquireNanos.max() / nanosPerMilli, holdMillis.mean(), holdMillis.percentile(0.99),
+                    holdMillis.max(), holdMillis.total(), timeouts.sum(), leaks.sum());
+        }
+    }
+
+    /**
+     * Non-negative values in buckets a quarter of a power of two wide, so percentiles are
+     * within 25%. Recording is lock-free.
+     */
+    static final class Histogram {
+
+        private static final int BUCKETS = 252;
+
+        private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder total = new LongAdder();
+
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        void record(long value) {
+            value = Math.max(value, 0);
+            counts[bucket(value)].increment();
+            count.increment();
+            total.add(value);
+            if (value > max.get()) {
+                max.accumulateAndGet(value, Math::max);
+            }
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        long total() {
+            return total.sum();
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        double mean() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) total.sum() / n;
+        }
+
+        /**
+         * The upper bound of the bucket holding the given quantile, capped at the maximum.
+         */
+        long percentile(double quantile) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * n);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i].sum();
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        static int bucket(long value) {
+            if (value < 4) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int quarter = (int) (value >>> (exponent - 2)) & 3;
+            return exponent * 4 + quarter - 4;
+        }
+
+        static long upperBound(int bucket) {
+            if (bucket < 4) {
+                return bucket;
+            }
+            int exponent = (bucket + 4) / 4;
+            int quarter = (bucket + 4) % 4;
+            return ((5L + quarter) << (exponent - 2)) - 1;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.expensetracker.datasource;
+
+/**
+ * Sizes one connection pool from successive {@link PoolUsage.Window}s, within fixed bounds.
+ * <p>
+ * The estimate is Little's law: connections needed = borrow rate x mean hold time, plus
+ * {@code headroom} standard deviations of a Poisson arrival process (square-root staffing),
+ * so short bursts do not queue. The estimate follows rises at once and falls off gradually.
+ * <p>
+ * Little's law cannot tell a busy application from a struggling database: when the database
+ * is the bottleneck, hold times grow with every connection added and so does the estimate.
+ * The policy therefore remembers the lowest hold time seen (the baseline) and, once the
+ * current hold time is so far above it that their ratio (the gradient) falls below
+ * {@code saturationGradient}, limits the pool to {@code size x gradient + sqrt(size)}, which
+ * settles just above the number of connections the database actually serves in parallel.
+ * While the pool is not saturated and requests wait for connections, it grows by sqrt(size).
+ * <p>
+ * Growth is applied at once; shrinking closes a quarter of the gap per window. Not
+ * thread-safe: one instance per pool, called from one thread.
+ */
+public class PoolSizingPolicy {
+
+    public static final String GROW = "grow";
+
+    public static final String SHRINK = "shrink";
+
+    public static final String HOLD = "hold";
+
+    /**
+     * How much of the gap a lower concurrency estimate closes per window.
+     */
+    private static final double SMOOTHING = 0.3;
+
+    /**
+     * How fast the baseline hold time follows slower queries while nobody waits.
+     */
+    private static final double BASELINE_DRIFT = 0.1;
+
+    private final int minSize;
+
+    private final int maxSize;
+
+    private final double targetWaitMs;
+
+    private final double headroom;
+
+    private final double saturationGradient;
+
+    private double concurrency;
+
+    private double baselineHoldMs;
+
+    public PoolSizingPolicy(int minSize, int maxSize, double targetWaitMs, double headroom,
+                            double saturationGradient) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("Pool size bounds must satisfy 1 <= min <= max, got "
+                    + minSize + ".." + maxSize);
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetWaitMs = targetWaitMs;
+        this.headroom = headroom;
+        this.saturationGradient = saturationGradient;
+    }
+
+    public Decision decide(int currentSize, PoolUsage.Window window) {
+        double observed = window.getConcurrency();
+        concurrency = observed >= concurrency ? observed : concurrency + (observed - concurrency) * SMOOTHING;
+
+        boolean waiting = window.getAcquireMeanMs() > targetWaitMs || window.getTimeouts() > 0
+                || window.getPendingThreads() > 0;
+        double gradient = 1;
+        if (window.getBorrows() > 0) {
+            double holdMs = Math.max(window.getHoldMeanMs(), 1);
+            if (baselineHoldMs == 0 || holdMs < baselineHoldMs) {
+                baselineHoldMs = holdMs;
+            } else if (!waiting) {
+                baselineHoldMs += (holdMs - baselineHoldMs) * BASELINE_DRIFT;
+            }
+            gradient = Math.min(1, baselineHoldMs / holdMs);
+        }
+
+        int target = (int) Math.ceil(concurrency + headroom * Math.sqrt(concurrency));
+        String reason = String.format("Little's law: %.1f connections in use", concurrency);
+        if (gradient < saturationGradient) {
+            int limit = (int) Math.ceil(currentSize * gradient + Math.sqrt(currentSize));
+            if (limit < target) {
+                target = limit;
+                reason = String.format("database saturated: hold time %.1fx the baseline", 1 / gradient);
+            }
+        } else if (waiting) {
+            int grown = currentSize + (int) Math.ceil(Math.sqrt(currentSize));
+            if (grown > target) {
+                target = grown;
+                reason = String.format("waiting for connections: %.1f ms mean acquire, %d timeouts",
+                        window.getAcquireMeanMs(), window.getTimeouts());
+            }
+        }
+        target = clamp(target, minSize, maxSize);
+
+        int size = currentSize;
+        String action = HOLD;
+        if (target > currentSize) {
+            size = target;
+            action = GROW;
+        } else if (target < currentSize) {
+            size = currentSize - Math.max(1, (currentSize - target) / 4);
+            action = SHRINK;
+        }
+        int minimumIdle = clamp((int) Math.ceil(concurrency), minSize, size);
+        return new Decision(action, size, minimumIdle, concurrency, gradient, reason);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * The size a pool should have after one window, and why.
+     */
+    public static final class Decision {
+
+        private final String action;
+
+        private final int maximumPoolSize;
+
+        private final int minimumIdle;
+
+        private final double concurrency;
+
+        private final double gradient;
+
+        private final String reason;
+
+        Decision(String action, int maximumPoolSize, int minimumIdle, double concurrency, double gradient,
+                 String reason) {
+            this.action = action;
+            this.maximumPoolSize = maximumPoolSize;
+            this.minimumIdle = minimumIdle;
+            this.concurrency = concurrency;
+            this.gradient = gradient;
+            this.reason = reason;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public int getMinimumIdle() {
+            return minimumIdle;
+        }
+
+        public double getConcurrency() {
+            return concurrency;
+        }
+
+        public double getGradient() {
+            return gradient;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.expensetracker.datasource;
+
+import com.zaxxer.hikari.metrics.PoolStats;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How one Hikari pool was used since the previous {@link #drain()}: borrows, hold and acquire
+ * times, timeouts and the most connections out at once. Fed by {@link ConnectionMetrics} and
+ * read by {@link AdaptivePoolSizer}.
+ */
+public class PoolUsage {
+
+    private final PoolStats poolStats;
+
+    private final LongAdder borrows = new LongAdder();
+
+    private final LongAdder holdMillis = new LongAdder();
+
+    private final LongAdder acquires = new LongAdder();
+
+    private final LongAdder acquireNanos = new LongAdder();
+
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    private final AtomicInteger inUse = new AtomicInteger();
+
+    private final AtomicInteger peakInUse = new AtomicInteger();
+
+    private long windowStart = System.nanoTime();
+
+    PoolUsage(PoolStats poolStats) {
+        this.poolStats = poolStats;
+    }
+
+    void acquired(long nanos) {
+        acquires.increment();
+        acquireNanos.add(nanos);
+        if (nanos > maxAcquireNanos.get()) {
+            maxAcquireNanos.accumulateAndGet(nanos, Math::max);
+        }
+        int now = inUse.incrementAndGet();
+        if (now > peakInUse.get()) {
+            peakInUse.accumulateAndGet(now, Math::max);
+        }
+    }
+
+    void released(long millis) {
+        inUse.decrementAndGet();
+        borrows.increment();
+        holdMillis.add(millis);
+    }
+
+    void timedOut() {
+        timeouts.increment();
+    }
+
+    /**
+     * The usage since the previous call, which starts a new window.
+     */
+    public synchronized Window drain() {
+        long now = System.nanoTime();
+        double seconds = Math.max(now - windowStart, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+        windowStart = now;
+        long borrowed = borrows.sumThenReset();
+        long held = holdMillis.sumThenReset();
+        long acquired = acquires.sumThenReset();
+        long waited = acquireNanos.sumThenReset();
+        double nanosPerMilli = TimeUnit.MILLISECONDS.toNanos(1);
+        return new Window(seconds, borrowed,
+                borrowed == 0 ? 0 : (double) held / borrowed,
+                acquired == 0 ? 0 : waited / acquired / nanosPerMilli,
+                maxAcquireNanos.getAndSet(0) / nanosPerMilli,
+                timeouts.sumThenReset(),
+                peakInUse.getAndSet(inUse.get()),
+                poolStats.getPendingThreads());
+    }
+
+    public int getActiveConnections() {
+        return poolStats.getActiveConnections();
+    }
+
+    public int getIdleConnections() {
+        return poolStats.getIdleConnections();
+    }
+
+    public int getPendingThreads() {
+        return poolStats.getPendingThreads();
+    }
+
+    /**
+     * One window of a pool's usage.
+     */
+    public static final class Window {
+
+        private final double seconds;
+
+        private final long borrows;
+
+        private final double holdMeanMs;
+
+        private final double acquireMeanMs;
+
+        private final double acquireMaxMs;
+
+        private final long timeouts;
+
+        private final int peakInUse;
+
+        private final int pendingThreads;
+
+        public Window(double seconds, long borrows, double holdMeanMs, double acquireMeanMs,
+                      double acquireMaxMs, long timeouts, int peakInUse, int pendingThreads) {
+            this.seconds = seconds;
+            this.borrows = borrows;
+            this.holdMeanMs = holdMeanMs;
+            this.acquireMeanMs = acquireMeanMs;
+            this.acquireMaxMs = acquireMaxMs;
+            this.timeouts = timeouts;
+            this.peakInUse = peakInUse;
+            this.pendingThreads = pendingThreads;
+        }
+
+        public double getSeconds() {
+            return seconds;
+        }
+
+        public long getBorrows() {
+            return borrows;
+        }
+
+        public double getHoldMeanMs() {
+            return holdMeanMs;
+        }
+
+        public double getAcquireMeanMs() {
+            return acquireMeanMs;
+        }
+
+        public double getAcquireMaxMs() {
+            return acquireMaxMs;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public int getPeakInUse() {
+            return peakInUse;
+        }
+
+        public int getPendingThreads() {
+            return pendingThreads;
+        }
+
+        public double getBorrowsPerSecond() {
+            return borrows / seconds;
+        }
+
+        /**
+         * Little's law: the mean number of connections in use is the borrow rate times the
+         * mean hold time.
+         */
+        public double getConcurrency() {
+            return getBorrowsPerSecond() * holdMeanMs / 1000;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.expensetracker.datasource;
+
+import com.expensetracker.event.ExpenseChangedEvent;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Remembers who wrote recently, so their reads stay on the primary until the replicas have
+ * caught up. The window is per application instance.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private static final int PURGE_THRESHOLD = 10_000;
+
+    @Value("${datasource.replicas.read-your-writes-ms:5000}")
+    private long windowMs;
+
+    private final ConcurrentMap<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<String> subject = new ThreadLocal<>();
+
+    public void markWrite(String username) {
+        long now = System.nanoTime();
+        if (lastWrites.size() > PURGE_THRESHOLD) {
+            lastWrites.values().removeIf(writtenAt -> !withinWindow(writtenAt, now));
+        }
+        lastWrites.put(username, now);
+    }
+
+    /**
+     * Marks the user once the current transaction commits, or right away when there is none.
+     * Repeated calls within one transaction register a single callback.
+     */
+    public void markOnCommit(String username) {
+        if (username == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markWrite(username);
+            return;
+        }
+        // Synchronizations are suspended with their transaction, so this only finds our own
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof MarkOnCommit pending && pending.tracker() == this) {
+                pending.usernames.add(username);
+                return;
+            }
+        }
+        MarkOnCommit pending = new MarkOnCommit();
+        pending.usernames.add(username);
+        TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        markWrite(event.getUsername());
+    }
+
+    /**
+     * Whether reads on this thread must see the current user's own recent writes.
+     */
+    public boolean requiresPrimary() {
+        String username = currentSubject();
+        if (username == null) {
+            return false;
+        }
+        Long writtenAt = lastWrites.get(username);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (withinWindow(writtenAt, System.nanoTime())) {
+            return true;
+        }
+        lastWrites.remove(username, writtenAt);
+        return false;
+    }
+
+    /**
+     * The user that reads on this thread are made for: an explicitly bound one (for lookups
+     * during authentication), otherwise the authenticated user.
+     */
+    public String currentSubject() {
+        String bound = subject.get();
+        if (bound != null) {
+            return bound;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    public void bindSubject(String username) {
+        subject.set(username);
+    }
+
+    public void clearSubject() {
+        subject.remove();
+    }
+
+    private boolean withinWindow(long writtenAt, long now) {
+        return now - writtenAt < TimeUnit.MILLISECONDS.toNanos(windowMs);
+    }
+
+    private final class MarkOnCommit implements TransactionSynchronization {
+
+        private final Set<String> usernames = new HashSet<>();
+
+        @Override
+        public void afterCommit() {
+            usernames.forEach(ReadYourWritesTracker.this::markWrite);
+        }
+
+        ReadYourWritesTracker tracker() {
+            return ReadYourWritesTracker.this;
+        }
+    }
+}
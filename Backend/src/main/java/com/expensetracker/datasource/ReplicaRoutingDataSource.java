@@ -0,0 +1,77 @@
+package com.expensetracker.datasource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to a replica and everything else to the primary.
+ * <p>
+ * The decision is made when a connection is requested, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: transaction
+ * managers ask for a connection before the read-only flag of the new transaction is exposed.
+ * Each user sticks to one replica, so consecutive reads (an ETag, then the list it describes)
+ * never go back in time by switching to a replica that is further behind. Every read-write
+ * transaction that commits starts the current user's read-your-writes window, whatever it wrote.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final String PRIMARY = "primary";
+
+    private final List<String> replicaKeys = new ArrayList<>();
+
+    private final List<DataSource> replicas;
+
+    private final ReadYourWritesTracker readYourWrites;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ReadYourWritesTracker readYourWrites) {
+        this.replicas = replicas;
+        this.readYourWrites = readYourWrites;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + i;
+            replicaKeys.add(key);
+            targets.put(key, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (!replicaKeys.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+                readYourWrites.markOnCommit(readYourWrites.currentSubject());
+            }
+            return PRIMARY;
+        }
+        if (replicaKeys.isEmpty() || readYourWrites.requiresPrimary()) {
+            return PRIMARY;
+        }
+        String username = readYourWrites.currentSubject();
+        int index = username == null
+                ? ThreadLocalRandom.current().nextInt(replicaKeys.size())
+                : Math.floorMod(username.hashCode(), replicaKeys.size());
+        return replicaKeys.get(index);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        // The primary is a bean of its own; the replica pools exist only here
+        for (DataSource replica : replicas) {
+            if (replica instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.expensetracker.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.math.BigDecimal;
+
+
+public class BudgetRequest {
+    
+    @NotBlank(message = "Category is required")
+    private String category;
+    
+    @NotNull(message = "Monthly limit is required")
+    @Positive(message = "Monthly limit must be positive")
+    private BigDecimal monthlyLimit;
+    
+    public BudgetRequest() {
+    }
+    
+    public BudgetRequest(String category, BigDecimal monthlyLimit) {
+        this.category = category;
+        this.monthlyLimit = monthlyLimit;
+    }
+    
+    // Getters and Setters
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public BigDecimal getMonthlyLimit() {
+        return monthlyLimit;
+    }
+    
+    public void setMonthlyLimit(BigDecimal monthlyLimit) {
+        this.monthlyLimit = monthlyLimit;
+    }
+}
@@ -0,0 +1,44 @@
+package com.expensetracker.dto;
+
+import java.math.BigDecimal;
+
+public class BudgetResponse {
+    
+    private Long id;
+    private String category;
+    private BigDecimal monthlyLimit;
+    
+    public BudgetResponse() {
+    }
+    
+    public BudgetResponse(Long id, String category, BigDecimal monthlyLimit) {
+        this.id = id;
+        this.category = category;
+        this.monthlyLimit = monthlyLimit;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public BigDecimal getMonthlyLimit() {
+        return monthlyLimit;
+    }
+    
+    public void setMonthlyLimit(BigDecimal monthlyLimit) {
+        this.monthlyLimit = monthlyLimit;
+    }
+}
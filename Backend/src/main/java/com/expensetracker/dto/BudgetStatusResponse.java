@@ -0,0 +1,86 @@
+package com.expensetracker.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public class BudgetStatusResponse {
+    
+    private String category;
+    private LocalDate month;
+    private BigDecimal monthlyLimit;
+    private BigDecimal spent;
+    private BigDecimal remaining;
+    private int percentUsed;
+    private String status;
+    
+    public BudgetStatusResponse() {
+    }
+    
+    public BudgetStatusResponse(String category, LocalDate month, BigDecimal monthlyLimit, BigDecimal spent,
+                                BigDecimal remaining, int percentUsed, String status) {
+        this.category = category;
+        this.month = month;
+        this.monthlyLimit = monthlyLimit;
+        this.spent = spent;
+        this.remaining = remaining;
+        this.percentUsed = percentUsed;
+        this.status = status;
+    }
+    
+    // Getters and Setters
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public LocalDate getMonth() {
+        return month;
+    }
+    
+    public void setMonth(LocalDate month) {
+        this.month = month;
+    }
+    
+    public BigDecimal getMonthlyLimit() {
+        return monthlyLimit;
+    }
+    
+    public void setMonthlyLimit(BigDecimal monthlyLimit) {
+        this.monthlyLimit = monthlyLimit;
+    }
+    
+    public BigDecimal getSpent() {
+        return spent;
+    }
+    
+    public void setSpent(BigDecimal spent) {
+        this.spent = spent;
+    }
+    
+    public BigDecimal getRemaining() {
+        return remaining;
+    }
+    
+    public void setRemaining(BigDecimal remaining) {
+        this.remaining = remaining;
+    }
+    
+    public int getPercentUsed() {
+        return percentUsed;
+    }
+    
+    public void setPercentUsed(int percentUsed) {
+        this.percentUsed = percentUsed;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+}
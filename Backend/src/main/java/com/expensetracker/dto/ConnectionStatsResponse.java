@@ -0,0 +1,138 @@
+package com.expensetracker.dto;
+
+/**
+ * Connection acquire and hold times of one endpoint, in milliseconds, since startup.
+ */
+public class ConnectionStatsResponse {
+    
+    private String endpoint;
+    private long requests;
+    private long connections;
+    private double acquireMeanMs;
+    private double acquireP99Ms;
+    private double acquireMaxMs;
+    private double holdMeanMs;
+    private double holdP99Ms;
+    private double holdMaxMs;
+    private double holdTotalMs;
+    private long timeouts;
+    private long leaks;
+    
+    public ConnectionStatsResponse() {
+    }
+    
+    public ConnectionStatsResponse(String endpoint, long requests, long connections, double acquireMeanMs,
+                                   double acquireP99Ms, double acquireMaxMs, double holdMeanMs,
+                                   double holdP99Ms, double holdMaxMs, double holdTotalMs, long timeouts,
+                                   long leaks) {
+        this.endpoint = endpoint;
+        this.requests = requests;
+        this.connections = connections;
+        this.acquireMeanMs = acquireMeanMs;
+        this.acquireP99Ms = acquireP99Ms;
+        this.acquireMaxMs = acquireMaxMs;
+        this.holdMeanMs = holdMeanMs;
+        this.holdP99Ms = holdP99Ms;
+        this.holdMaxMs = holdMaxMs;
+        this.holdTotalMs = holdTotalMs;
+        this.timeouts = timeouts;
+        this.leaks = leaks;
+    }
+    
+    // Getters and Setters
+    public String getEndpoint() {
+        return endpoint;
+    }
+    
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+    
+    public long getRequests() {
+        return requests;
+    }
+    
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+    
+    public long getConnections() {
+        return connections;
+    }
+    
+    public void setConnections(long connections) {
+        this.connections = connections;
+    }
+    
+    public double getAcquireMeanMs() {
+        return acquireMeanMs;
+    }
+    
+    public void setAcquireMeanMs(double acquireMeanMs) {
+        this.acquireMeanMs = acquireMeanMs;
+    }
+    
+    public double getAcquireP99Ms() {
+        return acquireP99Ms;
+    }
+    
+    public void setAcquireP99Ms(double acquireP99Ms) {
+        this.acquireP99Ms = acquireP99Ms;
+    }
+    
+    public double getAcquireMaxMs() {
+        return acquireMaxMs;
+    }
+    
+    public void setAcquireMaxMs(double acquireMaxMs) {
+        this.acquireMaxMs = acquireMaxMs;
+    }
+    
+    public double getHoldMeanMs() {
+        return holdMeanMs;
+    }
+    
+    public void setHoldMeanMs(double holdMeanMs) {
+        this.holdMeanMs = holdMeanMs;
+    }
+    
+    public double getHoldP99Ms() {
+        return holdP99Ms;
+    }
+    
+    public void setHoldP99Ms(double holdP99Ms) {
+        this.holdP99Ms = holdP99Ms;
+    }
+    
+    public double getHoldMaxMs() {
+        return holdMaxMs;
+    }
+    
+    public void setHoldMaxMs(double holdMaxMs) {
+        this.holdMaxMs = holdMaxMs;
+    }
+    
+    public double getHoldTotalMs() {
+        return holdTotalMs;
+    }
+    
+    public void setHoldTotalMs(double holdTotalMs) {
+        this.holdTotalMs = holdTotalMs;
+    }
+    
+    public long getTimeouts() {
+        return timeouts;
+    }
+    
+    public void setTimeouts(long timeouts) {
+        this.timeouts = timeouts;
+    }
+    
+    public long getLeaks() {
+        return leaks;
+    }
+    
+    public void setLeaks(long leaks) {
+        this.leaks = leaks;
+    }
+}
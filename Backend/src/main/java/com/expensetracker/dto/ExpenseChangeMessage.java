@@ -0,0 +1,52 @@
+package com.expensetracker.dto;
+
+public class ExpenseChangeMessage {
+    
+    private String type;
+    private Long id;
+    private long seq;
+    private ExpenseResponse expense;
+    
+    public ExpenseChangeMessage() {
+    }
+    
+    public ExpenseChangeMessage(String type, Long id, long seq, ExpenseResponse expense) {
+        this.type = type;
+        this.id = id;
+        this.seq = seq;
+        this.expense = expense;
+    }
+    
+    // Getters and Setters
+    public String getType() {
+        return type;
+    }
+    
+    public void setType(String type) {
+        this.type = type;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public long getSeq() {
+        return seq;
+    }
+    
+    public void setSeq(long seq) {
+        this.seq = seq;
+    }
+    
+    public ExpenseResponse getExpense() {
+        return expense;
+    }
+    
+    public void setExpense(ExpenseResponse expense) {
+        this.expense = expense;
+    }
+}
@@ -0,0 +1,54 @@
+package com.expensetracker.dto;
+
+import java.util.List;
+
+public class ExpenseChangesResponse {
+    
+    private List<ExpenseResponse> upserts;
+    private List<Long> deletedIds;
+    private long cursor;
+    private boolean hasMore;
+    
+    public ExpenseChangesResponse() {
+    }
+    
+    public ExpenseChangesResponse(List<ExpenseResponse> upserts, List<Long> deletedIds, long cursor, boolean hasMore) {
+        this.upserts = upserts;
+        this.deletedIds = deletedIds;
+        this.cursor = cursor;
+        this.hasMore = hasMore;
+    }
+    
+    // Getters and Setters
+    public List<ExpenseResponse> getUpserts() {
+        return upserts;
+    }
+    
+    public void setUpserts(List<ExpenseResponse> upserts) {
+        this.upserts = upserts;
+    }
+    
+    public List<Long> getDeletedIds() {
+        return deletedIds;
+    }
+    
+    public void setDeletedIds(List<Long> deletedIds) {
+        this.deletedIds = deletedIds;
+    }
+    
+    public long getCursor() {
+        return cursor;
+    }
+    
+    public void setCursor(long cursor) {
+        this.cursor = cursor;
+    }
+    
+    public boolean isHasMore() {
+        return hasMore;
+    }
+    
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
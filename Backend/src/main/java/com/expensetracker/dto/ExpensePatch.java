@@ -0,0 +1,133 @@
+package com.expensetracker.dto;
+
+import com.expensetracker.util.ExpenseTags;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * A JSON Merge Patch (RFC 7386) of an expense: members left out keep their value, {@code null}
+ * clears description or tags. Jackson calls a setter only for members present in the document,
+ * so each setter records its field as sent.
+ */
+public class ExpensePatch {
+    
+    public enum Field {
+        TITLE, DESCRIPTION, AMOUNT, CATEGORY, TAGS, EXPENSE_DATE
+    }
+    
+    private final Set<Field> present = EnumSet.noneOf(Field.class);
+    
+    private String title;
+    
+    private String description;
+    
+    @PositiveOrZero(message = "Amount must be positive or zero")
+    private BigDecimal amount;
+    
+    private String category;
+    
+    @Size(max = ExpenseTags.MAX_TAGS, message = "At most 10 tags")
+    private List<@Pattern(regexp = ExpenseTags.PATTERN,
+            message = "Tags are 1 to 32 letters, digits, '-' or '_'") String> tags;
+    
+    private LocalDate expenseDate;
+    
+    // The version the client read; the patch is refused if the expense has moved on
+    private Long version;
+    
+    public boolean has(Field field) {
+        return present.contains(field);
+    }
+    
+    // Present members may not clear what an expense must have
+    @AssertTrue(message = "Title is required")
+    boolean isTitleValid() {
+        return !has(Field.TITLE) || (title != null && !title.isBlank());
+    }
+    
+    @AssertTrue(message = "Amount is required")
+    boolean isAmountValid() {
+        return !has(Field.AMOUNT) || amount != null;
+    }
+    
+    @AssertTrue(message = "Category is required")
+    boolean isCategoryValid() {
+        return !has(Field.CATEGORY) || (category != null && !category.isBlank());
+    }
+    
+    @AssertTrue(message = "Date is required")
+    boolean isExpenseDateValid() {
+        return !has(Field.EXPENSE_DATE) || expenseDate != null;
+    }
+    
+    // Getters and Setters
+    public String getTitle() {
+        return title;
+    }
+    
+    public void setTitle(String title) {
+        this.title = title;
+        present.add(Field.TITLE);
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public void setDescription(String description) {
+        this.description = description;
+        present.add(Field.DESCRIPTION);
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+        present.add(Field.AMOUNT);
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+        present.add(Field.CATEGORY);
+    }
+    
+    public List<String> getTags() {
+        return tags;
+    }
+    
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+        present.add(Field.TAGS);
+    }
+    
+    public LocalDate getExpenseDate() {
+        return expenseDate;
+    }
+    
+    public void setExpenseDate(LocalDate expenseDate) {
+        this.expenseDate = expenseDate;
+        present.add(Field.EXPENSE_DATE);
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -1,10 +1,14 @@
 package com.expensetracker.dto;
 
+import com.expensetracker.util.ExpenseTags;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 
 
 public class ExpenseRequest {
@@ -21,9 +25,16 @@ public class ExpenseRequest {
     @NotBlank(message = "Category is required")
     private String category;
     
+    @Size(max = ExpenseTags.MAX_TAGS, message = "At most 10 tags")
+    private List<@Pattern(regexp = ExpenseTags.PATTERN,
+            message = "Tags are 1 to 32 letters, digits, '-' or '_'") String> tags;
+    
     @NotNull(message = "Date is required")
     private LocalDate expenseDate;
     
+    // On update, the version the client read; the update is refused if the expense has moved on
+    private Long version;
+    
     public ExpenseRequest() {
     }
     
@@ -68,6 +79,14 @@ public class ExpenseRequest {
         this.category = category;
     }
     
+    public List<String> getTags() {
+        return tags;
+    }
+    
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+    
     public LocalDate getExpenseDate() {
         return expenseDate;
     }
@@ -75,4 +94,12 @@ public class ExpenseRequest {
     public void setExpenseDate(LocalDate expenseDate) {
         this.expenseDate = expenseDate;
     }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -3,6 +3,7 @@ package com.expensetracker.dto;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class ExpenseResponse {
     
@@ -11,23 +12,39 @@ public class ExpenseResponse {
     private String description;
     private BigDecimal amount;
     private String category;
+    private List<String> tags;
     private LocalDate expenseDate;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    // Send back in ExpenseRequest.version, or as ?version= on delete, to write only over this version
+    private long version;
     
     public ExpenseResponse() {
     }
     
     public ExpenseResponse(Long id, String title, String description, BigDecimal amount, String category, 
                           LocalDate expenseDate, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, title, description, amount, category, List.of(), expenseDate, createdAt, updatedAt);
+    }
+    
+    public ExpenseResponse(Long id, String title, String description, BigDecimal amount, String category,
+                          List<String> tags, LocalDate expenseDate, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(id, title, description, amount, category, tags, expenseDate, createdAt, updatedAt, 0);
+    }
+    
+    public ExpenseResponse(Long id, String title, String description, BigDecimal amount, String category,
+                          List<String> tags, LocalDate expenseDate, LocalDateTime createdAt, LocalDateTime updatedAt,
+                          long version) {
         this.id = id;
         this.title = title;
         this.description = description;
         this.amount = amount;
         this.category = category;
+        this.tags = tags;
         this.expenseDate = expenseDate;
         this.createdAt = createdAt;
         this.updatedAt = updatedAt;
+        this.version = version;
     }
     
     // Getters and Setters
@@ -71,6 +88,14 @@ public class ExpenseResponse {
         this.category = category;
     }
     
+    public List<String> getTags() {
+        return tags;
+    }
+    
+    public void setTags(List<String> tags) {
+        this.tags = tags;
+    }
+    
     public LocalDate getExpenseDate() {
         return expenseDate;
     }
@@ -94,4 +119,12 @@ public class ExpenseResponse {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,47 @@
+package com.expensetracker.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * The number of expenses with an amount in [lower, upper).
+ */
+public class HistogramBin {
+    
+    private BigDecimal lower;
+    private BigDecimal upper;
+    private long count;
+    
+    public HistogramBin() {
+    }
+    
+    public HistogramBin(BigDecimal lower, BigDecimal upper, long count) {
+        this.lower = lower;
+        this.upper = upper;
+        this.count = count;
+    }
+    
+    // Getters and Setters
+    public BigDecimal getLower() {
+        return lower;
+    }
+    
+    public void setLower(BigDecimal lower) {
+        this.lower = lower;
+    }
+    
+    public BigDecimal getUpper() {
+        return upper;
+    }
+    
+    public void setUpper(BigDecimal upper) {
+        this.upper = upper;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+    
+    public void setCount(long count) {
+        this.count = count;
+    }
+}
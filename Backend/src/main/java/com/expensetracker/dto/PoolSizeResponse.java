@@ -0,0 +1,167 @@
+package com.expensetracker.dto;
+
+/**
+ * The latest sizing decision for one connection pool, with the usage it was based on.
+ * {@code applied} is false while adaptive sizing only observes; the sizes are then the ones it
+ * would have set.
+ */
+public class PoolSizeResponse {
+    
+    private String pool;
+    private boolean applied;
+    private String decision;
+    private String reason;
+    private int maximumPoolSize;
+    private int minimumIdle;
+    private int activeConnections;
+    private int idleConnections;
+    private int pendingThreads;
+    private double borrowsPerSecond;
+    private double holdMeanMs;
+    private double acquireMeanMs;
+    private double acquireMaxMs;
+    private long timeouts;
+    private double concurrency;
+    private double holdGradient;
+    private long resizes;
+    
+    public PoolSizeResponse() {
+    }
+    
+    // Getters and Setters
+    public String getPool() {
+        return pool;
+    }
+    
+    public void setPool(String pool) {
+        this.pool = pool;
+    }
+    
+    public boolean isApplied() {
+        return applied;
+    }
+    
+    public void setApplied(boolean applied) {
+        this.applied = applied;
+    }
+    
+    public String getDecision() {
+        return decision;
+    }
+    
+    public void setDecision(String decision) {
+        this.decision = decision;
+    }
+    
+    public String getReason() {
+        return reason;
+    }
+    
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+    
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+    
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        this.maximumPoolSize = maximumPoolSize;
+    }
+    
+    public int getMinimumIdle() {
+        return minimumIdle;
+    }
+    
+    public void setMinimumIdle(int minimumIdle) {
+        this.minimumIdle = minimumIdle;
+    }
+    
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+    
+    public void setActiveConnections(int activeConnections) {
+        this.activeConnections = activeConnections;
+    }
+    
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+    
+    public void setIdleConnections(int idleConnections) {
+        this.idleConnections = idleConnections;
+    }
+    
+    public int getPendingThreads() {
+        return pendingThreads;
+    }
+    
+    public void setPendingThreads(int pendingThreads) {
+        this.pendingThreads = pendingThreads;
+    }
+    
+    public double getBorrowsPerSecond() {
+        return borrowsPerSecond;
+    }
+    
+    public void setBorrowsPerSecond(double borrowsPerSecond) {
+        this.borrowsPerSecond = borrowsPerSecond;
+    }
+    
+    public double getHoldMeanMs() {
+        return holdMeanMs;
+    }
+    
+    public void setHoldMeanMs(double holdMeanMs) {
+        this.holdMeanMs = holdMeanMs;
+    }
+    
+    public double getAcquireMeanMs() {
+        return acquireMeanMs;
+    }
+    
+    public void setAcquireMeanMs(double acquireMeanMs) {
+        this.acquireMeanMs = acquireMeanMs;
+    }
+    
+    public double getAcquireMaxMs() {
+        return acquireMaxMs;
+    }
+    
+    public void setAcquireMaxMs(double acquireMaxMs) {
+        this.acquireMaxMs = acquireMaxMs;
+    }
+    
+    public long getTimeouts() {
+        return timeouts;
+    }
+    
+    public void setTimeouts(long timeouts) {
+        this.timeouts = timeouts;
+    }
+    
+    public double getConcurrency() {
+        return concurrency;
+    }
+    
+    public void setConcurrency(double concurrency) {
+        this.concurrency = concurrency;
+    }
+    
+    public double getHoldGradient() {
+        return holdGradient;
+    }
+    
+    public void setHoldGradient(double holdGradient) {
+        this.holdGradient = holdGradient;
+    }
+    
+    public long getResizes() {
+        return resizes;
+    }
+    
+    public void setResizes(long resizes) {
+        this.resizes = resizes;
+    }
+}
@@ -0,0 +1,48 @@
+package com.expensetracker.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * A normalized expense title with its number of expenses or amount. The true value is
+ * within {@code error} of {@code value}.
+ */
+public class RankedTitle {
+    
+    private String title;
+    private BigDecimal value;
+    private BigDecimal error;
+    
+    public RankedTitle() {
+    }
+    
+    public RankedTitle(String title, BigDecimal value, BigDecimal error) {
+        this.title = title;
+        this.value = value;
+        this.error = error;
+    }
+    
+    // Getters and Setters
+    public String getTitle() {
+        return title;
+    }
+    
+    public void setTitle(String title) {
+        this.title = title;
+    }
+    
+    public BigDecimal getValue() {
+        return value;
+    }
+    
+    public void setValue(BigDecimal value) {
+        this.value = value;
+    }
+    
+    public BigDecimal getError() {
+        return error;
+    }
+    
+    public void setError(BigDecimal error) {
+        this.error = error;
+    }
+}
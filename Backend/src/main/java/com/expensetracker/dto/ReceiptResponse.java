@@ -0,0 +1,85 @@
+package com.expensetracker.dto;
+
+import java.time.LocalDateTime;
+
+public class ReceiptResponse {
+    
+    private Long id;
+    private Long expenseId;
+    private String filename;
+    private String contentType;
+    private long size;
+    private String sha256;
+    private LocalDateTime createdAt;
+    
+    public ReceiptResponse() {
+    }
+    
+    public ReceiptResponse(Long id, Long expenseId, String filename, String contentType, long size,
+                           String sha256, LocalDateTime createdAt) {
+        this.id = id;
+        this.expenseId = expenseId;
+        this.filename = filename;
+        this.contentType = contentType;
+        this.size = size;
+        this.sha256 = sha256;
+        this.createdAt = createdAt;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getExpenseId() {
+        return expenseId;
+    }
+    
+    public void setExpenseId(Long expenseId) {
+        this.expenseId = expenseId;
+    }
+    
+    public String getFilename() {
+        return filename;
+    }
+    
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+    
+    public String getContentType() {
+        return contentType;
+    }
+    
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+    
+    public long getSize() {
+        return size;
+    }
+    
+    public void setSize(long size) {
+        this.size = size;
+    }
+    
+    public String getSha256() {
+        return sha256;
+    }
+    
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
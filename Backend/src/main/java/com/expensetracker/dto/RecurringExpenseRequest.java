@@ -0,0 +1,102 @@
+package com.expensetracker.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+
+public class RecurringExpenseRequest {
+    
+    @NotBlank(message = "Title is required")
+    private String title;
+    
+    private String description;
+    
+    @NotNull(message = "Amount is required")
+    @PositiveOrZero(message = "Amount must be positive or zero")
+    private BigDecimal amount;
+    
+    @NotBlank(message = "Category is required")
+    private String category;
+    
+    @NotBlank(message = "Schedule is required")
+    private String schedule;
+    
+    @NotNull(message = "Start date is required")
+    private LocalDate startDate;
+    
+    private LocalDate endDate;
+    
+    public RecurringExpenseRequest() {
+    }
+    
+    public RecurringExpenseRequest(String title, String description, BigDecimal amount, String category,
+                                   String schedule, LocalDate startDate, LocalDate endDate) {
+        this.title = title;
+        this.description = description;
+        this.amount = amount;
+        this.category = category;
+        this.schedule = schedule;
+        this.startDate = startDate;
+        this.endDate = endDate;
+    }
+    
+    // Getters and Setters
+    public String getTitle() {
+        return title;
+    }
+    
+    public void setTitle(String title) {
+        this.title = title;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public String getSchedule() {
+        return schedule;
+    }
+    
+    public void setSchedule(String schedule) {
+        this.schedule = schedule;
+    }
+    
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+    
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+    
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+    
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+}
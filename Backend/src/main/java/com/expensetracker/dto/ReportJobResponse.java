@@ -0,0 +1,118 @@
+package com.expensetracker.dto;
+
+import com.expensetracker.entity.ReportJob;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+public class ReportJobResponse {
+    
+    private Long id;
+    private ReportJob.Type type;
+    private YearMonth from;
+    private YearMonth to;
+    private ReportJob.Status status;
+    private Long resultBytes;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    
+    public ReportJobResponse() {
+    }
+    
+    public ReportJobResponse(Long id, ReportJob.Type type, YearMonth from, YearMonth to, ReportJob.Status status,
+                             Long resultBytes, String error, LocalDateTime createdAt, LocalDateTime startedAt,
+                             LocalDateTime finishedAt) {
+        this.id = id;
+        this.type = type;
+        this.from = from;
+        this.to = to;
+        this.status = status;
+        this.resultBytes = resultBytes;
+        this.error = error;
+        this.createdAt = createdAt;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public ReportJob.Type getType() {
+        return type;
+    }
+    
+    public void setType(ReportJob.Type type) {
+        this.type = type;
+    }
+    
+    public YearMonth getFrom() {
+        return from;
+    }
+    
+    public void setFrom(YearMonth from) {
+        this.from = from;
+    }
+    
+    public YearMonth getTo() {
+        return to;
+    }
+    
+    public void setTo(YearMonth to) {
+        this.to = to;
+    }
+    
+    public ReportJob.Status getStatus() {
+        return status;
+    }
+    
+    public void setStatus(ReportJob.Status status) {
+        this.status = status;
+    }
+    
+    public Long getResultBytes() {
+        return resultBytes;
+    }
+    
+    public void setResultBytes(Long resultBytes) {
+        this.resultBytes = resultBytes;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
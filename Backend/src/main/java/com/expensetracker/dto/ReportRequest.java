@@ -0,0 +1,52 @@
+package com.expensetracker.dto;
+
+import com.expensetracker.entity.ReportJob;
+import jakarta.validation.constraints.NotNull;
+import java.time.YearMonth;
+
+
+public class ReportRequest {
+    
+    @NotNull(message = "Type is required")
+    private ReportJob.Type type;
+    
+    @NotNull(message = "'from' is required")
+    private YearMonth from;
+    
+    @NotNull(message = "'to' is required")
+    private YearMonth to;
+    
+    public ReportRequest() {
+    }
+    
+    public ReportRequest(ReportJob.Type type, YearMonth from, YearMonth to) {
+        this.type = type;
+        this.from = from;
+        this.to = to;
+    }
+    
+    // Getters and Setters
+    public ReportJob.Type getType() {
+        return type;
+    }
+    
+    public void setType(ReportJob.Type type) {
+        this.type = type;
+    }
+    
+    public YearMonth getFrom() {
+        return from;
+    }
+    
+    public void setFrom(YearMonth from) {
+        this.from = from;
+    }
+    
+    public YearMonth getTo() {
+        return to;
+    }
+    
+    public void setTo(YearMonth to) {
+        this.to = to;
+    }
+}
@@ -0,0 +1,118 @@
+package com.expensetracker.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public class SpendingDistributionResponse {
+    
+    private String category;
+    private LocalDate from;
+    private LocalDate to;
+    private long count;
+    private BigDecimal total;
+    private BigDecimal median;
+    private BigDecimal p90;
+    private BigDecimal p99;
+    private BigDecimal max;
+    private List<HistogramBin> histogram;
+    
+    public SpendingDistributionResponse() {
+    }
+    
+    public SpendingDistributionResponse(String category, LocalDate from, LocalDate to, long count, BigDecimal total,
+                                        BigDecimal median, BigDecimal p90, BigDecimal p99, BigDecimal max,
+                                        List<HistogramBin> histogram) {
+        this.category = category;
+        this.from = from;
+        this.to = to;
+        this.count = count;
+        this.total = total;
+        this.median = median;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+        this.histogram = histogram;
+    }
+    
+    // Getters and Setters
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public LocalDate getFrom() {
+        return from;
+    }
+    
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+    
+    public LocalDate getTo() {
+        return to;
+    }
+    
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+    
+    public void setCount(long count) {
+        this.count = count;
+    }
+    
+    public BigDecimal getTotal() {
+        return total;
+    }
+    
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+    
+    public BigDecimal getMedian() {
+        return median;
+    }
+    
+    public void setMedian(BigDecimal median) {
+        this.median = median;
+    }
+    
+    public BigDecimal getP90() {
+        return p90;
+    }
+    
+    public void setP90(BigDecimal p90) {
+        this.p90 = p90;
+    }
+    
+    public BigDecimal getP99() {
+        return p99;
+    }
+    
+    public void setP99(BigDecimal p99) {
+        this.p99 = p99;
+    }
+    
+    public BigDecimal getMax() {
+        return max;
+    }
+    
+    public void setMax(BigDecimal max) {
+        this.max = max;
+    }
+    
+    public List<HistogramBin> getHistogram() {
+        return histogram;
+    }
+    
+    public void setHistogram(List<HistogramBin> histogram) {
+        this.histogram = histogram;
+    }
+}
@@ -0,0 +1,55 @@
+package com.expensetracker.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class TopTitlesResponse {
+    
+    private LocalDate from;
+    private LocalDate to;
+    private List<RankedTitle> byCount;
+    private List<RankedTitle> byAmount;
+    
+    public TopTitlesResponse() {
+    }
+    
+    public TopTitlesResponse(LocalDate from, LocalDate to, List<RankedTitle> byCount, List<RankedTitle> byAmount) {
+        this.from = from;
+        this.to = to;
+        this.byCount = byCount;
+        this.byAmount = byAmount;
+    }
+    
+    // Getters and Setters
+    public LocalDate getFrom() {
+        return from;
+    }
+    
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+    
+    public LocalDate getTo() {
+        return to;
+    }
+    
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+    
+    public List<RankedTitle> getByCount() {
+        return byCount;
+    }
+    
+    public void setByCount(List<RankedTitle> byCount) {
+        this.byCount = byCount;
+    }
+    
+    public List<RankedTitle> getByAmount() {
+        return byAmount;
+    }
+    
+    public void setByAmount(List<RankedTitle> byAmount) {
+        this.byAmount = byAmount;
+    }
+}
@@ -1,5 +1,6 @@
 package com.expensetracker.entity;
 
+import com.expensetracker.util.ExpenseFingerprints;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -8,10 +9,16 @@ import jakarta.validation.constraints.PositiveOrZero;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import org.hibernate.annotations.ColumnDefault;
 
 
 @Entity
-@Table(name = "expenses")
+@Table(name = "expenses",
+       indexes = {
+           @Index(name = "idx_expenses_user_change_seq", columnList = "user_id, change_seq"),
+           @Index(name = "idx_expenses_user_fingerprint", columnList = "user_id, fingerprint"),
+           @Index(name = "idx_expenses_user_date", columnList = "user_id, expense_date")
+       })
 public class Expense {
     
     @Id
@@ -33,6 +40,10 @@ public class Expense {
     @Column(nullable = false)
     private String category;
     
+    // Normalized by ExpenseTags: lower case, sorted, comma-separated; null for none
+    @Column(length = 340)
+    private String tags;
+    
     @NotNull(message = "Date is required")
     @Column(name = "expense_date", nullable = false)
     private LocalDate expenseDate;
@@ -43,6 +54,25 @@ public class Expense {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Value of the owner's expenses_version at the last write; cursor of the change feed
+    @Column(name = "change_seq", nullable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private long changeSeq;
+    
+    // ExpenseFingerprints of title, amount and date, kept current on every write; null on rows
+    // stored before it existed until duplicate detection fills it in
+    @Column(name = "fingerprint")
+    @JsonIgnore
+    private Long fingerprint;
+    
+    // Bumped by every update; updates and deletes only match the version they read. Rows the
+    // JDBC inserts and archive restores write start at 0
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private long version;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     @JsonIgnore
@@ -64,11 +94,13 @@ public class Expense {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        fingerprint = ExpenseFingerprints.of(title, amount, expenseDate);
     }
     
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
+        fingerprint = ExpenseFingerprints.of(title, amount, expenseDate);
     }
     
     // Getters and Setters
@@ -112,6 +144,14 @@ public class Expense {
         this.category = category;
     }
     
+    public String getTags() {
+        return tags;
+    }
+    
+    public void setTags(String tags) {
+        this.tags = tags;
+    }
+    
     public LocalDate getExpenseDate() {
         return expenseDate;
     }
@@ -136,6 +176,30 @@ public class Expense {
         this.updatedAt = updatedAt;
     }
     
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+    
+    public void setChangeSeq(long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+    
+    public Long getFingerprint() {
+        return fingerprint;
+    }
+    
+    public void setFingerprint(Long fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
     public User getUser() {
         return user;
     }
@@ -0,0 +1,77 @@
+package com.expensetracker.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+
+/**
+ * Running sum of a user's expenses in one category and calendar month, kept up to date by
+ * every expense write so budgets never re-sum history. Written through JDBC by
+ * {@code BudgetService}; mapped here so the schema is managed with the rest.
+ */
+@Entity
+@Table(name = "expense_month_totals",
+       uniqueConstraints = @UniqueConstraint(name = "uk_month_totals_user_month_category",
+                                             columnNames = {"user_id", "month_start", "category"}))
+public class ExpenseMonthTotal {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    // First day of the month
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+    
+    @Column(nullable = false)
+    private String category;
+    
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal total;
+    
+    // MonthAggregates of the expenses behind the total; null for totals kept from before them
+    @Column(name = "amount_sketch", length = 8192)
+    private byte[] amountSketch;
+    
+    @Column(name = "title_counts", length = 4096)
+    private byte[] titleCounts;
+    
+    @Column(name = "title_amounts", length = 4096)
+    private byte[] titleAmounts;
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public LocalDate getMonthStart() {
+        return monthStart;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public BigDecimal getTotal() {
+        return total;
+    }
+    
+    public byte[] getAmountSketch() {
+        return amountSketch;
+    }
+    
+    public byte[] getTitleCounts() {
+        return titleCounts;
+    }
+    
+    public byte[] getTitleAmounts() {
+        return titleAmounts;
+    }
+}
@@ -0,0 +1,126 @@
+package com.expensetracker.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+
+/**
+ * A receipt attached to an expense. The bytes live in the receipt store under their SHA-256,
+ * so receipts with the same content share one file.
+ */
+@Entity
+@Table(name = "expense_receipts",
+       indexes = {
+           @Index(name = "idx_receipts_user_expense", columnList = "user_id, expense_id"),
+           @Index(name = "idx_receipts_sha256", columnList = "sha256")
+       })
+public class ExpenseReceipt {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "expense_id", nullable = false)
+    private Long expenseId;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false, length = 64)
+    private String sha256;
+    
+    @Column(name = "content_type", nullable = false, length = 100)
+    private String contentType;
+    
+    @Column(nullable = false)
+    private long size;
+    
+    @Column(length = 255)
+    private String filename;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    public ExpenseReceipt() {
+    }
+    
+    public ExpenseReceipt(Long expenseId, Long userId, String sha256, String contentType, long size,
+                          String filename) {
+        this.expenseId = expenseId;
+        this.userId = userId;
+        this.sha256 = sha256;
+        this.contentType = contentType;
+        this.size = size;
+        this.filename = filename;
+    }
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getExpenseId() {
+        return expenseId;
+    }
+    
+    public void setExpenseId(Long expenseId) {
+        this.expenseId = expenseId;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public String getSha256() {
+        return sha256;
+    }
+    
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+    
+    public String getContentType() {
+        return contentType;
+    }
+    
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+    
+    public long getSize() {
+        return size;
+    }
+    
+    public void setSize(long size) {
+        this.size = size;
+    }
+    
+    public String getFilename() {
+        return filename;
+    }
+    
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
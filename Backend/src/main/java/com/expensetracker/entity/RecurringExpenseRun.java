@@ -0,0 +1,60 @@
+package com.expensetracker.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+
+/**
+ * Checkpoint of one materialization run. Written through JDBC by the materializer; mapped
+ * here so the schema is managed with the rest.
+ */
+@Entity
+@Table(name = "recurring_expense_runs")
+public class RecurringExpenseRun {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // Instances are created up to and including this date
+    @Column(name = "run_date", nullable = false)
+    private LocalDate runDate;
+    
+    // Recurring expenses are processed in id order; everything up to here is done
+    @Column(name = "last_recurring_id", nullable = false)
+    private long lastRecurringId;
+    
+    @Column(nullable = false)
+    private long instances;
+    
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public LocalDate getRunDate() {
+        return runDate;
+    }
+    
+    public long getLastRecurringId() {
+        return lastRecurringId;
+    }
+    
+    public long getInstances() {
+        return instances;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+}
@@ -0,0 +1,234 @@
+package com.expensetracker.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+
+/**
+ * A requested report and where it is in its lifecycle. The result file is shared by every job
+ * with the same {@code cacheKey}.
+ */
+@Entity
+@Table(name = "report_jobs",
+       indexes = {
+           @Index(name = "idx_report_jobs_user_cache_key", columnList = "user_id, cache_key"),
+           @Index(name = "idx_report_jobs_status", columnList = "status")
+       })
+public class ReportJob {
+    
+    public enum Type {
+        // Every expense of the months, one CSV row each
+        EXPENSES_CSV,
+        // Per month and category: total, budget and what is left of it
+        MONTHLY_SUMMARY
+    }
+    
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Type type;
+    
+    // First day of the first and of the last month covered
+    @Column(name = "from_month", nullable = false)
+    private LocalDate fromMonth;
+    
+    @Column(name = "to_month", nullable = false)
+    private LocalDate toMonth;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Status status;
+    
+    // Lower runs first
+    @Column(nullable = false)
+    private int priority;
+    
+    // The user's expenses_version when the report was requested
+    @Column(name = "data_version", nullable = false)
+    private long dataVersion;
+    
+    @Column(name = "cache_key", nullable = false, length = 64)
+    private String cacheKey;
+    
+    @Column(nullable = false)
+    private int attempts;
+    
+    @Column(name = "result_bytes")
+    private Long resultBytes;
+    
+    @Column(length = 500)
+    private String error;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    // While running: until when the worker holding it is known to be alive; renewed by every sweep
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+    
+    public ReportJob() {
+    }
+    
+    public ReportJob(Long userId, Type type, LocalDate fromMonth, LocalDate toMonth, int priority,
+                     long dataVersion, String cacheKey) {
+        this.userId = userId;
+        this.type = type;
+        this.fromMonth = fromMonth;
+        this.toMonth = toMonth;
+        this.status = Status.QUEUED;
+        this.priority = priority;
+        this.dataVersion = dataVersion;
+        this.cacheKey = cacheKey;
+    }
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    public void setType(Type type) {
+        this.type = type;
+    }
+    
+    public LocalDate getFromMonth() {
+        return fromMonth;
+    }
+    
+    public void setFromMonth(LocalDate fromMonth) {
+        this.fromMonth = fromMonth;
+    }
+    
+    public LocalDate getToMonth() {
+        return toMonth;
+    }
+    
+    public void setToMonth(LocalDate toMonth) {
+        this.toMonth = toMonth;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+    
+    public int getPriority() {
+        return priority;
+    }
+    
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+    
+    public long getDataVersion() {
+        return dataVersion;
+    }
+    
+    public void setDataVersion(long dataVersion) {
+        this.dataVersion = dataVersion;
+    }
+    
+    public String getCacheKey() {
+        return cacheKey;
+    }
+    
+    public void setCacheKey(String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+    
+    public int getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+    
+    public Long getResultBytes() {
+        return resultBytes;
+    }
+    
+    public void setResultBytes(Long resultBytes) {
+        this.resultBytes = resultBytes;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+    
+    public LocalDateTime getLeaseUntil() {
+        return leaseUntil;
+    }
+    
+    public void setLeaseUntil(LocalDateTime leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+}
@@ -6,6 +6,7 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
+import org.hibernate.annotations.ColumnDefault;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -40,6 +41,12 @@ public class User {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Bumped on every expense create/update/delete; drives the ETag of the expense list
+    @Column(name = "expenses_version", nullable = false)
+    @ColumnDefault("0")
+    @JsonIgnore
+    private long expensesVersion;
+    
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
     private List<Expense> expenses = new ArrayList<>();
@@ -113,6 +120,14 @@ public class User {
         this.updatedAt = updatedAt;
     }
     
+    public long getExpensesVersion() {
+        return expensesVersion;
+    }
+    
+    public void setExpensesVersion(long expensesVersion) {
+        this.expensesVersion = expensesVersion;
+    }
+    
     public List<Expense> getExpenses() {
         return expenses;
     }
@@ -0,0 +1,36 @@
+package com.expensetracker.event;
+
+import com.expensetracker.dto.BudgetStatusResponse;
+
+/**
+ * Published by {@code BudgetService} when an expense write moves a category of the current
+ * month into a higher budget level.
+ */
+public class BudgetAlertEvent {
+    
+    public enum Level {
+        OK, NEAR, OVER
+    }
+    
+    private final Long userId;
+    private final String username;
+    private final BudgetStatusResponse status;
+    
+    public BudgetAlertEvent(Long userId, String username, BudgetStatusResponse status) {
+        this.userId = userId;
+        this.username = username;
+        this.status = status;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public String getUsername() {
+        return username;
+    }
+    
+    public BudgetStatusResponse getStatus() {
+        return status;
+    }
+}
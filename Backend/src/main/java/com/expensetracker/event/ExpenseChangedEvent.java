@@ -0,0 +1,73 @@
+package com.expensetracker.event;
+
+import com.expensetracker.dto.ExpenseResponse;
+
+/**
+ * Published by {@code ExpenseService} for every successful write. Listeners that only
+ * care about committed data should use {@code @TransactionalEventListener}.
+ */
+public class ExpenseChangedEvent {
+    
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+    
+    private final Type type;
+    private final Long userId;
+    private final String username;
+    private final Long expenseId;
+    private final long changeSeq;
+    private final ExpenseResponse expense;
+    private final ExpenseResponse previous;
+    
+    public ExpenseChangedEvent(Type type, Long userId, String username, Long expenseId, long changeSeq,
+                               ExpenseResponse expense) {
+        this(type, userId, username, expenseId, changeSeq, expense, null);
+    }
+    
+    public ExpenseChangedEvent(Type type, Long userId, String username, Long expenseId, long changeSeq,
+                               ExpenseResponse expense, ExpenseResponse previous) {
+        this.type = type;
+        this.userId = userId;
+        this.username = username;
+        this.expenseId = expenseId;
+        this.changeSeq = changeSeq;
+        this.expense = expense;
+        this.previous = previous;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public String getUsername() {
+        return username;
+    }
+    
+    public Long getExpenseId() {
+        return expenseId;
+    }
+    
+    public long getChangeSeq() {
+        return changeSeq;
+    }
+    
+    /**
+     * State after the write; {@code null} for deletions.
+     */
+    public ExpenseResponse getExpense() {
+        return expense;
+    }
+    
+    /**
+     * State before the write, so indexes can take out what it replaced; {@code null} for
+     * creations and when the writer did not read it.
+     */
+    public ExpenseResponse getPrevious() {
+        return previous;
+    }
+}
@@ -0,0 +1,205 @@
+package com.expensetracker.index;
+
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.event.ExpenseChangedEvent;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Per-user title and category suggestions for the expense forms, from a {@link PrefixTrie} of
+ * each that counts how many expenses use a term.
+ * <p>
+ * A user's tries are built on their first suggestion request from the distinct titles and
+ * categories with their counts, and kept in step by committed writes: an update or delete takes
+ * one use off the title and category it replaced, and a creation or update adds one to the new
+ * ones. Any sign of a missed event marks the tries stale: like {@link ExpenseBitmapIndex}, each
+ * user's tries know the expenses_version they reflect and are rebuilt when a request passes a
+ * newer one.
+ * <p>
+ * Tries not asked for in {@code expenses.autocomplete.idle-ms} are dropped, and at most
+ * {@code expenses.autocomplete.max-users} are kept, least recently used going first. Terms
+ * are interned in one {@link TermPool} across users, so categories and common titles are
+ * stored once however many users have them.
+ */
+@Component
+public class AutocompleteIndex {
+
+    public enum Field {
+        TITLE, CATEGORY;
+
+        public static Field of(String name) {
+            for (Field field : values()) {
+                if (field.name().equalsIgnoreCase(name)) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("Unknown suggestion field: " + name);
+        }
+    }
+
+    @Value("${expenses.autocomplete.max-users:10000}")
+    private int maxUsers;
+
+    @Value("${expenses.autocomplete.idle-ms:900000}")
+    private long idleMillis;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final Map<Long, UserTries> tries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final TermPool pool = new TermPool();
+
+    /**
+     * Up to {@code limit} of the user's terms for the field that start with {@code prefix},
+     * ignoring case, most used first.
+     *
+     * @param version the user's current expenses_version
+     * @param loader  the count of expenses per distinct value of a field at that version, if
+     *                the tries must be rebuilt
+     */
+    public List<String> suggest(Long userId, long version, Function<Field, Map<String, Long>> loader,
+                                Field field, String prefix, int limit) {
+        UserTries userTries = get(userId);
+        if (userTries == null || userTries.isBehind(version)) {
+            userTries = UserTries.build(version, loader, pool);
+            put(userId, userTries);
+        }
+        return userTries.top(field, prefix, limit);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        UserTries userTries = find(event.getUserId());
+        if (userTries != null) {
+            userTries.apply(event);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${expenses.autocomplete.sweep-interval-ms:60000}",
+            initialDelayString = "${expenses.autocomplete.sweep-interval-ms:60000}")
+    public synchronized void evictIdle() {
+        long idleSince = System.currentTimeMillis() - idleMillis;
+        tries.values().removeIf(userTries -> userTries.lastUsed <= idleSince);
+    }
+
+    public synchronized int getIndexedUsers() {
+        return tries.size();
+    }
+
+    private synchronized UserTries get(Long userId) {
+        UserTries userTries = tries.get(userId);
+        if (userTries != null) {
+            userTries.lastUsed = System.currentTimeMillis();
+        }
+        return userTries;
+    }
+
+    // Without counting as a use, so writes alone do not keep tries from going idle
+    private synchronized UserTries find(Long userId) {
+        return tries.get(userId);
+    }
+
+    private synchronized void put(Long userId, UserTries userTries) {
+        userTries.lastUsed = System.currentTimeMillis();
+        tries.put(userId, userTries);
+        Iterator<UserTries> eldest = tries.values().iterator();
+        while (tries.size() > maxUsers && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * One user's tries. Guarded by its own monitor, as lookups take microseconds.
+     */
+    static final class UserTries {
+
+        private static final long STALE = -1;
+
+        private long version;
+
+        private final PrefixTrie titles;
+
+        private final PrefixTrie categories;
+
+        // Guarded by the enclosing AutocompleteIndex
+        private long lastUsed;
+
+        private UserTries(long version, TermPool pool) {
+            this.version = version;
+            this.titles = new PrefixTrie(pool);
+            this.categories = new PrefixTrie(pool);
+        }
+
+        static UserTries build(long version, Function<Field, Map<String, Long>> loader, TermPool pool) {
+            UserTries userTries = new UserTries(version, pool);
+            for (Field field : Field.values()) {
+                // Most used first, so a term shows in the spelling most of its expenses have
+                List<Map.Entry<String, Long>> counts = new ArrayList<>(loader.apply(field).entrySet());
+                counts.sort(Map.Entry.<String, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()));
+                PrefixTrie trie = userTries.trie(field);
+                for (Map.Entry<String, Long> count : counts) {
+                    if (count.getKey() != null && !count.getKey().isBlank() && count.getValue() > 0) {
+                        trie.add(count.getKey().strip(), count.getValue());
+                    }
+                }
+            }
+            return userTries;
+        }
+
+        synchronized boolean isBehind(long currentVersion) {
+            return version == STALE || version < currentVersion;
+        }
+
+        synchronized List<String> top(Field field, String prefix, int limit) {
+            return trie(field).top(prefix.strip(), limit);
+        }
+
+        synchronized long count(Field field, String term) {
+            return trie(field).count(term);
+        }
+
+        synchronized void apply(ExpenseChangedEvent event) {
+            if (version == STALE || event.getChangeSeq() <= version) {
+                return;
+            }
+            boolean replaces = event.getType() != ExpenseChangedEvent.Type.CREATED;
+            if (event.getChangeSeq() != version + 1 || replaces && event.getPrevious() == null) {
+                version = STALE;
+                return;
+            }
+            ExpenseResponse previous = event.getPrevious();
+            if (replaces && isTerm(previous.getTitle())) {
+                titles.remove(previous.getTitle().strip(), 1);
+            }
+            if (replaces && isTerm(previous.getCategory())) {
+                categories.remove(previous.getCategory().strip(), 1);
+            }
+            ExpenseResponse expense = event.getExpense();
+            if (expense != null && isTerm(expense.getTitle())) {
+                titles.add(expense.getTitle().strip(), 1);
+            }
+            if (expense != null && isTerm(expense.getCategory())) {
+                categories.add(expense.getCategory().strip(), 1);
+            }
+            version = event.getChangeSeq();
+        }
+
+        private static boolean isTerm(String value) {
+            return value != null && !value.isBlank();
+        }
+
+        private PrefixTrie trie(Field field) {
+            return field == Field.TITLE ? titles : categories;
+        }
+    }
+}
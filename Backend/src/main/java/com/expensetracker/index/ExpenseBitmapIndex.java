@@ -0,0 +1,282 @@
+package com.expensetracker.index;
+
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.entity.Expense;
+import com.expensetracker.event.ExpenseChangedEvent;
+import com.expensetracker.util.ExpenseTags;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Per-user bitmap indexes over expense ordinals, for combined category, tag and date filters.
+ * <p>
+ * A user's index numbers their expenses 0, 1, 2... in id order and keeps one
+ * {@link RoaringBitmap} of ordinals per category and per tag, plus the ids and dates by
+ * ordinal. A filter is then a few bitmap ORs, ANDs and AND NOTs and a pass over the dates of
+ * what is left, and yields ids for a primary-key fetch.
+ * <p>
+ * Indexes are built on first use from all of the user's expenses (archived ones included)
+ * and kept in step by the committed {@link ExpenseChangedEvent}s. Each index knows the
+ * user's expenses_version it reflects. A search passes the current one, and an index that
+ * is behind it, for example because it missed an event or received one out of order, is
+ * rebuilt. Indexes are evicted least recently used beyond
+ * {@code expenses.bitmap-index.max-bytes}.
+ */
+@Component
+public class ExpenseBitmapIndex {
+
+    @Value("${expenses.bitmap-index.max-bytes:33554432}")
+    private long maxBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final Map<Long, UserIndex> indexes = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long indexedBytes;
+
+    /**
+     * Ids of the user's expenses that match the filter, in ascending order.
+     *
+     * @param version the user's current expenses_version
+     * @param loader  all of the user's expenses at that version, if the index must be rebuilt
+     */
+    public long[] search(Long userId, long version, Supplier<List<Expense>> loader, ExpenseFilter filter) {
+        UserIndex index = get(userId);
+        if (index == null || index.isBehind(version)) {
+            index = UserIndex.build(version, loader.get());
+            put(userId, index);
+        }
+        return index.search(filter);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        UserIndex index = get(event.getUserId());
+        if (index != null) {
+            index.apply(event);
+            resized(event.getUserId(), index);
+        }
+    }
+
+    public synchronized long getIndexedBytes() {
+        return indexedBytes;
+    }
+
+    public synchronized int getIndexedUsers() {
+        return indexes.size();
+    }
+
+    private synchronized UserIndex get(Long userId) {
+        return indexes.get(userId);
+    }
+
+    private synchronized void put(Long userId, UserIndex index) {
+        index.accountedBytes = index.sizeInBytes();
+        if (index.accountedBytes > maxBytes) {
+            return;
+        }
+        UserIndex previous = indexes.put(userId, index);
+        if (previous != null) {
+            indexedBytes -= previous.accountedBytes;
+        }
+        indexedBytes += index.accountedBytes;
+        evict();
+    }
+
+    private synchronized void resized(Long userId, UserIndex index) {
+        if (indexes.get(userId) != index) {
+            return;
+        }
+        long bytes = index.sizeInBytes();
+        indexedBytes += bytes - index.accountedBytes;
+        index.accountedBytes = bytes;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<UserIndex> eldest = indexes.values().iterator();
+        while (indexedBytes > maxBytes && eldest.hasNext()) {
+            indexedBytes -= eldest.next().accountedBytes;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * One user's index. Guarded by its own monitor; searches take microseconds, so writers
+     * and readers simply take turns.
+     */
+    static final class UserIndex {
+
+        private static final long STALE = -1;
+
+        // Compact once this many ordinals are dead and they are at least half of all
+        private static final int MAX_DEAD = 1024;
+
+        private long version;
+
+        private long[] ids;
+
+        private int[] days;
+
+        private int count;
+
+        private int dead;
+
+        private final RoaringBitmap live = new RoaringBitmap();
+
+        private final Map<String, RoaringBitmap> categories = new HashMap<>();
+
+        private final Map<String, RoaringBitmap> tags = new HashMap<>();
+
+        // Guarded by the enclosing ExpenseBitmapIndex
+        private long accountedBytes;
+
+        private UserIndex(long version, int capacity) {
+            this.version = version;
+            this.ids = new long[Math.max(capacity, 16)];
+            this.days = new int[ids.length];
+        }
+
+        static UserIndex build(long version, List<Expense> expenses) {
+            List<Expense> sorted = new ArrayList<>(expenses);
+            sorted.sort(Comparator.comparing(Expense::getId));
+            UserIndex index = new UserIndex(version, sorted.size());
+            for (Expense expense : sorted) {
+                index.append(expense.getId(), expense.getCategory(), ExpenseTags.split(expense.getTags()),
+                        expense.getExpenseDate());
+            }
+            return index;
+        }
+
+        synchronized boolean isBehind(long currentVersion) {
+            return version == STALE || version < currentVersion;
+        }
+
+        synchronized long[] search(ExpenseFilter filter) {
+            RoaringBitmap matches = live;
+            if (!filter.getCategories().isEmpty()) {
+                matches = new RoaringBitmap();
+                for (String category : filter.getCategories()) {
+                    RoaringBitmap bitmap = categories.get(category);
+                    if (bitmap != null) {
+                        matches = RoaringBitmap.or(matches, bitmap);
+                    }
+                }
+            }
+            for (String tag : filter.getTags()) {
+                RoaringBitmap bitmap = tags.get(tag);
+                if (bitmap == null) {
+                    return new long[0];
+                }
+                matches = RoaringBitmap.and(matches, bitmap);
+            }
+            for (String tag : filter.getExcludedTags()) {
+                RoaringBitmap bitmap = tags.get(tag);
+                if (bitmap != null) {
+                    matches = RoaringBitmap.andNot(matches, bitmap);
+                }
+            }
+
+            long from = filter.getFrom() == null ? Long.MIN_VALUE : filter.getFrom().toEpochDay();
+            long to = filter.getTo() == null ? Long.MAX_VALUE : filter.getTo().toEpochDay();
+            long[] result = new long[matches.getCardinality()];
+            int[] found = new int[1];
+            matches.forEach(ordinal -> {
+                if (days[ordinal] >= from && days[ordinal] <= to) {
+                    result[found[0]++] = ids[ordinal];
+                }
+            });
+            // Ordinals are in id order, so the ids already are
+            return found[0] == result.length ? result : Arrays.copyOf(result, found[0]);
+        }
+
+        synchronized void apply(ExpenseChangedEvent event) {
+            if (version == STALE || event.getChangeSeq() <= version) {
+                return;
+            }
+            if (event.getChangeSeq() != version + 1) {
+                version = STALE;
+                return;
+            }
+            int ordinal = ordinal(event.getExpenseId());
+            if (ordinal >= 0) {
+                unindex(ordinal);
+            }
+            ExpenseResponse expense = event.getExpense();
+            if (event.getType() == ExpenseChangedEvent.Type.DELETED) {
+                if (ordinal >= 0) {
+                    dead++;
+                }
+            } else if (ordinal >= 0) {
+                index(ordinal, expense.getCategory(), expense.getTags(), expense.getExpenseDate());
+            } else if (count > 0 && event.getExpenseId() < ids[count - 1]) {
+                // Ordinals must stay in id order; an expense committed out of id order is rare
+                version = STALE;
+                return;
+            } else {
+                append(event.getExpenseId(), expense.getCategory(), expense.getTags(), expense.getExpenseDate());
+            }
+            version = dead > MAX_DEAD && dead * 2 > count ? STALE : event.getChangeSeq();
+        }
+
+        synchronized long sizeInBytes() {
+            long bytes = 128 + ids.length * 12L + live.sizeInBytes();
+            for (Map<String, RoaringBitmap> bitmaps : List.of(categories, tags)) {
+                for (Map.Entry<String, RoaringBitmap> entry : bitmaps.entrySet()) {
+                    bytes += 64 + entry.getKey().length() * 2L + entry.getValue().sizeInBytes();
+                }
+            }
+            return bytes;
+        }
+
+        private int ordinal(Long id) {
+            int ordinal = Arrays.binarySearch(ids, 0, count, id);
+            return ordinal >= 0 && live.contains(ordinal) ? ordinal : -1;
+        }
+
+        private void append(Long id, String category, List<String> expenseTags, LocalDate date) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                days = Arrays.copyOf(days, count * 2);
+            }
+            ids[count] = id;
+            index(count++, category, expenseTags, date);
+        }
+
+        private void index(int ordinal, String category, List<String> expenseTags, LocalDate date) {
+            days[ordinal] = (int) date.toEpochDay();
+            live.add(ordinal);
+            categories.computeIfAbsent(category, key -> new RoaringBitmap()).add(ordinal);
+            if (expenseTags != null) {
+                for (String tag : expenseTags) {
+                    tags.computeIfAbsent(tag, key -> new RoaringBitmap()).add(ordinal);
+                }
+            }
+        }
+
+        private void unindex(int ordinal) {
+            live.remove(ordinal);
+            for (Map<String, RoaringBitmap> bitmaps : List.of(categories, tags)) {
+                Iterator<RoaringBitmap> iterator = bitmaps.values().iterator();
+                while (iterator.hasNext()) {
+                    RoaringBitmap bitmap = iterator.next();
+                    bitmap.remove(ordinal);
+                    if (bitmap.isEmpty()) {
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.expensetracker.index;
+
+import com.expensetracker.util.ExpenseTags;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A combined expense filter: any of {@code categories} (all when empty), with every one of
+ * {@code tags}, with none of {@code excludedTags}, dated within {@code from}..{@code to}
+ * (inclusive, open when null).
+ */
+public class ExpenseFilter {
+
+    private final List<String> categories;
+
+    private final List<String> tags;
+
+    private final List<String> excludedTags;
+
+    private final LocalDate from;
+
+    private final LocalDate to;
+
+    public ExpenseFilter(List<String> categories, List<String> tags, List<String> excludedTags,
+                         LocalDate from, LocalDate to) {
+        this.categories = categories == null ? List.of() : List.copyOf(categories);
+        this.tags = normalize(tags);
+        this.excludedTags = normalize(excludedTags);
+        this.from = from;
+        this.to = to;
+    }
+
+    private static List<String> normalize(List<String> tags) {
+        return tags == null ? List.of() : tags.stream().map(ExpenseTags::normalize).collect(Collectors.toList());
+    }
+
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public List<String> getExcludedTags() {
+        return excludedTags;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+}
@@ -0,0 +1,175 @@
+package com.expensetracker.index;
+
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.event.ExpenseChangedEvent;
+import com.expensetracker.util.ExpenseFingerprints;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Per-user sets of expense fingerprints ({@link ExpenseFingerprints}) in memory, so telling
+ * whether a new expense repeats one is a few hash lookups instead of a query over the user's
+ * expenses.
+ * <p>
+ * A user's set is loaded on first use from the indexed fingerprint column and takes committed
+ * writes in place: a creation adds its fingerprint, a deletion takes out one occurrence of the
+ * one it removed, and an update does both. Like {@link ExpenseBitmapIndex}, each set knows the
+ * expenses_version it reflects; it is reloaded only when it missed a write, as when a check
+ * passes a newer version than its last event or events arrive with a gap. Sets are evicted
+ * least recently used beyond {@code expenses.duplicates.max-bytes}.
+ */
+@Component
+public class FingerprintIndex {
+
+    @Value("${expenses.duplicates.max-bytes:16777216}")
+    private long maxBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final Map<Long, UserFingerprints> fingerprints = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long indexedBytes;
+
+    /**
+     * Whether the user has an expense with any of the fingerprints.
+     *
+     * @param version the user's current expenses_version
+     * @param loader  the fingerprints of all of the user's expenses at that version, if the set
+     *                must be reloaded
+     */
+    public boolean containsAny(Long userId, long version, Supplier<long[]> loader, long[] candidates) {
+        UserFingerprints set = get(userId);
+        if (set == null || set.isBehind(version)) {
+            set = UserFingerprints.build(version, loader.get());
+            put(userId, set);
+        }
+        return set.containsAny(candidates);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        UserFingerprints set = get(event.getUserId());
+        if (set != null) {
+            set.apply(event);
+            resized(event.getUserId(), set);
+        }
+    }
+
+    public synchronized long getIndexedBytes() {
+        return indexedBytes;
+    }
+
+    public synchronized int getIndexedUsers() {
+        return fingerprints.size();
+    }
+
+    private synchronized UserFingerprints get(Long userId) {
+        return fingerprints.get(userId);
+    }
+
+    private synchronized void put(Long userId, UserFingerprints set) {
+        set.accountedBytes = set.sizeInBytes();
+        if (set.accountedBytes > maxBytes) {
+            return;
+        }
+        UserFingerprints previous = fingerprints.put(userId, set);
+        if (previous != null) {
+            indexedBytes -= previous.accountedBytes;
+        }
+        indexedBytes += set.accountedBytes;
+        evict();
+    }
+
+    private synchronized void resized(Long userId, UserFingerprints set) {
+        if (fingerprints.get(userId) != set) {
+            return;
+        }
+        long bytes = set.sizeInBytes();
+        indexedBytes += bytes - set.accountedBytes;
+        set.accountedBytes = bytes;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<UserFingerprints> eldest = fingerprints.values().iterator();
+        while (indexedBytes > maxBytes && eldest.hasNext()) {
+            indexedBytes -= eldest.next().accountedBytes;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * One user's fingerprints. Guarded by its own monitor, as checks take microseconds.
+     */
+    static final class UserFingerprints {
+
+        private static final long STALE = -1;
+
+        private long version;
+
+        // Counted, as two expenses can share a fingerprint and deleting one must keep the other's
+        private final LongMultiset set;
+
+        // Guarded by the enclosing FingerprintIndex
+        private long accountedBytes;
+
+        private UserFingerprints(long version, int expected) {
+            this.version = version;
+            this.set = new LongMultiset(expected);
+        }
+
+        static UserFingerprints build(long version, long[] loaded) {
+            UserFingerprints fingerprints = new UserFingerprints(version, loaded.length);
+            for (long fingerprint : loaded) {
+                if (fingerprint != 0) {
+                    fingerprints.set.add(fingerprint);
+                }
+            }
+            return fingerprints;
+        }
+
+        synchronized boolean isBehind(long currentVersion) {
+            return version == STALE || version < currentVersion;
+        }
+
+        synchronized boolean containsAny(long[] candidates) {
+            for (long candidate : candidates) {
+                if (set.contains(candidate)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized void apply(ExpenseChangedEvent event) {
+            if (version == STALE || event.getChangeSeq() <= version) {
+                return;
+            }
+            boolean replaces = event.getType() != ExpenseChangedEvent.Type.CREATED;
+            if (event.getChangeSeq() != version + 1 || replaces && event.getPrevious() == null) {
+                version = STALE;
+                return;
+            }
+            if (replaces) {
+                set.remove(fingerprint(event.getPrevious()));
+            }
+            if (event.getExpense() != null) {
+                set.add(fingerprint(event.getExpense()));
+            }
+            version = event.getChangeSeq();
+        }
+
+        private static long fingerprint(ExpenseResponse expense) {
+            return ExpenseFingerprints.of(expense.getTitle(), expense.getAmount(), expense.getExpenseDate());
+        }
+
+        synchronized long sizeInBytes() {
+            return 64 + set.sizeInBytes();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.expensetracker.index;
+
+/**
+ * A multiset of non-zero longs in one open-addressed array, probed linearly, with each value's
+ * count alongside: 12 bytes a slot and at most twice as many slots as distinct values, with no
+ * boxing or entry objects. Values are expected to be well spread already, like hashes. Not
+ * thread-safe.
+ */
+final class LongMultiset {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] slots;
+
+    private int[] counts;
+
+    // Distinct values
+    private int size;
+
+    LongMultiset(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expected * 2L) {
+            capacity <<= 1;
+        }
+        slots = new long[capacity];
+        counts = new int[capacity];
+    }
+
+    /**
+     * Adds one occurrence; returns whether the value was not already in the set.
+     */
+    boolean add(long value) {
+        if (value == 0) {
+            throw new IllegalArgumentException("0 marks an empty slot");
+        }
+        if ((size + 1) * 2L > slots.length) {
+            grow();
+        }
+        int slot = find(slots, value);
+        counts[slot]++;
+        if (slots[slot] == value) {
+            return false;
+        }
+        slots[slot] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes one occurrence; returns whether the value was in the set.
+     */
+    boolean remove(long value) {
+        if (value == 0) {
+            return false;
+        }
+        int slot = find(slots, value);
+        if (slots[slot] != value) {
+            return false;
+        }
+        if (--counts[slot] == 0) {
+            delete(slot);
+            size--;
+        }
+        return true;
+    }
+
+    boolean contains(long value) {
+        return value != 0 && slots[find(slots, value)] == value;
+    }
+
+    int count(long value) {
+        if (value == 0) {
+            return 0;
+        }
+        int slot = find(slots, value);
+        return slots[slot] == value ? counts[slot] : 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long sizeInBytes() {
+        return 48 + slots.length * 12L;
+    }
+
+    // Empties the slot and moves back each later value of its run that could no longer be found
+    private void delete(int hole) {
+        int mask = slots.length - 1;
+        int next = hole;
+        while (true) {
+            next = (next + 1) & mask;
+            if (slots[next] == 0) {
+                break;
+            }
+            int home = home(slots[next], mask);
+            boolean reachable = hole < next ? home > hole && home <= next : home > hole || home <= next;
+            if (!reachable) {
+                slots[hole] = slots[next];
+                counts[hole] = counts[next];
+                hole = next;
+            }
+        }
+        slots[hole] = 0;
+        counts[hole] = 0;
+    }
+
+    private void grow() {
+        long[] grownSlots = new long[slots.length * 2];
+        int[] grownCounts = new int[slots.length * 2];
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != 0) {
+                int slot = find(grownSlots, slots[i]);
+                grownSlots[slot] = slots[i];
+                grownCounts[slot] = counts[i];
+            }
+        }
+        slots = grownSlots;
+        counts = grownCounts;
+    }
+
+    // The slot holding the value, or the empty one where it would go
+    private static int find(long[] slots, long value) {
+        int mask = slots.length - 1;
+        int slot = home(value, mask);
+        while (slots[slot] != 0 && slots[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int home(long value, int mask) {
+        return (int) (value ^ (value >>> 32)) & mask;
+    }
+}
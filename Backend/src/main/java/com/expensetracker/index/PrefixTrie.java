@@ -0,0 +1,302 @@
+package com.expensetracker.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+/**
+ * A radix tree of terms weighted by how often they were used, answering the most used terms
+ * that start with a prefix.
+ * <p>
+ * Terms are matched ignoring case: each lower-cased key keeps the spelling it was first added
+ * with, so "Groceries" and "groceries" are one term. Edge labels are ranges of the key they
+ * were created for rather than copies of it, so a term costs its key, its spelling (both from
+ * the {@link TermPool}) and one or two small nodes.
+ * <p>
+ * Every node also records the highest count below it. The top {@code k} under a prefix is then
+ * a best-first walk that stops at the {@code k}th term, however large the subtree. Taking uses
+ * off a term recomputes those highs along its path only, and a term with none left goes, along
+ * with the nodes that held nothing else. Not thread-safe.
+ */
+final class PrefixTrie {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    // Heaviest first, a term before a subtree that can do no better, then in key order
+    private static final Comparator<Candidate> BEST_FIRST = Comparator
+            .comparingLong((Candidate candidate) -> -candidate.weight)
+            .thenComparing(candidate -> !candidate.term)
+            .thenComparing((a, b) -> comparePaths(a.node, b.node));
+
+    private final TermPool pool;
+
+    private final Node root = new Node("", 0, 0);
+
+    private int size;
+
+    PrefixTrie(TermPool pool) {
+        this.pool = pool;
+    }
+
+    void add(String term, long count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive: " + count);
+        }
+        String key = pool.intern(term.toLowerCase(Locale.ROOT));
+        add(root, key, 0, term, count);
+    }
+
+    /**
+     * Takes {@code count} uses off the term, ignoring case, and drops it once it has none left.
+     * A term the trie does not hold is left alone.
+     */
+    void remove(String term, long count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive: " + count);
+        }
+        remove(root, term.toLowerCase(Locale.ROOT), 0, count);
+    }
+
+    /**
+     * Up to {@code limit} terms starting with {@code prefix}, ignoring case, most used first.
+     */
+    List<String> top(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            int slot = node.find(key.charAt(depth));
+            if (slot < 0) {
+                return List.of();
+            }
+            node = node.children[slot];
+            int common = node.commonPrefix(key, depth);
+            if (common < node.length() && depth + common < key.length()) {
+                return List.of();
+            }
+            depth += common;
+        }
+
+        List<String> terms = new ArrayList<>(Math.min(limit, size));
+        PriorityQueue<Candidate> queue = new PriorityQueue<>(BEST_FIRST);
+        queue.add(new Candidate(node, node.best, false));
+        while (terms.size() < limit && !queue.isEmpty()) {
+            Candidate candidate = queue.poll();
+            if (candidate.term) {
+                terms.add(candidate.node.term);
+                continue;
+            }
+            Node next = candidate.node;
+            if (next.term != null) {
+                queue.add(new Candidate(next, next.count, true));
+            }
+            for (Node child : next.children) {
+                queue.add(new Candidate(child, child.best, false));
+            }
+        }
+        return terms;
+    }
+
+    long count(String term) {
+        Node node = root;
+        String key = term.toLowerCase(Locale.ROOT);
+        int depth = 0;
+        while (depth < key.length()) {
+            int slot = node.find(key.charAt(depth));
+            if (slot < 0) {
+                return 0;
+            }
+            node = node.children[slot];
+            if (node.commonPrefix(key, depth) < node.length()) {
+                return 0;
+            }
+            depth += node.length();
+        }
+        return node.term == null ? 0 : node.count;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Adds below a node whose label ends at depth; answers the term's new count
+    private long add(Node node, String key, int depth, String spelling, long count) {
+        long total;
+        if (depth == key.length()) {
+            if (node.term == null) {
+                node.term = pool.intern(spelling);
+                size++;
+            }
+            node.count += count;
+            total = node.count;
+        } else {
+            int slot = node.find(key.charAt(depth));
+            if (slot < 0) {
+                Node leaf = new Node(key, depth, key.length());
+                leaf.term = pool.intern(spelling);
+                leaf.count = count;
+                leaf.best = count;
+                node.insert(-slot - 1, leaf);
+                size++;
+                total = count;
+            } else {
+                Node child = node.children[slot];
+                int common = child.commonPrefix(key, depth);
+                if (common < child.length()) {
+                    child = child.split(common);
+                    node.children[slot] = child;
+                }
+                total = add(child, key, depth + common, spelling, count);
+            }
+        }
+        node.best = Math.max(node.best, total);
+        return total;
+    }
+
+    // Removes below a node whose label ends at depth; answers whether the term was there
+    private boolean remove(Node node, String key, int depth, long count) {
+        if (depth == key.length()) {
+            if (node.term == null) {
+                return false;
+            }
+            node.count -= count;
+            if (node.count <= 0) {
+                node.term = null;
+                node.count = 0;
+                size--;
+            }
+        } else {
+            int slot = node.find(key.charAt(depth));
+            if (slot < 0) {
+                return false;
+            }
+            Node child = node.children[slot];
+            if (child.commonPrefix(key, depth) < child.length()
+                    || !remove(child, key, depth + child.length(), count)) {
+                return false;
+            }
+            if (child.term == null && child.children.length == 0) {
+                node.delete(slot);
+            } else if (child.term == null && child.children.length == 1) {
+                node.children[slot] = child.children[0].join(child);
+            }
+        }
+        node.best = node.term == null ? 0 : node.count;
+        for (Node child : node.children) {
+            node.best = Math.max(node.best, child.best);
+        }
+        return true;
+    }
+
+    private static int comparePaths(Node a, Node b) {
+        int length = Math.min(a.end, b.end);
+        for (int i = 0; i < length; i++) {
+            int difference = a.source.charAt(i) - b.source.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return a.end - b.end;
+    }
+
+    private static final class Node {
+
+        // The label of the edge into this node is source[start, end); source[0, end) is its path
+        private final String source;
+
+        private int start;
+
+        private final int end;
+
+        private Node[] children = NO_CHILDREN;
+
+        private String term;
+
+        private long count;
+
+        private long best;
+
+        Node(String source, int start, int end) {
+            this.source = source;
+            this.start = start;
+            this.end = end;
+        }
+
+        int length() {
+            return end - start;
+        }
+
+        // Children are kept sorted by the first character of their labels
+        int find(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char label = children[middle].source.charAt(children[middle].start);
+                if (label < first) {
+                    low = middle + 1;
+                } else if (label > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -low - 1;
+        }
+
+        void insert(int slot, Node child) {
+            Node[] grown = Arrays.copyOf(children, children.length + 1);
+            System.arraycopy(children, slot, grown, slot + 1, children.length - slot);
+            grown[slot] = child;
+            children = grown;
+        }
+
+        void delete(int slot) {
+            Node[] shrunk = Arrays.copyOf(children, children.length - 1);
+            System.arraycopy(children, slot + 1, shrunk, slot, children.length - slot - 1);
+            children = shrunk.length == 0 ? NO_CHILDREN : shrunk;
+        }
+
+        int commonPrefix(String key, int depth) {
+            int common = 0;
+            while (common < length() && depth + common < key.length()
+                    && source.charAt(start + common) == key.charAt(depth + common)) {
+                common++;
+            }
+            return common;
+        }
+
+        // Puts a node for the first chars of this label above this one, and answers it
+        Node split(int chars) {
+            Node parent = new Node(source, start, start + chars);
+            parent.children = new Node[] {this};
+            parent.best = best;
+            start += chars;
+            return parent;
+        }
+
+        // Takes over the label of a parent left with only this child, and answers this node
+        Node join(Node parent) {
+            start = parent.start;
+            return this;
+        }
+    }
+
+    private static final class Candidate {
+
+        private final Node node;
+
+        private final long weight;
+
+        private final boolean term;
+
+        Candidate(Node node, long weight, boolean term) {
+            this.node = node;
+            this.weight = weight;
+            this.term = term;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.expensetracker.index;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Interns the terms held by the autocomplete tries of all users, so a category or title that
+ * many users share is one string in memory. A term leaves the pool once no trie refers to it.
+ */
+final class TermPool {
+
+    private final Map<String, WeakReference<String>> terms = new WeakHashMap<>();
+
+    synchronized String intern(String term) {
+        WeakReference<String> reference = terms.get(term);
+        String pooled = reference == null ? null : reference.get();
+        if (pooled == null) {
+            terms.put(term, new WeakReference<>(term));
+            return term;
+        }
+        return pooled;
+    }
+
+    synchronized int size() {
+        return terms.size();
+    }
+}
@@ -0,0 +1,438 @@
+package com.expensetracker.report;
+
+import com.expensetracker.dto.ReportJobResponse;
+import com.expensetracker.dto.ReportRequest;
+import com.expensetracker.entity.ReportJob;
+import com.expensetracker.entity.User;
+import com.expensetracker.repository.BudgetRepository;
+import com.expensetracker.repository.ReportJobRepository;
+import com.expensetracker.repository.UserRepository;
+import com.expensetracker.sharding.ShardContext;
+import com.expensetracker.sharding.ShardRoutingDataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Reports too heavy to build within a request: statements over many months, built by
+ * {@link ReportWriter} in the background and downloaded once done.
+ * <p>
+ * Jobs are rows in report_jobs, so they survive a restart. A running job holds a lease that its
+ * instance's sweeps renew for {@code reports.lease-ms}; every sweep requeues the running jobs
+ * whose lease expired, because the instance running them stopped or died, and queues the ones
+ * still waiting. Jobs another live instance is running are left alone. They run
+ * on {@code reports.workers} threads, picked by {@link ReportScheduler}; a summary comes before
+ * an expense export, and a shorter export before a longer one.
+ * <p>
+ * A result is a file under {@code reports.directory} named by the user, the report's parameters
+ * and the user's expenses_version when it was asked for (and, for a summary, their budgets), so
+ * asking again before any of that changes is answered with the same file, and asking while it is
+ * being built joins that job.
+ * Results are deleted after {@code reports.retention-hours}.
+ */
+@Service
+public class ReportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobService.class);
+
+    private static final int MAX_MONTHS = 120;
+
+    private static final int RECENT_JOBS = 20;
+
+    private static final List<ReportJob.Status> PENDING = List.of(ReportJob.Status.QUEUED, ReportJob.Status.RUNNING);
+
+    private static final List<ReportJob.Status> REUSABLE = List.of(ReportJob.Status.QUEUED, ReportJob.Status.RUNNING,
+            ReportJob.Status.DONE);
+
+    @Autowired
+    private ReportJobRepository jobRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    @Autowired
+    private ReportWriter reportWriter;
+
+    // Present only when sharding is configured
+    @Autowired(required = false)
+    private ShardRoutingDataSource shardRouting;
+
+    @Value("${reports.directory:./data/reports}")
+    private String directory;
+
+    @Value("${reports.workers:2}")
+    private int workers;
+
+    @Value("${reports.max-running-per-user:1}")
+    private int maxRunningPerUser;
+
+    @Value("${reports.max-pending-per-user:5}")
+    private int maxPendingPerUser;
+
+    @Value("${reports.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${reports.max-wait-ms:60000}")
+    private long maxWaitMs;
+
+    @Value("${reports.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${reports.retention-hours:24}")
+    private long retentionHours;
+
+    @Value("${reports.lease-ms:300000}")
+    private long leaseMs;
+
+    private ExecutorService executor;
+
+    private ReportScheduler scheduler;
+
+    // Jobs this instance is running, by id, with the shard their row is on
+    private final Map<Long, Integer> running = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "report-worker-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler = new ReportScheduler(workers, maxRunningPerUser, queueCapacity, maxWaitMs, executor, this::run,
+                System::nanoTime);
+    }
+
+    @PreDestroy
+    void stop() {
+        // Interrupted jobs are left running in the table and requeued once their lease expires
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues the report, or returns the job that already has or is building the same one.
+     */
+    public ReportJobResponse submit(ReportRequest request, String username) {
+        User user = findUser(username);
+        YearMonth from = request.getFrom();
+        YearMonth to = request.getTo();
+        if (from.isAfter(to)) {
+            throw new RuntimeException("'from' must not be after 'to'");
+        }
+        long months = ChronoUnit.MONTHS.between(from, to) + 1;
+        if (months > MAX_MONTHS) {
+            throw new RuntimeException("Reports cover at most " + MAX_MONTHS + " months");
+        }
+
+        String cacheKey = cacheKey(user.getId(), request.getType(), from, to, user.getExpensesVersion(),
+                request.getType() == ReportJob.Type.MONTHLY_SUMMARY ? budgets(user.getId()) : "");
+        Optional<ReportJob> existing = jobRepository.findFirstByUserIdAndCacheKeyAndStatusInOrderByIdDesc(
+                user.getId(), cacheKey, REUSABLE);
+        if (existing.isPresent() && (existing.get().getStatus() != ReportJob.Status.DONE
+                || Files.exists(resultPath(existing.get())))) {
+            return convertToResponse(existing.get());
+        }
+        if (jobRepository.countByUserIdAndStatusIn(user.getId(), PENDING) >= maxPendingPerUser) {
+            throw new RuntimeException("At most " + maxPendingPerUser + " reports can be in progress at once");
+        }
+
+        // Summaries read one row per category and month; exports every expense of every month
+        int priority = request.getType() == ReportJob.Type.MONTHLY_SUMMARY ? 0 : (int) months;
+        ReportJob job = jobRepository.save(new ReportJob(user.getId(), request.getType(), from.atDay(1),
+                to.atDay(1), priority, user.getExpensesVersion(), cacheKey));
+        // When the queue is full the job stays queued in the table for the next sweep
+        scheduler.submit(job.getId(), user.getId(), priority, shardRouting == null ? 0 : shardRouting.currentShard());
+        return convertToResponse(job);
+    }
+
+    public ReportJobResponse getJob(Long id, String username) {
+        return convertToResponse(findJob(id, findUser(username).getId()));
+    }
+
+    public List<ReportJobResponse> getRecentJobs(String username) {
+        return jobRepository.findByUserIdOrderByIdDesc(findUser(username).getId(), PageRequest.of(0, RECENT_JOBS))
+                .stream()
+                .map(this::convertToResponse)
+                .toList();
+    }
+
+    /**
+     * The finished report's file.
+     *
+     * @throws ReportNotReadyException while it is queued or running, or once it failed or expired
+     */
+    public Result getResult(Long id, String username) {
+        ReportJob job = findJob(id, findUser(username).getId());
+        if (job.getStatus() == ReportJob.Status.FAILED) {
+            throw new ReportNotReadyException("Report failed: " + job.getError());
+        }
+        if (job.getStatus() != ReportJob.Status.DONE) {
+            throw new ReportNotReadyException("Report is not ready yet");
+        }
+        Path file = resultPath(job);
+        if (!Files.exists(file)) {
+            throw new ReportNotReadyException("Report has expired; request it again");
+        }
+        String filename = (job.getType() == ReportJob.Type.MONTHLY_SUMMARY ? "summary-" : "expenses-")
+                + YearMonth.from(job.getFromMonth()) + "-to-" + YearMonth.from(job.getToMonth()) + ".csv";
+        return new Result(file, job.getResultBytes(), "\"" + job.getCacheKey() + "\"", filename);
+    }
+
+    /**
+     * Renews the leases of the jobs this instance is running, requeues the running jobs whose
+     * lease expired and what the table says is waiting, then deletes expired results.
+     */
+    @Scheduled(fixedDelayString = "${reports.sweep-interval-ms:60000}",
+               initialDelayString = "${reports.sweep-initial-delay-ms:5000}")
+    public void sweep() {
+        try {
+            forEachShard(shard -> {
+                renewLeases(shard);
+                requeueInterrupted();
+                for (ReportJob job : jobRepository.findByStatusOrderByIdAsc(ReportJob.Status.QUEUED)) {
+                    if (!scheduler.submit(job.getId(), job.getUserId(), job.getPriority(), shard)) {
+                        break;
+                    }
+                }
+            });
+            deleteExpiredResults();
+        } catch (RuntimeException | IOException e) {
+            logger.error("Report sweep failed", e);
+        }
+    }
+
+    public int getQueued() {
+        return scheduler.getQueued();
+    }
+
+    public int getRunning() {
+        return scheduler.getRunning();
+    }
+
+    void run(ReportScheduler.Task task) {
+        running.put(task.getJobId(), task.getShard());
+        try {
+            if (shardRouting == null) {
+                execute(task.getJobId());
+            } else {
+                ShardContext.runOnShard(task.getShard(), () -> execute(task.getJobId()));
+            }
+        } finally {
+            running.remove(task.getJobId());
+        }
+    }
+
+    /**
+     * Builds the report into a temporary file next to the result and moves it into place, so
+     * a result file is always complete.
+     */
+    private void execute(long jobId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (jobRepository.claim(jobId, now, now.plus(Duration.ofMillis(leaseMs)), ReportJob.Status.QUEUED,
+                ReportJob.Status.RUNNING) == 0) {
+            return;
+        }
+        ReportJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        try {
+            Path result = resultPath(job);
+            // Another job with the same key may have built it meanwhile
+            if (!Files.exists(result)) {
+                Files.createDirectories(result.getParent());
+                Path temporary = Files.createTempFile(result.getParent(), "report-", ".part");
+                try (Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                    reportWriter.write(job, out);
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(temporary);
+                    throw e;
+                }
+                Files.move(temporary, result, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            job.setResultBytes(Files.size(result));
+            job.setStatus(ReportJob.Status.DONE);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Report job {} failed", jobId, e);
+            job.setStatus(ReportJob.Status.FAILED);
+            job.setError(truncate(e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage()));
+        }
+        job.setFinishedAt(LocalDateTime.now());
+        job.setLeaseUntil(null);
+        jobRepository.save(job);
+    }
+
+    private void renewLeases(int shard) {
+        List<Long> ids = running.entrySet().stream()
+                .filter(entry -> entry.getValue() == shard)
+                .map(Map.Entry::getKey)
+                .toList();
+        if (!ids.isEmpty()) {
+            jobRepository.renewLeases(ids, LocalDateTime.now().plus(Duration.ofMillis(leaseMs)),
+                    ReportJob.Status.RUNNING);
+        }
+    }
+
+    /**
+     * Jobs whose instance stopped renewing their lease go back to the queue, unless they have
+     * been started {@code reports.max-attempts} times already.
+     */
+    private void requeueInterrupted() {
+        for (ReportJob job : jobRepository.findExpiredLeases(ReportJob.Status.RUNNING, LocalDateTime.now())) {
+            if (running.containsKey(job.getId())) {
+                continue;
+            }
+            if (job.getAttempts() >= maxAttempts) {
+                job.setStatus(ReportJob.Status.FAILED);
+                job.setError("Interrupted " + job.getAttempts() + " times");
+                job.setFinishedAt(LocalDateTime.now());
+            } else {
+                job.setStatus(ReportJob.Status.QUEUED);
+            }
+            job.setLeaseUntil(null);
+            jobRepository.save(job);
+        }
+    }
+
+    private void deleteExpiredResults() throws IOException {
+        Path root = Paths.get(directory);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(Duration.ofHours(retentionHours));
+        try (Stream<Path> files = Files.find(root, 2, (path, attributes) -> attributes.isRegularFile()
+                && attributes.lastModifiedTime().toInstant().isBefore(cutoff))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void forEachShard(IntConsumer action) {
+        if (shardRouting == null) {
+            action.accept(0);
+            return;
+        }
+        for (int shard = 0; shard < shardRouting.getShardCount(); shard++) {
+            int index = shard;
+            ShardContext.runOnShard(shard, () -> action.accept(index));
+        }
+    }
+
+    private Path resultPath(ReportJob job) {
+        return Paths.get(directory, String.valueOf(job.getUserId()), job.getCacheKey() + ".csv");
+    }
+
+    private ReportJob findJob(Long id, Long userId) {
+        return jobRepository.findByIdAndUserId(id, userId)
+                .orElseThrow(() -> new RuntimeException("Report not found or access denied"));
+    }
+
+    private User findUser(String username) {
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    /**
+     * The user's budgets as a summary shows them. Budget writes do not bump expenses_version,
+     * so they are part of a summary's key instead.
+     */
+    private String budgets(Long userId) {
+        return budgetRepository.findByUserIdOrderByCategoryAsc(userId).stream()
+                .map(budget -> budget.getCategory() + "=" + budget.getMonthlyLimit().toPlainString())
+                .collect(Collectors.joining(","));
+    }
+
+    static String cacheKey(Long userId, ReportJob.Type type, YearMonth from, YearMonth to, long dataVersion,
+                           String budgets) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((userId + "|" + type + "|" + from + "|" + to + "|" + dataVersion
+                    + "|" + budgets).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 500 ? message : message.substring(0, 500);
+    }
+
+    private ReportJobResponse convertToResponse(ReportJob job) {
+        return new ReportJobResponse(job.getId(), job.getType(), YearMonth.from(job.getFromMonth()),
+                YearMonth.from(job.getToMonth()), job.getStatus(), job.getResultBytes(), job.getError(),
+                job.getCreatedAt(), job.getStartedAt(), job.getFinishedAt());
+    }
+
+    /**
+     * A finished report's file, with what a download needs to describe it.
+     */
+    public static final class Result {
+
+        private final Path file;
+
+        private final long size;
+
+        private final String etag;
+
+        private final String filename;
+
+        Result(Path file, long size, String etag, String filename) {
+            this.file = file;
+            this.size = size;
+            this.etag = etag;
+            this.filename = filename;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+    }
+}
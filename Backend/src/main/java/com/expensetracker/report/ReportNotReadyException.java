@@ -0,0 +1,11 @@
+package com.expensetracker.report;
+
+/**
+ * A report was asked for before its job finished, after it failed, or after its result expired.
+ */
+public class ReportNotReadyException extends RuntimeException {
+
+    public ReportNotReadyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,192 @@
+package com.expensetracker.report;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands queued report jobs to a fixed number of workers.
+ * <p>
+ * The next job is the waiting one with the lowest priority, first come first served among
+ * equals, whose user has fewer than {@code maxRunningPerUser} jobs running, so one user's
+ * batch of reports can not occupy every worker. A job that has waited {@code maxWaitMs} goes
+ * ahead of any priority, so large reports are not starved by a stream of small ones.
+ */
+public class ReportScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportScheduler.class);
+
+    private final int workers;
+
+    private final int maxRunningPerUser;
+
+    private final int capacity;
+
+    private final long maxWaitNanos;
+
+    private final Executor executor;
+
+    private final Consumer<Task> runner;
+
+    private final LongSupplier nanoClock;
+
+    private final TreeSet<Task> byPriority = new TreeSet<>(
+            Comparator.comparingInt(Task::getPriority).thenComparingLong(task -> task.sequence));
+
+    private final TreeSet<Task> byArrival = new TreeSet<>(Comparator.comparingLong(task -> task.sequence));
+
+    private final Map<Long, Integer> runningPerUser = new HashMap<>();
+
+    // Queued or running, so a job submitted again (say, by recovery) is not run twice here
+    private final Set<Long> known = new HashSet<>();
+
+    private int running;
+
+    private long nextSequence;
+
+    /**
+     * @param executor runs each dispatched job; needs no more than {@code workers} threads
+     * @param runner   runs a job; called on the executor
+     */
+    public ReportScheduler(int workers, int maxRunningPerUser, int capacity, long maxWaitMs, Executor executor,
+                           Consumer<Task> runner, LongSupplier nanoClock) {
+        this.workers = workers;
+        this.maxRunningPerUser = maxRunningPerUser;
+        this.capacity = capacity;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.executor = executor;
+        this.runner = runner;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Queues the job, unless the queue is full.
+     */
+    public synchronized boolean submit(long jobId, Long userId, int priority, int shard) {
+        if (known.contains(jobId)) {
+            return true;
+        }
+        if (byPriority.size() >= capacity) {
+            return false;
+        }
+        Task task = new Task(jobId, userId, priority, shard, nextSequence++, nanoClock.getAsLong());
+        byPriority.add(task);
+        byArrival.add(task);
+        known.add(jobId);
+        dispatch();
+        return true;
+    }
+
+    public synchronized int getQueued() {
+        return byPriority.size();
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    private void dispatch() {
+        while (running < workers) {
+            Task next = next();
+            if (next == null) {
+                return;
+            }
+            byPriority.remove(next);
+            byArrival.remove(next);
+            running++;
+            runningPerUser.merge(next.userId, 1, Integer::sum);
+            executor.execute(() -> run(next));
+        }
+    }
+
+    private Task next() {
+        long now = nanoClock.getAsLong();
+        for (Task task : byArrival) {
+            if (now - task.enqueuedAt < maxWaitNanos) {
+                break;
+            }
+            if (mayRun(task)) {
+                return task;
+            }
+        }
+        for (Task task : byPriority) {
+            if (mayRun(task)) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private boolean mayRun(Task task) {
+        return runningPerUser.getOrDefault(task.userId, 0) < maxRunningPerUser;
+    }
+
+    private void run(Task task) {
+        try {
+            runner.accept(task);
+        } catch (RuntimeException e) {
+            logger.error("Report job {} failed", task.jobId, e);
+        } finally {
+            finished(task);
+        }
+    }
+
+    private synchronized void finished(Task task) {
+        running--;
+        runningPerUser.computeIfPresent(task.userId, (userId, count) -> count == 1 ? null : count - 1);
+        known.remove(task.jobId);
+        dispatch();
+    }
+
+    /**
+     * A queued job, with what scheduling needs to know of it.
+     */
+    public static final class Task {
+
+        private final long jobId;
+
+        private final Long userId;
+
+        private final int priority;
+
+        private final int shard;
+
+        private final long sequence;
+
+        private final long enqueuedAt;
+
+        Task(long jobId, Long userId, int priority, int shard, long sequence, long enqueuedAt) {
+            this.jobId = jobId;
+            this.userId = userId;
+            this.priority = priority;
+            this.shard = shard;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        public long getJobId() {
+            return jobId;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public int getShard() {
+            return shard;
+        }
+    }
+}
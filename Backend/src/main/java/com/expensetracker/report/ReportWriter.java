@@ -0,0 +1,232 @@
+package com.expensetracker.report;
+
+import com.expensetracker.archive.ExpenseArchiveService;
+import com.expensetracker.entity.Expense;
+import com.expensetracker.entity.ReportJob;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+/**
+ * Writes a report's CSV. Expenses are read a page at a time in date order and written as they
+ * arrive, so a report over years of expenses does not hold them all in memory; the archived
+ * ones of the range, which the archive reads whole anyway, are merged in.
+ */
+@Component
+public class ReportWriter {
+
+    private static final int PAGE_SIZE = 1000;
+
+    private static final Comparator<Expense> DATE_ORDER =
+            Comparator.comparing(Expense::getExpenseDate).thenComparing(Expense::getId);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ExpenseArchiveService archiveService;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.time_zone:}")
+    private String jdbcTimeZone;
+
+    /**
+     * Reads in one read-only transaction, so pages fetched minutes apart still agree with each
+     * other where the database gives repeatable reads.
+     */
+    @Transactional(readOnly = true)
+    public void write(ReportJob job, Writer out) throws IOException {
+        switch (job.getType()) {
+            case EXPENSES_CSV -> writeExpenses(job.getUserId(), job.getFromMonth(),
+                    job.getToMonth().withDayOfMonth(job.getToMonth().lengthOfMonth()), out);
+            case MONTHLY_SUMMARY -> writeSummary(job.getUserId(), job.getFromMonth(), job.getToMonth(), out);
+        }
+    }
+
+    private void writeExpenses(Long userId, LocalDate from, LocalDate to, Writer out) throws IOException {
+        out.write("date,title,category,tags,amount,description\n");
+        List<Expense> archived = archivedBetween(userId, from, to);
+        int next = 0;
+        Calendar calendar = calendar();
+        LocalDate lastDate = null;
+        long lastId = 0;
+        while (true) {
+            List<Expense> page = page(userId, from, to, lastDate, lastId, calendar);
+            for (Expense expense : page) {
+                while (next < archived.size() && DATE_ORDER.compare(archived.get(next), expense) < 0) {
+                    writeExpense(archived.get(next++), out);
+                }
+                writeExpense(expense, out);
+            }
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            lastDate = page.get(page.size() - 1).getExpenseDate();
+            lastId = page.get(page.size() - 1).getId();
+        }
+        while (next < archived.size()) {
+            writeExpense(archived.get(next++), out);
+        }
+    }
+
+    /**
+     * The next page after (lastDate, lastId) in date order, by keyset so each page is an index
+     * range rather than an ever larger offset.
+     */
+    private List<Expense> page(Long userId, LocalDate from, LocalDate to, LocalDate lastDate, long lastId,
+                               Calendar calendar) {
+        List<Expense> page = new ArrayList<>(PAGE_SIZE);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("select id, title, description, amount, category, tags, "
+                    + "expense_date from expenses where user_id = ? and expense_date between ? and ?"
+                    + (lastDate == null ? "" : " and (expense_date > ? or (expense_date = ? and id > ?))")
+                    + " order by expense_date, id limit " + PAGE_SIZE);
+            ps.setLong(1, userId);
+            ps.setDate(2, Date.valueOf(from), calendar);
+            ps.setDate(3, Date.valueOf(to), calendar);
+            if (lastDate != null) {
+                ps.setDate(4, Date.valueOf(lastDate), calendar);
+                ps.setDate(5, Date.valueOf(lastDate), calendar);
+                ps.setLong(6, lastId);
+            }
+            return ps;
+        }, rs -> {
+            Expense expense = new Expense();
+            expense.setId(rs.getLong("id"));
+            expense.setTitle(rs.getString("title"));
+            expense.setDescription(rs.getString("description"));
+            expense.setAmount(rs.getBigDecimal("amount"));
+            expense.setCategory(rs.getString("category"));
+            expense.setTags(rs.getString("tags"));
+            expense.setExpenseDate(rs.getDate("expense_date", calendar).toLocalDate());
+            page.add(expense);
+        });
+        return page;
+    }
+
+    /**
+     * The archived expenses dated within the range, in date order, less those that are also in
+     * the table: a restored expense's hot row is the current one.
+     */
+    private List<Expense> archivedBetween(Long userId, LocalDate from, LocalDate to) {
+        List<Expense> archived = new ArrayList<>();
+        for (Expense expense : archiveService.findArchived(userId)) {
+            if (!expense.getExpenseDate().isBefore(from) && !expense.getExpenseDate().isAfter(to)) {
+                archived.add(expense);
+            }
+        }
+        if (archived.isEmpty()) {
+            return archived;
+        }
+        Set<Long> hotIds = new HashSet<>(jdbcTemplate.queryForList(
+                "select id from expenses where user_id = ?", Long.class, userId));
+        archived.removeIf(expense -> hotIds.contains(expense.getId()));
+        archived.sort(DATE_ORDER);
+        return archived;
+    }
+
+    /**
+     * One row per month and category with expenses: the total, the category's current monthly
+     * budget if it has one, and what is left of it; then the month's total.
+     */
+    private void writeSummary(Long userId, LocalDate fromMonth, LocalDate toMonth, Writer out) throws IOException {
+        Calendar calendar = calendar();
+        Map<String, BigDecimal> budgets = new HashMap<>();
+        jdbcTemplate.query("select category, monthly_limit from budgets where user_id = ?",
+                rs -> {
+                    budgets.put(rs.getString("category"), rs.getBigDecimal("monthly_limit"));
+                }, userId);
+        Map<LocalDate, Map<String, BigDecimal>> months = new TreeMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("select month_start, category, total "
+                    + "from expense_month_totals where user_id = ? and month_start between ? and ?");
+            ps.setLong(1, userId);
+            ps.setDate(2, Date.valueOf(fromMonth), calendar);
+            ps.setDate(3, Date.valueOf(toMonth), calendar);
+            return ps;
+        }, rs -> {
+            months.computeIfAbsent(rs.getDate("month_start", calendar).toLocalDate(), key -> new TreeMap<>())
+                    .merge(rs.getString("category"), rs.getBigDecimal("total"), BigDecimal::add);
+        });
+
+        out.write("month,category,total,budget,remaining\n");
+        BigDecimal overall = BigDecimal.ZERO;
+        for (Map.Entry<LocalDate, Map<String, BigDecimal>> month : months.entrySet()) {
+            String label = month.getKey().toString().substring(0, 7);
+            BigDecimal monthTotal = BigDecimal.ZERO;
+            for (Map.Entry<String, BigDecimal> category : month.getValue().entrySet()) {
+                BigDecimal budget = budgets.get(category.getKey());
+                writeRow(out, label, category.getKey(), category.getValue().toPlainString(),
+                        budget == null ? "" : budget.toPlainString(),
+                        budget == null ? "" : budget.subtract(category.getValue()).toPlainString());
+                monthTotal = monthTotal.add(category.getValue());
+            }
+            writeRow(out, label, "All categories", monthTotal.toPlainString(), "", "");
+            overall = overall.add(monthTotal);
+        }
+        writeRow(out, "All months", "All categories", overall.toPlainString(), "", "");
+    }
+
+    private static void writeExpense(Expense expense, Writer out) throws IOException {
+        writeRow(out, expense.getExpenseDate().toString(), expense.getTitle(), expense.getCategory(),
+                expense.getTags() == null ? "" : expense.getTags(), expense.getAmount().toPlainString(),
+                expense.getDescription() == null ? "" : expense.getDescription());
+    }
+
+    private static void writeRow(Writer out, String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(csvField(fields[i]));
+        }
+        out.write('\n');
+    }
+
+    /**
+     * Quotes a field holding a separator, quote or line break (RFC 4180). Text a spreadsheet
+     * would take for a formula is prefixed with an apostrophe, so opening an export can not
+     * run one.
+     */
+    static String csvField(String value) {
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0 && !isNumber(value)) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static boolean isNumber(String value) {
+        try {
+            new BigDecimal(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private Calendar calendar() {
+        return StringUtils.hasText(jdbcTimeZone)
+                ? Calendar.getInstance(TimeZone.getTimeZone(jdbcTimeZone)) : Calendar.getInstance();
+    }
+}
@@ -0,0 +1,18 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.entity.Budget;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+
+@Repository
+public interface BudgetRepository extends JpaRepository<Budget, Long> {
+    
+    List<Budget> findByUserIdOrderByCategoryAsc(Long userId);
+    
+    Optional<Budget> findByUserIdAndCategory(Long userId, String category);
+    
+    Optional<Budget> findByIdAndUserId(Long id, Long userId);
+}
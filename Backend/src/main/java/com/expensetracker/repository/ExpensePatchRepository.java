@@ -0,0 +1,20 @@
+package com.expensetracker.repository;
+
+import java.util.Map;
+
+
+/**
+ * Writes of only the columns a request changed, whose statement is built per call; mixed into
+ * {@link ExpenseRepository}.
+ */
+public interface ExpensePatchRepository {
+    
+    /**
+     * Sets each {@link com.expensetracker.entity.Expense} attribute named in {@code values}, and
+     * nothing else but the version, if the row is still at {@code version}, in one statement.
+     * Returns 0 when another write changed or deleted it since it was read.
+     *
+     * @param values new values by attribute name; the names must be attributes, never input
+     */
+    int patchIfVersion(Long id, Long userId, long version, Map<String, Object> values);
+}
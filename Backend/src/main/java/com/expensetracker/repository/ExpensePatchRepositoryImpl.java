@@ -0,0 +1,31 @@
+package com.expensetracker.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import java.util.Map;
+
+
+public class ExpensePatchRepositoryImpl implements ExpensePatchRepository {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public int patchIfVersion(Long id, Long userId, long version, Map<String, Object> values) {
+        // JPQL rather than a criteria update: the text is the same for the same set of
+        // columns, so Hibernate's query plan cache translates each shape once
+        StringBuilder jpql = new StringBuilder("update Expense e set ");
+        for (String attribute : values.keySet()) {
+            jpql.append("e.").append(attribute).append(" = :").append(attribute).append(", ");
+        }
+        jpql.append("e.version = e.version + 1 where e.id = :id and e.user.id = :userId and e.version = :version");
+    
+        Query query = entityManager.createQuery(jpql.toString());
+        values.forEach(query::setParameter);
+        return query.setParameter("id", id)
+                .setParameter("userId", userId)
+                .setParameter("version", version)
+                .executeUpdate();
+    }
+}
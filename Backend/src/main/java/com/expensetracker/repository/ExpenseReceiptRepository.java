@@ -0,0 +1,20 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.entity.ExpenseReceipt;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+
+@Repository
+public interface ExpenseReceiptRepository extends JpaRepository<ExpenseReceipt, Long> {
+    
+    List<ExpenseReceipt> findByUserIdAndExpenseIdOrderByIdAsc(Long userId, Long expenseId);
+    
+    Optional<ExpenseReceipt> findByIdAndUserIdAndExpenseId(Long id, Long userId, Long expenseId);
+    
+    long countByUserIdAndExpenseId(Long userId, Long expenseId);
+    
+    boolean existsBySha256(String sha256);
+}
@@ -1,18 +1,68 @@
 package com.expensetracker.repository;
 
 import com.expensetracker.entity.Expense;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 
 @Repository
-public interface ExpenseRepository extends JpaRepository<Expense, Long> {
+public interface ExpenseRepository extends JpaRepository<Expense, Long>, ExpensePatchRepository {
     
     List<Expense> findByUserId(Long userId);
     
     Optional<Expense> findByIdAndUserId(Long id, Long userId);
     
-    void deleteByIdAndUserId(Long id, Long userId);
+    // The expense with its owner in one query, for writes that need both
+    @Query("select e from Expense e join fetch e.user u where e.id = :id and u.username = :username")
+    Optional<Expense> findByIdAndUsername(@Param("id") Long id, @Param("username") String username);
+    
+    List<Expense> findByUserIdAndIdIn(Long userId, Collection<Long> ids);
+    
+    List<Expense> findByUserIdAndChangeSeqGreaterThanOrderByChangeSeqAsc(Long userId, long changeSeq, Pageable pageable);
+    
+    // Each distinct title with its number of expenses
+    @Query("select e.title, count(e) from Expense e where e.user.id = :userId group by e.title")
+    List<Object[]> countTitlesByUserId(@Param("userId") Long userId);
+    
+    // Each distinct category with its number of expenses
+    @Query("select e.category, count(e) from Expense e where e.user.id = :userId group by e.category")
+    List<Object[]> countCategoriesByUserId(@Param("userId") Long userId);
+    
+    @Query("select e.fingerprint from Expense e where e.user.id = :userId and e.fingerprint is not null")
+    List<Long> findFingerprintsByUserId(@Param("userId") Long userId);
+    
+    List<Expense> findByUserIdAndFingerprintIsNull(Long userId);
+    
+    // Bypasses the entity callbacks, so filling in a fingerprint does not touch updated_at
+    @Modifying
+    @Query("update Expense e set e.fingerprint = :fingerprint where e.id = :id")
+    void setFingerprint(@Param("id") Long id, @Param("fingerprint") Long fingerprint);
+    
+    /**
+     * Writes {@code expense}'s values over the row if it is still at {@code version}, in one
+     * statement. Returns 0 when another write changed or deleted it since it was read.
+     */
+    @Modifying
+    @Query("update Expense e set e.title = :#{#expense.title}, e.description = :#{#expense.description}, "
+            + "e.amount = :#{#expense.amount}, e.category = :#{#expense.category}, e.tags = :#{#expense.tags}, "
+            + "e.expenseDate = :#{#expense.expenseDate}, e.updatedAt = :#{#expense.updatedAt}, "
+            + "e.changeSeq = :#{#expense.changeSeq}, e.fingerprint = :#{#expense.fingerprint}, "
+            + "e.version = e.version + 1 "
+            + "where e.id = :#{#expense.id} and e.user.id = :#{#expense.user.id} and e.version = :version")
+    int updateIfVersion(@Param("expense") Expense expense, @Param("version") long version);
+    
+    /**
+     * Deletes the row if it is still at {@code version}, in one statement. Returns 0 when
+     * another write changed or deleted it since it was read.
+     */
+    @Modifying
+    @Query("delete from Expense e where e.id = :id and e.user.id = :userId and e.version = :version")
+    int deleteIfVersion(@Param("id") Long id, @Param("userId") Long userId, @Param("version") long version);
 }
@@ -0,0 +1,16 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.entity.RecurringExpense;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+
+@Repository
+public interface RecurringExpenseRepository extends JpaRepository<RecurringExpense, Long> {
+    
+    List<RecurringExpense> findByUserIdOrderByIdAsc(Long userId);
+    
+    Optional<RecurringExpense> findByIdAndUserId(Long id, Long userId);
+}
@@ -0,0 +1,49 @@
+package com.expensetracker.repository;
+
+import com.expensetracker.entity.ReportJob;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+
+@Repository
+public interface ReportJobRepository extends JpaRepository<ReportJob, Long> {
+    
+    Optional<ReportJob> findByIdAndUserId(Long id, Long userId);
+    
+    List<ReportJob> findByUserIdOrderByIdDesc(Long userId, Pageable pageable);
+    
+    Optional<ReportJob> findFirstByUserIdAndCacheKeyAndStatusInOrderByIdDesc(Long userId, String cacheKey,
+                                                                            Collection<ReportJob.Status> statuses);
+    
+    long countByUserIdAndStatusIn(Long userId, Collection<ReportJob.Status> statuses);
+    
+    List<ReportJob> findByStatusOrderByIdAsc(ReportJob.Status status);
+    
+    // Running jobs whose worker stopped renewing their lease; rows from before leases have none
+    @Query("select j from ReportJob j where j.status = :running and (j.leaseUntil is null or j.leaseUntil < :now) "
+            + "order by j.id")
+    List<ReportJob> findExpiredLeases(@Param("running") ReportJob.Status running, @Param("now") LocalDateTime now);
+    
+    // Only one worker, in this process or another, gets to run a queued job
+    @Modifying
+    @Transactional
+    @Query("update ReportJob j set j.status = :running, j.startedAt = :now, j.leaseUntil = :leaseUntil, "
+            + "j.attempts = j.attempts + 1 where j.id = :id and j.status = :queued")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil,
+              @Param("queued") ReportJob.Status queued, @Param("running") ReportJob.Status running);
+    
+    @Modifying
+    @Transactional
+    @Query("update ReportJob j set j.leaseUntil = :leaseUntil where j.id in :ids and j.status = :running")
+    int renewLeases(@Param("ids") Collection<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil,
+                    @Param("running") ReportJob.Status running);
+}
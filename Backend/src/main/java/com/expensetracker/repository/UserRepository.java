@@ -1,8 +1,13 @@
 package com.expensetracker.repository;
 
 import com.expensetracker.entity.User;
+import jakarta.persistence.LockModeType;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 
@@ -11,9 +16,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     Optional<User> findByUsername(String username);
     
+    // Takes the row lock expense writers take when they bump expenses_version
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from User u where u.username = :username")
+    Optional<User> findByUsernameForUpdate(@Param("username") String username);
+    
     Optional<User> findByEmail(String email);
     
     boolean existsByUsername(String username);
     
     boolean existsByEmail(String email);
+    
+    @Modifying
+    @Query("update User u set u.expensesVersion = u.expensesVersion + 1 where u.id = :id")
+    int incrementExpensesVersion(@Param("id") Long id);
+    
+    @Query("select u.expensesVersion from User u where u.id = :id")
+    long findExpensesVersionById(@Param("id") Long id);
 }
@@ -17,6 +17,8 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 public class JwtAuthenticationTokenFilter extends OncePerRequestFilter {
     
+    private static final String STREAM_PATH = "/api/expenses/stream";
+    
     @Autowired
     private JwtUtils jwtUtils;
     
@@ -52,6 +54,12 @@ public class JwtAuthenticationTokenFilter extends OncePerRequestFilter {
             return headerAuth.substring(7);
         }
         
+        // EventSource cannot set headers, so the event stream alone accepts the token as a parameter
+        String queryToken = request.getParameter("access_token");
+        if (StringUtils.hasText(queryToken) && request.getRequestURI().endsWith(STREAM_PATH)) {
+            return queryToken;
+        }
+        
         return null;
     }
 }
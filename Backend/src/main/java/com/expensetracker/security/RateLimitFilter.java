@@ -0,0 +1,214 @@
+package com.expensetracker.security;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Per-client token buckets for the API, applied after the JWT filter so requests are keyed by
+ * username (or by remote address before login).
+ * <p>
+ * Each client has one bucket per route class: {@code auth} for login and registration,
+ * {@code read} for GETs and {@code write} for everything else. A bucket is a single
+ * {@link AtomicLong} holding the theoretical arrival time of the next request (GCRA), so
+ * taking a token is one CAS with no lock. A bucket that has refilled completely carries no
+ * state, which is what idle eviction removes.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String API_PATH = "/api/";
+
+    private static final String AUTH_PATH = "/api/auth/";
+
+    @Value("${rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rate-limit.auth.capacity:10}")
+    private int authCapacity;
+
+    @Value("${rate-limit.auth.refill-per-minute:10}")
+    private int authRefillPerMinute;
+
+    @Value("${rate-limit.read.capacity:120}")
+    private int readCapacity;
+
+    @Value("${rate-limit.read.refill-per-minute:600}")
+    private int readRefillPerMinute;
+
+    @Value("${rate-limit.write.capacity:60}")
+    private int writeCapacity;
+
+    @Value("${rate-limit.write.refill-per-minute:120}")
+    private int writeRefillPerMinute;
+
+    @Value("${rate-limit.eviction-interval-ms:60000}")
+    private long evictionIntervalMs;
+
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private Limit auth;
+
+    private Limit read;
+
+    private Limit write;
+
+    private ScheduledExecutorService evictor;
+
+    @PostConstruct
+    void start() {
+        auth = new Limit(authCapacity, authRefillPerMinute);
+        read = new Limit(readCapacity, readRefillPerMinute);
+        write = new Limit(writeCapacity, writeRefillPerMinute);
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleAtFixedRate(this::evictIdle, evictionIntervalMs, evictionIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        evictor.shutdownNow();
+    }
+
+    int getBucketCount() {
+        return buckets.size();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled
+                || !request.getRequestURI().startsWith(API_PATH)
+                || HttpMethod.OPTIONS.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Limit limit;
+        String routeClass;
+        if (request.getRequestURI().startsWith(AUTH_PATH)) {
+            limit = auth;
+            routeClass = "auth:";
+        } else if (HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())) {
+            limit = read;
+            routeClass = "read:";
+        } else {
+            limit = write;
+            routeClass = "write:";
+        }
+
+        String key = routeClass + clientKey(request);
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(limit));
+        }
+        long now = System.nanoTime();
+        long waitNanos = bucket.tryConsume(now);
+
+        response.setHeader("RateLimit-Limit", Integer.toString(limit.capacity));
+        if (waitNanos > 0) {
+            response.setHeader("RateLimit-Remaining", "0");
+            response.setHeader("RateLimit-Reset", Long.toString(toSeconds(waitNanos)));
+            response.setHeader("Retry-After", Long.toString(toSeconds(waitNanos)));
+            response.setStatus(429);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Too many requests\"}");
+            return;
+        }
+        response.setHeader("RateLimit-Remaining", Long.toString(bucket.remaining(now)));
+        response.setHeader("RateLimit-Reset", Long.toString(toSeconds(bucket.nanosUntilFull(now))));
+
+        filterChain.doFilter(request, response);
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static long toSeconds(long nanos) {
+        return (nanos + 999_999_999L) / 1_000_000_000L;
+    }
+
+    void evictIdle() {
+        long now = System.nanoTime();
+        // A request racing with the removal may have its token forgotten, which only errs towards allowing it
+        buckets.values().removeIf(bucket -> bucket.nanosUntilFull(now) == 0);
+    }
+
+    private static final class Limit {
+
+        private final int capacity;
+        private final long emissionIntervalNanos;
+        private final long burstNanos;
+
+        Limit(int capacity, int refillPerMinute) {
+            this.capacity = capacity;
+            this.emissionIntervalNanos = TimeUnit.MINUTES.toNanos(1) / refillPerMinute;
+            this.burstNanos = emissionIntervalNanos * capacity;
+        }
+    }
+
+    private static final class Bucket {
+
+        private final Limit limit;
+
+        // Theoretical arrival time: the bucket is full again once the clock passes it
+        private final AtomicLong tat;
+
+        Bucket(Limit limit) {
+            this.limit = limit;
+            this.tat = new AtomicLong(System.nanoTime());
+        }
+
+        /**
+         * Takes one token and returns 0, or leaves the bucket unchanged and returns how long
+         * the caller has to wait for the next token.
+         */
+        long tryConsume(long now) {
+            while (true) {
+                long current = tat.get();
+                long next = Math.max(current, now) + limit.emissionIntervalNanos;
+                long wait = next - now - limit.burstNanos;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (tat.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        long remaining(long now) {
+            long used = Math.max(tat.get() - now, 0);
+            return (limit.burstNanos - used) / limit.emissionIntervalNanos;
+        }
+
+        long nanosUntilFull(long now) {
+            return Math.max(tat.get() - now, 0);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.expensetracker.security;
 
+import com.expensetracker.datasource.ReadYourWritesTracker;
 import com.expensetracker.entity.User;
 import com.expensetracker.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,16 +17,25 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private ReadYourWritesTracker readYourWrites;
+    
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
-        
-        return UserPrincipal.create(user);
+        // Nobody is authenticated yet, so tell replica routing whose writes this read must see
+        readYourWrites.bindSubject(username);
+        try {
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+            
+            return UserPrincipal.create(user);
+        } finally {
+            readYourWrites.clearSubject();
+        }
     }
     
-    @Transactional
+    @Transactional(readOnly = true)
     public UserDetails loadUserById(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + id));
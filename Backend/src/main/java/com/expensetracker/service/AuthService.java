@@ -1,18 +1,24 @@
 package com.expensetracker.service;
 
+import com.expensetracker.datasource.ReadYourWritesTracker;
 import com.expensetracker.dto.JwtAuthenticationResponse;
 import com.expensetracker.dto.LoginRequest;
 import com.expensetracker.dto.RegisterRequest;
 import com.expensetracker.entity.User;
 import com.expensetracker.repository.UserRepository;
+import com.expensetracker.security.UserPrincipal;
+import com.expensetracker.sharding.ShardDirectory;
 import com.expensetracker.util.JwtUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class AuthService {
@@ -29,23 +35,74 @@ public class AuthService {
     @Autowired
     private JwtUtils jwtUtils;
     
+    @Autowired
+    private ReadYourWritesTracker readYourWrites;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    // Present only when sharding is configured
+    @Autowired(required = false)
+    private ShardDirectory shardDirectory;
+    
+    // The warm-up's scratch account, which nobody may register through the API
+    @Value("${warmup.username:jit-warmup}")
+    private String reservedUsername;
+    
     public User registerUser(RegisterRequest registerRequest) {
-        if (userRepository.existsByUsername(registerRequest.getUsername())) {
+        // Usernames compare case-insensitively in the database
+        if (reservedUsername.equalsIgnoreCase(registerRequest.getUsername())) {
             throw new RuntimeException("Error: Username is already taken!");
         }
+        return createUser(registerRequest);
+    }
+    
+    /**
+     * Creates the warm-up's scratch account, whose name {@link #registerUser} refuses.
+     */
+    public User registerReservedUser(RegisterRequest registerRequest) {
+        return createUser(registerRequest);
+    }
+    
+    /**
+     * Creates the account. The password is hashed before the transaction starts, so the
+     * connection is only held for the two uniqueness checks and the insert.
+     */
+    private User createUser(RegisterRequest registerRequest) {
+        String encodedPassword = passwordEncoder.encode(registerRequest.getPassword());
         
-        if (userRepository.existsByEmail(registerRequest.getEmail())) {
-            throw new RuntimeException("Error: Email is already in use!");
+        // Nobody is authenticated yet; route this user's lookups and insert to their shard
+        readYourWrites.bindSubject(registerRequest.getUsername());
+        try {
+            User saved = new TransactionTemplate(transactionManager).execute(status -> {
+                if (userRepository.existsByUsername(registerRequest.getUsername())) {
+                    throw new RuntimeException("Error: Username is already taken!");
+                }
+                
+                if (userRepository.existsByEmail(registerRequest.getEmail())) {
+                    throw new RuntimeException("Error: Email is already in use!");
+                }
+                
+                // Create new user
+                User user = new User(registerRequest.getUsername(), registerRequest.getEmail(), encodedPassword);
+                return userRepository.save(user);
+            });
+            if (shardDirectory != null) {
+                shardDirectory.register(saved.getUsername(), saved.getId(),
+                        shardDirectory.lookup(saved.getUsername()).getShard());
+            }
+            // Logging in right after registering must not miss the new user on a lagging replica
+            readYourWrites.markWrite(saved.getUsername());
+            return saved;
+        } finally {
+            readYourWrites.clearSubject();
         }
-        
-        // Create new user
-        User user = new User(registerRequest.getUsername(),
-                            registerRequest.getEmail(),
-                            passwordEncoder.encode(registerRequest.getPassword()));
-        
-        return userRepository.save(user);
     }
     
+    /**
+     * Deliberately not transactional: the principal lookup is its own short read-only
+     * transaction, and the password check that follows must not hold a connection.
+     */
     public JwtAuthenticationResponse authenticateUser(LoginRequest loginRequest) {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
@@ -53,9 +110,8 @@ public class AuthService {
         SecurityContextHolder.getContext().setAuthentication(authentication);
         String jwt = jwtUtils.generateJwtToken(authentication);
         
-        User user = userRepository.findByUsername(loginRequest.getUsername())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        
-        return new JwtAuthenticationResponse(jwt, user.getUsername(), user.getEmail());
+        // The principal was just loaded from the users table; no need to read it again
+        UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+        return new JwtAuthenticationResponse(jwt, principal.getUsername(), principal.getEmail());
     }
 }
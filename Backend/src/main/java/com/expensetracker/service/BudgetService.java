@@ -0,0 +1,408 @@
+package com.expensetracker.service;
+
+import com.expensetracker.datasource.ReadYourWritesTracker;
+import com.expensetracker.dto.BudgetRequest;
+import com.expensetracker.dto.BudgetResponse;
+import com.expensetracker.dto.BudgetStatusResponse;
+import com.expensetracker.entity.Budget;
+import com.expensetracker.entity.User;
+import com.expensetracker.event.BudgetAlertEvent;
+import com.expensetracker.repository.BudgetRepository;
+import com.expensetracker.repository.UserRepository;
+import com.expensetracker.stats.MonthAggregates;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TimeZone;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+/**
+ * Monthly per-category budgets, checked against running month totals.
+ * <p>
+ * Every expense write calls {@link #adjust} in its own transaction with the amount it adds
+ * to or removes from a (category, month). Writers already hold the owner's users row lock
+ * (taken when the change sequence is bumped), so the update-or-insert of a total cannot race.
+ * Status and write-time alerts read one total per category and never look at expenses.
+ * <p>
+ * Each total also keeps {@link MonthAggregates} of the expenses behind it, a sketch of their
+ * amounts and summaries of their titles, which {@link SpendingDistributionService} merges
+ * into quantiles, histograms and top titles.
+ */
+@Service
+public class BudgetService {
+
+    @Autowired
+    private BudgetRepository budgetRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ReadYourWritesTracker readYourWrites;
+
+    @Value("${budgets.near-threshold-percent:80}")
+    private int nearThresholdPercent;
+
+    // Bind temporal values the way Hibernate does, so JPA reads these rows back unchanged
+    @Value("${spring.jpa.properties.hibernate.jdbc.time_zone:}")
+    private String jdbcTimeZone;
+
+    @Transactional
+    public BudgetResponse saveBudget(BudgetRequest request, String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        Budget budget = budgetRepository.findByUserIdAndCategory(user.getId(), request.getCategory())
+                .orElseGet(Budget::new);
+        budget.setCategory(request.getCategory());
+        budget.setMonthlyLimit(request.getMonthlyLimit());
+        budget.setUser(user);
+
+        Budget saved = budgetRepository.save(budget);
+        // Budget status read right after must not come from a replica without this limit
+        readYourWrites.markOnCommit(username);
+        return convertToResponse(saved);
+    }
+
+    @Transactional(readOnly = true)
+    public List<BudgetResponse> getBudgets(String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        return budgetRepository.findByUserIdOrderByCategoryAsc(user.getId()).stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional
+    public void deleteBudget(Long id, String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        Budget budget = budgetRepository.findByIdAndUserId(id, user.getId())
+                .orElseThrow(() -> new RuntimeException("Budget not found or access denied"));
+
+        budgetRepository.delete(budget);
+        readYourWrites.markOnCommit(username);
+    }
+
+    /**
+     * Where each budget stands in {@code month}: one query for the budgets and one for that
+     * month's totals, however many expenses the user has.
+     */
+    @Transactional(readOnly = true)
+    public List<BudgetStatusResponse> getStatus(YearMonth month, String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        LocalDate monthStart = month.atDay(1);
+        Calendar calendar = calendar();
+        Map<String, BigDecimal> totals = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "select category, total from expense_month_totals where user_id = ? and month_start = ?");
+            ps.setLong(1, user.getId());
+            ps.setDate(2, Date.valueOf(monthStart), calendar);
+            return ps;
+        }, rs -> {
+            totals.put(rs.getString("category"), rs.getBigDecimal("total"));
+        });
+
+        return budgetRepository.findByUserIdOrderByCategoryAsc(user.getId()).stream()
+                .map(budget -> status(budget.getCategory(), monthStart, budget.getMonthlyLimit(),
+                        totals.getOrDefault(budget.getCategory(), BigDecimal.ZERO)))
+                .collect(Collectors.toList());
+    }
+
+    public void adjust(Long userId, String username, String category, LocalDate expenseDate, BigDecimal delta) {
+        adjust(List.of(new TotalChange(userId, username, category, expenseDate, delta)));
+    }
+
+    /**
+     * Applies the changes to the running totals, in the caller's transaction, and publishes a
+     * {@link BudgetAlertEvent} for every current-month category that moved to a higher level.
+     */
+    public void adjust(List<TotalChange> changes) {
+        // One statement per (user, month, category), however many expenses share it
+        Map<TotalChange, BigDecimal> merged = new LinkedHashMap<>();
+        Map<TotalChange, List<TotalChange>> expenses = new HashMap<>();
+        for (TotalChange change : changes) {
+            merged.merge(change, change.delta, BigDecimal::add);
+            expenses.computeIfAbsent(change, key -> new ArrayList<>()).add(change);
+        }
+        expenses.values().forEach(BudgetService::cancelOut);
+        merged.entrySet().removeIf(entry -> entry.getValue().signum() == 0 && expenses.get(entry.getKey()).isEmpty());
+        if (merged.isEmpty()) {
+            return;
+        }
+        List<TotalChange> keys = new ArrayList<>(merged.keySet());
+        Calendar calendar = calendar();
+
+        int[] updated = jdbcTemplate.batchUpdate("update expense_month_totals set total = total + ? "
+                + "where user_id = ? and month_start = ? and category = ?", new TotalSetter(keys, merged, null, calendar));
+        List<TotalChange> existing = new ArrayList<>();
+        List<TotalChange> missing = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            (updated[i] == 0 ? missing : existing).add(keys.get(i));
+        }
+        if (!missing.isEmpty()) {
+            Map<TotalChange, MonthAggregates> aggregates = new HashMap<>();
+            for (TotalChange key : missing) {
+                MonthAggregates created = new MonthAggregates();
+                expenses.get(key).forEach(change -> created.add(change.title, change.delta.abs(), change.count));
+                aggregates.put(key, created);
+            }
+            jdbcTemplate.batchUpdate("insert into expense_month_totals (total, user_id, month_start, category, "
+                    + "amount_sketch, title_counts, title_amounts) values (?, ?, ?, ?, ?, ?, ?)",
+                    new TotalSetter(missing, merged, aggregates, calendar));
+        }
+        mergeAggregates(existing, expenses, calendar);
+
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        for (TotalChange key : keys) {
+            if (key.monthStart.equals(currentMonth)) {
+                checkThreshold(key, merged.get(key), calendar);
+            }
+        }
+    }
+
+    /**
+     * Drops each removal that an addition of the same title and amount undoes, as when an
+     * update only changes the description. Space-Saving summaries are not commutative, so
+     * such a pair would otherwise still reorder them.
+     */
+    private static void cancelOut(List<TotalChange> changes) {
+        for (int i = 0; i < changes.size(); i++) {
+            TotalChange removal = changes.get(i);
+            if (removal.count > 0) {
+                continue;
+            }
+            for (int j = 0; j < changes.size(); j++) {
+                TotalChange addition = changes.get(j);
+                if (addition.count > 0 && Objects.equals(addition.title, removal.title)
+                        && addition.delta.compareTo(removal.delta.negate()) == 0) {
+                    changes.remove(Math.max(i, j));
+                    changes.remove(Math.min(i, j));
+                    i = -1;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies each key's expenses to its stored aggregates. A total kept from before them has
+     * none; it stays without until {@link SpendingDistributionService} rebuilds them.
+     */
+    private void mergeAggregates(List<TotalChange> keys, Map<TotalChange, List<TotalChange>> expenses,
+                                 Calendar calendar) {
+        List<Object[]> updates = new ArrayList<>();
+        for (TotalChange key : keys) {
+            List<TotalChange> changes = expenses.get(key);
+            if (changes.isEmpty()) {
+                continue;
+            }
+            MonthAggregates stored = jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement("select amount_sketch, title_counts, title_amounts "
+                        + "from expense_month_totals where user_id = ? and month_start = ? and category = ?");
+                ps.setLong(1, key.userId);
+                ps.setDate(2, Date.valueOf(key.monthStart), calendar);
+                ps.setString(3, key.category);
+                return ps;
+            }, rs -> rs.next() ? MonthAggregates.fromBytes(rs.getBytes(1), rs.getBytes(2), rs.getBytes(3)) : null);
+            if (stored != null) {
+                changes.forEach(change -> stored.add(change.title, change.delta.abs(), change.count));
+                updates.add(new Object[] {stored, key});
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("update expense_month_totals set amount_sketch = ?, title_counts = ?, "
+                    + "title_amounts = ? where user_id = ? and month_start = ? and category = ?",
+                    new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    MonthAggregates aggregates = (MonthAggregates) updates.get(i)[0];
+                    TotalChange key = (TotalChange) updates.get(i)[1];
+                    ps.setBytes(1, aggregates.getAmounts().toBytes());
+                    ps.setBytes(2, aggregates.getTitleCounts().toBytes());
+                    ps.setBytes(3, aggregates.getTitleAmounts().toBytes());
+                    ps.setLong(4, key.userId);
+                    ps.setDate(5, Date.valueOf(key.monthStart), calendar);
+                    ps.setString(6, key.category);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return updates.size();
+                }
+            });
+        }
+    }
+
+    private void checkThreshold(TotalChange key, BigDecimal delta, Calendar calendar) {
+        List<BigDecimal> limits = jdbcTemplate.queryForList(
+                "select monthly_limit from budgets where user_id = ? and category = ?",
+                BigDecimal.class, key.userId, key.category);
+        if (limits.isEmpty()) {
+            return;
+        }
+        BigDecimal total = jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("select total from expense_month_totals "
+                    + "where user_id = ? and month_start = ? and category = ?");
+            ps.setLong(1, key.userId);
+            ps.setDate(2, Date.valueOf(key.monthStart), calendar);
+            ps.setString(3, key.category);
+            return ps;
+        }, rs -> rs.next() ? rs.getBigDecimal(1) : BigDecimal.ZERO);
+
+        BigDecimal limit = limits.get(0);
+        if (level(total, limit).compareTo(level(total.subtract(delta), limit)) > 0) {
+            eventPublisher.publishEvent(new BudgetAlertEvent(key.userId, key.username,
+                    status(key.category, key.monthStart, limit, total)));
+        }
+    }
+
+    private BudgetAlertEvent.Level level(BigDecimal spent, BigDecimal limit) {
+        if (spent.compareTo(limit) > 0) {
+            return BudgetAlertEvent.Level.OVER;
+        }
+        BigDecimal near = limit.multiply(BigDecimal.valueOf(nearThresholdPercent)).movePointLeft(2);
+        return spent.compareTo(near) >= 0 ? BudgetAlertEvent.Level.NEAR : BudgetAlertEvent.Level.OK;
+    }
+
+    private BudgetStatusResponse status(String category, LocalDate monthStart, BigDecimal limit, BigDecimal spent) {
+        int percentUsed = spent.multiply(BigDecimal.valueOf(100)).divide(limit, 0, RoundingMode.DOWN).intValue();
+        return new BudgetStatusResponse(category, monthStart, limit, spent, limit.subtract(spent),
+                percentUsed, level(spent, limit).name());
+    }
+
+    private Calendar calendar() {
+        return StringUtils.hasText(jdbcTimeZone)
+                ? Calendar.getInstance(TimeZone.getTimeZone(jdbcTimeZone)) : Calendar.getInstance();
+    }
+
+    private BudgetResponse convertToResponse(Budget budget) {
+        return new BudgetResponse(budget.getId(), budget.getCategory(), budget.getMonthlyLimit());
+    }
+
+    /**
+     * An expense of {@code delta} added to (or, when negative, one of {@code -delta} removed
+     * from) a user's category in the month of {@code expenseDate}. Equal when they touch the
+     * same total.
+     */
+    public static final class TotalChange {
+
+        private final Long userId;
+        private final String username;
+        private final String category;
+        private final LocalDate monthStart;
+        private final String title;
+        private final BigDecimal delta;
+        // +1 for an expense added, -1 for one removed
+        private final int count;
+
+        public TotalChange(Long userId, String username, String category, LocalDate expenseDate, BigDecimal delta) {
+            this(userId, username, category, expenseDate, null, delta);
+        }
+
+        public TotalChange(Long userId, String username, String category, LocalDate expenseDate, String title,
+                           BigDecimal delta) {
+            this(userId, username, category, expenseDate, title, delta, delta.signum() < 0 ? -1 : 1);
+        }
+
+        private TotalChange(Long userId, String username, String category, LocalDate expenseDate, String title,
+                            BigDecimal delta, int count) {
+            this.userId = userId;
+            this.username = username;
+            this.category = category;
+            this.monthStart = expenseDate.withDayOfMonth(1);
+            this.title = title;
+            this.delta = delta;
+            this.count = count;
+        }
+
+        /**
+         * An expense of {@code amount} taken out of the total; unlike a negative delta, this
+         * also covers a zero amount.
+         */
+        public static TotalChange removed(Long userId, String username, String category, LocalDate expenseDate,
+                                          String title, BigDecimal amount) {
+            return new TotalChange(userId, username, category, expenseDate, title, amount.negate(), -1);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TotalChange other)) {
+                return false;
+            }
+            return userId.equals(other.userId) && monthStart.equals(other.monthStart) && category.equals(other.category);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, monthStart, category);
+        }
+    }
+
+    private static final class TotalSetter implements BatchPreparedStatementSetter {
+
+        private final List<TotalChange> keys;
+        private final Map<TotalChange, BigDecimal> deltas;
+        // Bound as the fifth to seventh parameters when not null
+        private final Map<TotalChange, MonthAggregates> aggregates;
+        private final Calendar calendar;
+
+        TotalSetter(List<TotalChange> keys, Map<TotalChange, BigDecimal> deltas,
+                    Map<TotalChange, MonthAggregates> aggregates, Calendar calendar) {
+            this.keys = keys;
+            this.deltas = deltas;
+            this.aggregates = aggregates;
+            this.calendar = calendar;
+        }
+
+        @Override
+        public void setValues(PreparedStatement ps, int i) throws SQLException {
+            TotalChange key = keys.get(i);
+            ps.setBigDecimal(1, deltas.get(key));
+            ps.setLong(2, key.userId);
+            ps.setDate(3, Date.valueOf(key.monthStart), calendar);
+            ps.setString(4, key.category);
+            if (aggregates != null) {
+                MonthAggregates created = aggregates.get(key);
+                ps.setBytes(5, created.getAmounts().toBytes());
+                ps.setBytes(6, created.getTitleCounts().toBytes());
+                ps.setBytes(7, created.getTitleAmounts().toBytes());
+            }
+        }
+
+        @Override
+        public int getBatchSize() {
+            return keys.size();
+        }
+    }
+}
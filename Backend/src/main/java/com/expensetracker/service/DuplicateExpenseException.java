@@ -0,0 +1,12 @@
+package com.expensetracker.service;
+
+/**
+ * A new expense repeats one the user already has: same title and amount, dated within the
+ * duplicate window. The client may confirm it and create it anyway.
+ */
+public class DuplicateExpenseException extends RuntimeException {
+
+    public DuplicateExpenseException(String message) {
+        super(message);
+    }
+}
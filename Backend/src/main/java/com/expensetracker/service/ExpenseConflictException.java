@@ -0,0 +1,12 @@
+package com.expensetracker.service;
+
+/**
+ * An update or delete of an expense that another request changed or deleted since it was
+ * read, or that is not at the version the client sent. The client should reload it.
+ */
+public class ExpenseConflictException extends RuntimeException {
+
+    public ExpenseConflictException(String message) {
+        super(message);
+    }
+}
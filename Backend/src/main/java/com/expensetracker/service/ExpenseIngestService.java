@@ -0,0 +1,388 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.ExpenseRequest;
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.event.ExpenseChangedEvent;
+import com.expensetracker.sharding.ShardContext;
+import com.expensetracker.sharding.ShardRoutingDataSource;
+import com.expensetracker.util.ExpenseFingerprints;
+import com.expensetracker.util.ExpenseTags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+/**
+ * Opt-in group commit for expense creation ({@code expenses.ingest.batching.enabled}).
+ * <p>
+ * Creates are queued and a single writer thread drains them in micro-batches: it takes
+ * whatever is waiting, lingers up to {@code max-linger-ms} for more, and stores up to
+ * {@code max-batch-size} expenses with one multi-row INSERT in one transaction. Each
+ * caller blocks until the batch holding its expense has committed. When the queue is
+ * full, callers fall back to the regular per-request transaction.
+ * <p>
+ * Duplicates are refused by the writer, under the owners' users row locks, against both the
+ * stored expenses and those earlier in the same batch.
+ */
+@Service
+public class ExpenseIngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpenseIngestService.class);
+
+    private static final String INSERT_COLUMNS = "insert into expenses "
+            + "(title, description, amount, category, tags, expense_date, created_at, updated_at, change_seq, fingerprint, "
+            + "user_id) values ";
+
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Value("${expenses.ingest.batching.enabled:false}")
+    private boolean enabled;
+
+    @Value("${expenses.ingest.max-batch-size:100}")
+    private int maxBatchSize;
+
+    @Value("${expenses.ingest.max-linger-ms:5}")
+    private long maxLingerMs;
+
+    @Value("${expenses.ingest.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${expenses.ingest.response-timeout-ms:30000}")
+    private long responseTimeoutMs;
+
+    // Bind temporal values the way Hibernate does, so JPA reads these rows back unchanged
+    @Value("${spring.jpa.properties.hibernate.jdbc.time_zone:}")
+    private String jdbcTimeZone;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    // Present only when sharding is configured
+    @Autowired(required = false)
+    private ShardRoutingDataSource shardRouting;
+
+    private final AtomicLong batchesCommitted = new AtomicLong();
+
+    private BlockingQueue<PendingExpense> queue;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        writer = new Thread(this::drain, "expense-ingest-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        // The writer finishes what is already queued before it exits
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getBatchesCommitted() {
+        return batchesCommitted.get();
+    }
+
+    /**
+     * Stores a new expense with the next batch. Duplicates are refused as by
+     * {@link ExpenseService#createExpense}, including copies queued at the same time.
+     */
+    public ExpenseResponse createExpense(ExpenseRequest request, String username, boolean allowDuplicate) {
+        Long userId;
+        try {
+            userId = jdbcTemplate.queryForObject("select id from users where username = ?", Long.class, username);
+        } catch (EmptyResultDataAccessException e) {
+            throw new RuntimeException("User not found");
+        }
+
+        PendingExpense pending = new PendingExpense(request, userId, username, allowDuplicate);
+        if (!running || !queue.offer(pending)) {
+            return expenseService.createExpense(request, username, allowDuplicate);
+        }
+
+        try {
+            return pending.result.get(responseTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to store expense", e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Timed out waiting for the expense to be stored");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the expense to be stored");
+        }
+    }
+
+    private void drain() {
+        List<PendingExpense> batch = new ArrayList<>(maxBatchSize);
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMs);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingExpense first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    PendingExpense next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commitByShard(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+            } catch (RuntimeException e) {
+                logger.error("Expense ingest writer failed", e);
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commitByShard(List<PendingExpense> batch) {
+        if (shardRouting == null) {
+            commit(batch);
+            return;
+        }
+        // The writer thread has no user of its own, so each shard's share is committed on that shard.
+        // Routing cannot see whose rows these are, so users being moved are refused here
+        Map<Integer, List<PendingExpense>> byShard = new TreeMap<>();
+        for (PendingExpense pending : batch) {
+            int shard;
+            try {
+                shard = shardRouting.writableShard(pending.username);
+            } catch (IllegalStateException e) {
+                pending.result.completeExceptionally(e);
+                continue;
+            }
+            byShard.computeIfAbsent(shard, k -> new ArrayList<>()).add(pending);
+        }
+        byShard.forEach((shard, pendings) -> ShardContext.runOnShard(shard, () -> commit(pendings)));
+    }
+
+    private void commit(List<PendingExpense> batch) {
+        List<ExpenseChangedEvent> events;
+        try {
+            events = transactionTemplate.execute(status -> insert(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            // Retry one by one so a single bad row does not fail its neighbours
+            for (PendingExpense pending : batch) {
+                commit(Collections.singletonList(pending));
+            }
+            return;
+        }
+
+        batchesCommitted.incrementAndGet();
+        // Listeners (read-your-writes, streams) see the write before its caller gets the response
+        for (int i = 0; i < batch.size(); i++) {
+            PendingExpense pending = batch.get(i);
+            if (pending.refusal != null) {
+                pending.result.completeExceptionally(pending.refusal);
+            } else {
+                eventPublisher.publishEvent(events.get(i));
+                pending.result.complete(events.get(i).getExpense());
+            }
+        }
+    }
+
+    /**
+     * Inserts the batch's expenses that are not duplicates and returns their events, with null
+     * for each refused one.
+     */
+    private List<ExpenseChangedEvent> insert(List<PendingExpense> batch) {
+        // Lock each user's row, in id order to avoid deadlocks, before reading anything to check against
+        Map<Long, Long> versions = new TreeMap<>();
+        batch.forEach(pending -> versions.put(pending.userId, 0L));
+        for (Long userId : versions.keySet()) {
+            versions.put(userId, jdbcTemplate.queryForObject(
+                    "select expenses_version from users where id = ? for update", Long.class, userId));
+        }
+
+        // The expenses to insert, and where each is in the batch
+        List<PendingExpense> rows = new ArrayList<>(batch.size());
+        List<Integer> positions = new ArrayList<>(batch.size());
+        Map<Long, Set<Long>> batchFingerprints = new HashMap<>();
+        for (int b = 0; b < batch.size(); b++) {
+            PendingExpense pending = batch.get(b);
+            pending.refusal = null;
+            Set<Long> earlier = batchFingerprints.computeIfAbsent(pending.userId, k -> new HashSet<>());
+            if (!pending.allowDuplicate) {
+                try {
+                    expenseService.checkNotDuplicate(pending.userId, versions.get(pending.userId), pending.request,
+                            earlier);
+                } catch (DuplicateExpenseException e) {
+                    pending.refusal = e;
+                    continue;
+                }
+            }
+            earlier.add(pending.fingerprint);
+            rows.add(pending);
+            positions.add(b);
+        }
+        List<ExpenseChangedEvent> events = new ArrayList<>(Collections.nCopies(batch.size(), null));
+        if (rows.isEmpty()) {
+            return events;
+        }
+
+        // Reserve each user's change sequence numbers in one statement, in id order
+        Map<Long, Integer> counts = new TreeMap<>();
+        rows.forEach(pending -> counts.merge(pending.userId, 1, Integer::sum));
+        Map<Long, Long> nextSeq = new TreeMap<>();
+        for (Map.Entry<Long, Integer> entry : counts.entrySet()) {
+            jdbcTemplate.update("update users set expenses_version = expenses_version + ? where id = ?",
+                    entry.getValue(), entry.getKey());
+            nextSeq.put(entry.getKey(), versions.get(entry.getKey()) + 1);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        long[] changeSeqs = new long[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            changeSeqs[i] = nextSeq.merge(rows.get(i).userId, 1L, Long::sum) - 1;
+        }
+
+        String sql = INSERT_COLUMNS + String.join(", ", Collections.nCopies(rows.size(), ROW_PLACEHOLDERS));
+        Calendar calendar = StringUtils.hasText(jdbcTimeZone)
+                ? Calendar.getInstance(TimeZone.getTimeZone(jdbcTimeZone)) : Calendar.getInstance();
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            int p = 1;
+            for (int i = 0; i < rows.size(); i++) {
+                ExpenseRequest request = rows.get(i).request;
+                ps.setString(p++, request.getTitle());
+                ps.setString(p++, request.getDescription());
+                ps.setBigDecimal(p++, request.getAmount());
+                ps.setString(p++, request.getCategory());
+                ps.setString(p++, ExpenseTags.join(request.getTags()));
+                ps.setDate(p++, Date.valueOf(request.getExpenseDate()), calendar);
+                ps.setTimestamp(p++, Timestamp.valueOf(now), calendar);
+                ps.setTimestamp(p++, Timestamp.valueOf(now), calendar);
+                ps.setLong(p++, changeSeqs[i]);
+                ps.setLong(p++, rows.get(i).fingerprint);
+                ps.setLong(p++, rows.get(i).userId);
+            }
+            return ps;
+        }, keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        if (generated.size() != rows.size()) {
+            throw new IllegalStateException("Expected " + rows.size() + " generated ids, got " + generated.size());
+        }
+        List<BudgetService.TotalChange> totals = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            PendingExpense pending = rows.get(i);
+            Long id = ((Number) generated.get(i).values().iterator().next()).longValue();
+            ExpenseRequest request = pending.request;
+            ExpenseResponse response = new ExpenseResponse(id, request.getTitle(), request.getDescription(),
+                    request.getAmount(), request.getCategory(), ExpenseTags.split(ExpenseTags.join(request.getTags())),
+                    request.getExpenseDate(), now, now);
+            events.set(positions.get(i), new ExpenseChangedEvent(ExpenseChangedEvent.Type.CREATED,
+                    pending.userId, pending.username, id, changeSeqs[i], response));
+            totals.add(new BudgetService.TotalChange(pending.userId, pending.username,
+                    request.getCategory(), request.getExpenseDate(), request.getTitle(), request.getAmount()));
+        }
+        budgetService.adjust(totals);
+        return events;
+    }
+
+    private static final class PendingExpense {
+
+        private final ExpenseRequest request;
+        private final Long userId;
+        private final String username;
+        private final boolean allowDuplicate;
+        private final long fingerprint;
+        private final CompletableFuture<ExpenseResponse> result = new CompletableFuture<>();
+        // Set by the writer when the expense repeats one stored or earlier in its batch
+        private DuplicateExpenseException refusal;
+
+        PendingExpense(ExpenseRequest request, Long userId, String username, boolean allowDuplicate) {
+            this.request = request;
+            this.userId = userId;
+            this.username = username;
+            this.allowDuplicate = allowDuplicate;
+            this.fingerprint = ExpenseFingerprints.of(request.getTitle(), request.getAmount(),
+                    request.getExpenseDate());
+        }
+    }
+}
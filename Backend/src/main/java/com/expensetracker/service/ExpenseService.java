@@ -1,14 +1,40 @@
 package com.expensetracker.service;
 
+import com.expensetracker.archive.ExpenseArchiveService;
+import com.expensetracker.dto.ExpenseChangesResponse;
+import com.expensetracker.dto.ExpensePatch;
 import com.expensetracker.dto.ExpenseRequest;
 import com.expensetracker.dto.ExpenseResponse;
 import com.expensetracker.entity.Expense;
+import com.expensetracker.entity.ExpenseTombstone;
+import com.expensetracker.event.ExpenseChangedEvent;
 import com.expensetracker.entity.User;
+import com.expensetracker.index.AutocompleteIndex;
+import com.expensetracker.index.ExpenseBitmapIndex;
+import com.expensetracker.index.ExpenseFilter;
+import com.expensetracker.index.FingerprintIndex;
 import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.ExpenseTombstoneRepository;
 import com.expensetracker.repository.UserRepository;
+import com.expensetracker.util.ExpenseFingerprints;
+import com.expensetracker.util.ExpenseTags;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,9 +48,53 @@ public class ExpenseService {
     @Autowired
     private UserRepository userRepository;
     
-    public ExpenseResponse createExpense(ExpenseRequest request, String username) {
-        User user = userRepository.findByUsername(username)
+    @Autowired
+    private ExpenseTombstoneRepository tombstoneRepository;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private ExpenseArchiveService archiveService;
+    
+    @Autowired
+    private BudgetService budgetService;
+    
+    @Autowired
+    private ExpenseBitmapIndex bitmapIndex;
+    
+    @Autowired
+    private AutocompleteIndex autocompleteIndex;
+    
+    @Autowired
+    private FingerprintIndex fingerprintIndex;
+    
+    @Value("${expenses.duplicates.enabled:true}")
+    private boolean duplicateDetection;
+    
+    @Value("${expenses.duplicates.window-days:1}")
+    private int duplicateWindowDays;
+    
+    private static final int MAX_CHANGES_PAGE = 1000;
+    
+    // Ids per primary-key fetch of search results
+    private static final int FETCH_CHUNK = 1000;
+    
+    /**
+     * Stores a new expense. Unless {@code allowDuplicate}, one that repeats an expense the
+     * user already has is refused with a {@link DuplicateExpenseException}. The check runs
+     * under the owner's users row lock, so of two identical requests racing, the second one
+     * sees the first.
+     */
+    @Transactional
+    public ExpenseResponse createExpense(ExpenseRequest request, String username, boolean allowDuplicate) {
+        // Locked before anything else is read, so the reads below see every write committed before
+        User user = userRepository.findByUsernameForUpdate(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
+        long changeSeq = nextChangeSeq(user);
+        if (!allowDuplicate) {
+            checkNotDuplicate(user.getId(), changeSeq - 1, request);
+        }
         
         Expense expense = new Expense(
                 request.getTitle(),
@@ -34,57 +104,428 @@ public class ExpenseService {
                 request.getExpenseDate(),
                 user
         );
+        expense.setTags(ExpenseTags.join(request.getTags()));
+        expense.setChangeSeq(changeSeq);
+        budgetService.adjust(List.of(new BudgetService.TotalChange(user.getId(), username, expense.getCategory(),
+                expense.getExpenseDate(), expense.getTitle(), expense.getAmount())));
         
         Expense savedExpense = expenseRepository.save(expense);
-        return convertToResponse(savedExpense);
+        ExpenseResponse response = convertToResponse(savedExpense);
+        eventPublisher.publishEvent(new ExpenseChangedEvent(ExpenseChangedEvent.Type.CREATED,
+                user.getId(), username, savedExpense.getId(), savedExpense.getChangeSeq(), response));
+        return response;
     }
     
+    /**
+     * Throws {@link DuplicateExpenseException} when the user has an expense with the same title
+     * (ignoring case and spacing) and amount, dated up to {@code expenses.duplicates.window-days}
+     * days either side of the request's date. Costs one lookup per day of the window in the
+     * user's {@link FingerprintIndex}; archived expenses are not checked. Callers hold the
+     * user's users row lock, so no other write can slip in between the check and the insert.
+     *
+     * @param version the user's expenses_version before the caller's own write
+     */
+    @Transactional
+    public void checkNotDuplicate(Long userId, long version, ExpenseRequest request) {
+        checkNotDuplicate(userId, version, request, Set.of());
+    }
+    
+    /**
+     * As {@link #checkNotDuplicate(Long, long, ExpenseRequest)}, also refusing a repeat of
+     * {@code pending}: fingerprints of expenses stored in the same transaction, not yet indexed.
+     */
+    @Transactional
+    public void checkNotDuplicate(Long userId, long version, ExpenseRequest request, Set<Long> pending) {
+        if (!duplicateDetection) {
+            return;
+        }
+        long[] candidates = ExpenseFingerprints.window(request.getTitle(), request.getAmount(),
+                request.getExpenseDate(), duplicateWindowDays);
+        if (Arrays.stream(candidates).anyMatch(pending::contains)
+                || fingerprintIndex.containsAny(userId, version, () -> loadFingerprints(userId), candidates)) {
+            throw new DuplicateExpenseException("An expense '" + request.getTitle() + "' of "
+                    + request.getAmount() + " within " + duplicateWindowDays + " day(s) of "
+                    + request.getExpenseDate() + " already exists");
+        }
+    }
+    
+    @Transactional(readOnly = true)
     public List<ExpenseResponse> getAllExpenses(String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        List<Expense> expenses = expenseRepository.findByUserId(user.getId());
+        return findAll(user.getId()).stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * The expenses matching a combined category, tag and date filter, in id order. The
+     * filter is evaluated on the user's bitmap index; only the matches are then fetched.
+     */
+    @Transactional(readOnly = true)
+    public List<ExpenseResponse> searchExpenses(ExpenseFilter filter, String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        long[] ids = bitmapIndex.search(user.getId(), user.getExpensesVersion(), () -> findAll(user.getId()), filter);
+        List<Expense> expenses = new ArrayList<>(ids.length);
+        for (int start = 0; start < ids.length; start += FETCH_CHUNK) {
+            List<Long> chunk = new ArrayList<>();
+            for (int i = start; i < Math.min(ids.length, start + FETCH_CHUNK); i++) {
+                chunk.add(ids[i]);
+            }
+            expenses.addAll(expenseRepository.findByUserIdAndIdIn(user.getId(), chunk));
+        }
+        if (expenses.size() < ids.length) {
+            Set<Long> wanted = new HashSet<>();
+            for (long id : ids) {
+                wanted.add(id);
+            }
+            expenses.forEach(expense -> wanted.remove(expense.getId()));
+            for (Expense expense : archiveService.findArchived(user.getId())) {
+                if (wanted.remove(expense.getId())) {
+                    expenses.add(expense);
+                }
+            }
+        }
+        expenses.sort(Comparator.comparing(Expense::getId));
         return expenses.stream()
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Up to {@code limit} of the user's titles or categories that start with {@code prefix},
+     * ignoring case, most used first. Suggestions come from the expense table; archived
+     * expenses are too old to shape them.
+     */
+    @Transactional(readOnly = true)
+    public List<String> suggest(AutocompleteIndex.Field field, String prefix, int limit, String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        return autocompleteIndex.suggest(user.getId(), user.getExpensesVersion(),
+                indexed -> countTerms(user.getId(), indexed), field, prefix, limit);
+    }
+    
+    @Transactional(readOnly = true)
     public ExpenseResponse getExpenseById(Long id, String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
         Expense expense = expenseRepository.findByIdAndUserId(id, user.getId())
+                .or(() -> archiveService.findArchived(user.getId(), id))
                 .orElseThrow(() -> new RuntimeException("Expense not found or access denied"));
         
         return convertToResponse(expense);
     }
     
+    /**
+     * Replaces the expense's values. With a {@code version} in the request, it is refused with
+     * an {@link ExpenseConflictException} unless the expense is still at that version; either
+     * way it is refused if another request changes it meanwhile, rather than overwriting that
+     * change and leaving the budget totals off by it.
+     */
+    @Transactional
     public ExpenseResponse updateExpense(Long id, ExpenseRequest request, String username) {
+        Expense current = findForWrite(id, username);
+        User user = current.getUser();
+        long version = expectedVersion(current, request.getVersion());
+        
+        Expense expense = new Expense(
+                request.getTitle(),
+                request.getDescription(),
+                request.getAmount(),
+                request.getCategory(),
+                request.getExpenseDate(),
+                user
+        );
+        expense.setId(current.getId());
+        expense.setTags(ExpenseTags.join(request.getTags()));
+        expense.setCreatedAt(current.getCreatedAt());
+        // The bulk update skips the entity callbacks, so it is given what they would set
+        expense.setUpdatedAt(LocalDateTime.now());
+        expense.setFingerprint(ExpenseFingerprints.of(expense.getTitle(), expense.getAmount(), expense.getExpenseDate()));
+        expense.setChangeSeq(nextChangeSeq(user));
+        expense.setVersion(version + 1);
+        if (expenseRepository.updateIfVersion(expense, version) == 0) {
+            throw conflict(id);
+        }
+        // Moving between categories or months takes the old amount out of the old total
+        budgetService.adjust(List.of(BudgetService.TotalChange.removed(user.getId(), username,
+                        current.getCategory(), current.getExpenseDate(), current.getTitle(), current.getAmount()),
+                new BudgetService.TotalChange(user.getId(), username, expense.getCategory(),
+                        expense.getExpenseDate(), expense.getTitle(), expense.getAmount())));
+        
+        ExpenseResponse response = convertToResponse(expense);
+        eventPublisher.publishEvent(new ExpenseChangedEvent(ExpenseChangedEvent.Type.UPDATED,
+                user.getId(), username, expense.getId(), expense.getChangeSeq(), response, convertToResponse(current)));
+        return response;
+    }
+    
+    /**
+     * Applies a merge patch: only the fields it sends that differ from the stored values are
+     * written, in one conditional statement like {@link #updateExpense}. A patch that changes
+     * nothing writes nothing and leaves the version as it is; budget totals are only adjusted
+     * when the amount, category or date moves.
+     *
+     * @throws ExpenseConflictException as for {@link #updateExpense}
+     */
+    @Transactional
+    public ExpenseResponse patchExpense(Long id, ExpensePatch patch, String username) {
+        Expense current = findForWrite(id, username);
+        User user = current.getUser();
+        long version = expectedVersion(current, patch.getVersion());
+    
+        Expense expense = copyOf(current);
+        // Attribute name -> new value, in a fixed order so each set of columns is one statement text
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (patch.has(ExpensePatch.Field.TITLE) && !patch.getTitle().equals(current.getTitle())) {
+            expense.setTitle(patch.getTitle());
+            values.put("title", expense.getTitle());
+        }
+        if (patch.has(ExpensePatch.Field.DESCRIPTION) && !Objects.equals(patch.getDescription(), current.getDescription())) {
+            expense.setDescription(patch.getDescription());
+            values.put("description", expense.getDescription());
+        }
+        // Compared by value: the column keeps two decimals, so 12.5 and 12.50 are the same amount
+        if (patch.has(ExpensePatch.Field.AMOUNT) && patch.getAmount().compareTo(current.getAmount()) != 0) {
+            expense.setAmount(patch.getAmount());
+            values.put("amount", expense.getAmount());
+        }
+        if (patch.has(ExpensePatch.Field.CATEGORY) && !patch.getCategory().equals(current.getCategory())) {
+            expense.setCategory(patch.getCategory());
+            values.put("category", expense.getCategory());
+        }
+        if (patch.has(ExpensePatch.Field.TAGS)) {
+            String tags = ExpenseTags.join(patch.getTags());
+            if (!Objects.equals(tags, current.getTags())) {
+                expense.setTags(tags);
+                values.put("tags", tags);
+            }
+        }
+        if (patch.has(ExpensePatch.Field.EXPENSE_DATE) && !patch.getExpenseDate().equals(current.getExpenseDate())) {
+            expense.setExpenseDate(patch.getExpenseDate());
+            values.put("expenseDate", expense.getExpenseDate());
+        }
+        if (values.isEmpty()) {
+            return convertToResponse(current);
+        }
+    
+        boolean moved = values.containsKey("amount") || values.containsKey("category")
+                || values.containsKey("expenseDate");
+        if (moved || values.containsKey("title")) {
+            expense.setFingerprint(ExpenseFingerprints.of(expense.getTitle(), expense.getAmount(),
+                    expense.getExpenseDate()));
+            values.put("fingerprint", expense.getFingerprint());
+        }
+        expense.setUpdatedAt(LocalDateTime.now());
+        expense.setChangeSeq(nextChangeSeq(user));
+        expense.setVersion(version + 1);
+        values.put("updatedAt", expense.getUpdatedAt());
+        values.put("changeSeq", expense.getChangeSeq());
+        if (expenseRepository.patchIfVersion(id, user.getId(), version, values) == 0) {
+            throw conflict(id);
+        }
+        if (moved) {
+            budgetService.adjust(List.of(BudgetService.TotalChange.removed(user.getId(), username,
+                            current.getCategory(), current.getExpenseDate(), current.getTitle(), current.getAmount()),
+                    new BudgetService.TotalChange(user.getId(), username, expense.getCategory(),
+                            expense.getExpenseDate(), expense.getTitle(), expense.getAmount())));
+        }
+    
+        ExpenseResponse response = convertToResponse(expense);
+        eventPublisher.publishEvent(new ExpenseChangedEvent(ExpenseChangedEvent.Type.UPDATED,
+                user.getId(), username, expense.getId(), expense.getChangeSeq(), response, convertToResponse(current)));
+        return response;
+    }
+    
+    /**
+     * Deletes the expense; with a {@code version}, only if it is still at that version.
+     *
+     * @throws ExpenseConflictException when it is not, or another request changes it meanwhile
+     */
+    @Transactional
+    public void deleteExpense(Long id, Long version, String username) {
+        Expense expense = findForWrite(id, username);
+        User user = expense.getUser();
+        
+        long changeSeq = nextChangeSeq(user);
+        if (expenseRepository.deleteIfVersion(expense.getId(), user.getId(),
+                expectedVersion(expense, version)) == 0) {
+            throw conflict(id);
+        }
+        budgetService.adjust(List.of(BudgetService.TotalChange.removed(user.getId(), username,
+                expense.getCategory(), expense.getExpenseDate(), expense.getTitle(), expense.getAmount())));
+        tombstoneRepository.save(new ExpenseTombstone(expense.getId(), user.getId(), changeSeq));
+        eventPublisher.publishEvent(new ExpenseChangedEvent(ExpenseChangedEvent.Type.DELETED,
+                user.getId(), username, expense.getId(), changeSeq, null, convertToResponse(expense)));
+    }
+    
+    /**
+     * Returns what changed after {@code since}: expenses written and ids deleted, in
+     * change order and capped at {@code limit}. The returned cursor is the value to pass
+     * as {@code since} next time; {@code since = 0} performs a full sync.
+     */
+    @Transactional(readOnly = true)
+    public ExpenseChangesResponse getChanges(long since, int limit, String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        Expense expense = expenseRepository.findByIdAndUserId(id, user.getId())
-                .orElseThrow(() -> new RuntimeException("Expense not found or access denied"));
+        int pageSize = Math.max(1, Math.min(limit, MAX_CHANGES_PAGE));
+        // One extra row from each side tells us whether another page exists
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<Expense> written = expenseRepository
+                .findByUserIdAndChangeSeqGreaterThanOrderByChangeSeqAsc(user.getId(), since, page);
+        written = withArchivedChanges(written, user.getId(), since, pageSize + 1);
+        List<ExpenseTombstone> deleted = tombstoneRepository
+                .findByUserIdAndChangeSeqGreaterThanOrderByChangeSeqAsc(user.getId(), since, page);
         
-        expense.setTitle(request.getTitle());
-        expense.setDescription(request.getDescription());
-        expense.setAmount(request.getAmount());
-        expense.setCategory(request.getCategory());
-        expense.setExpenseDate(request.getExpenseDate());
+        List<ExpenseResponse> upserts = new ArrayList<>();
+        List<Long> deletedIds = new ArrayList<>();
+        long cursor = since;
+        int w = 0;
+        int d = 0;
+        while (upserts.size() + deletedIds.size() < pageSize && (w < written.size() || d < deleted.size())) {
+            boolean takeWritten = d >= deleted.size()
+                    || (w < written.size() && written.get(w).getChangeSeq() < deleted.get(d).getChangeSeq());
+            if (takeWritten) {
+                Expense expense = written.get(w++);
+                upserts.add(convertToResponse(expense));
+                cursor = expense.getChangeSeq();
+            } else {
+                ExpenseTombstone tombstone = deleted.get(d++);
+                deletedIds.add(tombstone.getExpenseId());
+                cursor = tombstone.getChangeSeq();
+            }
+        }
         
-        Expense updatedExpense = expenseRepository.save(expense);
-        return convertToResponse(updatedExpense);
+        boolean hasMore = w < written.size() || d < deleted.size();
+        return new ExpenseChangesResponse(upserts, deletedIds, cursor, hasMore);
     }
     
-    @Transactional
-    public void deleteExpense(Long id, String username) {
+    /**
+     * Weak ETag for the user's expense list. It only reads the user row, so a
+     * matching If-None-Match can be answered without touching the expenses table.
+     * Weak, because the container will not gzip a response that carries a strong one.
+     */
+    @Transactional(readOnly = true)
+    public String getExpensesEtag(String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        Expense expense = expenseRepository.findByIdAndUserId(id, user.getId())
-                .orElseThrow(() -> new RuntimeException("Expense not found or access denied"));
-        
-        expenseRepository.delete(expense);
+        return "W/\"" + user.getId() + "-" + user.getExpensesVersion() + "\"";
+    }
+    
+    /**
+     * Loads an expense that is about to change, with its owner, first restoring it from the
+     * archive if it is no longer in the table. The common case is one query.
+     */
+    private Expense findForWrite(Long id, String username) {
+        Optional<Expense> expense = expenseRepository.findByIdAndUsername(id, username);
+        if (expense.isEmpty()) {
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            if (archiveService.restore(user.getId(), id)) {
+                expense = expenseRepository.findByIdAndUsername(id, username);
+            }
+        }
+        return expense.orElseThrow(() -> new RuntimeException("Expense not found or access denied"));
+    }
+    
+    /**
+     * The version a write must match: the client's, when it sent one, else the one just read.
+     * The write itself then finds out whether anyone wrote in between.
+     */
+    private static long expectedVersion(Expense current, Long requested) {
+        if (requested != null && requested != current.getVersion()) {
+            throw conflict(current.getId());
+        }
+        return current.getVersion();
+    }
+    
+    // A detached copy to apply a patch to, leaving the one read as the old values
+    private static Expense copyOf(Expense current) {
+        Expense copy = new Expense(current.getTitle(), current.getDescription(), current.getAmount(),
+                current.getCategory(), current.getExpenseDate(), current.getUser());
+        copy.setId(current.getId());
+        copy.setTags(current.getTags());
+        copy.setCreatedAt(current.getCreatedAt());
+        copy.setUpdatedAt(current.getUpdatedAt());
+        copy.setChangeSeq(current.getChangeSeq());
+        copy.setFingerprint(current.getFingerprint());
+        copy.setVersion(current.getVersion());
+        return copy;
+    }
+    
+    private static ExpenseConflictException conflict(Long id) {
+        return new ExpenseConflictException("Expense " + id + " was changed or deleted by another request; "
+                + "reload it and try again");
+    }
+    
+    /**
+     * Every expense of the user, hot and archived, in id order.
+     */
+    private List<Expense> findAll(Long userId) {
+        List<Expense> expenses = expenseRepository.findByUserId(userId);
+        List<Expense> archived = archiveService.findArchived(userId);
+        if (!archived.isEmpty()) {
+            // A restored expense is both hot and archived; the hot row is the current one
+            Set<Long> hotIds = new HashSet<>();
+            expenses.forEach(expense -> hotIds.add(expense.getId()));
+            expenses = new ArrayList<>(expenses);
+            for (Expense expense : archived) {
+                if (!hotIds.contains(expense.getId())) {
+                    expenses.add(expense);
+                }
+            }
+            expenses.sort(Comparator.comparing(Expense::getId));
+        }
+        return expenses;
+    }
+    
+    /**
+     * Every fingerprint of the user's expenses, first filling in those of rows stored before
+     * the column existed or restored from the archive without one.
+     */
+    private long[] loadFingerprints(Long userId) {
+        for (Expense expense : expenseRepository.findByUserIdAndFingerprintIsNull(userId)) {
+            expenseRepository.setFingerprint(expense.getId(),
+                    ExpenseFingerprints.of(expense.getTitle(), expense.getAmount(), expense.getExpenseDate()));
+        }
+        return expenseRepository.findFingerprintsByUserId(userId).stream().mapToLong(Long::longValue).toArray();
+    }
+    
+    private Map<String, Long> countTerms(Long userId, AutocompleteIndex.Field field) {
+        List<Object[]> rows = field == AutocompleteIndex.Field.TITLE
+                ? expenseRepository.countTitlesByUserId(userId)
+                : expenseRepository.countCategoriesByUserId(userId);
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+    
+    private List<Expense> withArchivedChanges(List<Expense> written, Long userId, long since, int max) {
+        List<Expense> archived = archiveService.findArchivedChanges(userId, since);
+        if (archived.isEmpty()) {
+            return written;
+        }
+        List<Expense> merged = new ArrayList<>(written);
+        merged.addAll(archived);
+        merged.sort(Comparator.comparingLong(Expense::getChangeSeq));
+        return merged.size() > max ? merged.subList(0, max) : merged;
+    }
+    
+    /**
+     * Bumps the user's expenses_version and returns the new value. The UPDATE locks the
+     * user row until commit, so concurrent writers of one user get strictly ordered values.
+     */
+    private long nextChangeSeq(User user) {
+        userRepository.incrementExpensesVersion(user.getId());
+        return userRepository.findExpensesVersionById(user.getId());
     }
     
     private ExpenseResponse convertToResponse(Expense expense) {
@@ -94,9 +535,11 @@ public class ExpenseService {
                 expense.getDescription(),
                 expense.getAmount(),
                 expense.getCategory(),
+                ExpenseTags.split(expense.getTags()),
                 expense.getExpenseDate(),
                 expense.getCreatedAt(),
-                expense.getUpdatedAt()
+                expense.getUpdatedAt(),
+                expense.getVersion()
         );
     }
 }
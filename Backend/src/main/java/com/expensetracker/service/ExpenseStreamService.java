@@ -0,0 +1,250 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.ExpenseChangeMessage;
+import com.expensetracker.event.BudgetAlertEvent;
+import com.expensetracker.event.ExpenseChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes committed expense changes to the user's open Server-Sent Events streams.
+ * <p>
+ * Idle connections cost an emitter and a small queue, no thread. Publishing only
+ * enqueues; a small shared sender pool drains each connection's queue. A connection
+ * whose queue is full is closed instead of slowing everyone else down - the client
+ * reconnects and catches up through the change feed using the last event id it saw.
+ */
+@Service
+public class ExpenseStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpenseStreamService.class);
+
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+
+    @Value("${expenses.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${expenses.stream.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    @Value("${expenses.stream.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${expenses.stream.max-connections-per-user:8}")
+    private int maxConnectionsPerUser;
+
+    @Value("${expenses.stream.sender-threads:4}")
+    private int senderThreads;
+
+    private final ConcurrentMap<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private ExecutorService sender;
+
+    private ScheduledExecutorService heartbeat;
+
+    @PostConstruct
+    void start() {
+        sender = Executors.newFixedThreadPool(senderThreads, daemonThreads("sse-sender-"));
+        heartbeat = Executors.newSingleThreadScheduledExecutor(daemonThreads("sse-heartbeat-"));
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        heartbeat.shutdownNow();
+        sender.shutdownNow();
+        subscribers.values().forEach(list -> list.forEach(Subscriber::close));
+        subscribers.clear();
+    }
+
+    public SseEmitter subscribe(String username) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(username, emitter);
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+
+        // Added and trimmed under the map's lock so a concurrent remove() cannot drop the list
+        // in between; forgotten tabs should not pin memory forever, the oldest connections give way
+        List<Subscriber> evicted = new ArrayList<>();
+        subscribers.compute(username, (k, connections) -> {
+            List<Subscriber> current = connections == null ? new CopyOnWriteArrayList<>() : connections;
+            current.add(subscriber);
+            while (current.size() > maxConnectionsPerUser) {
+                evicted.add(current.remove(0));
+            }
+            return current;
+        });
+        evicted.forEach(Subscriber::close);
+
+        subscriber.offer(SseEmitter.event().reconnectTime(heartbeatMs).comment("connected").build());
+        return emitter;
+    }
+
+    public int getSubscriberCount(String username) {
+        List<Subscriber> connections = subscribers.get(username);
+        return connections == null ? 0 : connections.size();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        List<Subscriber> connections = subscribers.get(event.getUsername());
+        if (connections == null || connections.isEmpty()) {
+            return;
+        }
+
+        ExpenseChangeMessage message = new ExpenseChangeMessage(
+                event.getType().name(), event.getExpenseId(), event.getChangeSeq(), event.getExpense());
+        Set<DataWithMediaType> frame = SseEmitter.event()
+                .id(Long.toString(event.getChangeSeq()))
+                .name("expense")
+                .data(message, MediaType.APPLICATION_JSON)
+                .build();
+        for (Subscriber subscriber : connections) {
+            subscriber.offer(frame);
+        }
+    }
+
+    /**
+     * Budget alerts go out as {@code budget} events without an id, so they do not move the
+     * client's change feed position.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onBudgetAlert(BudgetAlertEvent event) {
+        List<Subscriber> connections = subscribers.get(event.getUsername());
+        if (connections == null || connections.isEmpty()) {
+            return;
+        }
+
+        Set<DataWithMediaType> frame = SseEmitter.event()
+                .name("budget")
+                .data(event.getStatus(), MediaType.APPLICATION_JSON)
+                .build();
+        for (Subscriber subscriber : connections) {
+            subscriber.offer(frame);
+        }
+    }
+
+    private void sendHeartbeats() {
+        for (List<Subscriber> connections : subscribers.values()) {
+            for (Subscriber subscriber : connections) {
+                // A connection that already has frames queued needs no keep-alive
+                if (subscriber.queue.isEmpty()) {
+                    subscriber.offer(HEARTBEAT);
+                }
+            }
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.username, (k, connections) -> {
+            connections.remove(subscriber);
+            return connections.isEmpty() ? null : connections;
+        });
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class Subscriber implements Runnable {
+
+        private final String username;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<DataWithMediaType>> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(String username, SseEmitter emitter) {
+            this.username = username;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        void offer(Set<DataWithMediaType> frame) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(frame)) {
+                logger.debug("Dropping slow event stream of user {}", username);
+                close();
+                return;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this);
+                } catch (RejectedExecutionException e) {
+                    close();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Set<DataWithMediaType> frame;
+                while (!closed && (frame = queue.poll()) != null) {
+                    emitter.send(frame);
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+            } finally {
+                scheduled.set(false);
+                // A frame may have been queued after the last poll but before the flag was cleared
+                if (!closed && !queue.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.clear();
+            remove(this);
+            try {
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                // Already completed by the container
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.expensetracker.service;
+
+import com.expensetracker.archive.ExpenseArchiveService;
+import com.expensetracker.datasource.ReadYourWritesTracker;
+import com.expensetracker.dto.ReceiptResponse;
+import com.expensetracker.entity.ExpenseReceipt;
+import com.expensetracker.entity.User;
+import com.expensetracker.event.ExpenseChangedEvent;
+import com.expensetracker.repository.ExpenseReceiptRepository;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.UserRepository;
+import com.expensetracker.sharding.ShardContext;
+import com.expensetracker.sharding.ShardRoutingDataSource;
+import com.expensetracker.storage.ReceiptStore;
+import com.expensetracker.storage.ReceiptTooLargeException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Receipts attached to expenses: rows in expense_receipts pointing at files in the
+ * {@link ReceiptStore}.
+ * <p>
+ * Uploads are not transactional. The body can take seconds to arrive and must not hold a
+ * connection meanwhile, so the expense is checked first and the row is written after the file.
+ * Writes therefore mark the owner for read-your-writes themselves, once their row has committed.
+ */
+@Service
+public class ReceiptService {
+
+    @Autowired
+    private ExpenseReceiptRepository receiptRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ExpenseArchiveService archiveService;
+
+    @Autowired
+    private ReceiptStore receiptStore;
+
+    @Autowired
+    private ReadYourWritesTracker readYourWrites;
+
+    // Present only when sharding is configured
+    @Autowired(required = false)
+    private ShardRoutingDataSource shardRouting;
+
+    @Value("${receipts.max-bytes:10485760}")
+    private long maxBytes;
+
+    @Value("${receipts.max-per-expense:10}")
+    private int maxPerExpense;
+
+    /**
+     * Attaches the body to the user's expense (hot or archived).
+     *
+     * @param contentLength the declared length, or -1 when the body is chunked
+     */
+    public ReceiptResponse upload(Long expenseId, String filename, long contentLength, InputStream body,
+                                  String username) throws IOException {
+        User user = findUser(username);
+        requireExpense(user.getId(), expenseId);
+        if (contentLength > maxBytes) {
+            throw new ReceiptTooLargeException(maxBytes);
+        }
+        if (receiptRepository.countByUserIdAndExpenseId(user.getId(), expenseId) >= maxPerExpense) {
+            throw new RuntimeException("An expense can have at most " + maxPerExpense + " receipts");
+        }
+
+        ReceiptStore.Upload upload = receiptStore.receive(body, maxBytes);
+        if (upload.getContentType() == null) {
+            receiptStore.discard(upload);
+            throw new RuntimeException("Receipts must be JPEG, PNG, WebP or PDF files");
+        }
+        ExpenseReceipt receipt = new ExpenseReceipt(expenseId, user.getId(), upload.getSha256(),
+                upload.getContentType(), upload.getSize(), cleanFilename(filename, upload.getContentType()));
+        ExpenseReceipt saved = receiptStore.keep(upload, () -> receiptRepository.save(receipt));
+        readYourWrites.markWrite(username);
+        return convertToResponse(saved);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ReceiptResponse> getReceipts(Long expenseId, String username) {
+        User user = findUser(username);
+        return receiptRepository.findByUserIdAndExpenseIdOrderByIdAsc(user.getId(), expenseId).stream()
+                .map(this::convertToResponse)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public ReceiptResponse getReceipt(Long expenseId, Long receiptId, String username) {
+        User user = findUser(username);
+        return convertToResponse(findReceipt(user.getId(), expenseId, receiptId));
+    }
+
+    public Path getFile(ReceiptResponse receipt) {
+        return receiptStore.path(receipt.getSha256());
+    }
+
+    /**
+     * Deletes the row, then the file once the delete has committed and no other receipt has
+     * the same content.
+     */
+    public void deleteReceipt(Long expenseId, Long receiptId, String username) {
+        User user = findUser(username);
+        ExpenseReceipt receipt = findReceipt(user.getId(), expenseId, receiptId);
+        receiptRepository.delete(receipt);
+        readYourWrites.markWrite(username);
+        receiptStore.release(receipt.getSha256(), () -> isReferenced(receipt.getSha256()));
+    }
+
+    /**
+     * Drops the receipts of a deleted expense. Runs outside the committed transaction so the
+     * deletes commit on their own before the files are released.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        if (event.getType() != ExpenseChangedEvent.Type.DELETED) {
+            return;
+        }
+        List<ExpenseReceipt> receipts = receiptRepository.findByUserIdAndExpenseIdOrderByIdAsc(
+                event.getUserId(), event.getExpenseId());
+        if (receipts.isEmpty()) {
+            return;
+        }
+        receiptRepository.deleteAll(receipts);
+        Set<String> contents = new LinkedHashSet<>();
+        receipts.forEach(receipt -> contents.add(receipt.getSha256()));
+        for (String sha256 : contents) {
+            receiptStore.release(sha256, () -> isReferenced(sha256));
+        }
+    }
+
+    /**
+     * Whether any user still has a receipt with the content. Identical files are shared
+     * across users, so with sharding every shard is asked.
+     */
+    private boolean isReferenced(String sha256) {
+        if (shardRouting == null) {
+            return receiptRepository.existsBySha256(sha256);
+        }
+        for (int shard = 0; shard < shardRouting.getShardCount(); shard++) {
+            if (ShardContext.callOnShard(shard, () -> receiptRepository.existsBySha256(sha256))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void requireExpense(Long userId, Long expenseId) {
+        if (expenseRepository.findByIdAndUserId(expenseId, userId).isEmpty()
+                && archiveService.findArchived(userId, expenseId).isEmpty()) {
+            throw new RuntimeException("Expense not found or access denied");
+        }
+    }
+
+    private ExpenseReceipt findReceipt(Long userId, Long expenseId, Long receiptId) {
+        return receiptRepository.findByIdAndUserIdAndExpenseId(receiptId, userId, expenseId)
+                .orElseThrow(() -> new RuntimeException("Receipt not found or access denied"));
+    }
+
+    private User findUser(String username) {
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    /**
+     * The client's file name without any directories or control characters, or a default
+     * one for the content type.
+     */
+    static String cleanFilename(String filename, String contentType) {
+        String cleaned = filename == null ? "" : filename.replaceAll("[\\p{Cntrl}\"]", "");
+        cleaned = cleaned.substring(Math.max(cleaned.lastIndexOf('/'), cleaned.lastIndexOf('\\')) + 1).trim();
+        if (cleaned.isEmpty()) {
+            return "receipt" + switch (contentType) {
+                case "image/jpeg" -> ".jpg";
+                case "image/png" -> ".png";
+                case "image/webp" -> ".webp";
+                default -> ".pdf";
+            };
+        }
+        return cleaned.length() > 255 ? cleaned.substring(cleaned.length() - 255) : cleaned;
+    }
+
+    private ReceiptResponse convertToResponse(ExpenseReceipt receipt) {
+        return new ReceiptResponse(receipt.getId(), receipt.getExpenseId(), receipt.getFilename(),
+                receipt.getContentType(), receipt.getSize(), receipt.getSha256(), receipt.getCreatedAt());
+    }
+}
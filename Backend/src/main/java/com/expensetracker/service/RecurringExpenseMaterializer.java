@@ -0,0 +1,377 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.event.ExpenseChangedEvent;
+import com.expensetracker.sharding.ShardContext;
+import com.expensetracker.sharding.ShardRoutingDataSource;
+import com.expensetracker.util.ExpenseFingerprints;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+/**
+ * Creates the expenses that recurring expenses are due for, on a schedule thread.
+ * <p>
+ * A run walks all recurring expenses due by its run date in id order, {@code batch-size} at a
+ * time. Each batch is one transaction: it moves every rule's next_due_date forward (guarded by
+ * the old value, so a rule is claimed by exactly one run), inserts the instances with
+ * multi-row INSERTs and advances the run's checkpoint in recurring_expense_runs. A run that
+ * was interrupted is resumed from its checkpoint next time.
+ */
+@Service
+public class RecurringExpenseMaterializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecurringExpenseMaterializer.class);
+
+    private static final String INSERT_COLUMNS = "insert into expenses "
+            + "(title, description, amount, category, expense_date, created_at, updated_at, change_seq, fingerprint, user_id) "
+            + "values ";
+
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_DUE = "select r.id, r.title, r.description, r.amount, r.category, "
+            + "r.schedule, r.end_date, r.next_due_date, r.user_id, u.username "
+            + "from recurring_expenses r join users u on u.id = r.user_id "
+            + "where r.id > ? and r.next_due_date <= ? order by r.id limit ?";
+
+    @Value("${expenses.recurring.enabled:true}")
+    private boolean enabled;
+
+    @Value("${expenses.recurring.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${expenses.recurring.insert-rows:500}")
+    private int insertRows;
+
+    // Bounds the backfill of a rule that starts far in the past; the rest follows on later runs
+    @Value("${expenses.recurring.max-catch-up:366}")
+    private int maxCatchUp;
+
+    // Bind temporal values the way Hibernate does, so JPA reads these rows back unchanged
+    @Value("${spring.jpa.properties.hibernate.jdbc.time_zone:}")
+    private String jdbcTimeZone;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private BudgetService budgetService;
+
+    // Present only when sharding is configured
+    @Autowired(required = false)
+    private ShardRoutingDataSource shardRouting;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(cron = "${expenses.recurring.cron:0 5 0 * * *}")
+    public void materializeScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long created = materializeDue(LocalDate.now());
+            logger.info("Created {} recurring expense instances", created);
+        } catch (RuntimeException e) {
+            logger.error("Recurring expense run failed", e);
+        }
+    }
+
+    /**
+     * Creates every instance due on or before {@code today} and returns how many were created.
+     * Safe to call repeatedly and from several instances at once.
+     */
+    public long materializeDue(LocalDate today) {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Recurring expense run already in progress");
+            return 0;
+        }
+        try {
+            if (shardRouting == null) {
+                return materializeShard(today);
+            }
+            long created = 0;
+            for (int shard = 0; shard < shardRouting.getShardCount(); shard++) {
+                created += ShardContext.callOnShard(shard, () -> materializeShard(today));
+            }
+            return created;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long materializeShard(LocalDate today) {
+        long created = 0;
+        while (true) {
+            Run run = resumeOrStart(today);
+            created += finish(run);
+            // A resumed run may be from an earlier day; go on with today's
+            if (!run.runDate.isBefore(today)) {
+                return created;
+            }
+        }
+    }
+
+    private Run resumeOrStart(LocalDate today) {
+        Calendar calendar = calendar();
+        List<Run> unfinished = jdbcTemplate.query("select id, run_date, last_recurring_id from recurring_expense_runs "
+                + "where finished_at is null order by id limit 1", (rs, rowNum) -> new Run(rs.getLong("id"),
+                rs.getDate("run_date", calendar).toLocalDate(), rs.getLong("last_recurring_id")));
+        if (!unfinished.isEmpty()) {
+            Run run = unfinished.get(0);
+            logger.info("Resuming recurring expense run {} for {} after id {}", run.id, run.runDate, run.lastRecurringId);
+            return run;
+        }
+        KeyHolder key = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement("insert into recurring_expense_runs "
+                    + "(run_date, last_recurring_id, instances, started_at) values (?, 0, 0, ?)", Statement.RETURN_GENERATED_KEYS);
+            ps.setDate(1, Date.valueOf(today), calendar);
+            ps.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()), calendar);
+            return ps;
+        }, key);
+        return new Run(key.getKey().longValue(), today, 0);
+    }
+
+    private long finish(Run run) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Map<String, CronExpression> schedules = new HashMap<>();
+        long created = 0;
+        long lastId = run.lastRecurringId;
+        while (true) {
+            Calendar calendar = calendar();
+            List<Due> batch = jdbcTemplate.query(SELECT_DUE, (rs, rowNum) -> mapDue(rs, calendar),
+                    lastId, Date.valueOf(run.runDate), batchSize);
+            if (batch.isEmpty()) {
+                jdbcTemplate.update("update recurring_expense_runs set finished_at = ? where id = ?",
+                        Timestamp.valueOf(LocalDateTime.now()), run.id);
+                return created;
+            }
+            List<ExpenseChangedEvent> events = transactionTemplate.execute(
+                    status -> materialize(batch, run, schedules));
+            events.forEach(eventPublisher::publishEvent);
+            created += events.size();
+            lastId = batch.get(batch.size() - 1).id;
+        }
+    }
+
+    private List<ExpenseChangedEvent> materialize(List<Due> page, Run run, Map<String, CronExpression> schedules) {
+        long lastId = page.get(page.size() - 1).id;
+        // Rules of a user being moved keep their due date; the next run creates the instances
+        // on the user's new shard
+        List<Due> batch = shardRouting == null ? page
+                : page.stream().filter(due -> !shardRouting.isMoving(due.username)).toList();
+        Calendar calendar = calendar();
+        LocalDateTime now = LocalDateTime.now();
+        for (Due due : batch) {
+            CronExpression schedule = schedules.computeIfAbsent(due.schedule, RecurringExpenseService::parseSchedule);
+            LocalDate date = due.nextDueDate;
+            while (date != null && !date.isAfter(run.runDate) && due.dates.size() < maxCatchUp) {
+                due.dates.add(date);
+                date = RecurringExpenseService.nextOccurrence(schedule, date.plusDays(1), due.endDate);
+            }
+            due.newNextDueDate = date;
+        }
+
+        // Claim the rules; one that another run or an edit moved on meanwhile is left alone
+        int[] claimed = jdbcTemplate.batchUpdate("update recurring_expenses set next_due_date = ?, updated_at = ? "
+                + "where id = ? and next_due_date = ?", new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Due due = batch.get(i);
+                if (due.newNextDueDate == null) {
+                    ps.setNull(1, Types.DATE);
+                } else {
+                    ps.setDate(1, Date.valueOf(due.newNextDueDate), calendar);
+                }
+                ps.setTimestamp(2, Timestamp.valueOf(now), calendar);
+                ps.setLong(3, due.id);
+                ps.setDate(4, Date.valueOf(due.nextDueDate), calendar);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+        List<Instance> instances = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (claimed[i] > 0) {
+                for (LocalDate date : batch.get(i).dates) {
+                    instances.add(new Instance(batch.get(i), date));
+                }
+            }
+        }
+
+        reserveChangeSeqs(instances);
+        List<ExpenseChangedEvent> events = new ArrayList<>(instances.size());
+        for (int from = 0; from < instances.size(); from += insertRows) {
+            insert(instances.subList(from, Math.min(from + insertRows, instances.size())), now, calendar, events);
+        }
+        budgetService.adjust(instances.stream().map(instance -> new BudgetService.TotalChange(instance.due.userId,
+                instance.due.username, instance.due.category, instance.date, instance.due.title,
+                instance.due.amount)).toList());
+        jdbcTemplate.update("update recurring_expense_runs set last_recurring_id = ?, instances = instances + ? where id = ?",
+                lastId, instances.size(), run.id);
+        return events;
+    }
+
+    /**
+     * Bumps each user's expenses_version once for all of their instances, in user id order so
+     * concurrent writers cannot deadlock, and hands out the reserved values in order.
+     */
+    private void reserveChangeSeqs(List<Instance> instances) {
+        Map<Long, Integer> counts = new TreeMap<>();
+        instances.forEach(instance -> counts.merge(instance.due.userId, 1, Integer::sum));
+        Map<Long, Long> nextSeq = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : counts.entrySet()) {
+            jdbcTemplate.update("update users set expenses_version = expenses_version + ? where id = ?",
+                    entry.getValue(), entry.getKey());
+            Long version = jdbcTemplate.queryForObject("select expenses_version from users where id = ?",
+                    Long.class, entry.getKey());
+            nextSeq.put(entry.getKey(), version - entry.getValue() + 1);
+        }
+        for (Instance instance : instances) {
+            instance.changeSeq = nextSeq.merge(instance.due.userId, 1L, Long::sum) - 1;
+        }
+    }
+
+    private void insert(List<Instance> rows, LocalDateTime now, Calendar calendar, List<ExpenseChangedEvent> events) {
+        String sql = INSERT_COLUMNS + String.join(", ", Collections.nCopies(rows.size(), ROW_PLACEHOLDERS));
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            int p = 1;
+            for (Instance row : rows) {
+                ps.setString(p++, row.due.title);
+                ps.setString(p++, row.due.description);
+                ps.setBigDecimal(p++, row.due.amount);
+                ps.setString(p++, row.due.category);
+                ps.setDate(p++, Date.valueOf(row.date), calendar);
+                ps.setTimestamp(p++, Timestamp.valueOf(now), calendar);
+                ps.setTimestamp(p++, Timestamp.valueOf(now), calendar);
+                ps.setLong(p++, row.changeSeq);
+                ps.setLong(p++, ExpenseFingerprints.of(row.due.title, row.due.amount, row.date));
+                ps.setLong(p++, row.due.userId);
+            }
+            return ps;
+        }, keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        if (generated.size() != rows.size()) {
+            throw new IllegalStateException("Expected " + rows.size() + " generated ids, got " + generated.size());
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            Instance row = rows.get(i);
+            Long id = ((Number) generated.get(i).values().iterator().next()).longValue();
+            ExpenseResponse response = new ExpenseResponse(id, row.due.title, row.due.description,
+                    row.due.amount, row.due.category, row.date, now, now);
+            events.add(new ExpenseChangedEvent(ExpenseChangedEvent.Type.CREATED,
+                    row.due.userId, row.due.username, id, row.changeSeq, response));
+        }
+    }
+
+    private static Due mapDue(ResultSet rs, Calendar calendar) throws SQLException {
+        Date endDate = rs.getDate("end_date", calendar);
+        return new Due(rs.getLong("id"), rs.getString("title"), rs.getString("description"),
+                rs.getBigDecimal("amount"), rs.getString("category"), rs.getString("schedule"),
+                endDate == null ? null : endDate.toLocalDate(), rs.getDate("next_due_date", calendar).toLocalDate(),
+                rs.getLong("user_id"), rs.getString("username"));
+    }
+
+    private Calendar calendar() {
+        return StringUtils.hasText(jdbcTimeZone)
+                ? Calendar.getInstance(TimeZone.getTimeZone(jdbcTimeZone)) : Calendar.getInstance();
+    }
+
+    private static final class Run {
+
+        private final long id;
+        private final LocalDate runDate;
+        private final long lastRecurringId;
+
+        Run(long id, LocalDate runDate, long lastRecurringId) {
+            this.id = id;
+            this.runDate = runDate;
+            this.lastRecurringId = lastRecurringId;
+        }
+    }
+
+    private static final class Due {
+
+        private final long id;
+        private final String title;
+        private final String description;
+        private final BigDecimal amount;
+        private final String category;
+        private final String schedule;
+        private final LocalDate endDate;
+        private final LocalDate nextDueDate;
+        private final long userId;
+        private final String username;
+        private final List<LocalDate> dates = new ArrayList<>();
+        private LocalDate newNextDueDate;
+
+        Due(long id, String title, String description, BigDecimal amount, String category, String schedule,
+            LocalDate endDate, LocalDate nextDueDate, long userId, String username) {
+            this.id = id;
+            this.title = title;
+            this.description = description;
+            this.amount = amount;
+            this.category = category;
+            this.schedule = schedule;
+            this.endDate = endDate;
+            this.nextDueDate = nextDueDate;
+            this.userId = userId;
+            this.username = username;
+        }
+    }
+
+    private static final class Instance {
+
+        private final Due due;
+        private final LocalDate date;
+        private long changeSeq;
+
+        Instance(Due due, LocalDate date) {
+            this.due = due;
+            this.date = date;
+        }
+    }
+}
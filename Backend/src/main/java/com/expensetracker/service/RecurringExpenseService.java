@@ -0,0 +1,117 @@
+package com.expensetracker.service;
+
+import com.expensetracker.datasource.ReadYourWritesTracker;
+import com.expensetracker.dto.RecurringExpenseRequest;
+import com.expensetracker.dto.RecurringExpenseResponse;
+import com.expensetracker.entity.RecurringExpense;
+import com.expensetracker.entity.User;
+import com.expensetracker.repository.RecurringExpenseRepository;
+import com.expensetracker.repository.UserRepository;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+
+@Service
+public class RecurringExpenseService {
+    
+    @Autowired
+    private RecurringExpenseRepository recurringExpenseRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ReadYourWritesTracker readYourWrites;
+    
+    @Transactional
+    public RecurringExpenseResponse createRecurringExpense(RecurringExpenseRequest request, String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        CronExpression schedule = parseSchedule(request.getSchedule());
+        if (request.getEndDate() != null && request.getEndDate().isBefore(request.getStartDate())) {
+            throw new RuntimeException("End date must not be before start date");
+        }
+        
+        RecurringExpense recurring = new RecurringExpense();
+        recurring.setTitle(request.getTitle());
+        recurring.setDescription(request.getDescription());
+        recurring.setAmount(request.getAmount());
+        recurring.setCategory(request.getCategory());
+        recurring.setSchedule(request.getSchedule().trim());
+        recurring.setStartDate(request.getStartDate());
+        recurring.setEndDate(request.getEndDate());
+        recurring.setNextDueDate(nextOccurrence(schedule, request.getStartDate(), request.getEndDate()));
+        recurring.setUser(user);
+        
+        RecurringExpense saved = recurringExpenseRepository.save(recurring);
+        // The list the client reloads next must come from a copy that has the new rule
+        readYourWrites.markOnCommit(username);
+        return convertToResponse(saved);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<RecurringExpenseResponse> getRecurringExpenses(String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        return recurringExpenseRepository.findByUserIdOrderByIdAsc(user.getId()).stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Stops the schedule. Expenses it already created are kept.
+     */
+    @Transactional
+    public void deleteRecurringExpense(Long id, String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        RecurringExpense recurring = recurringExpenseRepository.findByIdAndUserId(id, user.getId())
+                .orElseThrow(() -> new RuntimeException("Recurring expense not found or access denied"));
+        
+        recurringExpenseRepository.delete(recurring);
+        readYourWrites.markOnCommit(username);
+    }
+    
+    static CronExpression parseSchedule(String schedule) {
+        try {
+            return CronExpression.parse(schedule.trim());
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid schedule: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * The first date on or after {@code from} that the schedule matches at any time of day,
+     * or null if there is none up to {@code endDate}.
+     */
+    static LocalDate nextOccurrence(CronExpression schedule, LocalDate from, LocalDate endDate) {
+        LocalDateTime next = schedule.next(from.atStartOfDay().minusNanos(1));
+        if (next == null || (endDate != null && next.toLocalDate().isAfter(endDate))) {
+            return null;
+        }
+        return next.toLocalDate();
+    }
+    
+    private RecurringExpenseResponse convertToResponse(RecurringExpense recurring) {
+        return new RecurringExpenseResponse(
+                recurring.getId(),
+                recurring.getTitle(),
+                recurring.getDescription(),
+                recurring.getAmount(),
+                recurring.getCategory(),
+                recurring.getSchedule(),
+                recurring.getStartDate(),
+                recurring.getEndDate(),
+                recurring.getNextDueDate()
+        );
+    }
+}
@@ -0,0 +1,263 @@
+package com.expensetracker.service;
+
+import com.expensetracker.archive.ExpenseArchiveService;
+import com.expensetracker.dto.HistogramBin;
+import com.expensetracker.dto.RankedTitle;
+import com.expensetracker.dto.SpendingDistributionResponse;
+import com.expensetracker.dto.TopTitlesResponse;
+import com.expensetracker.entity.Expense;
+import com.expensetracker.entity.User;
+import com.expensetracker.repository.UserRepository;
+import com.expensetracker.stats.AmountSketch;
+import com.expensetracker.stats.MonthAggregates;
+import com.expensetracker.stats.SpaceSaving;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+/**
+ * How a user's expense amounts are distributed per category over a range of months, and
+ * where the money goes by title.
+ * <p>
+ * Answered from the {@link MonthAggregates} that {@link BudgetService} keeps next to each
+ * month total: a year of one category is twelve small sketches merged, not a sort of its
+ * expenses. Quantiles are within {@value AmountSketch#RELATIVE_ACCURACY} of the exact ones,
+ * relatively; counts and totals are exact.
+ */
+@Service
+public class SpendingDistributionService {
+
+    // Upper bounds of the histogram bins in each decade
+    private static final int[] BIN_STEPS = {1, 2, 5};
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ExpenseArchiveService archiveService;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.time_zone:}")
+    private String jdbcTimeZone;
+
+    /**
+     * One distribution per category with expenses between the start of {@code from} and the
+     * end of {@code to}, or only {@code category}'s when given.
+     * <p>
+     * Not read-only: the first query over totals kept from before their aggregates builds and
+     * stores them.
+     */
+    @Transactional
+    public List<SpendingDistributionResponse> getDistribution(YearMonth from, YearMonth to, String category,
+                                                              String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        if (from.isAfter(to)) {
+            throw new RuntimeException("'from' must not be after 'to'");
+        }
+
+        Map<String, BigDecimal> totals = new HashMap<>();
+        Map<String, List<MonthAggregates>> aggregates = aggregates(user.getId(), from, to, category, totals);
+        List<SpendingDistributionResponse> distributions = new ArrayList<>();
+        aggregates.forEach((rowCategory, months) -> {
+            AmountSketch sketch = new AmountSketch();
+            months.forEach(month -> sketch.merge(month.getAmounts()));
+            if (sketch.getCount() > 0) {
+                distributions.add(new SpendingDistributionResponse(rowCategory, from.atDay(1), to.atEndOfMonth(),
+                        sketch.getCount(), totals.get(rowCategory), amount(sketch.quantile(0.5)),
+                        amount(sketch.quantile(0.9)), amount(sketch.quantile(0.99)), amount(sketch.getMax()),
+                        histogram(sketch)));
+            }
+        });
+        return distributions;
+    }
+
+    /**
+     * The {@code limit} titles with the most expenses, and those with the highest amount, over
+     * the months {@code from} to {@code to} and all categories or only {@code category}.
+     * Titles are compared normalized. Each count and amount is within its {@code error} of the
+     * true one; below the summaries' capacity per category and month, they are exact.
+     */
+    @Transactional
+    public TopTitlesResponse getTopTitles(YearMonth from, YearMonth to, String category, int limit, String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        if (from.isAfter(to)) {
+            throw new RuntimeException("'from' must not be after 'to'");
+        }
+
+        List<SpaceSaving> counts = new ArrayList<>();
+        List<SpaceSaving> amounts = new ArrayList<>();
+        aggregates(user.getId(), from, to, category, new HashMap<>()).values().forEach(months -> months.forEach(month -> {
+            counts.add(month.getTitleCounts());
+            amounts.add(month.getTitleAmounts());
+        }));
+        return new TopTitlesResponse(from.atDay(1), to.atEndOfMonth(),
+                ranked(SpaceSaving.union(counts), limit, 0), ranked(SpaceSaving.union(amounts), limit, 2));
+    }
+
+    /**
+     * Every stored (category, month) of the range with its aggregates, adding the totals to
+     * {@code totals}. Rows without aggregates get them rebuilt.
+     */
+    private Map<String, List<MonthAggregates>> aggregates(Long userId, YearMonth from, YearMonth to, String category,
+                                                         Map<String, BigDecimal> totals) {
+        Calendar calendar = calendar();
+        Map<String, List<MonthAggregates>> aggregates = new TreeMap<>();
+        Map<String, Set<LocalDate>> missing = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("select category, month_start, total, amount_sketch, "
+                    + "title_counts, title_amounts from expense_month_totals where user_id = ? "
+                    + "and month_start between ? and ?" + (category == null ? "" : " and category = ?"));
+            ps.setLong(1, userId);
+            ps.setDate(2, Date.valueOf(from.atDay(1)), calendar);
+            ps.setDate(3, Date.valueOf(to.atDay(1)), calendar);
+            if (category != null) {
+                ps.setString(4, category);
+            }
+            return ps;
+        }, rs -> {
+            String rowCategory = rs.getString("category");
+            totals.merge(rowCategory, rs.getBigDecimal("total"), BigDecimal::add);
+            MonthAggregates month = MonthAggregates.fromBytes(rs.getBytes("amount_sketch"),
+                    rs.getBytes("title_counts"), rs.getBytes("title_amounts"));
+            if (month == null) {
+                missing.computeIfAbsent(rowCategory, key -> new HashSet<>())
+                        .add(rs.getDate("month_start", calendar).toLocalDate());
+            } else {
+                aggregates.computeIfAbsent(rowCategory, key -> new ArrayList<>()).add(month);
+            }
+        });
+        if (!missing.isEmpty()) {
+            rebuild(userId, missing, calendar).forEach((rowCategory, months) ->
+                    aggregates.computeIfAbsent(rowCategory, key -> new ArrayList<>()).addAll(months.values()));
+        }
+        return aggregates;
+    }
+
+    /**
+     * Aggregates the given months of each category from the expenses, hot and archived, and
+     * stores them. Takes the users row lock first, as writers do, so no write can land between
+     * reading the expenses and storing their aggregates.
+     */
+    private Map<String, Map<LocalDate, MonthAggregates>> rebuild(Long userId, Map<String, Set<LocalDate>> months,
+                                                                 Calendar calendar) {
+        jdbcTemplate.queryForList("select id from users where id = ? for update", Long.class, userId);
+
+        Map<String, Map<LocalDate, MonthAggregates>> rebuilt = new HashMap<>();
+        months.forEach((category, starts) -> {
+            Map<LocalDate, MonthAggregates> byMonth = new HashMap<>();
+            starts.forEach(start -> byMonth.put(start, new MonthAggregates()));
+            rebuilt.put(category, byMonth);
+        });
+        Set<Long> hotIds = new HashSet<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "select id, title, category, expense_date, amount from expenses where user_id = ? order by id");
+            ps.setLong(1, userId);
+            return ps;
+        }, rs -> {
+            hotIds.add(rs.getLong("id"));
+            add(rebuilt, rs.getString("title"), rs.getString("category"),
+                    rs.getDate("expense_date", calendar).toLocalDate(), rs.getBigDecimal("amount"));
+        });
+        // A restored expense is both hot and archived; the hot row is the current one
+        for (Expense expense : archiveService.findArchived(userId)) {
+            if (!hotIds.contains(expense.getId())) {
+                add(rebuilt, expense.getTitle(), expense.getCategory(), expense.getExpenseDate(), expense.getAmount());
+            }
+        }
+
+        rebuilt.forEach((category, byMonth) -> byMonth.forEach((start, aggregates) -> jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement("update expense_month_totals set amount_sketch = ?, "
+                    + "title_counts = ?, title_amounts = ? where user_id = ? and month_start = ? and category = ? "
+                    + "and (amount_sketch is null or title_counts is null or title_amounts is null)");
+            ps.setBytes(1, aggregates.getAmounts().toBytes());
+            ps.setBytes(2, aggregates.getTitleCounts().toBytes());
+            ps.setBytes(3, aggregates.getTitleAmounts().toBytes());
+            ps.setLong(4, userId);
+            ps.setDate(5, Date.valueOf(start), calendar);
+            ps.setString(6, category);
+            return ps;
+        })));
+        return rebuilt;
+    }
+
+    private static void add(Map<String, Map<LocalDate, MonthAggregates>> aggregates, String title, String category,
+                            LocalDate date, BigDecimal amount) {
+        Map<LocalDate, MonthAggregates> byMonth = aggregates.get(category);
+        MonthAggregates month = byMonth == null ? null : byMonth.get(date.withDayOfMonth(1));
+        if (month != null) {
+            month.add(title, amount, 1);
+        }
+    }
+
+    // Weights are counts, or cents when scale is 2
+    private static List<RankedTitle> ranked(List<SpaceSaving.Entry> entries, int limit, int scale) {
+        return entries.stream()
+                .limit(limit)
+                .map(entry -> new RankedTitle(entry.getKey(), BigDecimal.valueOf(entry.getWeight(), scale),
+                        BigDecimal.valueOf(entry.getError(), scale)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Bins bounded by 1, 2, 5, 10, 20, 50... from the first to the last one holding an amount.
+     */
+    static List<HistogramBin> histogram(AmountSketch sketch) {
+        List<Double> bounds = new ArrayList<>();
+        double max = sketch.getMax();
+        for (double decade = 1; bounds.isEmpty() || bounds.get(bounds.size() - 1) <= max; decade *= 10) {
+            for (int step : BIN_STEPS) {
+                bounds.add(decade * step);
+            }
+        }
+        double[] upperBounds = bounds.stream().mapToDouble(Double::doubleValue).toArray();
+        long[] counts = sketch.histogram(upperBounds);
+        int first = 0;
+        while (counts[first] == 0) {
+            first++;
+        }
+        int last = counts.length - 1;
+        while (counts[last] == 0) {
+            last--;
+        }
+        List<HistogramBin> bins = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            BigDecimal lower = i == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(upperBounds[i - 1]);
+            bins.add(new HistogramBin(lower.setScale(0, RoundingMode.UNNECESSARY),
+                    BigDecimal.valueOf(upperBounds[i]).setScale(0, RoundingMode.UNNECESSARY), counts[i]));
+        }
+        return bins;
+    }
+
+    private static BigDecimal amount(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private Calendar calendar() {
+        return StringUtils.hasText(jdbcTimeZone)
+                ? Calendar.getInstance(TimeZone.getTimeZone(jdbcTimeZone)) : Calendar.getInstance();
+    }
+}
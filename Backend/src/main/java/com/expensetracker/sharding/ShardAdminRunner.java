@@ -0,0 +1,51 @@
+package com.expensetracker.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+
+/**
+ * Command-line entry point for shard administration, e.g.
+ * {@code --spring.main.web-application-type=none --shards.admin.command=move
+ * --shards.admin.username=alice --shards.admin.target-shard=2}, or {@code command=stats}.
+ */
+public class ShardAdminRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardAdminRunner.class);
+
+    @Value("${shards.admin.command:}")
+    private String command;
+
+    @Value("${shards.admin.username:}")
+    private String username;
+
+    @Value("${shards.admin.target-shard:-1}")
+    private int targetShard;
+
+    private final ShardAdminService adminService;
+
+    private final ShardMigrationService migrationService;
+
+    public ShardAdminRunner(ShardAdminService adminService, ShardMigrationService migrationService) {
+        this.adminService = adminService;
+        this.migrationService = migrationService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        switch (command) {
+            case "" -> {
+            }
+            case "stats" -> {
+                for (ShardAdminService.ShardStats stats : adminService.collectStats()) {
+                    logger.info("Shard {}: {} users, {} expenses, total {}", stats.getShard(), stats.getUsers(),
+                            stats.getExpenses(), stats.getTotalAmount());
+                }
+            }
+            case "move" -> migrationService.moveUser(username, targetShard);
+            default -> throw new IllegalArgumentException("Unknown shards.admin.command: " + command);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.expensetracker.sharding;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Aggregates across all shards, querying them in parallel.
+ */
+public class ShardAdminService {
+
+    private final ShardRoutingDataSource router;
+
+    public ShardAdminService(ShardRoutingDataSource router) {
+        this.router = router;
+    }
+
+    public List<ShardStats> collectStats() {
+        ExecutorService executor = Executors.newFixedThreadPool(router.getShardCount());
+        try {
+            List<CompletableFuture<ShardStats>> futures = new ArrayList<>();
+            for (int shard = 0; shard < router.getShardCount(); shard++) {
+                int index = shard;
+                futures.add(CompletableFuture.supplyAsync(() -> stats(index), executor));
+            }
+            return futures.stream().map(CompletableFuture::join).toList();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private ShardStats stats(int shard) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(router.getShard(shard));
+        long users = jdbcTemplate.queryForObject("select count(*) from users", Long.class);
+        return jdbcTemplate.queryForObject("select count(*), coalesce(sum(amount), 0) from expenses",
+                (rs, rowNum) -> new ShardStats(shard, users, rs.getLong(1), rs.getBigDecimal(2)));
+    }
+
+    public static class ShardStats {
+
+        private final int shard;
+        private final long users;
+        private final long expenses;
+        private final BigDecimal totalAmount;
+
+        public ShardStats(int shard, long users, long expenses, BigDecimal totalAmount) {
+            this.shard = shard;
+            this.users = users;
+            this.expenses = expenses;
+            this.totalAmount = totalAmount;
+        }
+
+        public int getShard() {
+            return shard;
+        }
+
+        public long getUsers() {
+            return users;
+        }
+
+        public long getExpenses() {
+            return expenses;
+        }
+
+        public BigDecimal getTotalAmount() {
+            return totalAmount;
+        }
+    }
+}
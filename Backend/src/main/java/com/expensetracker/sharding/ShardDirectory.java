@@ -0,0 +1,135 @@
+package com.expensetracker.sharding;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Which shard holds each user, kept in {@code shard_directory} on shard 0.
+ * <p>
+ * New users are placed by a hash of their username and recorded on registration. Users
+ * created before sharding was enabled are entered on shard 0 at startup. Lookups are cached
+ * for {@code ttlMs}, which is also how long a move waits for every instance to notice it.
+ */
+public class ShardDirectory {
+
+    private static final int PURGE_THRESHOLD = 100_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int shardCount;
+
+    private final long ttlMs;
+
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    public ShardDirectory(JdbcTemplate jdbcTemplate, int shardCount, long ttlMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardCount = shardCount;
+        this.ttlMs = ttlMs;
+    }
+
+    public void initialize() {
+        jdbcTemplate.execute("create table if not exists shard_directory ("
+                + "username varchar(50) not null primary key, "
+                + "user_id bigint, "
+                + "shard int not null, "
+                + "moving boolean not null default false)");
+        // Users from before sharding live on shard 0, which is also where the directory lives
+        jdbcTemplate.update("insert into shard_directory (username, user_id, shard, moving) "
+                + "select u.username, u.id, 0, false from users u "
+                + "where not exists (select 1 from shard_directory d where d.username = u.username)");
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public long getTtlMs() {
+        return ttlMs;
+    }
+
+    /**
+     * Shard for a username that has no entry yet: where registration puts a new user.
+     */
+    public int placementFor(String username) {
+        return Math.floorMod(username.hashCode(), shardCount);
+    }
+
+    public Entry lookup(String username) {
+        long now = System.nanoTime();
+        Entry cached = cache.get(username);
+        if (cached != null && cached.expiresAt - now > 0) {
+            return cached;
+        }
+
+        List<Entry> rows = jdbcTemplate.query("select shard, moving from shard_directory where username = ?",
+                (rs, rowNum) -> new Entry(rs.getInt("shard"), rs.getBoolean("moving"), true, expiry(now)),
+                username);
+        Entry entry = rows.isEmpty() ? new Entry(placementFor(username), false, false, expiry(now)) : rows.get(0);
+        if (cache.size() > PURGE_THRESHOLD) {
+            cache.values().removeIf(e -> e.expiresAt - now <= 0);
+        }
+        cache.put(username, entry);
+        return entry;
+    }
+
+    public void register(String username, Long userId, int shard) {
+        upsert(username, userId, shard, false);
+    }
+
+    void markMoving(String username, Long userId, int shard) {
+        upsert(username, userId, shard, true);
+    }
+
+    void activate(String username, Long userId, int shard) {
+        upsert(username, userId, shard, false);
+    }
+
+    public void invalidate(String username) {
+        cache.remove(username);
+    }
+
+    private void upsert(String username, Long userId, int shard, boolean moving) {
+        int updated = jdbcTemplate.update("update shard_directory set user_id = ?, shard = ?, moving = ? where username = ?",
+                userId, shard, moving, username);
+        if (updated == 0) {
+            jdbcTemplate.update("insert into shard_directory (username, user_id, shard, moving) values (?, ?, ?, ?)",
+                    username, userId, shard, moving);
+        }
+        cache.remove(username);
+    }
+
+    private long expiry(long now) {
+        return now + TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    }
+
+    public static final class Entry {
+
+        private final int shard;
+        private final boolean moving;
+        private final boolean registered;
+        private final long expiresAt;
+
+        Entry(int shard, boolean moving, boolean registered, long expiresAt) {
+            this.shard = shard;
+            this.moving = moving;
+            this.registered = registered;
+            this.expiresAt = expiresAt;
+        }
+
+        public int getShard() {
+            return shard;
+        }
+
+        public boolean isMoving() {
+            return moving;
+        }
+
+        public boolean isRegistered() {
+            return registered;
+        }
+    }
+}
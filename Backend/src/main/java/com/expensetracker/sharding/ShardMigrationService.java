@@ -0,0 +1,165 @@
+package com.expensetracker.sharding;
+
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves one user, with everything they own, to another shard while the application runs.
+ * <p>
+ * The target is first checked for rows already holding any of the ids to be copied, as a
+ * shard added without raising every table's AUTO_INCREMENT would. The user is then marked as
+ * moving and every instance is given one directory TTL to
+ * notice; from then on their writes are refused while reads still go to the old shard.
+ * The rows are copied with their ids (id ranges are disjoint per shard), the directory is
+ * pointed at the new shard, and after another TTL the old rows are deleted. If the copy
+ * fails, the user stays where they were.
+ */
+public class ShardMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardMigrationService.class);
+
+    /**
+     * Tables holding per-user rows in a {@code user_id} column, in insertion order.
+     */
+    static final List<String> USER_TABLES = List.of("expenses", "expense_tombstones", "recurring_expenses",
+            "budgets", "expense_month_totals", "expense_receipts", "report_jobs");
+
+    // Rows read and inserted per batch while copying
+    static final int COPY_BATCH = 500;
+
+    private final ShardRoutingDataSource router;
+
+    private final ShardDirectory directory;
+
+    public ShardMigrationService(ShardRoutingDataSource router, ShardDirectory directory) {
+        this.router = router;
+        this.directory = directory;
+    }
+
+    public void moveUser(String username, int targetShard) throws InterruptedException {
+        if (targetShard < 0 || targetShard >= router.getShardCount()) {
+            throw new IllegalArgumentException("No shard " + targetShard);
+        }
+        directory.invalidate(username);
+        int sourceShard = directory.lookup(username).getShard();
+        if (sourceShard == targetShard) {
+            return;
+        }
+
+        JdbcTemplate source = new JdbcTemplate(router.getShard(sourceShard));
+        JdbcTemplate target = new JdbcTemplate(router.getShard(targetShard));
+        Long userId = source.queryForObject("select id from users where username = ?", Long.class, username);
+        // Before marking the user, so that a move refused here never holds up their writes
+        checkIdsFree(source, target, targetShard, "users", "id", userId);
+        for (String table : USER_TABLES) {
+            checkIdsFree(source, target, targetShard, table, "user_id", userId);
+        }
+
+        directory.markMoving(username, userId, sourceShard);
+        Thread.sleep(directory.getTtlMs());
+        try {
+            inTransaction(targetShard, () -> {
+                copyRows(source, target, "users", "id", userId);
+                for (String table : USER_TABLES) {
+                    copyRows(source, target, table, "user_id", userId);
+                }
+            });
+            directory.activate(username, userId, targetShard);
+        } catch (RuntimeException e) {
+            directory.activate(username, userId, sourceShard);
+            throw e;
+        }
+        logger.info("Moved user {} from shard {} to shard {}", username, sourceShard, targetShard);
+
+        // Instances that still had the old location cached have stopped using it by now
+        Thread.sleep(directory.getTtlMs());
+        inTransaction(sourceShard, () -> {
+            for (int i = USER_TABLES.size() - 1; i >= 0; i--) {
+                source.update("delete from " + USER_TABLES.get(i) + " where user_id = ?", userId);
+            }
+            source.update("delete from users where id = ?", userId);
+        });
+    }
+
+    private void inTransaction(int shard, Runnable work) {
+        new TransactionTemplate(new DataSourceTransactionManager(router.getShard(shard))).executeWithoutResult(status -> work.run());
+    }
+
+    private static void checkIdsFree(JdbcTemplate source, JdbcTemplate target, int targetShard, String table,
+                                     String keyColumn, Long userId) {
+        String select = "select id from " + table + " where " + keyColumn + " = ? and id > ? order by id limit " + COPY_BATCH;
+        long lastId = 0;
+        while (true) {
+            List<Long> ids = source.queryForList(select, Long.class, userId, lastId);
+            if (ids.isEmpty()) {
+                return;
+            }
+            String taken = "select id from " + table + " where id in ("
+                    + ids.stream().map(id -> "?").collect(Collectors.joining(", ")) + ") order by id";
+            List<Long> clashes = target.queryForList(taken, Long.class, ids.toArray());
+            if (!clashes.isEmpty()) {
+                throw new IllegalStateException("Shard " + targetShard + " already has " + table + " rows with ids "
+                        + clashes + "; raise its AUTO_INCREMENT above shard 0's ids before moving users there");
+            }
+            if (ids.size() < COPY_BATCH) {
+                return;
+            }
+            lastId = ids.get(ids.size() - 1);
+        }
+    }
+
+    /**
+     * Copies in id order, a page at a time, so neither side holds more than one page of a
+     * large user in memory or sends it a row per round trip.
+     */
+    private static void copyRows(JdbcTemplate source, JdbcTemplate target, String table, String keyColumn, Long userId) {
+        String select = "select * from " + table + " where " + keyColumn + " = ? and id > ? order by id limit " + COPY_BATCH;
+        List<String> columns = new ArrayList<>();
+        String insert = null;
+        long lastId = 0;
+        while (true) {
+            List<Object[]> page = new ArrayList<>(COPY_BATCH);
+            source.query(select, rs -> {
+                ResultSetMetaData metaData = rs.getMetaData();
+                if (columns.isEmpty()) {
+                    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                        columns.add(metaData.getColumnLabel(i));
+                    }
+                }
+                Object[] row = new Object[columns.size()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = rs.getObject(i + 1);
+                }
+                page.add(row);
+            }, userId, lastId);
+            if (page.isEmpty()) {
+                return;
+            }
+            if (insert == null) {
+                insert = "insert into " + table + " (" + String.join(", ", columns) + ") values ("
+                        + columns.stream().map(column -> "?").collect(Collectors.joining(", ")) + ")";
+            }
+            target.batchUpdate(insert, page);
+            if (page.size() < COPY_BATCH) {
+                return;
+            }
+            lastId = ((Number) page.get(page.size() - 1)[idIndex(columns)]).longValue();
+        }
+    }
+
+    private static int idIndex(List<String> columns) {
+        for (int i = 0; i < columns.size(); i++) {
+            if ("id".equalsIgnoreCase(columns.get(i))) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Table without an id column");
+    }
+}
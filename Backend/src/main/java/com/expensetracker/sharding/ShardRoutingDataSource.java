@@ -0,0 +1,115 @@
+package com.expensetracker.sharding;
+
+import com.expensetracker.datasource.ReadYourWritesTracker;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends each connection to the shard that holds the current user: the shard bound through
+ * {@link ShardContext} if any, otherwise the authenticated (or explicitly bound) user's shard
+ * from the {@link ShardDirectory}. Work without a user goes to shard 0.
+ * <p>
+ * Writes for a user whose data is being moved are refused. Routing can only check that for
+ * the current user; writers that bind a shard and write for many users check each of them
+ * through {@link #isMoving} or {@link #writableShard}.
+ * <p>
+ * Like replica routing this must sit behind a LazyConnectionDataSourceProxy, since the user
+ * is sometimes bound only after the transaction has started.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private final List<DataSource> shards;
+
+    private final ShardDirectory directory;
+
+    private final ReadYourWritesTracker subjects;
+
+    public ShardRoutingDataSource(List<DataSource> shards, ShardDirectory directory, ReadYourWritesTracker subjects) {
+        this.shards = List.copyOf(shards);
+        this.directory = directory;
+        this.subjects = subjects;
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public DataSource getShard(int shard) {
+        return shards.get(shard);
+    }
+
+    /**
+     * The shard work on this thread would go to right now.
+     */
+    public int currentShard() {
+        Integer bound = ShardContext.current();
+        if (bound != null) {
+            return bound;
+        }
+        String username = subjects.currentSubject();
+        return username == null ? 0 : directory.lookup(username).getShard();
+    }
+
+    public boolean isMoving(String username) {
+        return directory.lookup(username).isMoving();
+    }
+
+    /**
+     * The user's shard, for a write that is about to be made there.
+     *
+     * @throws IllegalStateException while the user's data is being moved
+     */
+    public int writableShard(String username) {
+        ShardDirectory.Entry entry = directory.lookup(username);
+        if (entry.isMoving()) {
+            throw moving(username);
+        }
+        return entry.getShard();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer bound = ShardContext.current();
+        if (bound != null) {
+            return bound;
+        }
+        String username = subjects.currentSubject();
+        if (username == null) {
+            return 0;
+        }
+        ShardDirectory.Entry entry = directory.lookup(username);
+        if (entry.isMoving() && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            throw moving(username);
+        }
+        return entry.getShard();
+    }
+
+    private static IllegalStateException moving(String username) {
+        return new IllegalStateException("Data of user " + username + " is being moved to another shard, retry shortly");
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        // Shard 0 is the primary DataSource bean; the other pools exist only here
+        for (DataSource shard : shards.subList(1, shards.size())) {
+            if (shard instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
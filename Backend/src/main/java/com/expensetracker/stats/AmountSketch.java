@@ -0,0 +1,201 @@
+package com.expensetracker.stats;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A mergeable quantile sketch of non-negative amounts with relative accuracy, in the style of
+ * DDSketch.
+ * <p>
+ * Amounts are counted in logarithmic buckets: bucket {@code i} holds the values in
+ * (&gamma;<sup>i-1</sup>, &gamma;<sup>i</sup>] with &gamma; = (1 + {@value #RELATIVE_ACCURACY}) /
+ * (1 - {@value #RELATIVE_ACCURACY}), and zero has a bucket of its own. Any quantile is then
+ * within {@value #RELATIVE_ACCURACY} of the true value, relatively, however many amounts were
+ * added. Amounts from 0.01 to 10<sup>8</sup> need at most about 1150 buckets, and a month of
+ * one category's expenses typically a few dozen.
+ * <p>
+ * Unlike t-digest or KLL, a bucket sketch can take values out again exactly, so an expense
+ * that is updated or deleted leaves the sketch as if it had never been added. Two sketches
+ * merge by adding their counts, which gives the same sketch as adding all values to one.
+ * <p>
+ * Counts may go negative while a sketch holds the net change of several writes; stored
+ * sketches never do. Not thread-safe.
+ */
+public final class AmountSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private static final byte FORMAT = 1;
+
+    private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+
+    private long zeroCount;
+
+    public void add(double amount) {
+        add(amount, 1);
+    }
+
+    public void remove(double amount) {
+        add(amount, -1);
+    }
+
+    /**
+     * Adds {@code count} occurrences of the amount; a negative count takes them out. Negative
+     * amounts count as zero.
+     */
+    public void add(double amount, long count) {
+        if (count == 0) {
+            return;
+        }
+        if (amount <= 0) {
+            zeroCount += count;
+            return;
+        }
+        buckets.merge(index(amount), count, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    public void merge(AmountSketch other) {
+        zeroCount += other.zeroCount;
+        other.buckets.forEach((index, count) -> buckets.merge(index, count, (a, b) -> a + b == 0 ? null : a + b));
+    }
+
+    /**
+     * Whether every count is zero: true for a net change whose additions and removals cancel.
+     */
+    public boolean isEmpty() {
+        return zeroCount == 0 && buckets.isEmpty();
+    }
+
+    public long getCount() {
+        long count = Math.max(zeroCount, 0);
+        for (long bucket : buckets.values()) {
+            count += Math.max(bucket, 0);
+        }
+        return count;
+    }
+
+    /**
+     * The amount at rank {@code floor(quantile x (count - 1))} of the sorted amounts, to within
+     * {@value #RELATIVE_ACCURACY} relatively, or NaN when the sketch is empty.
+     */
+    public double quantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be within [0, 1]: " + quantile);
+        }
+        long count = getCount();
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) (quantile * (count - 1));
+        long seen = Math.max(zeroCount, 0);
+        if (seen > rank) {
+            return 0;
+        }
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            seen += Math.max(bucket.getValue(), 0);
+            if (seen > rank) {
+                return value(bucket.getKey());
+            }
+        }
+        return value(buckets.lastKey());
+    }
+
+    /**
+     * Counts the amounts below each of the ascending {@code upperBounds}, and not below the
+     * previous one. An amount lands in the bin of its bucket's representative value, so counts
+     * are exact except for amounts within {@value #RELATIVE_ACCURACY} of a bound.
+     */
+    public long[] histogram(double[] upperBounds) {
+        long[] counts = new long[upperBounds.length];
+        int bin = 0;
+        if (zeroCount > 0) {
+            while (bin < upperBounds.length - 1 && upperBounds[bin] <= 0) {
+                bin++;
+            }
+            counts[bin] += zeroCount;
+        }
+        bin = 0;
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            double value = value(bucket.getKey());
+            while (bin < upperBounds.length - 1 && value >= upperBounds[bin]) {
+                bin++;
+            }
+            counts[bin] += Math.max(bucket.getValue(), 0);
+        }
+        return counts;
+    }
+
+    /**
+     * The largest amount counted, to within the sketch's accuracy, or NaN when empty.
+     */
+    public double getMax() {
+        Iterator<Map.Entry<Integer, Long>> descending = buckets.descendingMap().entrySet().iterator();
+        while (descending.hasNext()) {
+            Map.Entry<Integer, Long> bucket = descending.next();
+            if (bucket.getValue() > 0) {
+                return value(bucket.getKey());
+            }
+        }
+        return zeroCount > 0 ? 0 : Double.NaN;
+    }
+
+    /**
+     * A compact encoding: the zero count, then each non-empty bucket as the gap from the previous
+     * index and its count, all as varints. Negative counts are left out.
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + buckets.size() * 3);
+        out.write(FORMAT);
+        Varints.write(out, Math.max(zeroCount, 0));
+        long positive = buckets.values().stream().filter(count -> count > 0).count();
+        Varints.write(out, positive);
+        int previous = 0;
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            if (bucket.getValue() > 0) {
+                int index = bucket.getKey();
+                Varints.write(out, zigZag(index - previous));
+                Varints.write(out, bucket.getValue());
+                previous = index;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static AmountSketch fromBytes(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        byte format = in.get();
+        if (format != FORMAT) {
+            throw new IllegalArgumentException("Unsupported amount sketch format " + format);
+        }
+        AmountSketch sketch = new AmountSketch();
+        sketch.zeroCount = Varints.read(in);
+        long size = Varints.read(in);
+        int index = 0;
+        for (long i = 0; i < size; i++) {
+            long gap = Varints.read(in);
+            index += (int) ((gap >>> 1) ^ -(gap & 1));
+            sketch.buckets.put(index, Varints.read(in));
+        }
+        return sketch;
+    }
+
+    static int index(double amount) {
+        return (int) Math.ceil(Math.log(amount) / LOG_GAMMA);
+    }
+
+    // The point of the bucket with the same relative distance to both of its ends
+    static double value(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    private static long zigZag(int value) {
+        return ((long) value << 1) ^ (value >> 31);
+    }
+}
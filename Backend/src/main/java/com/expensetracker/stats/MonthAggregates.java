@@ -0,0 +1,74 @@
+package com.expensetracker.stats;
+
+import com.expensetracker.util.ExpenseTitles;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * What a month total keeps beside the sum: an {@link AmountSketch} of the amounts, and
+ * {@link SpaceSaving} summaries of the normalized titles by number of expenses and by amount
+ * (in cents). All of them take expenses out again when they are updated or deleted.
+ */
+public final class MonthAggregates {
+
+    public static final int TITLE_CAPACITY = 20;
+
+    private final AmountSketch amounts;
+
+    private final SpaceSaving titleCounts;
+
+    private final SpaceSaving titleAmounts;
+
+    public MonthAggregates() {
+        this(new AmountSketch(), new SpaceSaving(TITLE_CAPACITY), new SpaceSaving(TITLE_CAPACITY));
+    }
+
+    private MonthAggregates(AmountSketch amounts, SpaceSaving titleCounts, SpaceSaving titleAmounts) {
+        this.amounts = amounts;
+        this.titleCounts = titleCounts;
+        this.titleAmounts = titleAmounts;
+    }
+
+    /**
+     * The stored aggregates, or null when any part is missing, as for totals kept from before
+     * it existed.
+     */
+    public static MonthAggregates fromBytes(byte[] amounts, byte[] titleCounts, byte[] titleAmounts) {
+        if (amounts == null || titleCounts == null || titleAmounts == null) {
+            return null;
+        }
+        return new MonthAggregates(AmountSketch.fromBytes(amounts), SpaceSaving.fromBytes(titleCounts, TITLE_CAPACITY),
+                SpaceSaving.fromBytes(titleAmounts, TITLE_CAPACITY));
+    }
+
+    /**
+     * Adds an expense, or takes one out when {@code count} is -1.
+     */
+    public void add(String title, BigDecimal amount, int count) {
+        amounts.add(amount.doubleValue(), count);
+        String key = ExpenseTitles.normalize(title);
+        if (key == null) {
+            return;
+        }
+        long cents = Math.max(amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue(), 0);
+        if (count > 0) {
+            titleCounts.add(key, 1);
+            titleAmounts.add(key, cents);
+        } else {
+            titleCounts.remove(key, 1);
+            titleAmounts.remove(key, cents);
+        }
+    }
+
+    public AmountSketch getAmounts() {
+        return amounts;
+    }
+
+    public SpaceSaving getTitleCounts() {
+        return titleCounts;
+    }
+
+    public SpaceSaving getTitleAmounts() {
+        return titleAmounts;
+    }
+}
@@ -0,0 +1,177 @@
+package com.expensetracker.stats;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The heaviest keys of a weighted stream, in at most {@code capacity} entries (the
+ * Space-Saving algorithm of Metwally, Agrawal and El Abbadi).
+ * <p>
+ * A key already monitored adds to its weight. A new key takes a free entry or, when the
+ * summary is full, replaces the lightest one and inherits its weight as error. A reported
+ * weight is thus never below the key's true weight and at most {@code error} above it, and
+ * every key heavier than total / capacity is monitored.
+ * <p>
+ * Removing weight from a monitored key takes it off; for a key that is not monitored there
+ * is nothing to take, which only widens the bounds of the others. Not thread-safe.
+ */
+public final class SpaceSaving {
+
+    private static final byte FORMAT = 1;
+
+    private final int capacity;
+
+    // Key to {weight, error}
+    private final Map<String, long[]> entries = new HashMap<>();
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void add(String key, long weight) {
+        long[] entry = entries.get(key);
+        if (entry != null) {
+            entry[0] += weight;
+        } else if (entries.size() < capacity) {
+            entries.put(key, new long[] {weight, 0});
+        } else {
+            String lightest = lightest();
+            long minimum = entries.remove(lightest)[0];
+            entries.put(key, new long[] {minimum + weight, minimum});
+        }
+    }
+
+    public void remove(String key, long weight) {
+        long[] entry = entries.get(key);
+        if (entry == null) {
+            return;
+        }
+        entry[0] -= weight;
+        if (entry[0] <= 0) {
+            entries.remove(key);
+        } else {
+            entry[1] = Math.min(entry[1], entry[0]);
+        }
+    }
+
+    /**
+     * The most a key that is not monitored can weigh: the lightest weight when full, else zero.
+     */
+    public long getUnmonitoredBound() {
+        return entries.size() < capacity ? 0 : entries.get(lightest())[0];
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Every key of the summaries with its weights added up. A key missing from a summary may
+     * still weigh up to that summary's {@link #getUnmonitoredBound()} there, which is added to
+     * its error, so each true weight stays within error of the reported one.
+     */
+    public static List<Entry> union(List<SpaceSaving> summaries) {
+        Map<String, long[]> union = new HashMap<>();
+        long unmonitored = 0;
+        for (SpaceSaving summary : summaries) {
+            long bound = summary.getUnmonitoredBound();
+            unmonitored += bound;
+            for (Map.Entry<String, long[]> entry : summary.entries.entrySet()) {
+                // {weight, error, bound of the summaries that monitor it}
+                long[] merged = union.computeIfAbsent(entry.getKey(), key -> new long[3]);
+                merged[0] += entry.getValue()[0];
+                merged[1] += entry.getValue()[1];
+                merged[2] += bound;
+            }
+        }
+        List<Entry> result = new ArrayList<>(union.size());
+        for (Map.Entry<String, long[]> entry : union.entrySet()) {
+            long[] merged = entry.getValue();
+            result.add(new Entry(entry.getKey(), merged[0], merged[1] + unmonitored - merged[2]));
+        }
+        result.sort(Comparator.comparingLong(Entry::getWeight).reversed().thenComparing(Entry::getKey));
+        return result;
+    }
+
+    public List<Entry> top(int n) {
+        List<Entry> top = union(List.of(this));
+        return top.size() <= n ? top : top.subList(0, n);
+    }
+
+    /**
+     * The entries as a count, then key (length-prefixed UTF-8), weight and error each, as varints.
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + entries.size() * 24);
+        out.write(FORMAT);
+        Varints.write(out, entries.size());
+        for (Map.Entry<String, long[]> entry : entries.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            Varints.write(out, key.length);
+            out.write(key, 0, key.length);
+            Varints.write(out, entry.getValue()[0]);
+            Varints.write(out, entry.getValue()[1]);
+        }
+        return out.toByteArray();
+    }
+
+    public static SpaceSaving fromBytes(byte[] bytes, int capacity) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        byte format = in.get();
+        if (format != FORMAT) {
+            throw new IllegalArgumentException("Unsupported space-saving format " + format);
+        }
+        SpaceSaving summary = new SpaceSaving(capacity);
+        long size = Varints.read(in);
+        for (long i = 0; i < size; i++) {
+            byte[] key = new byte[(int) Varints.read(in)];
+            in.get(key);
+            summary.entries.put(new String(key, StandardCharsets.UTF_8), new long[] {Varints.read(in), Varints.read(in)});
+        }
+        return summary;
+    }
+
+    private String lightest() {
+        String lightest = null;
+        long minimum = Long.MAX_VALUE;
+        for (Map.Entry<String, long[]> entry : entries.entrySet()) {
+            long weight = entry.getValue()[0];
+            if (weight < minimum || (weight == minimum && entry.getKey().compareTo(lightest) > 0)) {
+                lightest = entry.getKey();
+                minimum = weight;
+            }
+        }
+        return lightest;
+    }
+
+    public static final class Entry {
+
+        private final String key;
+        private final long weight;
+        private final long error;
+
+        Entry(String key, long weight, long error) {
+            this.key = key;
+            this.weight = weight;
+            this.error = error;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+}
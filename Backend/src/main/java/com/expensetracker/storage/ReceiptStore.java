@@ -0,0 +1,274 @@
+package com.expensetracker.storage;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Content-addressed files for receipts under {@code receipts.storage.directory}: each file is
+ * named by the SHA-256 of its bytes (ab/cd/abcd...), so identical uploads share one file.
+ * <p>
+ * An upload streams through one fixed buffer into a temporary file while it is hashed, then is
+ * moved into place, or dropped when the file already exists. Keeping a file together with the
+ * row that references it, and deleting a file no row references any more, lock the hash, so a
+ * new reference can not lose its file to a concurrent delete. The locks are per process, so
+ * several instances sharing one directory should turn
+ * {@code receipts.storage.delete-unreferenced} off.
+ */
+@Component
+public class ReceiptStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReceiptStore.class);
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    // Enough leading bytes to recognise every accepted format
+    private static final int HEAD_BYTES = 16;
+
+    private static final int LOCK_STRIPES = 64;
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+    @Value("${receipts.storage.directory:./data/receipts}")
+    private String directory;
+
+    @Value("${receipts.storage.delete-unreferenced:true}")
+    private boolean deleteUnreferenced;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public ReceiptStore() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Drops uploads left half-written by a previous run.
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        if (!Files.isDirectory(temporaryDirectory())) {
+            return;
+        }
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(temporaryDirectory(), "*.part")) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+    }
+
+    /**
+     * Streams the body into a temporary file, hashing it on the way. The result must be passed
+     * to {@link #keep} or {@link #discard}.
+     *
+     * @throws ReceiptTooLargeException once more than {@code maxBytes} have arrived; the rest of
+     *                                  the body is not read
+     */
+    public Upload receive(InputStream body, long maxBytes) throws IOException {
+        MessageDigest digest = sha256();
+        Files.createDirectories(temporaryDirectory());
+        Path temporary = Files.createTempFile(temporaryDirectory(), "upload-", ".part");
+        byte[] buffer = new byte[BUFFER_BYTES];
+        byte[] head = new byte[HEAD_BYTES];
+        int headLength = 0;
+        long size = 0;
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                size += read;
+                if (size > maxBytes) {
+                    throw new ReceiptTooLargeException(maxBytes);
+                }
+                if (headLength < HEAD_BYTES) {
+                    int copied = Math.min(read, HEAD_BYTES - headLength);
+                    System.arraycopy(buffer, 0, head, headLength, copied);
+                    headLength += copied;
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    out.write(chunk);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        return new Upload(temporary, HexFormat.of().formatHex(digest.digest()), size,
+                sniff(Arrays.copyOf(head, headLength)));
+    }
+
+    /**
+     * Moves the upload into place, unless a file with the same content is already there, and
+     * records the reference while no delete of that content can run. If recording fails, a file
+     * this call created is removed again.
+     */
+    public <T> T keep(Upload upload, Supplier<T> reference) throws IOException {
+        Path target = path(upload.getSha256());
+        synchronized (lock(upload.getSha256())) {
+            boolean created = false;
+            if (Files.exists(target)) {
+                Files.deleteIfExists(upload.getTemporary());
+            } else {
+                Files.createDirectories(target.getParent());
+                Files.move(upload.getTemporary(), target, StandardCopyOption.ATOMIC_MOVE);
+                created = true;
+            }
+            try {
+                return reference.get();
+            } catch (RuntimeException e) {
+                if (created) {
+                    Files.deleteIfExists(target);
+                }
+                throw e;
+            }
+        }
+    }
+
+    public void discard(Upload upload) {
+        try {
+            Files.deleteIfExists(upload.getTemporary());
+        } catch (IOException e) {
+            logger.warn("Could not delete upload {}", upload.getTemporary(), e);
+        }
+    }
+
+    /**
+     * Deletes the content's file if it is no longer referenced. Failing to delete only leaves
+     * an orphan file, so it is logged rather than thrown.
+     */
+    public void release(String sha256, BooleanSupplier referenced) {
+        if (!deleteUnreferenced) {
+            return;
+        }
+        synchronized (lock(sha256)) {
+            try {
+                if (!referenced.getAsBoolean()) {
+                    Files.deleteIfExists(path(sha256));
+                }
+            } catch (IOException e) {
+                logger.warn("Could not delete receipt file {}", sha256, e);
+            }
+        }
+    }
+
+    public Path path(String sha256) {
+        if (sha256 == null || !SHA256.matcher(sha256).matches()) {
+            throw new IllegalArgumentException("Not a SHA-256: " + sha256);
+        }
+        return root().resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    /**
+     * The media type the leading bytes declare, or null when they are not a receipt format.
+     * The client's Content-Type is never trusted, so a receipt can not be served as a page.
+     */
+    static String sniff(byte[] head) {
+        if (startsWith(head, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(head, '%', 'P', 'D', 'F', '-')) {
+            return "application/pdf";
+        }
+        if (startsWith(head, 'R', 'I', 'F', 'F') && head.length >= 12
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] head, int... prefix) {
+        if (head.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((head[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Object lock(String sha256) {
+        return locks[Integer.parseInt(sha256.substring(0, 2), 16) % LOCK_STRIPES];
+    }
+
+    private Path root() {
+        return Paths.get(directory);
+    }
+
+    private Path temporaryDirectory() {
+        return root().resolve("tmp");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A received body in its temporary file.
+     */
+    public static final class Upload {
+
+        private final Path temporary;
+
+        private final String sha256;
+
+        private final long size;
+
+        private final String contentType;
+
+        Upload(Path temporary, String sha256, long size, String contentType) {
+            this.temporary = temporary;
+            this.sha256 = sha256;
+            this.size = size;
+            this.contentType = contentType;
+        }
+
+        public Path getTemporary() {
+            return temporary;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * The sniffed media type, or null when the body is not a receipt format.
+         */
+        public String getContentType() {
+            return contentType;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.expensetracker.storage;
+
+/**
+ * An upload went past {@code receipts.max-bytes}.
+ */
+public class ReceiptTooLargeException extends RuntimeException {
+
+    public ReceiptTooLargeException(long maxBytes) {
+        super("Receipts are limited to " + maxBytes + " bytes");
+    }
+}
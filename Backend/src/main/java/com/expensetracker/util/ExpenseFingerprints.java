@@ -0,0 +1,59 @@
+package com.expensetracker.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * 64-bit hashes of what makes two expenses the same purchase: the title ignoring case and
+ * spacing, the amount to the cent and the date. Two expenses that hash alike are duplicates
+ * but for a chance of about one in 2<sup>64</sup> per pair.
+ */
+public final class ExpenseFingerprints {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private ExpenseFingerprints() {
+    }
+
+    /**
+     * Never 0, so 0 can mark an empty slot or a missing fingerprint.
+     */
+    public static long of(String title, BigDecimal amount, LocalDate date) {
+        String normalized = title == null ? ""
+                : WHITESPACE.matcher(Normalizer.normalize(title, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT))
+                        .replaceAll(" ").trim();
+        // FNV-1a over the title, then the cents and the day mixed in
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        long cents = amount == null ? 0 : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+        hash = mix(hash ^ cents);
+        hash = mix(hash ^ (date == null ? 0 : date.toEpochDay()));
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * The fingerprints of the same title and amount on each day from {@code days} before the
+     * date to {@code days} after it.
+     */
+    public static long[] window(String title, BigDecimal amount, LocalDate date, int days) {
+        long[] fingerprints = new long[2 * days + 1];
+        for (int offset = -days; offset <= days; offset++) {
+            fingerprints[offset + days] = of(title, amount, date.plusDays(offset));
+        }
+        return fingerprints;
+    }
+
+    // The finalizer of SplitMix64: every input bit affects every output bit
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,46 @@
+package com.expensetracker.util;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Expense tags as stored in the {@code expenses.tags} column: lower case, distinct, sorted
+ * and comma-separated, or null for none. Tags themselves never contain commas.
+ */
+public final class ExpenseTags {
+
+    public static final int MAX_TAGS = 10;
+
+    public static final String PATTERN = "[A-Za-z0-9_-]{1,32}";
+
+    private ExpenseTags() {
+    }
+
+    public static String normalize(String tag) {
+        return tag.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public static String join(Collection<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return null;
+        }
+        String joined = tags.stream()
+                .filter(Objects::nonNull)
+                .map(ExpenseTags::normalize)
+                .filter(tag -> !tag.isEmpty())
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining(","));
+        return joined.isEmpty() ? null : joined;
+    }
+
+    public static List<String> split(String tags) {
+        if (tags == null || tags.isEmpty()) {
+            return List.of();
+        }
+        return List.of(tags.split(","));
+    }
+}
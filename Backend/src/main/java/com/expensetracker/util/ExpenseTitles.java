@@ -0,0 +1,39 @@
+package com.expensetracker.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Expense titles reduced to the merchant or item they name, so that "STARBUCKS #1234",
+ * "Starbucks 00981" and "starbucks" count as one.
+ */
+public final class ExpenseTitles {
+
+    public static final int MAX_LENGTH = 40;
+
+    // Store, branch and receipt numbers: "#12", or a run of three or more digits on its own
+    private static final Pattern NUMBERS = Pattern.compile("#\\s*\\d+|(?<![\\p{L}\\p{N}])\\d{3,}(?![\\p{L}\\p{N}])");
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}&']+");
+
+    private ExpenseTitles() {
+    }
+
+    /**
+     * Compatibility-normalized, lower case, without numbers and punctuation, single-spaced and
+     * cut to {@value #MAX_LENGTH} characters; null when nothing is left.
+     */
+    public static String normalize(String title) {
+        if (title == null) {
+            return null;
+        }
+        String normalized = Normalizer.normalize(title, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        normalized = NUMBERS.matcher(normalized).replaceAll(" ");
+        normalized = SEPARATORS.matcher(normalized).replaceAll(" ").trim();
+        if (normalized.codePointCount(0, normalized.length()) > MAX_LENGTH) {
+            normalized = normalized.substring(0, normalized.offsetByCodePoints(0, MAX_LENGTH)).trim();
+        }
+        return normalized.isEmpty() ? null : normalized;
+    }
+}
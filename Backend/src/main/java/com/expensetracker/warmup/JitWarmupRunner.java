@@ -0,0 +1,178 @@
+package com.expensetracker.warmup;
+
+import com.expensetracker.dto.ExpenseRequest;
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.dto.RegisterRequest;
+import com.expensetracker.repository.UserRepository;
+import com.expensetracker.service.AuthService;
+import com.expensetracker.service.ExpenseService;
+import com.expensetracker.util.JwtUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the hot request paths in-process before the instance reports ready
+ * ({@code warmup.enabled}), so the JIT has compiled them before real traffic arrives.
+ * <p>
+ * Spring Boot only moves readiness to {@code ACCEPTING_TRAFFIC} once all runners have
+ * returned, so {@code GET /health/readiness} answers 503 until this one is done. Each
+ * iteration signs and verifies a token, loads the principal, parses and validates an
+ * {@link ExpenseRequest}, and reads and serializes a scratch user's expenses. It stops
+ * after {@code warmup.iterations} or {@code warmup.max-duration-ms}, whichever comes first.
+ * <p>
+ * Off unless enabled; production turns it on. The scratch user ({@code warmup.username}) is
+ * registered with a random password on first start and given a few expenses. Registration
+ * through the API refuses that name, and an existing account under it that the warm-up did
+ * not create is left alone.
+ */
+@Component
+@ConditionalOnWebApplication
+public class JitWarmupRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(JitWarmupRunner.class);
+
+    private static final int SCRATCH_EXPENSES = 20;
+
+    private static final String EXPENSE_JSON = "{\"title\":\"Warm-up\",\"description\":\"Synthetic request\","
+            + "\"amount\":12.50,\"category\":\"Food\",\"expenseDate\":\"2024-01-15\"}";
+
+    @Value("${warmup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${warmup.iterations:3000}")
+    private int iterations;
+
+    @Value("${warmup.max-duration-ms:20000}")
+    private long maxDurationMs;
+
+    @Value("${warmup.username:jit-warmup}")
+    private String username;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxDurationMs);
+        int completed = 0;
+        try {
+            boolean registered = register();
+            if (!registered && !isScratchUser()) {
+                logger.warn("JIT warm-up skipped: user {} was not created by the warm-up", username);
+                return;
+            }
+            UserDetails principal = userDetailsService.loadUserByUsername(username);
+            Authentication authentication = new UsernamePasswordAuthenticationToken(
+                    principal, null, principal.getAuthorities());
+            // Route the queries like requests from the scratch user
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+            try {
+                if (registered) {
+                    addScratchExpenses();
+                }
+                while (completed < iterations && System.nanoTime() < deadline) {
+                    runOnce(authentication);
+                    completed++;
+                }
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        } catch (Exception e) {
+            // A failed warm-up only costs latency; never keep the instance from starting
+            logger.warn("JIT warm-up stopped after {} iterations", completed, e);
+            return;
+        }
+        logger.info("JIT warm-up ran {} iterations in {} ms", completed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void runOnce(Authentication authentication) throws Exception {
+        String token = jwtUtils.generateJwtToken(authentication);
+        if (!jwtUtils.validateJwtToken(token)) {
+            throw new IllegalStateException("Warm-up token did not validate");
+        }
+        userDetailsService.loadUserByUsername(jwtUtils.getUserNameFromJwtToken(token));
+
+        ExpenseRequest request = objectMapper.readValue(EXPENSE_JSON, ExpenseRequest.class);
+        if (!validator.validate(request).isEmpty()) {
+            throw new IllegalStateException("Warm-up request did not validate");
+        }
+
+        List<ExpenseResponse> expenses = expenseService.getAllExpenses(username);
+        objectMapper.writeValueAsBytes(expenses);
+        if (!expenses.isEmpty()) {
+            objectMapper.writeValueAsBytes(expenseService.getExpenseById(expenses.get(0).getId(), username));
+        }
+        expenseService.getExpensesEtag(username);
+        objectMapper.writeValueAsBytes(expenseService.getChanges(0, 100, username));
+    }
+
+    private boolean register() {
+        try {
+            authService.registerReservedUser(new RegisterRequest(username, scratchEmail(),
+                    UUID.randomUUID().toString()));
+            return true;
+        } catch (RuntimeException e) {
+            // Registered by an earlier start, or by an instance starting at the same time
+            return false;
+        }
+    }
+
+    private boolean isScratchUser() {
+        return userRepository.findByUsername(username)
+                .map(user -> scratchEmail().equals(user.getEmail()))
+                .orElse(false);
+    }
+
+    private String scratchEmail() {
+        return username + "@warmup.invalid";
+    }
+
+    private void addScratchExpenses() {
+        for (int i = 0; i < SCRATCH_EXPENSES; i++) {
+            expenseService.createExpense(new ExpenseRequest("Warm-up " + i, i % 2 == 0 ? null : "Synthetic expense",
+                    BigDecimal.valueOf(500 + i, 2), i % 3 == 0 ? "Food" : "Transport",
+                    LocalDate.now().minusDays(i)), username, false);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.expensetracker.web;
+
+import com.expensetracker.datasource.ConnectionMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Credits the connections a request used to its endpoint: the method and the matched
+ * handler pattern (e.g. {@code GET /api/expenses/{id}}), so ids do not split the figures.
+ * Runs ahead of Spring Security so the principal lookup counts too. Requests answered before
+ * reaching a handler (rejected, or served from the precompressed list cache) are grouped
+ * per method as {@code (not dispatched)}.
+ */
+public class ConnectionMetricsFilter extends OncePerRequestFilter {
+
+    private final ConnectionMetrics connectionMetrics;
+
+    public ConnectionMetricsFilter(ConnectionMetrics connectionMetrics) {
+        this.connectionMetrics = connectionMetrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        connectionMetrics.beginRequest();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            connectionMetrics.endRequest(request.getMethod() + " " + (pattern != null ? pattern : "(not dispatched)"));
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.expensetracker.web;
+
+import com.expensetracker.dto.ExpenseRequest;
+import com.expensetracker.dto.ExpenseResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.springframework.boot.jackson.JsonComponent;
+
+/**
+ * Hand-written Jackson serializers for the expense DTOs.
+ * <p>
+ * They write each property straight to the generator instead of going through bean
+ * introspection, format dates into a small char buffer instead of a new String per field,
+ * and produce exactly the bytes the default bean serializer would (same property order,
+ * ISO dates, nulls included). For plain JSON output each response is additionally kept
+ * pre-serialised per expense version, so large lists are mostly spliced from cached bytes.
+ */
+@JsonComponent
+public class ExpenseJsonComponent {
+
+    // Longest value written through the buffer: "2025-06-30T18:00:00.123456789"
+    private static final int TEMPORAL_BUFFER = 32;
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString DESCRIPTION = new SerializedString("description");
+    private static final SerializedString AMOUNT = new SerializedString("amount");
+    private static final SerializedString CATEGORY = new SerializedString("category");
+    private static final SerializedString TAGS = new SerializedString("tags");
+    private static final SerializedString EXPENSE_DATE = new SerializedString("expenseDate");
+    private static final SerializedString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializedString UPDATED_AT = new SerializedString("updatedAt");
+    private static final SerializedString VERSION = new SerializedString("version");
+
+    public static class ExpenseResponseSerializer extends StdSerializer<ExpenseResponse> {
+
+        private static final int MAX_CACHED = 100_000;
+
+        private final JsonFactory cacheFactory = new JsonFactory();
+
+        // Least recently serialised expenses give way first
+        private final Map<Long, CachedJson> cache = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedJson> eldest) {
+                return size() > MAX_CACHED;
+            }
+        };
+
+        private final boolean cacheEnabled;
+
+        public ExpenseResponseSerializer() {
+            this(true);
+        }
+
+        public ExpenseResponseSerializer(boolean cacheEnabled) {
+            super(ExpenseResponse.class);
+            this.cacheEnabled = cacheEnabled;
+        }
+
+        @Override
+        public void serialize(ExpenseResponse value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            if (!cacheEnabled || value.getId() == null || !isPlainJson(gen, provider)) {
+                writeObject(value, gen, provider);
+                return;
+            }
+
+            CachedJson cached;
+            synchronized (cache) {
+                cached = cache.get(value.getId());
+            }
+            if (cached == null || !cached.matches(value)) {
+                cached = new CachedJson(value, render(value, provider));
+                synchronized (cache) {
+                    cache.put(value.getId(), cached);
+                }
+            }
+            gen.writeRawValue(cached.json);
+        }
+
+        private SerializedString render(ExpenseResponse value, SerializerProvider provider) throws IOException {
+            ByteArrayBuilder bytes = new ByteArrayBuilder(256);
+            try (JsonGenerator gen = cacheFactory.createGenerator(bytes, JsonEncoding.UTF8)) {
+                writeObject(value, gen, provider);
+            }
+            return new SerializedString(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Raw splicing is only equivalent to streaming for default, compact JSON text.
+         */
+        private static boolean isPlainJson(JsonGenerator gen, SerializerProvider provider) {
+            return gen instanceof JsonGeneratorImpl
+                    && gen.getPrettyPrinter() == null
+                    && gen.getHighestEscapedChar() == 0
+                    && gen.getCharacterEscapes() == null
+                    && !gen.isEnabled(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN)
+                    && !provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    && includesNulls(provider);
+        }
+
+        private static void writeObject(ExpenseResponse value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            boolean nulls = includesNulls(provider);
+            char[] buffer = new char[TEMPORAL_BUFFER];
+            gen.writeStartObject(value);
+            if (value.getId() != null) {
+                gen.writeFieldName(ID);
+                gen.writeNumber(value.getId());
+            } else if (nulls) {
+                gen.writeFieldName(ID);
+                gen.writeNull();
+            }
+            writeString(gen, TITLE, value.getTitle(), nulls);
+            writeString(gen, DESCRIPTION, value.getDescription(), nulls);
+            writeDecimal(gen, AMOUNT, value.getAmount(), nulls);
+            writeString(gen, CATEGORY, value.getCategory(), nulls);
+            writeStrings(gen, TAGS, value.getTags(), nulls);
+            writeDate(gen, provider, EXPENSE_DATE, value.getExpenseDate(), nulls, buffer);
+            writeDateTime(gen, provider, CREATED_AT, value.getCreatedAt(), nulls, buffer);
+            writeDateTime(gen, provider, UPDATED_AT, value.getUpdatedAt(), nulls, buffer);
+            gen.writeFieldName(VERSION);
+            gen.writeNumber(value.getVersion());
+            gen.writeEndObject();
+        }
+    }
+
+    public static class ExpenseRequestSerializer extends StdSerializer<ExpenseRequest> {
+
+        public ExpenseRequestSerializer() {
+            super(ExpenseRequest.class);
+        }
+
+        @Override
+        public void serialize(ExpenseRequest value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            boolean nulls = includesNulls(provider);
+            char[] buffer = new char[TEMPORAL_BUFFER];
+            gen.writeStartObject(value);
+            writeString(gen, TITLE, value.getTitle(), nulls);
+            writeString(gen, DESCRIPTION, value.getDescription(), nulls);
+            writeDecimal(gen, AMOUNT, value.getAmount(), nulls);
+            writeString(gen, CATEGORY, value.getCategory(), nulls);
+            writeStrings(gen, TAGS, value.getTags(), nulls);
+            writeDate(gen, provider, EXPENSE_DATE, value.getExpenseDate(), nulls, buffer);
+            if (value.getVersion() != null) {
+                gen.writeFieldName(VERSION);
+                gen.writeNumber(value.getVersion());
+            } else if (nulls) {
+                gen.writeFieldName(VERSION);
+                gen.writeNull();
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    private static boolean includesNulls(SerializerProvider provider) {
+        JsonInclude.Include inclusion = provider.getConfig().getDefaultPropertyInclusion().getValueInclusion();
+        return inclusion == JsonInclude.Include.ALWAYS || inclusion == JsonInclude.Include.USE_DEFAULTS;
+    }
+
+    private static void writeString(JsonGenerator gen, SerializedString name, String value, boolean nulls) throws IOException {
+        if (value != null) {
+            gen.writeFieldName(name);
+            gen.writeString(value);
+        } else if (nulls) {
+            gen.writeFieldName(name);
+            gen.writeNull();
+        }
+    }
+
+    private static void writeStrings(JsonGenerator gen, SerializedString name, List<String> values, boolean nulls) throws IOException {
+        if (values != null) {
+            gen.writeFieldName(name);
+            gen.writeStartArray(values, values.size());
+            for (String value : values) {
+                if (value != null) {
+                    gen.writeString(value);
+                } else {
+                    gen.writeNull();
+                }
+            }
+            gen.writeEndArray();
+        } else if (nulls) {
+            gen.writeFieldName(name);
+            gen.writeNull();
+        }
+    }
+
+    private static void writeDecimal(JsonGenerator gen, SerializedString name, BigDecimal value, boolean nulls) throws IOException {
+        if (value != null) {
+            gen.writeFieldName(name);
+            gen.writeNumber(value);
+        } else if (nulls) {
+            gen.writeFieldName(name);
+            gen.writeNull();
+        }
+    }
+
+    private static void writeDate(JsonGenerator gen, SerializerProvider provider, SerializedString name, LocalDate value,
+                                  boolean nulls, char[] buffer) throws IOException {
+        if (value == null) {
+            if (nulls) {
+                gen.writeFieldName(name);
+                gen.writeNull();
+            }
+            return;
+        }
+        gen.writeFieldName(name);
+        if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+            provider.defaultSerializeValue(value, gen);
+        } else if (value.getYear() < 0 || value.getYear() > 9999) {
+            gen.writeString(DateTimeFormatter.ISO_LOCAL_DATE.format(value));
+        } else {
+            gen.writeString(buffer, 0, formatDate(buffer, 0, value));
+        }
+    }
+
+    private static void writeDateTime(JsonGenerator gen, SerializerProvider provider, SerializedString name,
+                                      LocalDateTime value, boolean nulls, char[] buffer) throws IOException {
+        if (value == null) {
+            if (nulls) {
+                gen.writeFieldName(name);
+                gen.writeNull();
+            }
+            return;
+        }
+        gen.writeFieldName(name);
+        if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+            provider.defaultSerializeValue(value, gen);
+        } else if (value.getYear() < 0 || value.getYear() > 9999) {
+            gen.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+        } else {
+            int end = formatDate(buffer, 0, value.toLocalDate());
+            buffer[end++] = 'T';
+            gen.writeString(buffer, 0, formatTime(buffer, end, value));
+        }
+    }
+
+    /**
+     * yyyy-MM-dd, as ISO_LOCAL_DATE prints years 0 to 9999.
+     */
+    private static int formatDate(char[] buffer, int pos, LocalDate date) {
+        pos = digits(buffer, pos, date.getYear(), 4);
+        buffer[pos++] = '-';
+        pos = digits(buffer, pos, date.getMonthValue(), 2);
+        buffer[pos++] = '-';
+        return digits(buffer, pos, date.getDayOfMonth(), 2);
+    }
+
+    /**
+     * HH:mm:ss plus the fraction without trailing zeros, as ISO_LOCAL_TIME prints it.
+     */
+    private static int formatTime(char[] buffer, int pos, LocalDateTime time) {
+        pos = digits(buffer, pos, time.getHour(), 2);
+        buffer[pos++] = ':';
+        pos = digits(buffer, pos, time.getMinute(), 2);
+        buffer[pos++] = ':';
+        pos = digits(buffer, pos, time.getSecond(), 2);
+        int nano = time.getNano();
+        if (nano == 0) {
+            return pos;
+        }
+        buffer[pos++] = '.';
+        int width = 9;
+        while (nano % 10 == 0) {
+            nano /= 10;
+            width--;
+        }
+        return digits(buffer, pos, nano, width);
+    }
+
+    private static int digits(char[] buffer, int pos, int value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + width;
+    }
+
+    /**
+     * Pre-serialised JSON of one expense version, valid while every property still matches.
+     */
+    private static final class CachedJson {
+
+        private final ExpenseResponse source;
+        private final SerializedString json;
+
+        CachedJson(ExpenseResponse value, SerializedString json) {
+            // Copy, since DTOs are mutable and may be reused by the caller
+            this.source = new ExpenseResponse(value.getId(), value.getTitle(), value.getDescription(), value.getAmount(),
+                    value.getCategory(), value.getTags() == null ? null : new ArrayList<>(value.getTags()),
+                    value.getExpenseDate(), value.getCreatedAt(), value.getUpdatedAt(), value.getVersion());
+            this.json = json;
+        }
+
+        boolean matches(ExpenseResponse value) {
+            return source.getVersion() == value.getVersion()
+                    && Objects.equals(source.getUpdatedAt(), value.getUpdatedAt())
+                    && Objects.equals(source.getAmount(), value.getAmount())
+                    && Objects.equals(source.getTitle(), value.getTitle())
+                    && Objects.equals(source.getCategory(), value.getCategory())
+                    && Objects.equals(source.getTags(), value.getTags())
+                    && Objects.equals(source.getExpenseDate(), value.getExpenseDate())
+                    && Objects.equals(source.getDescription(), value.getDescription())
+                    && Objects.equals(source.getCreatedAt(), value.getCreatedAt());
+        }
+    }
+}
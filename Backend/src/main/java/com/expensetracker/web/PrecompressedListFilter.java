@@ -0,0 +1,181 @@
+package com.expensetracker.web;
+
+import com.expensetracker.service.ExpenseService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * Keeps gzip-compressed copies of large expense list responses.
+ * <p>
+ * A list body never changes for a given list ETag and Accept header, so once it has been
+ * serialised and compressed the same bytes can be replayed until the user writes again.
+ * A hit costs the user-row lookup behind the ETag; the expenses query, serialisation and
+ * compression are skipped. Smaller bodies are left to the container's on-the-fly gzip,
+ * which the weak list ETag allows.
+ * <p>
+ * The replayed bytes carry their own ETag ({@code -gzip} appended), and a conditional
+ * request naming it is answered 304 here.
+ */
+public class PrecompressedListFilter extends OncePerRequestFilter {
+    
+    private static final String LIST_PATH = "/api/expenses";
+    
+    @Autowired
+    private ExpenseService expenseService;
+    
+    @Value("${expenses.precompressed-cache.max-bytes:33554432}")
+    private long maxBytes;
+    
+    @Value("${expenses.precompressed-cache.min-response-bytes:8192}")
+    private int minResponseBytes;
+    
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final Map<String, Entry> cache = new LinkedHashMap<>(64, 0.75f, true);
+    
+    private long cachedBytes;
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod())
+                || !LIST_PATH.equals(request.getRequestURI().substring(request.getContextPath().length()))
+                || !acceptsGzip(request);
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        String etag = expenseService.getExpensesEtag(authentication.getName());
+        String key = authentication.getName() + '\n' + etag + '\n' + request.getHeader(HttpHeaders.ACCEPT);
+        String gzipEtag = gzipEtag(etag);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), gzipEtag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, gzipEtag);
+            return;
+        }
+        
+        Entry entry = get(key);
+        if (entry != null) {
+            response.setHeader(HttpHeaders.ETAG, gzipEtag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache, private");
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION);
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            response.setContentType(entry.contentType);
+            write(response, entry.gzipped);
+            return;
+        }
+        
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+        
+        byte[] body = wrapper.getContentAsByteArray();
+        // Only cache what the controller produced for the ETag we keyed on
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK
+                || !etag.equals(wrapper.getHeader(HttpHeaders.ETAG))
+                || body.length < minResponseBytes
+                || wrapper.getContentType() == null) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        
+        byte[] gzipped = gzip(body);
+        put(key, new Entry(wrapper.getContentType(), gzipped));
+        wrapper.resetBuffer();
+        response.setHeader(HttpHeaders.ETAG, gzipEtag);
+        write(response, gzipped);
+    }
+    
+    private static void write(HttpServletResponse response, byte[] gzipped) throws IOException {
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setContentLength(gzipped.length);
+        response.getOutputStream().write(gzipped);
+    }
+    
+    private synchronized Entry get(String key) {
+        return cache.get(key);
+    }
+    
+    private synchronized void put(String key, Entry entry) {
+        if (entry.gzipped.length > maxBytes) {
+            return;
+        }
+        Entry previous = cache.put(key, entry);
+        if (previous != null) {
+            cachedBytes -= previous.gzipped.length;
+        }
+        cachedBytes += entry.gzipped.length;
+        Iterator<Entry> eldest = cache.values().iterator();
+        while (cachedBytes > maxBytes && eldest.hasNext()) {
+            cachedBytes -= eldest.next().gzipped.length;
+            eldest.remove();
+        }
+    }
+    
+    private static String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+    
+    // Weak comparison, as If-None-Match requires
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (!StringUtils.hasText(ifNoneMatch)) {
+            return false;
+        }
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return StringUtils.hasText(acceptEncoding) && acceptEncoding.toLowerCase().contains("gzip");
+    }
+    
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+    
+    private static final class Entry {
+        
+        private final String contentType;
+        private final byte[] gzipped;
+        
+        Entry(String contentType, byte[] gzipped) {
+            this.contentType = contentType;
+            this.gzipped = gzipped;
+        }
+    }
+}
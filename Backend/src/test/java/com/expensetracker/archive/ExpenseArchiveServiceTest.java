@@ -0,0 +1,142 @@
+package com.expensetracker.archive;
+
+import com.expensetracker.entity.Expense;
+import com.expensetracker.entity.TestSchema;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseArchiveServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private ExpenseArchiveService archiveService;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:archive" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TestSchema.create(dataSource);
+        jdbcTemplate.update("insert into users (id, username, email, password) values "
+                + "(1, 'alice', 'alice@example.com', 'x'), (2, 'bob', 'bob@example.com', 'x')");
+
+        archiveService = new ExpenseArchiveService();
+        ReflectionTestUtils.setField(archiveService, "enabled", true);
+        ReflectionTestUtils.setField(archiveService, "directory", directory.toString());
+        ReflectionTestUtils.setField(archiveService, "horizonDays", 180);
+        ReflectionTestUtils.setField(archiveService, "maxOpenSegments", 4);
+        ReflectionTestUtils.setField(archiveService, "jdbcTimeZone", "UTC");
+        ReflectionTestUtils.setField(archiveService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(archiveService, "transactionManager", new DataSourceTransactionManager(dataSource));
+    }
+
+    @Test
+    void archiveAll_ShouldMoveOnlyAgedExpensesOutOfTheTable() {
+        // Given
+        insert(1L, "Old", LocalDate.now().minusDays(400), 1L);
+        insert(1L, "Recent", LocalDate.now().minusDays(10), 2L);
+        insert(2L, "Other user", LocalDate.now().minusDays(300), 1L);
+
+        // When
+        long archived = archiveService.archiveAll();
+
+        // Then
+        assertEquals(2, archived);
+        assertEquals(List.of("Recent"), jdbcTemplate.queryForList("select title from expenses", String.class));
+        assertEquals(List.of("Old"), archiveService.findArchived(1L).stream().map(Expense::getTitle).toList());
+        assertEquals(List.of("Other user"), archiveService.findArchived(2L).stream().map(Expense::getTitle).toList());
+    }
+
+    @Test
+    void archiveAll_ShouldKeepEarlierSegmentRows_WhenArchivingAgain() {
+        // Given
+        insert(1L, "First", LocalDate.now().minusDays(400), 1L);
+        archiveService.archiveAll();
+        insert(1L, "Second", LocalDate.now().minusDays(200), 2L);
+
+        // When
+        archiveService.archiveAll();
+
+        // Then
+        assertEquals(List.of("First", "Second"),
+                archiveService.findArchived(1L).stream().map(Expense::getTitle).toList());
+        assertEquals(1, directory.resolve("1").toFile().list().length);
+    }
+
+    @Test
+    void findArchived_ShouldHideExpensesDeletedAfterArchival() {
+        // Given
+        long id = insert(1L, "Deleted later", LocalDate.now().minusDays(400), 1L);
+        archiveService.archiveAll();
+        assertEquals("Deleted later", archiveService.findArchived(1L, id).orElseThrow().getTitle());
+
+        // When
+        jdbcTemplate.update("insert into expense_tombstones (expense_id, user_id, change_seq) values (?, 1, 5)", id);
+
+        // Then
+        assertTrue(archiveService.findArchived(1L).isEmpty());
+        assertTrue(archiveService.findArchived(1L, id).isEmpty());
+    }
+
+    @Test
+    void findArchivedChanges_ShouldSkipTheSegment_WhenItsChangesAreAllOlder() {
+        // Given
+        insert(1L, "Third", LocalDate.now().minusDays(400), 3L);
+        long sixth = insert(1L, "Sixth", LocalDate.now().minusDays(300), 6L);
+        archiveService.archiveAll();
+
+        // When & Then
+        assertEquals(List.of("Sixth"), archiveService.findArchivedChanges(1L, 4L).stream().map(Expense::getTitle).toList());
+        assertEquals(List.of(), archiveService.findArchivedChanges(1L, 6L));
+        assertEquals(List.of(), archiveService.findArchivedChanges(2L, 0L));
+        jdbcTemplate.update("insert into expense_tombstones (expense_id, user_id, change_seq) values (?, 1, 9)", sixth);
+        assertEquals(List.of(), archiveService.findArchivedChanges(1L, 4L));
+        assertEquals(List.of("Third"), archiveService.findArchivedChanges(1L, 0L).stream().map(Expense::getTitle).toList());
+    }
+
+    @Test
+    void restore_ShouldReinsertArchivedExpenseWithItsOriginalIdAndVersion() {
+        // Given
+        long id = insert(1L, "Restored", LocalDate.now().minusDays(400), 4L);
+        jdbcTemplate.update("update expenses set version = 3 where id = ?", id);
+        archiveService.archiveAll();
+
+        // When
+        boolean restored = archiveService.restore(1L, id);
+
+        // Then
+        assertTrue(restored);
+        assertEquals("Restored", jdbcTemplate.queryForObject(
+                "select title from expenses where id = ? and change_seq = 4", String.class, id));
+        // A client that read the expense before it was archived can still write it
+        assertEquals(3L, jdbcTemplate.queryForObject("select version from expenses where id = ?", Long.class, id));
+        assertFalse(archiveService.restore(1L, 999L));
+
+        // And a later run drops the stale copy once the restored row has been changed
+        jdbcTemplate.update("update expenses set expense_date = ?, change_seq = 6 where id = ?", LocalDate.now(), id);
+        insert(1L, "Another", LocalDate.now().minusDays(400), 7L);
+        archiveService.archiveAll();
+        assertEquals(List.of("Another"), archiveService.findArchived(1L).stream().map(Expense::getTitle).toList());
+    }
+
+    private long insert(Long userId, String title, LocalDate date, long changeSeq) {
+        jdbcTemplate.update("insert into expenses (title, amount, category, expense_date, created_at, updated_at, "
+                + "change_seq, user_id) values (?, 10.00, 'Food', ?, current_timestamp, current_timestamp, ?, ?)",
+                title, date, changeSeq, userId);
+        return jdbcTemplate.queryForObject("select max(id) from expenses", Long.class);
+    }
+}
@@ -0,0 +1,200 @@
+package com.expensetracker.archive;
+
+import com.expensetracker.entity.Expense;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseSegmentTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeAndReadAll_ShouldRoundTripEveryColumn() throws Exception {
+        // Given
+        List<Expense> expenses = new ArrayList<>();
+        expenses.add(expense(7L, 3L, "Café ☕", null, "-12.50", "Food", LocalDate.of(2023, 1, 5),
+                LocalDateTime.of(2023, 1, 5, 9, 30, 15, 123456789), null));
+        expenses.add(expense(3L, 9L, "Rent", "January", "950.00", "Housing", LocalDate.of(2022, 12, 31),
+                LocalDateTime.of(2023, 1, 1, 0, 0), LocalDateTime.of(2023, 2, 1, 8, 0, 0, 1000)));
+        expenses.add(expense(12L, 10L, "Lunch", "", "8", "Food", LocalDate.of(2023, 1, 6), null, null));
+        expenses.get(1).setTags("housing,monthly");
+        expenses.get(1).setVersion(3L);
+        expenses.get(2).setVersion(200L);
+        Path path = directory.resolve("1.seg");
+
+        // When
+        ExpenseSegment.write(path, expenses);
+        ExpenseSegment segment = ExpenseSegment.open(path);
+        List<Expense> read = segment.readAll();
+
+        // Then: in id order, with the ranges in the header
+        assertEquals(3, segment.getRowCount());
+        assertArrayEquals(new long[] {3L, 7L, 12L}, segment.readIds());
+        assertEquals(3L, segment.getMinId());
+        assertEquals(12L, segment.getMaxId());
+        assertEquals(3L, segment.getMinChangeSeq());
+        assertEquals(10L, segment.getMaxChangeSeq());
+        expenses.sort(Comparator.comparing(Expense::getId));
+        for (int i = 0; i < expenses.size(); i++) {
+            Expense expected = expenses.get(i);
+            Expense actual = read.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getChangeSeq(), actual.getChangeSeq());
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getDescription(), actual.getDescription());
+            assertEquals(expected.getAmount(), actual.getAmount());
+            assertEquals(expected.getCategory(), actual.getCategory());
+            assertEquals(expected.getTags(), actual.getTags());
+            assertEquals(expected.getExpenseDate(), actual.getExpenseDate());
+            assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+            assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+            assertEquals(expected.getVersion(), actual.getVersion());
+        }
+        assertFalse(Files.exists(directory.resolve("1.seg.tmp")));
+    }
+
+    @Test
+    void find_ShouldDecodeOnlyTheRowWithTheId() throws Exception {
+        // Given
+        List<Expense> expenses = new ArrayList<>();
+        for (long id = 2; id <= 2000; id += 2) {
+            expenses.add(expense(id, id + 1, "Item " + id, id % 3 == 0 ? null : "Note " + id, "1.25", "Cat " + id % 7,
+                    LocalDate.of(2023, 1, 1).plusDays(id % 300), LocalDateTime.of(2023, 1, 1, 8, 0).plusMinutes(id), null));
+            expenses.get(expenses.size() - 1).setTags(id % 4 == 0 ? "tag" + id : null);
+        }
+        Path path = directory.resolve("1.seg");
+        ExpenseSegment.write(path, expenses);
+        ExpenseSegment segment = ExpenseSegment.open(path);
+
+        // When & Then
+        for (long id : new long[] {2L, 998L, 1000L, 2000L}) {
+            Expense found = segment.find(id).orElseThrow();
+            assertEquals(id, found.getId());
+            assertEquals("Item " + id, found.getTitle());
+            assertEquals(id % 3 == 0 ? null : "Note " + id, found.getDescription());
+            assertEquals(id % 4 == 0 ? "tag" + id : null, found.getTags());
+            assertEquals("Cat " + id % 7, found.getCategory());
+            assertEquals(LocalDateTime.of(2023, 1, 1, 8, 0).plusMinutes(id), found.getCreatedAt());
+        }
+        assertTrue(segment.find(999L).isEmpty());
+        assertTrue(segment.find(1L).isEmpty());
+        assertTrue(segment.find(2002L).isEmpty());
+    }
+
+    @Test
+    void readAll_ShouldReadVersion1SegmentsAsUntagged() throws Exception {
+        // Given: a version 1 segment is a version 3 one without the trailing tags and version columns
+        Path path = olderSegment((byte) 1);
+
+        // When
+        List<Expense> read = ExpenseSegment.open(path).readAll();
+
+        // Then
+        assertEquals("Rent", read.get(0).getTitle());
+        assertNull(read.get(0).getTags());
+        assertEquals(0L, read.get(0).getVersion());
+    }
+
+    @Test
+    void readAll_ShouldReadVersion2SegmentsAsVersionZero() throws Exception {
+        // Given: a version 2 segment is a version 3 one without the trailing version column
+        Path path = olderSegment((byte) 2);
+
+        // When
+        List<Expense> read = ExpenseSegment.open(path).readAll();
+
+        // Then
+        assertEquals("monthly", read.get(0).getTags());
+        assertEquals(0L, read.get(0).getVersion());
+    }
+
+    @Test
+    void find_ShouldWorkOutTheRangesOfOlderSegments() throws Exception {
+        // Given: before version 4 the header had no ranges
+        Expense updatedLater = expense(3L, 8L, "Later", null, "1.00", "Food", LocalDate.of(2023, 2, 1), null, null);
+        Expense updatedEarlier = expense(9L, 4L, "Earlier", null, "2.00", "Food", LocalDate.of(2023, 1, 1), null, null);
+        Path path = olderSegment((byte) 3, updatedEarlier, updatedLater);
+
+        // When
+        ExpenseSegment segment = ExpenseSegment.open(path);
+
+        // Then
+        assertArrayEquals(new long[] {3L, 9L}, segment.readIds());
+        assertEquals(3L, segment.getMinId());
+        assertEquals(9L, segment.getMaxId());
+        assertEquals(4L, segment.getMinChangeSeq());
+        assertEquals(8L, segment.getMaxChangeSeq());
+        assertEquals("Later", segment.find(3L).orElseThrow().getTitle());
+        assertEquals("Earlier", segment.find(9L).orElseThrow().getTitle());
+        assertTrue(segment.find(5L).isEmpty());
+    }
+
+    @Test
+    void write_ShouldCompressRepetitiveColumns() throws Exception {
+        // Given
+        List<Expense> expenses = new ArrayList<>();
+        LocalDate date = LocalDate.of(2023, 1, 1);
+        for (long i = 1; i <= 5000; i++) {
+            expenses.add(expense(i, i, "Coffee", "Morning coffee at the office", "3.20", "Food",
+                    date.plusDays(i / 10), LocalDateTime.of(2023, 1, 1, 8, 0).plusMinutes(i), null));
+        }
+        Path path = directory.resolve("1.seg");
+
+        // When
+        ExpenseSegment.write(path, expenses);
+
+        // Then
+        assertTrue(Files.size(path) < 5000 * 8, "segment is " + Files.size(path) + " bytes");
+        assertEquals(5000, ExpenseSegment.open(path).readAll().size());
+    }
+
+    private Path olderSegment(byte version) throws Exception {
+        Expense expense = expense(1L, 1L, "Rent", null, "950.00", "Housing", LocalDate.of(2022, 12, 31), null, null);
+        expense.setTags("monthly");
+        expense.setVersion(5L);
+        return olderSegment(version, expense);
+    }
+
+    /**
+     * A segment of the rows laid out as an older format version: a version 4 file without the
+     * id and change_seq ranges after the row count, whose later columns the older reader ignores.
+     */
+    private Path olderSegment(byte version, Expense... rows) throws Exception {
+        Path path = directory.resolve("1.seg");
+        ExpenseSegment.write(path, List.of(rows));
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[4] = version;
+        byte[] older = new byte[bytes.length - 32];
+        System.arraycopy(bytes, 0, older, 0, 9);
+        System.arraycopy(bytes, 41, older, 9, bytes.length - 41);
+        Files.write(path, older);
+        return path;
+    }
+
+    private static Expense expense(Long id, long changeSeq, String title, String description, String amount,
+                                   String category, LocalDate date, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        Expense expense = new Expense();
+        expense.setId(id);
+        expense.setChangeSeq(changeSeq);
+        expense.setTitle(title);
+        expense.setDescription(description);
+        expense.setAmount(new BigDecimal(amount));
+        expense.setCategory(category);
+        expense.setExpenseDate(date);
+        expense.setCreatedAt(createdAt);
+        expense.setUpdatedAt(updatedAt);
+        return expense;
+    }
+}
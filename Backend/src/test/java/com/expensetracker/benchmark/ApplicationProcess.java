@@ -0,0 +1,94 @@
+package com.expensetracker.benchmark;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The application in a child JVM on a file-backed H2 database, for benchmarks that need a
+ * fresh JIT and a real HTTP stack. Output goes to {@code app.log} in the work directory.
+ */
+final class ApplicationProcess implements AutoCloseable {
+
+    static final Duration TIMEOUT = Duration.ofMinutes(3);
+
+    private static final String MAIN_CLASS = "com.expensetracker.ExpenseTrackerApplication";
+
+    private final Process process;
+
+    private final Path log;
+
+    private final int port;
+
+    private ApplicationProcess(Process process, Path log, int port) {
+        this.process = process;
+        this.log = log;
+        this.port = port;
+    }
+
+    /**
+     * The classpath the tests run with, which has the application and the H2 driver.
+     */
+    static String testClasspath() {
+        return System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+    }
+
+    static ApplicationProcess start(Path work, String classpath, List<String> jvmArgs, List<String> args)
+            throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(classpath);
+        command.add(MAIN_CLASS);
+        command.add("--server.port=" + port);
+        command.add("--spring.datasource.url=jdbc:h2:file:" + work.toAbsolutePath().resolve("app") + ";MODE=MySQL");
+        command.add("--spring.datasource.driverClassName=org.h2.Driver");
+        command.add("--spring.datasource.username=sa");
+        command.add("--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect");
+        command.addAll(args);
+        Path log = work.resolve("app.log");
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        return new ApplicationProcess(process, log, port);
+    }
+
+    String url(String path) {
+        return "http://localhost:" + port + path;
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Waits for a process that stops by itself, such as a CDS training run, and returns its exit code.
+     */
+    int waitFor() throws InterruptedException {
+        if (!process.waitFor(TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+            throw new AssertionError("application did not exit, see " + log);
+        }
+        return process.exitValue();
+    }
+
+    Path log() {
+        return log;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        process.waitFor(TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+    }
+}
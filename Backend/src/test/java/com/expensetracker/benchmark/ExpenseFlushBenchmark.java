@@ -0,0 +1,293 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.archive.ExpenseArchiveService;
+import com.expensetracker.dto.ExpensePatch;
+import com.expensetracker.dto.ExpenseRequest;
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.entity.EnhancingClassLoader;
+import com.expensetracker.entity.Expense;
+import com.expensetracker.entity.User;
+import com.expensetracker.index.AutocompleteIndex;
+import com.expensetracker.index.ExpenseBitmapIndex;
+import com.expensetracker.index.FingerprintIndex;
+import com.expensetracker.repository.ExpensePatchRepositoryImpl;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.ExpenseTombstoneRepository;
+import com.expensetracker.repository.UserRepository;
+import com.expensetracker.service.BudgetService;
+import com.expensetracker.service.ExpenseService;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.BootstrapServiceRegistry;
+import org.hibernate.boot.registry.BootstrapServiceRegistryBuilder;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * What an expense write costs Hibernate on an in-memory H2 database. First the columns and
+ * statements of changing one amount by PUT, which writes the whole row, and by merge PATCH,
+ * which writes the changed column. Then the flush of a session holding many expenses, with
+ * {@code Expense} and {@code User} as compiled, where Hibernate compares every field against
+ * the snapshot it took on load, and enhanced the way {@code mvn package -Penhance} does, where
+ * the entities record their own changes; the enhanced copies are made at runtime in a separate
+ * class loader so both run from one build. Run with {@code mvn test -Pbenchmark}.
+ */
+class ExpenseFlushBenchmark {
+
+    private static final int WRITES = 2_000;
+
+    private static final int WARMUP_WRITES = 500;
+
+    private static final int MANAGED_EXPENSES = 2_000;
+
+    private static final int FLUSHES = 300;
+
+    private static final int WARMUP_FLUSHES = 100;
+
+    private static final String USERNAME = "patcher";
+
+    @Test
+    void patchWritesLessAndEnhancedEntitiesFlushFaster() throws Exception {
+        System.out.printf("%nOne amount changed per write, %d writes%n", WRITES);
+        compareWrites();
+
+        System.out.printf("%nFlush of a session holding %d expenses, %d flushes%n", MANAGED_EXPENSES, FLUSHES);
+        double[] snapshot = new FlushWorkload().call();
+        ClassLoader loader = new EnhancingClassLoader(getClass().getClassLoader(), FlushWorkload.class);
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        double[] enhanced;
+        try {
+            @SuppressWarnings("unchecked")
+            Callable<double[]> workload = (Callable<double[]>) loader.loadClass(FlushWorkload.class.getName())
+                    .getDeclaredConstructor().newInstance();
+            enhanced = workload.call();
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+        assertEquals(0.0, snapshot[2]);
+        assertEquals(1.0, enhanced[2]);
+        System.out.printf("%-36s %10s %10s%n", "", "snapshot", "enhanced");
+        System.out.printf("%-36s %8.1fus %8.1fus%n", "flush, nothing changed", snapshot[0], enhanced[0]);
+        System.out.printf("%-36s %8.1fus %8.1fus%n", "flush, one amount changed", snapshot[1], enhanced[1]);
+    }
+
+    private void compareWrites() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:patch-benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+
+        // Assignments in each UPDATE of the expenses table, counted from the SQL Hibernate sends
+        AtomicLong updates = new AtomicLong();
+        AtomicLong assignments = new AtomicLong();
+        StatementInspector inspector = sql -> {
+            if (sql.startsWith("update expenses ")) {
+                String set = sql.substring(sql.indexOf(" set ") + 5, sql.indexOf(" where "));
+                updates.incrementAndGet();
+                assignments.addAndGet(set.split(",").length);
+            }
+            return sql;
+        };
+
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan("com.expensetracker.entity");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "create", "hibernate.generate_statistics", "true",
+                "hibernate.session.events.log", "false", "hibernate.session_factory.statement_inspector", inspector));
+        factory.afterPropertiesSet();
+        EntityManagerFactory entityManagerFactory = factory.getObject();
+        try {
+            JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+            transactionManager.setDataSource(dataSource);
+            TransactionTemplate transactions = new TransactionTemplate(transactionManager);
+            ExpenseService expenseService = expenseService(entityManagerFactory, dataSource);
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+            List<ExpenseResponse> expenses = new ArrayList<>();
+            for (int i = 0; i < WRITES; i++) {
+                expenses.add(transactions.execute(status -> expenseService.createExpense(request(BigDecimal.ONE),
+                        USERNAME, true)));
+            }
+            // Every write moves the amount somewhere new, so none of them is a no-op
+            AtomicLong cents = new AtomicLong(1_000);
+            Consumer<ExpenseResponse> put = expense -> {
+                ExpenseRequest request = request(BigDecimal.valueOf(cents.incrementAndGet(), 2));
+                request.setDescription(expense.getDescription());
+                request.setTags(expense.getTags());
+                expenseService.updateExpense(expense.getId(), request, USERNAME);
+            };
+            Consumer<ExpenseResponse> patch = expense -> {
+                ExpensePatch amount = new ExpensePatch();
+                amount.setAmount(BigDecimal.valueOf(cents.incrementAndGet(), 2));
+                expenseService.patchExpense(expense.getId(), amount, USERNAME);
+            };
+            for (Consumer<ExpenseResponse> write : List.of(put, patch, put, patch)) {
+                for (int i = 0; i < WARMUP_WRITES; i++) {
+                    ExpenseResponse expense = expenses.get(i);
+                    transactions.executeWithoutResult(status -> write.accept(expense));
+                }
+            }
+
+            String[] names = {"PUT /api/expenses/{id}", "PATCH /api/expenses/{id}"};
+            List<Consumer<ExpenseResponse>> writes = List.of(put, patch);
+            for (int w = 0; w < writes.size(); w++) {
+                Consumer<ExpenseResponse> write = writes.get(w);
+                statistics.clear();
+                updates.set(0);
+                assignments.set(0);
+                long start = System.nanoTime();
+                for (ExpenseResponse expense : expenses) {
+                    transactions.executeWithoutResult(status -> write.accept(expense));
+                }
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("%-36s %5.1f columns set %5.1f JPA statements %8.1fus/write%n", names[w],
+                        (double) assignments.get() / updates.get(),
+                        (double) statistics.getPrepareStatementCount() / WRITES, elapsed / 1e3 / WRITES);
+            }
+        } finally {
+            entityManagerFactory.close();
+            dataSource.close();
+        }
+    }
+
+    private static ExpenseService expenseService(EntityManagerFactory entityManagerFactory,
+                                                 HikariDataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        JpaRepositoryFactory repositories = new JpaRepositoryFactory(entityManager);
+        ExpensePatchRepositoryImpl patches = new ExpensePatchRepositoryImpl();
+        ReflectionTestUtils.setField(patches, "entityManager", entityManager);
+        ExpenseRepository expenseRepository = repositories.getRepository(ExpenseRepository.class,
+                RepositoryComposition.RepositoryFragments.just(patches));
+        UserRepository userRepository = repositories.getRepository(UserRepository.class);
+
+        BudgetService budgetService = new BudgetService();
+        ReflectionTestUtils.setField(budgetService, "nearThresholdPercent", 80);
+        ReflectionTestUtils.setField(budgetService, "jdbcTimeZone", "");
+        ReflectionTestUtils.setField(budgetService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(budgetService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+
+        ExpenseService expenseService = new ExpenseService();
+        ReflectionTestUtils.setField(expenseService, "expenseRepository", expenseRepository);
+        ReflectionTestUtils.setField(expenseService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(expenseService, "tombstoneRepository",
+                repositories.getRepository(ExpenseTombstoneRepository.class));
+        ReflectionTestUtils.setField(expenseService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.setField(expenseService, "archiveService", mock(ExpenseArchiveService.class));
+        ReflectionTestUtils.setField(expenseService, "budgetService", budgetService);
+        ReflectionTestUtils.setField(expenseService, "bitmapIndex", mock(ExpenseBitmapIndex.class));
+        ReflectionTestUtils.setField(expenseService, "autocompleteIndex", mock(AutocompleteIndex.class));
+        ReflectionTestUtils.setField(expenseService, "fingerprintIndex", mock(FingerprintIndex.class));
+
+        new TransactionTemplate(new JpaTransactionManager(entityManagerFactory)).executeWithoutResult(status ->
+                userRepository.save(new User(USERNAME, "patcher@example.com", "password")));
+        return expenseService;
+    }
+
+    private static ExpenseRequest request(BigDecimal amount) {
+        ExpenseRequest request = new ExpenseRequest("Coffee", "Flat white", amount, "Food", LocalDate.now());
+        request.setTags(List.of("cafe"));
+        return request;
+    }
+
+    /**
+     * Flushes sessions holding every expense, clean and with one changed. Whichever class
+     * loader loads this class decides which {@code Expense} it runs on. Returns microseconds
+     * per clean and per one-change flush, then 1 if the entities were enhanced, else 0.
+     */
+    public static class FlushWorkload implements Callable<double[]> {
+
+        @Override
+        public double[] call() {
+            boolean enhanced = SelfDirtinessTracker.class.isAssignableFrom(Expense.class);
+            DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:flush-"
+                    + (enhanced ? "enhanced" : "snapshot") + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+            // Hibernate must resolve entity names through this class's loader, not the application's
+            BootstrapServiceRegistry bootstrap = new BootstrapServiceRegistryBuilder()
+                    .applyClassLoader(FlushWorkload.class.getClassLoader())
+                    .build();
+            SessionFactory sessionFactory = new MetadataSources(new StandardServiceRegistryBuilder(bootstrap)
+                    .applySetting("hibernate.connection.datasource", dataSource)
+                    .applySetting("hibernate.hbm2ddl.auto", "create")
+                    .applySetting("hibernate.session.events.log", "false")
+                    .applySetting("jakarta.persistence.validation.mode", "none")
+                    .build())
+                    .addAnnotatedClass(Expense.class)
+                    .addAnnotatedClass(User.class)
+                    .buildMetadata()
+                    .buildSessionFactory();
+            try {
+                sessionFactory.inTransaction(session -> {
+                    User user = new User(USERNAME, "patcher@example.com", "password");
+                    session.persist(user);
+                    for (int i = 0; i < MANAGED_EXPENSES; i++) {
+                        session.persist(new Expense("Coffee " + i, "Flat white", BigDecimal.ONE, "Food",
+                                LocalDate.now(), user));
+                    }
+                });
+                for (int i = 0; i < WARMUP_FLUSHES; i++) {
+                    flush(sessionFactory, false);
+                    flush(sessionFactory, true);
+                }
+                long clean = 0;
+                long dirty = 0;
+                for (int i = 0; i < FLUSHES; i++) {
+                    clean += flush(sessionFactory, false);
+                    dirty += flush(sessionFactory, true);
+                }
+                return new double[] {clean / 1e3 / FLUSHES, dirty / 1e3 / FLUSHES, enhanced ? 1 : 0};
+            } finally {
+                sessionFactory.close();
+            }
+        }
+
+        private static long flush(SessionFactory sessionFactory, boolean change) {
+            try (Session session = sessionFactory.openSession()) {
+                session.beginTransaction();
+                List<Expense> expenses = session.createSelectionQuery("from Expense", Expense.class).list();
+                assertEquals(MANAGED_EXPENSES, expenses.size());
+                if (change) {
+                    Expense expense = expenses.get(expenses.size() / 2);
+                    expense.setAmount(expense.getAmount().add(BigDecimal.ONE));
+                }
+                long start = System.nanoTime();
+                session.flush();
+                long elapsed = System.nanoTime() - start;
+                session.getTransaction().commit();
+                return elapsed;
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.dto.ExpenseRequest;
+import com.expensetracker.entity.TestSchema;
+import com.expensetracker.service.BudgetService;
+import com.expensetracker.service.ExpenseIngestService;
+import com.zaxxer.hikari.HikariDataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * One commit per expense against group commit, with many concurrent clients writing to a
+ * file-backed H2 database. Run with {@code mvn test -Pbenchmark}.
+ */
+class ExpenseIngestBenchmark {
+
+    private static final int CLIENTS = 64;
+
+    private static final int EXPENSES = 10_000;
+
+    @Test
+    void compareCommitStrategies() throws Exception {
+        System.out.printf("%n%d expenses from %d concurrent clients%n", EXPENSES, CLIENTS);
+        run("commit per expense", 1, 0);
+        run("group commit", 100, 5);
+    }
+
+    private static void run(String name, int maxBatchSize, long maxLingerMs) throws Exception {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:file:./target/ingest-benchmark-" + maxBatchSize + ";MODE=MySQL");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(CLIENTS + 2);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("drop all objects");
+        TestSchema.create(dataSource);
+        for (int i = 0; i < CLIENTS; i++) {
+            jdbcTemplate.update("insert into users (username, email, password) values (?, ?, 'x')",
+                    "user" + i, "user" + i + "@example.com");
+        }
+
+        ExpenseIngestService ingestService = new ExpenseIngestService();
+        ReflectionTestUtils.setField(ingestService, "enabled", true);
+        ReflectionTestUtils.setField(ingestService, "maxBatchSize", maxBatchSize);
+        ReflectionTestUtils.setField(ingestService, "maxLingerMs", maxLingerMs);
+        ReflectionTestUtils.setField(ingestService, "queueCapacity", EXPENSES);
+        ReflectionTestUtils.setField(ingestService, "responseTimeoutMs", 60000L);
+        ReflectionTestUtils.setField(ingestService, "jdbcTimeZone", "");
+        ReflectionTestUtils.setField(ingestService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(ingestService, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(ingestService, "eventPublisher",
+                (ApplicationEventPublisher) event -> { });
+        BudgetService budgetService = new BudgetService();
+        ReflectionTestUtils.setField(budgetService, "nearThresholdPercent", 80);
+        ReflectionTestUtils.setField(budgetService, "jdbcTimeZone", "");
+        ReflectionTestUtils.setField(budgetService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(budgetService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.setField(ingestService, "budgetService", budgetService);
+        ReflectionTestUtils.invokeMethod(ingestService, "start");
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        long[] latencies = new long[EXPENSES];
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < EXPENSES; i++) {
+            int index = i;
+            futures.add(clients.submit(() -> {
+                ExpenseRequest request = new ExpenseRequest("Expense " + index, null,
+                        new BigDecimal("12.50"), "Food", LocalDate.now());
+                long begin = System.nanoTime();
+                ingestService.createExpense(request, "user" + (index % CLIENTS), true);
+                latencies[index] = System.nanoTime() - begin;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+        ReflectionTestUtils.invokeMethod(ingestService, "stop");
+
+        assertEquals(EXPENSES, jdbcTemplate.queryForObject("select count(*) from expenses", Integer.class));
+        dataSource.close();
+
+        Arrays.sort(latencies);
+        System.out.printf("%-20s %8.0f/s  commits %6d  p50 %6.2f ms  p99 %6.2f ms%n", name,
+                EXPENSES / (elapsed / 1e9), ingestService.getBatchesCommitted(),
+                latencies[EXPENSES / 2] / 1e6, latencies[EXPENSES * 99 / 100] / 1e6);
+    }
+}
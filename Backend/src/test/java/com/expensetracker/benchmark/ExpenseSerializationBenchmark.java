@@ -0,0 +1,61 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.web.ExpenseJsonComponent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Bean serialisation against the hand-written serializer, without and with the per-version
+ * byte cache. Run with {@code mvn test -Pbenchmark}.
+ */
+class ExpenseSerializationBenchmark {
+
+    private static final int ITERATIONS = 300;
+
+    @Test
+    void compareSerializers() throws IOException {
+        List<ExpenseResponse> expenses = ResponseFormatBenchmark.realisticList(2000);
+        ObjectMapper reflective = mapper(null);
+        ObjectMapper streaming = mapper(new ExpenseJsonComponent.ExpenseResponseSerializer(false));
+        ObjectMapper cached = mapper(new ExpenseJsonComponent.ExpenseResponseSerializer(true));
+
+        byte[] expected = reflective.writeValueAsBytes(expenses);
+        assertArrayEquals(expected, streaming.writeValueAsBytes(expenses));
+        assertArrayEquals(expected, cached.writeValueAsBytes(expenses));
+
+        System.out.printf("%n%d expenses, %d bytes, mean of %d runs%n", expenses.size(), expected.length, ITERATIONS);
+        measure("bean (reflective)", reflective, expenses);
+        measure("streaming", streaming, expenses);
+        measure("streaming + cache", cached, expenses);
+    }
+
+    private static void measure(String name, ObjectMapper mapper, List<ExpenseResponse> expenses) throws IOException {
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.writeValueAsBytes(expenses);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.writeValueAsBytes(expenses);
+        }
+        long micros = (System.nanoTime() - start) / ITERATIONS / 1000;
+        System.out.printf("%-20s %8d us%n", name, micros);
+    }
+
+    private static ObjectMapper mapper(ExpenseJsonComponent.ExpenseResponseSerializer serializer) {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (serializer != null) {
+            builder.modulesToInstall(new SimpleModule().addSerializer(ExpenseResponse.class, serializer));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,329 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.archive.ExpenseArchiveService;
+import com.expensetracker.dto.ExpenseRequest;
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.entity.Expense;
+import com.expensetracker.entity.ExpenseTombstone;
+import com.expensetracker.entity.User;
+import com.expensetracker.index.AutocompleteIndex;
+import com.expensetracker.index.ExpenseBitmapIndex;
+import com.expensetracker.index.FingerprintIndex;
+import com.expensetracker.repository.ExpensePatchRepositoryImpl;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.ExpenseTombstoneRepository;
+import com.expensetracker.repository.UserRepository;
+import com.expensetracker.service.BudgetService;
+import com.expensetracker.service.ExpenseConflictException;
+import com.expensetracker.service.ExpenseService;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Concurrent writers on a handful of expenses through {@link ExpenseService} on JPA over an
+ * in-memory H2 database: statements per update and delete against the previous read-then-save
+ * path, then many clients each reading an expense and writing back its amount plus one with
+ * the version they read, retrying on conflict. No increment may be lost, in the expenses or in
+ * the budget totals; an unconditional read-then-write is run alongside for contrast. Run with
+ * {@code mvn test -Pbenchmark}.
+ */
+class ExpenseWriteBenchmark {
+
+    private static final int CLIENTS = 16;
+
+    private static final int EXPENSES = 4;
+
+    private static final int INCREMENTS_PER_CLIENT = 100;
+
+    private static final int ROUND_TRIP_SAMPLES = 500;
+
+    private static final String USERNAME = "writer";
+
+    private HikariDataSource dataSource;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private TransactionTemplate transactions;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ExpenseService expenseService;
+
+    private ExpenseRepository expenseRepository;
+
+    private UserRepository userRepository;
+
+    private ExpenseTombstoneRepository tombstoneRepository;
+
+    private BudgetService budgetService;
+
+    @Test
+    void concurrentWritersLoseNoUpdates() throws Exception {
+        start();
+        try {
+            System.out.printf("%n%d clients, %d expenses, %d increments each%n", CLIENTS, EXPENSES,
+                    INCREMENTS_PER_CLIENT);
+            compareStatements();
+            increment();
+            unconditionalIncrement();
+            deleteRace();
+        } finally {
+            entityManagerFactory.close();
+            dataSource.close();
+        }
+    }
+
+    private void compareStatements() {
+        List<Long> ids = createExpenses(ROUND_TRIP_SAMPLES * 2);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        for (int i = 0; i < ROUND_TRIP_SAMPLES; i++) {
+            Long id = ids.get(i);
+            transactions.executeWithoutResult(status -> readThenSave(id, new BigDecimal("2.00")));
+        }
+        double before = (double) statistics.getPrepareStatementCount() / ROUND_TRIP_SAMPLES;
+        statistics.clear();
+        for (int i = 0; i < ROUND_TRIP_SAMPLES; i++) {
+            Long id = ids.get(ROUND_TRIP_SAMPLES + i);
+            transactions.executeWithoutResult(status -> expenseService.updateExpense(id, request(new BigDecimal("2.00")),
+                    USERNAME));
+        }
+        double after = (double) statistics.getPrepareStatementCount() / ROUND_TRIP_SAMPLES;
+        System.out.printf("%-36s %5.1f JPA statements, conditional update %5.1f%n", "update, read then save", before,
+                after);
+
+        statistics.clear();
+        for (int i = 0; i < ROUND_TRIP_SAMPLES; i++) {
+            Long id = ids.get(i);
+            transactions.executeWithoutResult(status -> readThenDelete(id));
+        }
+        before = (double) statistics.getPrepareStatementCount() / ROUND_TRIP_SAMPLES;
+        statistics.clear();
+        for (int i = 0; i < ROUND_TRIP_SAMPLES; i++) {
+            Long id = ids.get(ROUND_TRIP_SAMPLES + i);
+            transactions.executeWithoutResult(status -> expenseService.deleteExpense(id, null, USERNAME));
+        }
+        after = (double) statistics.getPrepareStatementCount() / ROUND_TRIP_SAMPLES;
+        System.out.printf("%-36s %5.1f JPA statements, conditional delete %5.1f%n", "delete, read then delete", before,
+                after);
+    }
+
+    private void increment() throws Exception {
+        List<Long> ids = createExpenses(EXPENSES);
+        BigDecimal totalBefore = monthTotal();
+        AtomicInteger conflicts = new AtomicInteger();
+        long start = System.nanoTime();
+        runClients(() -> {
+            for (int i = 0; i < INCREMENTS_PER_CLIENT; i++) {
+                Long id = ids.get(ThreadLocalRandom.current().nextInt(EXPENSES));
+                while (true) {
+                    ExpenseResponse read = transactions.execute(status -> expenseService.getExpenseById(id, USERNAME));
+                    ExpenseRequest request = request(read.getAmount().add(BigDecimal.ONE));
+                    request.setVersion(read.getVersion());
+                    try {
+                        transactions.executeWithoutResult(status -> expenseService.updateExpense(id, request, USERNAME));
+                        break;
+                    } catch (ExpenseConflictException e) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+            }
+        });
+        long elapsed = System.nanoTime() - start;
+
+        int increments = CLIENTS * INCREMENTS_PER_CLIENT;
+        assertEquals(new BigDecimal(EXPENSES + increments).setScale(2), sumOf(ids));
+        assertEquals(totalBefore.add(new BigDecimal(increments)), monthTotal());
+        System.out.printf("%-36s %8.0f writes/s  %6d conflicts retried, 0 lost%n", "versioned read-modify-write",
+                increments / (elapsed / 1e9), conflicts.get());
+    }
+
+    private void unconditionalIncrement() throws Exception {
+        List<Long> ids = createExpenses(EXPENSES);
+        runClients(() -> {
+            for (int i = 0; i < INCREMENTS_PER_CLIENT; i++) {
+                Long id = ids.get(ThreadLocalRandom.current().nextInt(EXPENSES));
+                BigDecimal amount = jdbcTemplate.queryForObject("select amount from expenses where id = ?",
+                        BigDecimal.class, id);
+                jdbcTemplate.update("update expenses set amount = ? where id = ?", amount.add(BigDecimal.ONE), id);
+            }
+        });
+        int increments = CLIENTS * INCREMENTS_PER_CLIENT;
+        int kept = sumOf(ids).intValue() - EXPENSES;
+        System.out.printf("%-36s %8d of %d increments lost%n", "unconditional read-modify-write",
+                increments - kept, increments);
+    }
+
+    private void deleteRace() throws Exception {
+        List<Long> ids = createExpenses(EXPENSES);
+        List<Long> versions = new ArrayList<>();
+        for (Long id : ids) {
+            versions.add(transactions.execute(status -> expenseService.getExpenseById(id, USERNAME)).getVersion());
+        }
+        AtomicInteger deleted = new AtomicInteger();
+        runClients(() -> {
+            for (int i = 0; i < EXPENSES; i++) {
+                Long id = ids.get(i);
+                Long version = versions.get(i);
+                try {
+                    transactions.executeWithoutResult(status -> expenseService.deleteExpense(id, version, USERNAME));
+                    deleted.incrementAndGet();
+                } catch (RuntimeException e) {
+                    // Lost the race: a conflict, or "not found" once the winner committed
+                }
+            }
+        });
+        assertEquals(EXPENSES, deleted.get());
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from expenses where id in ("
+                + ids.get(0) + "," + ids.get(1) + "," + ids.get(2) + "," + ids.get(3) + ")", Integer.class));
+        System.out.printf("%-36s %8d deletes raced by %d clients, %d won%n", "versioned delete", EXPENSES, CLIENTS,
+                deleted.get());
+    }
+
+    /**
+     * The update as it was before conditional writes: load the owner, load the expense, then
+     * let the flush write it back.
+     */
+    private void readThenSave(Long id, BigDecimal amount) {
+        User user = userRepository.findByUsername(USERNAME).orElseThrow();
+        Expense expense = expenseRepository.findByIdAndUserId(id, user.getId()).orElseThrow();
+        BudgetService.TotalChange removed = BudgetService.TotalChange.removed(user.getId(), USERNAME,
+                expense.getCategory(), expense.getExpenseDate(), expense.getTitle(), expense.getAmount());
+        expense.setAmount(amount);
+        userRepository.incrementExpensesVersion(user.getId());
+        expense.setChangeSeq(userRepository.findExpensesVersionById(user.getId()));
+        budgetService.adjust(List.of(removed, new BudgetService.TotalChange(user.getId(), USERNAME,
+                expense.getCategory(), expense.getExpenseDate(), expense.getTitle(), expense.getAmount())));
+        expenseRepository.save(expense);
+    }
+
+    private void readThenDelete(Long id) {
+        User user = userRepository.findByUsername(USERNAME).orElseThrow();
+        Expense expense = expenseRepository.findByIdAndUserId(id, user.getId()).orElseThrow();
+        expenseRepository.delete(expense);
+        userRepository.incrementExpensesVersion(user.getId());
+        long changeSeq = userRepository.findExpensesVersionById(user.getId());
+        budgetService.adjust(List.of(BudgetService.TotalChange.removed(user.getId(), USERNAME,
+                expense.getCategory(), expense.getExpenseDate(), expense.getTitle(), expense.getAmount())));
+        tombstoneRepository.save(new ExpenseTombstone(id, user.getId(), changeSeq));
+    }
+
+    private List<Long> createExpenses(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(transactions.execute(status -> expenseService.createExpense(request(BigDecimal.ONE), USERNAME, true))
+                    .getId());
+        }
+        return ids;
+    }
+
+    private static void runClients(Runnable client) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                futures.add(executor.submit(client));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private BigDecimal sumOf(List<Long> ids) {
+        BigDecimal sum = BigDecimal.ZERO.setScale(2);
+        for (Long id : ids) {
+            sum = sum.add(jdbcTemplate.queryForObject("select amount from expenses where id = ?", BigDecimal.class, id));
+        }
+        return sum;
+    }
+
+    private BigDecimal monthTotal() {
+        BigDecimal total = jdbcTemplate.queryForObject("select coalesce(sum(total), 0) from expense_month_totals",
+                BigDecimal.class);
+        return total.setScale(2);
+    }
+
+    private static ExpenseRequest request(BigDecimal amount) {
+        return new ExpenseRequest("Coffee", null, amount, "Food", LocalDate.now());
+    }
+
+    private void start() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:write-benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(CLIENTS + 2);
+
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan("com.expensetracker.entity");
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "create", "hibernate.generate_statistics", "true",
+                "hibernate.session.events.log", "false"));
+        factory.afterPropertiesSet();
+        entityManagerFactory = factory.getObject();
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+        transactionManager.setDataSource(dataSource);
+        transactions = new TransactionTemplate(transactionManager);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        JpaRepositoryFactory repositories = new JpaRepositoryFactory(entityManager);
+        ExpensePatchRepositoryImpl patches = new ExpensePatchRepositoryImpl();
+        ReflectionTestUtils.setField(patches, "entityManager", entityManager);
+        expenseRepository = repositories.getRepository(ExpenseRepository.class,
+                RepositoryComposition.RepositoryFragments.just(patches));
+        userRepository = repositories.getRepository(UserRepository.class);
+        tombstoneRepository = repositories.getRepository(ExpenseTombstoneRepository.class);
+
+        budgetService = new BudgetService();
+        ReflectionTestUtils.setField(budgetService, "nearThresholdPercent", 80);
+        ReflectionTestUtils.setField(budgetService, "jdbcTimeZone", "");
+        ReflectionTestUtils.setField(budgetService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(budgetService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+
+        expenseService = new ExpenseService();
+        ReflectionTestUtils.setField(expenseService, "expenseRepository", expenseRepository);
+        ReflectionTestUtils.setField(expenseService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(expenseService, "tombstoneRepository", tombstoneRepository);
+        ReflectionTestUtils.setField(expenseService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.setField(expenseService, "archiveService", mock(ExpenseArchiveService.class));
+        ReflectionTestUtils.setField(expenseService, "budgetService", budgetService);
+        ReflectionTestUtils.setField(expenseService, "bitmapIndex", mock(ExpenseBitmapIndex.class));
+        ReflectionTestUtils.setField(expenseService, "autocompleteIndex", mock(AutocompleteIndex.class));
+        ReflectionTestUtils.setField(expenseService, "fingerprintIndex", mock(FingerprintIndex.class));
+
+        transactions.executeWithoutResult(status -> userRepository.save(new User(USERNAME, "writer@example.com", "password")));
+    }
+}
@@ -0,0 +1,74 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.security.RateLimitFilter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Cost of the rate limit filter per request, with many threads sharing a few hot users,
+ * against the same filter disabled. Run with {@code mvn test -Pbenchmark}.
+ */
+class RateLimitFilterBenchmark {
+
+    private static final int THREADS = 32;
+
+    private static final int USERS = 8;
+
+    private static final int REQUESTS_PER_THREAD = 200_000;
+
+    @Test
+    void measureFilterOverhead() throws Exception {
+        System.out.printf("%n%d threads, %d users, %d cpus%n", THREADS, USERS, Runtime.getRuntime().availableProcessors());
+        run("disabled", false);
+        run("enabled", true);
+        run("disabled", false);
+        run("enabled", true);
+    }
+
+    private static void run(String name, boolean enabled) throws Exception {
+        RateLimitFilter filter = new RateLimitFilter();
+        ReflectionTestUtils.setField(filter, "enabled", enabled);
+        for (String route : List.of("auth", "read", "write")) {
+            ReflectionTestUtils.setField(filter, route + "Capacity", Integer.MAX_VALUE / 2);
+            ReflectionTestUtils.setField(filter, route + "RefillPerMinute", Integer.MAX_VALUE / 2);
+        }
+        ReflectionTestUtils.setField(filter, "evictionIntervalMs", 60000L);
+        ReflectionTestUtils.invokeMethod(filter, "start");
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            String username = "user" + (t % USERS);
+            results.add(pool.submit(() -> {
+                SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                        username, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+                MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/expenses");
+                MockHttpServletResponse response = new MockHttpServletResponse();
+                for (int i = 0; i < REQUESTS_PER_THREAD; i++) {
+                    filter.doFilter(request, response, (req, res) -> { });
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        ReflectionTestUtils.invokeMethod(filter, "stop");
+
+        System.out.printf("%-10s %6.0f ns per request (aggregate)%n",
+                name, (double) elapsed / THREADS / REQUESTS_PER_THREAD);
+    }
+}
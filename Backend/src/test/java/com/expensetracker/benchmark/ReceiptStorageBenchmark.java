@@ -0,0 +1,183 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.storage.ReceiptStore;
+import com.expensetracker.web.RangeFileWriter;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Receipt upload into the content-addressed store, and download over HTTP from an embedded
+ * Tomcat with many concurrent clients: reading the file into the heap first, against
+ * {@link RangeFileWriter} with FileChannel.transferTo, against it with Tomcat's sendfile.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+class ReceiptStorageBenchmark {
+
+    private static final int RECEIPT_BYTES = 2 * 1024 * 1024;
+
+    private static final int UPLOADS = 400;
+
+    private static final int CLIENTS = 32;
+
+    private static final int DOWNLOADS_PER_CLIENT = 20;
+
+    private static final Path WORK = Paths.get("target", "receipt-benchmark");
+
+    @Test
+    void compareUploadAndServing() throws Exception {
+        FileSystemUtils.deleteRecursively(WORK);
+        ReceiptStore store = new ReceiptStore();
+        ReflectionTestUtils.setField(store, "directory", WORK.resolve("store").toString());
+
+        System.out.printf("%n%d KB receipts%n", RECEIPT_BYTES / 1024);
+        upload(store, 1);
+        upload(store, CLIENTS);
+
+        ReceiptStore.Upload upload = store.receive(new ByteArrayInputStream(receipt(0)), RECEIPT_BYTES);
+        store.keep(upload, () -> null);
+        Path file = store.path(upload.getSha256());
+        serve("heap copy", file, false, (request, response) -> {
+            response.setContentType("application/pdf");
+            byte[] content = Files.readAllBytes(file);
+            response.setContentLength(content.length);
+            response.getOutputStream().write(content);
+        });
+        serve("transferTo", file, false, (request, response) -> write(request, response, file));
+        serve("sendfile", file, true, (request, response) -> write(request, response, file));
+    }
+
+    private static void upload(ReceiptStore store, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<byte[]> receipts = new ArrayList<>();
+            for (int i = 0; i < UPLOADS; i++) {
+                // Every other upload repeats content already stored, which the store dedupes
+                receipts.add(receipt(i / 2 + threads * UPLOADS));
+            }
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (byte[] receipt : receipts) {
+                futures.add(executor.submit(() -> {
+                    ReceiptStore.Upload upload = store.receive(new ByteArrayInputStream(receipt), RECEIPT_BYTES);
+                    return store.keep(upload, () -> null);
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            report("upload, " + threads + " thread" + (threads == 1 ? "" : "s"), UPLOADS, start);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void serve(String name, Path file, boolean sendfile, Handler handler) throws Exception {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(WORK.resolve("tomcat-" + name.replace(' ', '-')).toString());
+        Connector connector = new Connector("HTTP/1.1");
+        connector.setPort(0);
+        connector.setProperty("useSendfile", String.valueOf(sendfile));
+        connector.setProperty("maxThreads", String.valueOf(CLIENTS * 2));
+        tomcat.setConnector(connector);
+        Context context = tomcat.addContext("", null);
+        Tomcat.addServlet(context, "receipt", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                handler.handle(request, response);
+            }
+        });
+        context.addServletMappingDecoded("/*", "receipt");
+        tomcat.start();
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            URI uri = URI.create("http://localhost:" + connector.getLocalPort() + "/receipt");
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build();
+            // Warm up both sides before timing
+            download(client, uri, CLIENTS, 5);
+            long start = System.nanoTime();
+            long bytes = download(client, uri, CLIENTS, DOWNLOADS_PER_CLIENT);
+            assertEquals((long) CLIENTS * DOWNLOADS_PER_CLIENT * Files.size(file), bytes);
+            report("download, " + name + ", " + CLIENTS + " clients", CLIENTS * DOWNLOADS_PER_CLIENT, start);
+        } finally {
+            executor.shutdown();
+            tomcat.stop();
+            tomcat.destroy();
+        }
+    }
+
+    private static long download(HttpClient client, URI uri, int clients, int perClient) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                futures.add(callers.submit(() -> {
+                    long received = 0;
+                    for (int i = 0; i < perClient; i++) {
+                        HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder(uri).build(),
+                                HttpResponse.BodyHandlers.ofInputStream());
+                        try (InputStream body = response.body()) {
+                            received += body.transferTo(OutputStream.nullOutputStream());
+                        }
+                    }
+                    return received;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> future : futures) {
+                total += future.get();
+            }
+            return total;
+        } finally {
+            callers.shutdown();
+        }
+    }
+
+    private static void write(HttpServletRequest request, HttpServletResponse response, Path file) throws IOException {
+        RangeFileWriter.write(request, response, file, Files.size(file), "\"receipt\"", "application/pdf", "receipt.pdf");
+    }
+
+    private static void report(String name, int count, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-40s %8.0f MB/s %8.0f files/s%n", name,
+                (double) count * RECEIPT_BYTES / (1 << 20) / seconds, count / seconds);
+    }
+
+    private static byte[] receipt(int seed) {
+        byte[] bytes = new byte[RECEIPT_BYTES];
+        new Random(seed).nextBytes(bytes);
+        System.arraycopy("%PDF-1.7".getBytes(), 0, bytes, 0, 8);
+        return bytes;
+    }
+
+    private interface Handler {
+
+        void handle(HttpServletRequest request, HttpServletResponse response) throws IOException;
+    }
+}
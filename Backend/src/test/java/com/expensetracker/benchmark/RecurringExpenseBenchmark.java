@@ -0,0 +1,80 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.entity.TestSchema;
+import com.expensetracker.service.BudgetService;
+import com.expensetracker.service.RecurringExpenseMaterializer;
+import com.zaxxer.hikari.HikariDataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * One materialization run over many monthly rules that each owe a year and a bit of
+ * instances, against a file-backed H2 database. Run with {@code mvn test -Pbenchmark}.
+ */
+class RecurringExpenseBenchmark {
+
+    private static final int USERS = 2_000;
+
+    private static final int RULES = 20_000;
+
+    private static final LocalDate START = LocalDate.of(2023, 1, 1);
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 15);
+
+    @Test
+    void materializeBacklog() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:file:./target/recurring-benchmark;MODE=MySQL");
+        dataSource.setUsername("sa");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("drop all objects");
+        TestSchema.create(dataSource);
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[] {"user" + i, "user" + i + "@example.com"});
+        }
+        jdbcTemplate.batchUpdate("insert into users (username, email, password) values (?, ?, 'x')", users);
+        List<Object[]> rules = new ArrayList<>();
+        for (int i = 0; i < RULES; i++) {
+            rules.add(new Object[] {"Rule " + i, START, START, i % USERS + 1});
+        }
+        jdbcTemplate.batchUpdate("insert into recurring_expenses (title, amount, category, schedule, start_date, "
+                + "next_due_date, user_id) values (?, 25.00, 'Bills', '@monthly', ?, ?, ?)", rules);
+
+        RecurringExpenseMaterializer materializer = new RecurringExpenseMaterializer();
+        ReflectionTestUtils.setField(materializer, "enabled", true);
+        ReflectionTestUtils.setField(materializer, "batchSize", 1000);
+        ReflectionTestUtils.setField(materializer, "insertRows", 500);
+        ReflectionTestUtils.setField(materializer, "maxCatchUp", 366);
+        ReflectionTestUtils.setField(materializer, "jdbcTimeZone", "");
+        ReflectionTestUtils.setField(materializer, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(materializer, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(materializer, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        BudgetService budgetService = new BudgetService();
+        ReflectionTestUtils.setField(budgetService, "nearThresholdPercent", 80);
+        ReflectionTestUtils.setField(budgetService, "jdbcTimeZone", "");
+        ReflectionTestUtils.setField(budgetService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(budgetService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.setField(materializer, "budgetService", budgetService);
+
+        long start = System.nanoTime();
+        long created = materializer.materializeDue(TODAY);
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(RULES * 15L, created);
+        assertEquals(created, jdbcTemplate.queryForObject("select count(*) from expenses", Long.class));
+        dataSource.close();
+
+        System.out.printf("%n%d instances for %d rules in %.1f s (%.0f/s)%n",
+                created, RULES, elapsed / 1e9, created / (elapsed / 1e9));
+    }
+}
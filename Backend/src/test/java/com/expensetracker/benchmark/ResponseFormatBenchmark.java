@@ -0,0 +1,107 @@
+package com.expensetracker.benchmark;
+
+import com.expensetracker.dto.ExpenseResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Size and serialisation time of an expense list in each negotiable format.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+class ResponseFormatBenchmark {
+
+    private static final String[] CATEGORIES = {"Food", "Transport", "Entertainment", "Bills", "Shopping", "Health"};
+    private static final String[] TITLES = {"Groceries", "Coffee", "Bus pass", "Netflix", "Electricity", "Pharmacy",
+            "Lunch with team", "Taxi home", "Cinema tickets", "Phone bill"};
+    private static final int ITERATIONS = 200;
+
+    @Test
+    void compareFormats() throws IOException {
+        List<ExpenseResponse> expenses = realisticList(2000);
+        ObjectMapper json = mapper(Jackson2ObjectMapperBuilder.json());
+        ObjectMapper cbor = mapper(Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()));
+        ObjectMapper smile = mapper(Jackson2ObjectMapperBuilder.json().factory(SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build()));
+
+        System.out.printf("%n%d expenses, mean of %d runs%n", expenses.size(), ITERATIONS);
+        System.out.printf("%-12s %10s %10s %12s %12s%n", "format", "bytes", "gzipped", "ser us", "ser+gz us");
+        long jsonBytes = report("json", json, expenses);
+        report("cbor", cbor, expenses);
+        long smileBytes = report("smile", smile, expenses);
+
+        assertTrue(smileBytes < jsonBytes, "Smile should be more compact than JSON");
+    }
+
+    private static long report(String name, ObjectMapper mapper, List<ExpenseResponse> expenses) throws IOException {
+        byte[] body = mapper.writeValueAsBytes(expenses);
+        byte[] gzipped = gzip(body);
+        for (int i = 0; i < ITERATIONS; i++) {
+            gzip(mapper.writeValueAsBytes(expenses));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.writeValueAsBytes(expenses);
+        }
+        long serialise = (System.nanoTime() - start) / ITERATIONS / 1000;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            gzip(mapper.writeValueAsBytes(expenses));
+        }
+        long serialiseAndGzip = (System.nanoTime() - start) / ITERATIONS / 1000;
+
+        System.out.printf("%-12s %10d %10d %12d %12d%n", name, body.length, gzipped.length, serialise, serialiseAndGzip);
+        return body.length;
+    }
+
+    private static ObjectMapper mapper(Jackson2ObjectMapperBuilder builder) {
+        // Same date handling as Spring Boot's auto-configured mapper
+        return builder.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    }
+
+    static List<ExpenseResponse> realisticList(int size) {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.of(2025, 6, 30, 18, 0);
+        List<ExpenseResponse> expenses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            LocalDateTime created = now.minusMinutes(random.nextInt(525_600)).withNano(random.nextInt(1_000_000) * 1000);
+            expenses.add(new ExpenseResponse(
+                    (long) (i + 1),
+                    TITLES[random.nextInt(TITLES.length)],
+                    random.nextInt(3) == 0 ? null : "Paid by card at " + TITLES[random.nextInt(TITLES.length)].toLowerCase(),
+                    BigDecimal.valueOf(random.nextDouble() * 250).setScale(2, RoundingMode.HALF_UP),
+                    CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    created.toLocalDate(),
+                    created,
+                    random.nextInt(4) == 0 ? created.plusDays(1) : created));
+        }
+        return expenses;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,119 @@
+package com.expensetracker.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Time from launching the application to its first successful request (a registration), in
+ * the default mode and with the fast-startup profile, both against the same file-backed H2
+ * database. Run with {@code mvn test -Pbenchmark -Dtest=StartupBenchmark}.
+ * <p>
+ * CDS needs the application on a classpath of jars, so the packaged runs are only timed when
+ * {@code -Dstartup.jar} names the application jar extracted with
+ * {@code java -Djarmode=tools -jar target/ExpenseTracker-0.0.1-SNAPSHOT.jar extract}.
+ */
+class StartupBenchmark {
+
+    private static final int RUNS = 3;
+
+    // The warm-up would compete with the first request; it has its own benchmark
+    private static final List<String> APP_ARGS = List.of("--warmup.enabled=false");
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    private final AtomicInteger registrations = new AtomicInteger();
+
+    private Path work;
+
+    @Test
+    void measureTimeToFirstRequest() throws Exception {
+        work = Files.createDirectories(Paths.get("target", "startup-benchmark"));
+        for (String name : List.of("app.mv.db", "app.trace.db", "app.jsa")) {
+            Files.deleteIfExists(work.resolve(name));
+        }
+        String classpath = ApplicationProcess.testClasspath();
+        System.out.printf("%n%d cpus, best and median of %d runs%n", Runtime.getRuntime().availableProcessors(), RUNS);
+
+        // The first start creates the schema, which the fast-startup profile expects to exist
+        timeToFirstRequest(classpath, List.of(), List.of());
+        run("default", classpath, List.of(), List.of());
+        run("fast-startup", classpath, List.of(), List.of("--spring.profiles.active=fast-startup"));
+
+        String jar = System.getProperty("startup.jar");
+        if (jar == null) {
+            System.out.println("(set -Dstartup.jar to also time the packaged application with CDS)");
+            return;
+        }
+        String h2 = Arrays.stream(classpath.split(File.pathSeparator))
+                .filter(entry -> Paths.get(entry).getFileName().toString().startsWith("h2-"))
+                .findFirst().orElseThrow();
+        String jarClasspath = jar + File.pathSeparator + h2;
+        String archive = work.resolve("app.jsa").toString();
+        // Training run: start the context, then exit and dump the classes it loaded
+        ApplicationProcess training = ApplicationProcess.start(work, jarClasspath, List.of(
+                "-XX:ArchiveClassesAtExit=" + archive, "-Dspring.context.exit=onRefresh"),
+                with(List.of("--spring.profiles.active=fast-startup")));
+        assertEquals(0, training.waitFor(), "training run failed, see " + training.log());
+
+        run("jar", jarClasspath, List.of(), List.of());
+        run("jar+cds", jarClasspath, List.of("-XX:SharedArchiveFile=" + archive), List.of());
+        run("jar+cds+fast-startup", jarClasspath, List.of("-XX:SharedArchiveFile=" + archive),
+                List.of("--spring.profiles.active=fast-startup"));
+    }
+
+    private void run(String name, String classpath, List<String> jvmArgs, List<String> args) throws Exception {
+        long[] millis = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            millis[i] = timeToFirstRequest(classpath, jvmArgs, args);
+        }
+        Arrays.sort(millis);
+        System.out.printf("%-22s best %6d ms   median %6d ms%n", name, millis[0], millis[RUNS / 2]);
+    }
+
+    private long timeToFirstRequest(String classpath, List<String> jvmArgs, List<String> args) throws Exception {
+        int n = registrations.incrementAndGet();
+        long start = System.nanoTime();
+        try (ApplicationProcess app = ApplicationProcess.start(work, classpath, jvmArgs, with(args))) {
+            HttpRequest register = HttpRequest.newBuilder(URI.create(app.url("/api/auth/register")))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"startup" + n
+                            + "\",\"email\":\"startup" + n + "@example.com\",\"password\":\"password123\"}"))
+                    .build();
+            while (System.nanoTime() - start < ApplicationProcess.TIMEOUT.toNanos()) {
+                assertTrue(app.isAlive(), "application exited, see " + app.log());
+                try {
+                    HttpResponse<Void> response = client.send(register, HttpResponse.BodyHandlers.discarding());
+                    assertEquals(200, response.statusCode(), "registration failed");
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                } catch (IOException e) {
+                    // Not listening yet
+                    Thread.sleep(10);
+                }
+            }
+            throw new AssertionError("no response within " + ApplicationProcess.TIMEOUT + ", see " + app.log());
+        }
+    }
+
+    private static List<String> with(List<String> args) {
+        List<String> all = new ArrayList<>(APP_ARGS);
+        all.addAll(args);
+        return all;
+    }
+}
@@ -0,0 +1,140 @@
+package com.expensetracker.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Request latency over the first minute after the instance reports ready, with and without
+ * the JIT warm-up. A single client registers and logs in, then keeps listing expenses,
+ * fetching one and creating one, against a child JVM on a file-backed H2 database. Run with
+ * {@code mvn test -Pbenchmark -Dtest=WarmupBenchmark}.
+ */
+class WarmupBenchmark {
+
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    @Test
+    void measureFirstMinuteLatency() throws Exception {
+        Path work = Files.createDirectories(Paths.get("target", "warmup-benchmark"));
+        for (String name : List.of("app.mv.db", "app.trace.db")) {
+            Files.deleteIfExists(work.resolve(name));
+        }
+        System.out.printf("%n%d cpus, %d s of traffic after readiness%n",
+                Runtime.getRuntime().availableProcessors(), WINDOW.toSeconds());
+        run(work, "no warm-up", false);
+        run(work, "warm-up", true);
+    }
+
+    private void run(Path work, String name, boolean warmup) throws Exception {
+        long launched = System.nanoTime();
+        try (ApplicationProcess app = ApplicationProcess.start(work, ApplicationProcess.testClasspath(), List.of(),
+                List.of("--warmup.enabled=" + warmup, "--rate-limit.enabled=false"))) {
+            awaitReady(app);
+            long ready = System.nanoTime();
+
+            String username = warmup ? "bench-warm" : "bench-cold";
+            long[] latencies = new long[1 << 20];
+            int count = 0;
+            long end = ready + WINDOW.toNanos();
+            String token = null;
+            long expenseId = 0;
+            for (int i = 0; System.nanoTime() < end; i++) {
+                long start = System.nanoTime();
+                if (i == 0) {
+                    send(post(app, "/api/auth/register", null, "{\"username\":\"" + username + "\",\"email\":\""
+                            + username + "@example.com\",\"password\":\"password123\"}"));
+                } else if (i == 1) {
+                    token = match(TOKEN, send(post(app, "/api/auth/login", null,
+                            "{\"username\":\"" + username + "\",\"password\":\"password123\"}")));
+                } else if (i % 5 == 0) {
+                    expenseId = Long.parseLong(match(ID, send(post(app, "/api/expenses", token,
+                            "{\"title\":\"Lunch " + i + "\",\"description\":\"Benchmark\",\"amount\":12.50,"
+                                    + "\"category\":\"Food\",\"expenseDate\":\"" + LocalDate.now() + "\"}"))));
+                } else if (i % 5 == 1 && expenseId > 0) {
+                    send(get(app, "/api/expenses/" + expenseId, token));
+                } else {
+                    send(get(app, "/api/expenses", token));
+                }
+                latencies[count++] = System.nanoTime() - start;
+            }
+
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            System.out.printf("%-11s ready after %5d ms   %6d requests   p50 %6.2f ms   p99 %7.2f ms   max %7.2f ms%n",
+                    name, TimeUnit.NANOSECONDS.toMillis(ready - launched), count,
+                    millis(sorted[count / 2]), millis(sorted[(int) (count * 0.99)]), millis(sorted[count - 1]));
+        }
+    }
+
+    private void awaitReady(ApplicationProcess app) throws Exception {
+        HttpRequest readiness = HttpRequest.newBuilder(URI.create(app.url("/health/readiness"))).build();
+        long deadline = System.nanoTime() + ApplicationProcess.TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            assertTrue(app.isAlive(), "application exited, see " + app.log());
+            try {
+                if (client.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("not ready within " + ApplicationProcess.TIMEOUT + ", see " + app.log());
+    }
+
+    private String send(HttpRequest request) throws Exception {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), () -> request.uri() + ": " + response.body());
+        return response.body();
+    }
+
+    private static HttpRequest get(ApplicationProcess app, String path, String token) {
+        return HttpRequest.newBuilder(URI.create(app.url(path)))
+                .header("Authorization", "Bearer " + token)
+                .build();
+    }
+
+    private static HttpRequest post(ApplicationProcess app, String path, String token, String json) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(app.url(path)))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private static String match(Pattern pattern, String body) {
+        Matcher matcher = pattern.matcher(body);
+        assertTrue(matcher.find(), body);
+        return matcher.group(1);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -1,10 +1,18 @@
 package com.expensetracker.controller;
 
 import com.expensetracker.config.TestSecurityConfig;
+import com.expensetracker.dto.ExpenseChangesResponse;
+import com.expensetracker.dto.ExpensePatch;
 import com.expensetracker.dto.ExpenseRequest;
 import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.index.AutocompleteIndex;
+import com.expensetracker.service.DuplicateExpenseException;
+import com.expensetracker.service.ExpenseConflictException;
+import com.expensetracker.service.ExpenseIngestService;
 import com.expensetracker.service.ExpenseService;
+import com.expensetracker.service.ExpenseStreamService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -21,9 +29,15 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -39,6 +53,12 @@ class ExpenseControllerTest {
     @MockBean
     private ExpenseService expenseService;
 
+    @MockBean
+    private ExpenseStreamService expenseStreamService;
+
+    @MockBean
+    private ExpenseIngestService expenseIngestService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -72,7 +92,7 @@ class ExpenseControllerTest {
     @WithMockUser(username = "testuser")
     void createExpense_ShouldReturnExpenseResponse_WhenValidRequest() throws Exception {
         // Given
-        when(expenseService.createExpense(any(ExpenseRequest.class), eq("testuser")))
+        when(expenseService.createExpense(any(ExpenseRequest.class), eq("testuser"), eq(false)))
                 .thenReturn(expenseResponse);
 
         // When & Then
@@ -87,6 +107,31 @@ class ExpenseControllerTest {
                 .andExpect(jsonPath("$.category").value("Food"));
     }
 
+    @Test
+    @WithMockUser(username = "testuser")
+    void createExpense_ShouldReturnConflict_WhenDuplicate() throws Exception {
+        // Given
+        when(expenseService.createExpense(any(ExpenseRequest.class), eq("testuser"), eq(false)))
+                .thenThrow(new DuplicateExpenseException("Already exists"));
+        when(expenseService.createExpense(any(ExpenseRequest.class), eq("testuser"), eq(true)))
+                .thenReturn(expenseResponse);
+
+        // When & Then
+        mockMvc.perform(post("/api/expenses")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(expenseRequest)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Already exists"));
+        mockMvc.perform(post("/api/expenses")
+                        .param("allowDuplicate", "true")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(expenseRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+    }
+
     @Test
     @WithMockUser(username = "testuser")
     void getAllExpenses_ShouldReturnListOfExpenses() throws Exception {
@@ -102,6 +147,112 @@ class ExpenseControllerTest {
                 .andExpect(jsonPath("$[0].title").value("Grocery Shopping"));
     }
 
+    @Test
+    @WithMockUser(username = "testuser")
+    void getSuggestions_ShouldReturnTermsForTheField() throws Exception {
+        // Given
+        when(expenseService.suggest(AutocompleteIndex.Field.CATEGORY, "fo", 20, "testuser"))
+                .thenReturn(List.of("Food", "Fonts"));
+
+        // When & Then
+        mockMvc.perform(get("/api/expenses/suggestions")
+                        .param("field", "category")
+                        .param("prefix", "fo")
+                        .param("limit", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value("Food"))
+                .andExpect(jsonPath("$[1]").value("Fonts"));
+        mockMvc.perform(get("/api/expenses/suggestions").param("field", "amount"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unknown suggestion field: amount"));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void getSuggestions_ShouldNotReportAFailedLookupAsABadRequest() {
+        // Given
+        when(expenseService.suggest(AutocompleteIndex.Field.TITLE, "", 8, "testuser"))
+                .thenThrow(new IllegalStateException("Connection is closed"));
+
+        // When & Then: the failure propagates rather than becoming a 400
+        assertThrows(ServletException.class, () -> mockMvc.perform(get("/api/expenses/suggestions")));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void getAllExpenses_ShouldReturnETag() throws Exception {
+        // Given
+        when(expenseService.getExpensesEtag("testuser")).thenReturn("W/\"1-3\"");
+        when(expenseService.getAllExpenses("testuser")).thenReturn(Arrays.asList(expenseResponse));
+
+        // When & Then
+        mockMvc.perform(get("/api/expenses"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"1-3\""))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void getAllExpenses_ShouldNegotiateBinaryFormats() throws Exception {
+        // Given
+        when(expenseService.getAllExpenses("testuser")).thenReturn(Arrays.asList(expenseResponse));
+
+        // When & Then
+        mockMvc.perform(get("/api/expenses").accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"));
+        mockMvc.perform(get("/api/expenses").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void getAllExpenses_ShouldReturnNotModified_WhenETagMatches() throws Exception {
+        // Given
+        when(expenseService.getExpensesEtag("testuser")).thenReturn("W/\"1-3\"");
+
+        // When & Then
+        mockMvc.perform(get("/api/expenses").header("If-None-Match", "\"1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(expenseService, never()).getAllExpenses(any());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void getExpenseById_ShouldReturnNotModified_WhenWeakETagMatches() throws Exception {
+        // Given
+        when(expenseService.getExpenseById(1L, "testuser")).thenReturn(expenseResponse);
+        String etag = mockMvc.perform(get("/api/expenses/1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // When & Then
+        assertTrue(etag.startsWith("W/\"1-"));
+        mockMvc.perform(get("/api/expenses/1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void getChanges_ShouldReturnUpsertsTombstonesAndCursor() throws Exception {
+        // Given
+        ExpenseChangesResponse changes = new ExpenseChangesResponse(
+                Arrays.asList(expenseResponse), Arrays.asList(7L), 12L, false);
+        when(expenseService.getChanges(10L, 500, "testuser")).thenReturn(changes);
+
+        // When & Then
+        mockMvc.perform(get("/api/expenses/changes").param("since", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.upserts[0].id").value(1))
+                .andExpect(jsonPath("$.deletedIds[0]").value(7))
+                .andExpect(jsonPath("$.cursor").value(12))
+                .andExpect(jsonPath("$.hasMore").value(false));
+    }
+
     @Test
     @WithMockUser(username = "testuser")
     void getExpenseById_ShouldReturnExpense_WhenExpenseExists() throws Exception {
@@ -152,11 +303,63 @@ class ExpenseControllerTest {
                 .andExpect(jsonPath("$.description").value("Updated description"));
     }
 
+    @Test
+    @WithMockUser(username = "testuser")
+    void updateAndDelete_ShouldReturnConflict_WhenTheVersionIsStale() throws Exception {
+        // Given
+        when(expenseService.updateExpense(eq(1L), any(ExpenseRequest.class), eq("testuser")))
+                .thenThrow(new ExpenseConflictException("Changed"));
+        doThrow(new ExpenseConflictException("Changed")).when(expenseService).deleteExpense(1L, 4L, "testuser");
+
+        // When & Then
+        mockMvc.perform(put("/api/expenses/1")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(expenseRequest)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Changed"));
+        mockMvc.perform(delete("/api/expenses/1")
+                        .param("version", "4")
+                        .with(csrf()))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void patchExpense_ShouldPassOnlyTheMembersSent() throws Exception {
+        // Given
+        when(expenseService.patchExpense(eq(1L), any(ExpensePatch.class), eq("testuser")))
+                .thenReturn(expenseResponse);
+
+        // When & Then
+        mockMvc.perform(patch("/api/expenses/1")
+                        .with(csrf())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"amount\": 12.50, \"description\": null, \"version\": 3}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+        verify(expenseService).patchExpense(eq(1L), argThat(patch -> patch.has(ExpensePatch.Field.AMOUNT)
+                && patch.has(ExpensePatch.Field.DESCRIPTION) && !patch.has(ExpensePatch.Field.TITLE)
+                && patch.getVersion() == 3L), eq("testuser"));
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void patchExpense_ShouldRejectClearingARequiredField() throws Exception {
+        // When & Then
+        mockMvc.perform(patch("/api/expenses/1")
+                        .with(csrf())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"title\": null}"))
+                .andExpect(status().isBadRequest());
+        verify(expenseService, never()).patchExpense(any(), any(), any());
+    }
+
     @Test
     @WithMockUser(username = "testuser")
     void deleteExpense_ShouldReturnSuccessMessage_WhenExpenseExists() throws Exception {
         // Given
-        doNothing().when(expenseService).deleteExpense(1L, "testuser");
+        doNothing().when(expenseService).deleteExpense(1L, null, "testuser");
 
         // When & Then
         mockMvc.perform(delete("/api/expenses/1")
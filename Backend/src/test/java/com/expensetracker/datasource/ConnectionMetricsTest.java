@@ -0,0 +1,161 @@
+package com.expensetracker.datasource;
+
+import com.expensetracker.dto.ConnectionStatsResponse;
+import com.expensetracker.dto.PoolSizeResponse;
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionMetricsTest {
+
+    private ConnectionMetrics metrics;
+
+    private HikariDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new ConnectionMetrics();
+        ReflectionTestUtils.setField(metrics, "leakThresholdMs", 50L);
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:metrics" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(2);
+        metrics.postProcessBeforeInitialization(dataSource, "dataSource");
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void request_ShouldBeCreditedToItsEndpoint() throws Exception {
+        // When
+        metrics.beginRequest();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement().execute("select 1");
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement().execute("select 1");
+        }
+        metrics.endRequest("GET /api/expenses");
+
+        // Then
+        ConnectionStatsResponse stats = find("GET /api/expenses");
+        assertEquals(1, stats.getRequests());
+        assertEquals(2, stats.getConnections());
+        assertEquals(0, stats.getLeaks());
+        assertTrue(stats.getAcquireMaxMs() >= stats.getAcquireMeanMs());
+    }
+
+    @Test
+    void connectionOutsideRequest_ShouldCountAsBackground() throws Exception {
+        // When
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement().execute("select 1");
+        }
+
+        // Then
+        ConnectionStatsResponse stats = find(ConnectionMetrics.BACKGROUND);
+        assertEquals(1, stats.getConnections());
+        assertEquals(0, stats.getRequests());
+    }
+
+    @Test
+    void longHold_ShouldCountAsLeak() throws Exception {
+        // When
+        metrics.beginRequest();
+        try (Connection connection = dataSource.getConnection()) {
+            Thread.sleep(80);
+        }
+        metrics.endRequest("POST /api/expenses");
+
+        // Then
+        ConnectionStatsResponse stats = find("POST /api/expenses");
+        assertEquals(1, stats.getLeaks());
+        assertTrue(stats.getHoldMaxMs() >= 80);
+        assertEquals(stats.getHoldMaxMs(), stats.getHoldTotalMs());
+    }
+
+    @Test
+    void poolUsage_ShouldCoverOneWindow() throws Exception {
+        // Given
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            first.createStatement().execute("select 1");
+        }
+        PoolUsage usage = metrics.usage(dataSource.getPoolName());
+
+        // When
+        PoolUsage.Window window = usage.drain();
+        PoolUsage.Window next = usage.drain();
+
+        // Then
+        assertEquals(2, window.getBorrows());
+        assertEquals(2, window.getPeakInUse());
+        assertEquals(0, next.getBorrows());
+        assertEquals(0, next.getPeakInUse());
+    }
+
+    @Test
+    void poolSizer_ShouldResizeInstrumentedPool() throws Exception {
+        // Given
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer();
+        ReflectionTestUtils.setField(sizer, "connectionMetrics", metrics);
+        ReflectionTestUtils.setField(sizer, "enabled", true);
+        ReflectionTestUtils.setField(sizer, "minSize", 1);
+        ReflectionTestUtils.setField(sizer, "maxSize", 8);
+        ReflectionTestUtils.setField(sizer, "targetWaitMs", 5.0);
+        ReflectionTestUtils.setField(sizer, "headroom", 2.0);
+        ReflectionTestUtils.setField(sizer, "saturationGradient", 0.8);
+        dataSource.setPoolName("sized");
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            Thread.sleep(500);
+        }
+
+        // When
+        sizer.adjustScheduled();
+
+        // Then: both connections were busy the whole window, so the pool grows
+        PoolSizeResponse response = sizer.snapshot().get(0);
+        assertEquals("sized", response.getPool());
+        assertEquals(PoolSizingPolicy.GROW, response.getDecision());
+        assertTrue(response.isApplied());
+        assertEquals(1, response.getResizes());
+        assertEquals(response.getMaximumPoolSize(), dataSource.getMaximumPoolSize());
+        assertTrue(dataSource.getMaximumPoolSize() > 2);
+    }
+
+    @Test
+    void histogram_ShouldBoundPercentilesWithinAQuarter() {
+        // Given
+        ConnectionMetrics.Histogram histogram = new ConnectionMetrics.Histogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        // Then
+        assertEquals(1000, histogram.count());
+        assertEquals(500.5, histogram.mean());
+        long p99 = histogram.percentile(0.99);
+        assertTrue(p99 >= 990 && p99 <= 1000, "p99 " + p99);
+        long p50 = histogram.percentile(0.5);
+        assertTrue(p50 >= 500 && p50 <= 625, "p50 " + p50);
+        for (long value : new long[] {0, 3, 4, 7, 8, 15, 1000, 123_456_789}) {
+            int bucket = ConnectionMetrics.Histogram.bucket(value);
+            assertTrue(ConnectionMetrics.Histogram.upperBound(bucket) >= value);
+            assertTrue(bucket == 0 || ConnectionMetrics.Histogram.upperBound(bucket - 1) < value);
+        }
+    }
+
+    private ConnectionStatsResponse find(String endpoint) {
+        List<ConnectionStatsResponse> snapshot = metrics.snapshot();
+        return snapshot.stream().filter(stats -> stats.getEndpoint().equals(endpoint)).findFirst().orElseThrow();
+    }
+}
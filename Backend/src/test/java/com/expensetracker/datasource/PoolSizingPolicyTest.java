@@ -0,0 +1,117 @@
+package com.expensetracker.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the policy against a simulated database: requests arrive at a fixed rate and each
+ * query takes {@code queryMs} while at most {@code parallelism} run at once; beyond that, queries
+ * queue inside the database and hold their connection longer.
+ */
+class PoolSizingPolicyTest {
+
+    private static final double WINDOW_SECONDS = 10;
+
+    @Test
+    void quietLoad_ShouldShrinkToMinimum() {
+        // Given
+        PoolSizingPolicy policy = new PoolSizingPolicy(2, 40, 5, 2.0, 0.8);
+
+        // When
+        int size = run(policy, 20, 60, 20, 10, 32);
+
+        // Then
+        assertEquals(2, size);
+    }
+
+    @Test
+    void peakLoad_ShouldGrowToLittlesLawEstimateAndStayThere() {
+        // Given: 800 queries/s of 10 ms need 8 connections on average
+        PoolSizingPolicy policy = new PoolSizingPolicy(2, 40, 5, 2.0, 0.8);
+        int size = run(policy, 2, 30, 800, 10, 32);
+
+        // When
+        int settled = run(policy, size, 30, 800, 10, 32);
+
+        // Then: 8 + 2 * sqrt(8), and nobody waits
+        assertEquals(14, size);
+        assertEquals(size, settled);
+        assertFalse(simulate(size, 800, 10, 32).getPendingThreads() > 0);
+    }
+
+    @Test
+    void saturatedDatabase_ShouldSettleNearItsParallelism() {
+        // Given: a quiet night, then more queries than a database running 8 at once can serve
+        PoolSizingPolicy policy = new PoolSizingPolicy(2, 40, 5, 2.0, 0.8);
+        int size = run(policy, 20, 10, 100, 10, 8);
+
+        // When
+        size = run(policy, size, 60, 2000, 10, 8);
+        int settled = run(policy, size, 30, 2000, 10, 8);
+
+        // Then: extra connections would only queue inside the database
+        assertTrue(size >= 8 && size <= 14, "size " + size);
+        assertEquals(size, settled);
+    }
+
+    @Test
+    void loadSwings_ShouldFollowWithinBounds() {
+        // Given
+        PoolSizingPolicy policy = new PoolSizingPolicy(5, 20, 5, 2.0, 0.8);
+
+        // When
+        int peak = run(policy, 5, 30, 5000, 10, 64);
+        int night = run(policy, peak, 60, 10, 10, 64);
+
+        // Then
+        assertEquals(20, peak);
+        assertEquals(5, night);
+    }
+
+    @Test
+    void decision_ShouldKeepMinimumIdleWithinSize() {
+        // Given
+        PoolSizingPolicy policy = new PoolSizingPolicy(2, 40, 5, 2.0, 0.8);
+
+        // When
+        PoolSizingPolicy.Decision decision = policy.decide(20, simulate(20, 500, 10, 32));
+
+        // Then: the estimate is 5 + 2 * sqrt(5), a quarter of the gap is closed
+        assertEquals(PoolSizingPolicy.SHRINK, decision.getAction());
+        assertEquals(18, decision.getMaximumPoolSize());
+        assertEquals(5, decision.getMinimumIdle());
+    }
+
+    @Test
+    void invalidBounds_ShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new PoolSizingPolicy(10, 5, 5, 2.0, 0.8));
+        assertThrows(IllegalArgumentException.class, () -> new PoolSizingPolicy(0, 5, 5, 2.0, 0.8));
+    }
+
+    private int run(PoolSizingPolicy policy, int size, int windows, double queriesPerSecond, double queryMs,
+                    int parallelism) {
+        for (int i = 0; i < windows; i++) {
+            size = policy.decide(size, simulate(size, queriesPerSecond, queryMs, parallelism)).getMaximumPoolSize();
+        }
+        return size;
+    }
+
+    /**
+     * Steady state of one window: as many connections in use as Little's law asks for if the pool
+     * and the database keep up, otherwise the whole pool, with requests waiting for it.
+     */
+    private PoolUsage.Window simulate(int size, double queriesPerSecond, double queryMs, int parallelism) {
+        double offered = queriesPerSecond * queryMs / 1000;
+        if (offered < size && offered <= parallelism) {
+            return new PoolUsage.Window(WINDOW_SECONDS, Math.round(queriesPerSecond * WINDOW_SECONDS), queryMs,
+                    0, 0, 0, (int) Math.ceil(offered), 0);
+        }
+        double holdMs = queryMs * Math.max(1, (double) size / parallelism);
+        double served = size * 1000 / holdMs;
+        double waitMs = queriesPerSecond > served ? holdMs * (queriesPerSecond / served - 1) : 0;
+        int pending = (int) Math.ceil(Math.max(queriesPerSecond - served, 0) * holdMs / 1000);
+        return new PoolUsage.Window(WINDOW_SECONDS, Math.round(served * WINDOW_SECONDS), holdMs, waitMs,
+                waitMs * 2, 0, size, pending);
+    }
+}
@@ -0,0 +1,84 @@
+package com.expensetracker.entity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import org.hibernate.bytecode.enhance.spi.DefaultEnhancementContext;
+import org.hibernate.bytecode.enhance.spi.Enhancer;
+import org.hibernate.bytecode.enhance.spi.UnloadedClass;
+import org.hibernate.bytecode.enhance.spi.UnloadedField;
+import org.hibernate.bytecode.internal.bytebuddy.BytecodeProviderImpl;
+
+
+/**
+ * Loads the entity package and one workload class itself rather than asking its parent,
+ * enhancing {@code Expense} and {@code User} with the settings of the {@code enhance} profile,
+ * so tests can run them enhanced from a build that compiled them plain. Classes the profile
+ * already enhanced at build time are loaded as they are.
+ */
+public final class EnhancingClassLoader extends ClassLoader {
+
+    private static final List<String> ENHANCED = List.of(Expense.class.getName(), User.class.getName());
+
+    private final Enhancer enhancer = new BytecodeProviderImpl().getEnhancer(new DefaultEnhancementContext() {
+        @Override
+        public boolean doBiDirectionalAssociationManagement(UnloadedField field) {
+            return false;
+        }
+
+        @Override
+        public boolean hasLazyLoadableAttributes(UnloadedClass classDescriptor) {
+            return false;
+        }
+
+        @Override
+        public boolean isLazyLoadable(UnloadedField field) {
+            return false;
+        }
+    });
+
+    // Loaded here so that it sees the enhanced entities
+    private final String workload;
+
+    public EnhancingClassLoader(ClassLoader parent, Class<?> workload) {
+        super(parent);
+        this.workload = workload.getName();
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!name.startsWith("com.expensetracker.entity.") && !name.startsWith(workload)) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loaded = findLoadedClass(name);
+            if (loaded == null) {
+                byte[] bytes = read(name);
+                if (ENHANCED.contains(name)) {
+                    byte[] enhanced = enhancer.enhance(name, bytes);
+                    // Null when there is nothing to do, as for a class enhanced at build time
+                    if (enhanced != null) {
+                        bytes = enhanced;
+                    }
+                }
+                loaded = defineClass(name, bytes, 0, bytes.length);
+            }
+            if (resolve) {
+                resolveClass(loaded);
+            }
+            return loaded;
+        }
+    }
+
+    private byte[] read(String name) throws ClassNotFoundException {
+        try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+            if (in == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
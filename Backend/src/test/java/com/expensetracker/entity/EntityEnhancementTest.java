@@ -0,0 +1,120 @@
+package com.expensetracker.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.BootstrapServiceRegistry;
+import org.hibernate.boot.registry.BootstrapServiceRegistryBuilder;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@code Expense} and {@code User} as the {@code enhance} profile rewrites them. The build here
+ * compiles them plain, so they are enhanced at runtime with the profile's settings; under
+ * {@code mvn test -Penhance} the classes it enhanced are used as they are.
+ */
+class EntityEnhancementTest {
+
+    @Test
+    void enhancedEntities_ShouldRecordTheirChangesAndFlushOnlyThose() throws Exception {
+        ClassLoader loader = new EnhancingClassLoader(getClass().getClassLoader(), Workload.class);
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            ((Runnable) loader.loadClass(Workload.class.getName()).getDeclaredConstructor().newInstance()).run();
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    /**
+     * Writes and reads an expense through Hibernate. Loaded by {@link EnhancingClassLoader}, so
+     * the {@code Expense} and {@code User} it uses are the enhanced ones.
+     */
+    public static class Workload implements Runnable {
+
+        @Override
+        public void run() {
+            assertTrue(SelfDirtinessTracker.class.isAssignableFrom(Expense.class), "Expense is not enhanced");
+            assertTrue(SelfDirtinessTracker.class.isAssignableFrom(User.class), "User is not enhanced");
+
+            List<String> updates = new CopyOnWriteArrayList<>();
+            StatementInspector inspector = sql -> {
+                if (sql.startsWith("update ")) {
+                    updates.add(sql);
+                }
+                return sql;
+            };
+            DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                    "jdbc:h2:mem:enhanced-entities;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+            // Hibernate must resolve entity names through this class's loader, not the application's
+            BootstrapServiceRegistry bootstrap = new BootstrapServiceRegistryBuilder()
+                    .applyClassLoader(Workload.class.getClassLoader())
+                    .build();
+            SessionFactory sessionFactory = new MetadataSources(new StandardServiceRegistryBuilder(bootstrap)
+                    .applySetting("hibernate.connection.datasource", dataSource)
+                    .applySetting("hibernate.hbm2ddl.auto", "create-drop")
+                    .applySetting("hibernate.session_factory.statement_inspector", inspector)
+                    .applySetting("jakarta.persistence.validation.mode", "none")
+                    .build())
+                    .addAnnotatedClass(Expense.class)
+                    .addAnnotatedClass(User.class)
+                    .buildMetadata()
+                    .buildSessionFactory();
+            try {
+                Long id = sessionFactory.fromTransaction(session -> {
+                    User user = new User("enhanced", "enhanced@example.com", "password");
+                    session.persist(user);
+                    Expense expense = new Expense("Coffee", "Flat white", new BigDecimal("3.50"), "Food",
+                            LocalDate.of(2024, 5, 1), user);
+                    session.persist(expense);
+                    return expense.getId();
+                });
+
+                // A clean session flushes nothing
+                sessionFactory.inTransaction(session -> {
+                    Expense expense = session.get(Expense.class, id);
+                    assertFalse(((SelfDirtinessTracker) expense).$$_hibernate_hasDirtyAttributes());
+                    session.flush();
+                });
+                assertEquals(List.of(), updates);
+
+                // A changed amount is recorded by the entity itself and written
+                LocalDateTime[] loadedAt = new LocalDateTime[1];
+                sessionFactory.inTransaction(session -> {
+                    Expense expense = session.get(Expense.class, id);
+                    loadedAt[0] = expense.getUpdatedAt();
+                    expense.setAmount(new BigDecimal("4.20"));
+                    assertEquals(Set.of("amount"),
+                            Set.of(((SelfDirtinessTracker) expense).$$_hibernate_getDirtyAttributes()));
+                });
+                assertEquals(1, updates.size());
+
+                try (Session session = sessionFactory.openSession()) {
+                    Expense expense = session.get(Expense.class, id);
+                    assertEquals(0, new BigDecimal("4.20").compareTo(expense.getAmount()));
+                    assertEquals("Coffee", expense.getTitle());
+                    assertEquals(1L, expense.getVersion());
+                    // The @PreUpdate callback's write reaches the row too
+                    assertFalse(expense.getUpdatedAt().isBefore(loadedAt[0]));
+                    assertEquals("enhanced", expense.getUser().getUsername());
+                }
+            } finally {
+                sessionFactory.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.expensetracker.entity;
+
+import jakarta.persistence.Entity;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+
+/**
+ * The tables Hibernate generates from the entities, with the naming Spring Boot applies, for
+ * tests that work on a plain H2 database through JDBC. Production validates its schema against
+ * the same entities, so the two cannot drift apart. The DDL is generated once per test run.
+ */
+public final class TestSchema {
+
+    private static final String IDENTITY = "generated by default as identity";
+
+    private static List<String> statements;
+
+    private TestSchema() {
+    }
+
+    public static void create(DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        statements().forEach(jdbcTemplate::execute);
+    }
+
+    /**
+     * The schema with every table handing out ids from {@code firstId} in steps of
+     * {@code increment}, as a shard configured with its own id range does.
+     */
+    public static void create(DataSource dataSource, long firstId, long increment) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        String identity = IDENTITY + " (start with " + firstId + " increment by " + increment + ")";
+        statements().forEach(statement -> jdbcTemplate.execute(statement.replace(IDENTITY, identity)));
+    }
+
+    private static synchronized List<String> statements() {
+        if (statements == null) {
+            StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                    .applySetting("hibernate.dialect", H2Dialect.class.getName())
+                    .applySetting("hibernate.boot.allow_jdbc_metadata_access", false)
+                    .applySetting("hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName())
+                    .applySetting("hibernate.implicit_naming_strategy", SpringImplicitNamingStrategy.class.getName())
+                    .build();
+            try {
+                MetadataSources sources = new MetadataSources(registry);
+                ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+                scanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+                for (BeanDefinition entity : scanner.findCandidateComponents(TestSchema.class.getPackageName())) {
+                    sources.addAnnotatedClassName(entity.getBeanClassName());
+                }
+                Path script = Files.createTempFile("schema", ".sql");
+                try {
+                    SchemaManagementToolCoordinator.process(sources.buildMetadata(), registry, Map.of(
+                            "jakarta.persistence.schema-generation.scripts.action", "create",
+                            "jakarta.persistence.schema-generation.scripts.create-target", script.toString(),
+                            "hibernate.hbm2ddl.delimiter", ";"), action -> { });
+                    List<String> generated = new ArrayList<>();
+                    for (String line : Files.readAllLines(script, StandardCharsets.UTF_8)) {
+                        if (!line.isBlank()) {
+                            generated.add(line.strip().replaceAll(";$", ""));
+                        }
+                    }
+                    statements = generated;
+                } finally {
+                    Files.deleteIfExists(script);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                StandardServiceRegistryBuilder.destroy(registry);
+            }
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,141 @@
+package com.expensetracker.index;
+
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.event.ExpenseChangedEvent;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutocompleteIndexTest {
+
+    private AutocompleteIndex index;
+
+    private Map<String, Long> titles;
+
+    private Map<String, Long> categories;
+
+    private AtomicInteger loads;
+
+    private Function<AutocompleteIndex.Field, Map<String, Long>> loader;
+
+    @BeforeEach
+    void setUp() {
+        index = new AutocompleteIndex();
+        ReflectionTestUtils.setField(index, "maxUsers", 100);
+        ReflectionTestUtils.setField(index, "idleMillis", 900_000L);
+        titles = new HashMap<>(Map.of("Groceries", 6L, "groceries", 1L, "Gym", 2L, "Rent", 1L));
+        categories = new HashMap<>(Map.of("Food", 7L, "Fitness", 2L, "Housing", 1L));
+        loads = new AtomicInteger();
+        loader = field -> {
+            loads.incrementAndGet();
+            return field == AutocompleteIndex.Field.TITLE ? titles : categories;
+        };
+    }
+
+    @Test
+    void suggest_ShouldBuildOnceAndAnswerBothFields() {
+        assertEquals(List.of("Groceries", "Gym"), suggest(10, AutocompleteIndex.Field.TITLE, "g"));
+        assertEquals(List.of("Food", "Fitness"), suggest(10, AutocompleteIndex.Field.CATEGORY, " F"));
+        assertEquals(List.of("Food", "Fitness", "Housing"), suggest(10, AutocompleteIndex.Field.CATEGORY, ""));
+        assertEquals(List.of(), suggest(10, AutocompleteIndex.Field.TITLE, "x"));
+        // One load per field
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void committedCreations_ShouldUpdateTheTriesInPlace() {
+        // Given
+        suggest(10, AutocompleteIndex.Field.TITLE, "");
+
+        // When
+        for (long seq = 11; seq <= 16; seq++) {
+            index.onExpenseChanged(event(ExpenseChangedEvent.Type.CREATED, seq, null, expense(seq, "Gym", "Fitness")));
+        }
+
+        // Then
+        assertEquals(List.of("Gym", "Groceries"), suggest(16, AutocompleteIndex.Field.TITLE, "g"));
+        assertEquals(List.of("Fitness", "Food"), suggest(16, AutocompleteIndex.Field.CATEGORY, "f"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void committedUpdatesAndDeletes_ShouldMoveTheCountsInPlace() {
+        // Given
+        suggest(10, AutocompleteIndex.Field.TITLE, "");
+
+        // When: three groceries become rent, then the gym visits are deleted
+        for (long seq = 11; seq <= 13; seq++) {
+            index.onExpenseChanged(event(ExpenseChangedEvent.Type.UPDATED, seq,
+                    expense(seq, "Groceries", "Food"), expense(seq, "Rent", "Housing")));
+        }
+        index.onExpenseChanged(event(ExpenseChangedEvent.Type.DELETED, 14, expense(14, "Gym", "Fitness"), null));
+        index.onExpenseChanged(event(ExpenseChangedEvent.Type.DELETED, 15, expense(15, "gym", "Fitness"), null));
+
+        // Then
+        assertEquals(List.of("Groceries", "Rent"), suggest(15, AutocompleteIndex.Field.TITLE, ""));
+        assertEquals(List.of("Food", "Housing"), suggest(15, AutocompleteIndex.Field.CATEGORY, ""));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void missedChanges_ShouldRebuildOnNextRequest() {
+        // Given
+        suggest(10, AutocompleteIndex.Field.TITLE, "");
+
+        // When: an update whose writer did not read what it replaced
+        index.onExpenseChanged(event(ExpenseChangedEvent.Type.UPDATED, 11, null, expense(11, "Rent", "Housing")));
+        titles.put("Rent", 9L);
+        List<String> afterUpdate = suggest(11, AutocompleteIndex.Field.TITLE, "");
+        // ...and sequence 12 never arrives
+        index.onExpenseChanged(event(ExpenseChangedEvent.Type.CREATED, 13, null, expense(13, "Gym", "Fitness")));
+        titles.put("Gym", 20L);
+        List<String> afterGap = suggest(13, AutocompleteIndex.Field.TITLE, "");
+
+        // Then
+        assertEquals(List.of("Rent", "Groceries", "Gym"), afterUpdate);
+        assertEquals(List.of("Gym", "Rent", "Groceries"), afterGap);
+        assertEquals(6, loads.get());
+    }
+
+    @Test
+    void idleTries_ShouldBeEvicted() {
+        // Given
+        index.suggest(1L, 10, loader, AutocompleteIndex.Field.TITLE, "", 5);
+        index.suggest(2L, 10, loader, AutocompleteIndex.Field.TITLE, "", 5);
+        ReflectionTestUtils.setField(index, "maxUsers", 2);
+        index.suggest(3L, 10, loader, AutocompleteIndex.Field.TITLE, "", 5);
+        assertEquals(2, index.getIndexedUsers());
+
+        // When
+        ReflectionTestUtils.setField(index, "idleMillis", -1L);
+        index.evictIdle();
+
+        // Then
+        assertEquals(0, index.getIndexedUsers());
+    }
+
+    private List<String> suggest(long version, AutocompleteIndex.Field field, String prefix) {
+        return index.suggest(1L, version, loader, field, prefix, 5);
+    }
+
+    private static ExpenseResponse expense(long id, String title, String category) {
+        return new ExpenseResponse(id, title, null, BigDecimal.TEN, category, null, LocalDate.of(2024, 1, 10),
+                null, null);
+    }
+
+    private static ExpenseChangedEvent event(ExpenseChangedEvent.Type type, long changeSeq,
+                                             ExpenseResponse previous, ExpenseResponse expense) {
+        Long expenseId = (expense != null ? expense : previous).getId();
+        return new ExpenseChangedEvent(type, 1L, "testuser", expenseId, changeSeq, expense, previous);
+    }
+}
@@ -0,0 +1,144 @@
+package com.expensetracker.index;
+
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.entity.Expense;
+import com.expensetracker.event.ExpenseChangedEvent;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseBitmapIndexTest {
+
+    private static final LocalDate JAN = LocalDate.of(2024, 1, 10);
+
+    private static final LocalDate FEB = LocalDate.of(2024, 2, 10);
+
+    private ExpenseBitmapIndex index;
+
+    private List<Expense> expenses;
+
+    private AtomicInteger loads;
+
+    private Supplier<List<Expense>> loader;
+
+    @BeforeEach
+    void setUp() {
+        index = new ExpenseBitmapIndex();
+        ReflectionTestUtils.setField(index, "maxBytes", 1L << 20);
+        expenses = new ArrayList<>(List.of(
+                expense(1L, "Food", "reimbursable,work", JAN),
+                expense(2L, "Food", null, FEB),
+                expense(3L, "Transport", "work", JAN),
+                expense(4L, "Transport", "reimbursable", FEB),
+                expense(5L, "Bills", "work", FEB)));
+        loads = new AtomicInteger();
+        loader = () -> {
+            loads.incrementAndGet();
+            return expenses;
+        };
+    }
+
+    @Test
+    void search_ShouldCombineCategoriesTagsAndDates() {
+        // Food OR Transport AND NOT reimbursable
+        assertArrayEquals(new long[] {2L, 3L}, search(10, filter(List.of("Food", "Transport"), null,
+                List.of("reimbursable"), null, null)));
+        // ... within February
+        assertArrayEquals(new long[] {2L}, search(10, filter(List.of("Food", "Transport"), null,
+                List.of("reimbursable"), FEB.withDayOfMonth(1), null)));
+        // every expense tagged work, any category
+        assertArrayEquals(new long[] {1L, 3L, 5L}, search(10, filter(null, List.of("WORK"), null, null, null)));
+        // tags are ANDed
+        assertArrayEquals(new long[] {1L}, search(10, filter(null, List.of("work", "reimbursable"), null, null, null)));
+        assertArrayEquals(new long[0], search(10, filter(List.of("Food"), List.of("unknown"), null, null, null)));
+        assertArrayEquals(new long[] {1L, 2L, 3L, 4L, 5L}, search(10, filter(null, null, null, null, null)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void committedChanges_ShouldUpdateTheIndexInPlace() {
+        // Given
+        search(10, filter(null, null, null, null, null));
+
+        // When
+        index.onExpenseChanged(event(ExpenseChangedEvent.Type.CREATED, 6L, 11, "Food", List.of("work"), JAN));
+        index.onExpenseChanged(event(ExpenseChangedEvent.Type.UPDATED, 1L, 12, "Bills", List.of(), JAN));
+        index.onExpenseChanged(event(ExpenseChangedEvent.Type.DELETED, 3L, 13, null, null, null));
+
+        // Then
+        assertArrayEquals(new long[] {5L, 6L}, search(13, filter(null, List.of("work"), null, null, null)));
+        assertArrayEquals(new long[] {1L, 5L}, search(13, filter(List.of("Bills"), null, null, null, null)));
+        assertArrayEquals(new long[] {2L, 6L}, search(13, filter(List.of("Food"), null, null, null, null)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void missedChange_ShouldRebuildOnNextSearch() {
+        // Given
+        search(10, filter(null, null, null, null, null));
+
+        // When: sequence 11 never arrives, and a search sees a newer version than the index
+        index.onExpenseChanged(event(ExpenseChangedEvent.Type.CREATED, 7L, 12, "Food", null, JAN));
+        expenses.add(expense(6L, "Food", null, JAN));
+        expenses.add(expense(7L, "Food", null, JAN));
+        long[] food = search(12, filter(List.of("Food"), null, null, null, null));
+        search(12, filter(List.of("Food"), null, null, null, null));
+        expenses.add(expense(8L, "Food", null, JAN));
+        long[] afterSilentWrite = search(13, filter(List.of("Food"), null, null, null, null));
+
+        // Then
+        assertArrayEquals(new long[] {1L, 2L, 6L, 7L}, food);
+        assertArrayEquals(new long[] {1L, 2L, 6L, 7L, 8L}, afterSilentWrite);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void indexes_ShouldBeEvictedBeyondTheByteBound() {
+        // Given
+        index.search(1L, 10, loader, filter(null, null, null, null, null));
+        long oneUser = index.getIndexedBytes();
+        ReflectionTestUtils.setField(index, "maxBytes", oneUser * 2 + oneUser / 2);
+
+        // When
+        index.search(2L, 10, loader, filter(null, null, null, null, null));
+        index.search(3L, 10, loader, filter(null, null, null, null, null));
+        index.search(1L, 10, loader, filter(null, null, null, null, null));
+
+        // Then: user 1 was the least recently used when user 3 arrived
+        assertEquals(2, index.getIndexedUsers());
+        assertTrue(index.getIndexedBytes() <= oneUser * 2 + oneUser / 2);
+        assertEquals(4, loads.get());
+    }
+
+    private long[] search(long version, ExpenseFilter filter) {
+        return index.search(1L, version, loader, filter);
+    }
+
+    private static ExpenseFilter filter(List<String> categories, List<String> tags, List<String> excludedTags,
+                                        LocalDate from, LocalDate to) {
+        return new ExpenseFilter(categories, tags, excludedTags, from, to);
+    }
+
+    private static Expense expense(Long id, String category, String tags, LocalDate date) {
+        Expense expense = new Expense("Expense " + id, null, BigDecimal.TEN, category, date, null);
+        expense.setId(id);
+        expense.setTags(tags);
+        return expense;
+    }
+
+    private static ExpenseChangedEvent event(ExpenseChangedEvent.Type type, Long id, long changeSeq,
+                                             String category, List<String> tags, LocalDate date) {
+        ExpenseResponse response = type == ExpenseChangedEvent.Type.DELETED ? null
+                : new ExpenseResponse(id, "Expense " + id, null, BigDecimal.TEN, category, tags, date, null, null);
+        return new ExpenseChangedEvent(type, 1L, "testuser", id, changeSeq, response);
+    }
+}
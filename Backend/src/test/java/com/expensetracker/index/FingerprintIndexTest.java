@@ -0,0 +1,138 @@
+package com.expensetracker.index;
+
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.event.ExpenseChangedEvent;
+import com.expensetracker.util.ExpenseFingerprints;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FingerprintIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 15);
+
+    private FingerprintIndex index;
+
+    private List<Long> stored;
+
+    private AtomicInteger loads;
+
+    private Supplier<long[]> loader;
+
+    @BeforeEach
+    void setUp() {
+        index = new FingerprintIndex();
+        ReflectionTestUtils.setField(index, "maxBytes", 1L << 20);
+        stored = new ArrayList<>(List.of(
+                ExpenseFingerprints.of("Coffee", new BigDecimal("4.50"), DAY),
+                ExpenseFingerprints.of("Rent", new BigDecimal("1200.00"), DAY.withDayOfMonth(1))));
+        loads = new AtomicInteger();
+        loader = () -> {
+            loads.incrementAndGet();
+            return stored.stream().mapToLong(Long::longValue).toArray();
+        };
+    }
+
+    @Test
+    void fingerprints_ShouldMatchTheSamePurchaseWithinTheWindow() {
+        // Same title ignoring case and spacing, same amount to the cent, a day later
+        assertTrue(check(10, 1, "  COFFEE ", new BigDecimal("4.5"), DAY.plusDays(1)));
+        assertTrue(check(10, 1, "Coffee", new BigDecimal("4.50"), DAY.minusDays(1)));
+        assertFalse(check(10, 1, "Coffee", new BigDecimal("4.50"), DAY.plusDays(2)));
+        assertFalse(check(10, 1, "Coffee", new BigDecimal("4.51"), DAY));
+        assertFalse(check(10, 1, "Coffee beans", new BigDecimal("4.50"), DAY));
+        assertTrue(check(10, 0, "Rent", new BigDecimal("1200"), DAY.withDayOfMonth(1)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void committedWrites_ShouldBeAppliedInPlace_WithoutReloading() {
+        // Given
+        check(10, 0, "Coffee", new BigDecimal("4.50"), DAY);
+
+        // When - a second coffee, one coffee deleted, then the other changed into tea
+        index.onExpenseChanged(event(ExpenseChangedEvent.Type.CREATED, 11, null, expense("Coffee", "4.50")));
+        index.onExpenseChanged(event(ExpenseChangedEvent.Type.DELETED, 12, expense("Coffee", "4.50"), null));
+        boolean coffeeAfterDelete = check(12, 0, "Coffee", new BigDecimal("4.50"), DAY);
+        index.onExpenseChanged(event(ExpenseChangedEvent.Type.UPDATED, 13, expense("Coffee", "4.50"),
+                expense("Tea", "3.00")));
+        boolean coffeeAfterUpdate = check(13, 0, "Coffee", new BigDecimal("4.50"), DAY);
+        boolean tea = check(13, 0, "tea", new BigDecimal("3.00"), DAY);
+
+        // Then
+        assertTrue(coffeeAfterDelete);
+        assertFalse(coffeeAfterUpdate);
+        assertTrue(tea);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void missedWrite_ShouldReload() {
+        // Given
+        check(10, 0, "Coffee", new BigDecimal("4.50"), DAY);
+
+        // When - event 11 never arrives
+        index.onExpenseChanged(event(ExpenseChangedEvent.Type.CREATED, 12, null, expense("Taxi", "18.00")));
+        stored.add(ExpenseFingerprints.of("Taxi", new BigDecimal("18.00"), DAY));
+        boolean taxi = check(12, 0, "Taxi", new BigDecimal("18.00"), DAY);
+
+        // Then
+        assertTrue(taxi);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void longMultiset_ShouldMatchCountingMapAcrossGrowthAndRemovals() {
+        // Given
+        Random random = new Random(11);
+        LongMultiset set = new LongMultiset(4);
+        Map<Long, Integer> expected = new HashMap<>();
+
+        // When - mostly adds, with removals spread through the probe runs
+        for (int i = 0; i < 40_000; i++) {
+            long value = random.nextInt(30_000) + 1;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.containsKey(value), set.remove(value));
+                expected.computeIfPresent(value, (k, count) -> count == 1 ? null : count - 1);
+            } else {
+                assertEquals(!expected.containsKey(value), set.add(value));
+                expected.merge(value, 1, Integer::sum);
+            }
+        }
+
+        // Then
+        assertEquals(expected.size(), set.size());
+        for (long value = 1; value <= 30_000; value++) {
+            assertEquals(expected.getOrDefault(value, 0), set.count(value));
+            assertEquals(expected.containsKey(value), set.contains(value));
+        }
+        assertFalse(set.contains(0));
+        assertFalse(set.remove(0));
+        assertThrows(IllegalArgumentException.class, () -> set.add(0));
+    }
+
+    private boolean check(long version, int windowDays, String title, BigDecimal amount, LocalDate date) {
+        return index.containsAny(1L, version, loader, ExpenseFingerprints.window(title, amount, date, windowDays));
+    }
+
+    private static ExpenseResponse expense(String title, String amount) {
+        return new ExpenseResponse(1L, title, null, new BigDecimal(amount), "Food", null, DAY, null, null);
+    }
+
+    private ExpenseChangedEvent event(ExpenseChangedEvent.Type type, long changeSeq, ExpenseResponse previous,
+                                      ExpenseResponse expense) {
+        return new ExpenseChangedEvent(type, 1L, "testuser", 1L, changeSeq, expense, previous);
+    }
+}
@@ -0,0 +1,143 @@
+package com.expensetracker.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixTrieTest {
+
+    @Test
+    void top_ShouldRankTermsUnderThePrefixByCount() {
+        // Given: keys that split each other's edges in both directions
+        PrefixTrie trie = new PrefixTrie(new TermPool());
+        trie.add("Coffee", 5);
+        trie.add("Coffee beans", 2);
+        trie.add("Co-working", 7);
+        trie.add("Cinema", 3);
+        trie.add("Co", 1);
+        trie.add("coffee", 4);
+
+        // When & Then
+        assertEquals(List.of("Coffee", "Co-working", "Cinema", "Coffee beans", "Co"), trie.top("c", 10));
+        assertEquals(List.of("Coffee", "Co-working"), trie.top("CO", 2));
+        assertEquals(List.of("Coffee", "Coffee beans"), trie.top("coff", 10));
+        assertEquals(List.of("Coffee beans"), trie.top("coffee ", 10));
+        assertEquals(List.of(), trie.top("cox", 10));
+        assertEquals(List.of(), trie.top("coffee beans!", 10));
+        assertEquals(9, trie.count("COFFEE"));
+        assertEquals(0, trie.count("Coff"));
+        assertEquals(5, trie.size());
+    }
+
+    @Test
+    void top_ShouldMatchASortOfEveryTerm() {
+        // Given
+        Random random = new Random(7);
+        PrefixTrie trie = new PrefixTrie(new TermPool());
+        Map<String, Long> counts = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            StringBuilder term = new StringBuilder();
+            for (int length = 1 + random.nextInt(6); length > 0; length--) {
+                term.append((char) ('a' + random.nextInt(4)));
+            }
+            long count = 1 + random.nextInt(20);
+            trie.add(term.toString(), count);
+            counts.merge(term.toString(), count, Long::sum);
+        }
+
+        // When & Then
+        for (String prefix : List.of("", "a", "ab", "dca", "bbbb")) {
+            List<Map.Entry<String, Long>> expected = new ArrayList<>(counts.entrySet());
+            expected.removeIf(entry -> !entry.getKey().startsWith(prefix));
+            expected.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                    .thenComparing(Map.Entry.comparingByKey()));
+            List<String> top = trie.top(prefix, 8);
+            assertEquals(expected.stream().limit(8).map(Map.Entry::getValue).collect(Collectors.toList()),
+                    top.stream().map(trie::count).collect(Collectors.toList()), prefix);
+        }
+        assertEquals(counts.size(), trie.size());
+    }
+
+    @Test
+    void remove_ShouldMatchASortOfWhatIsLeft() {
+        // Given
+        Random random = new Random(11);
+        PrefixTrie trie = new PrefixTrie(new TermPool());
+        Map<String, Long> counts = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder term = new StringBuilder();
+            for (int length = 1 + random.nextInt(5); length > 0; length--) {
+                term.append((char) ('a' + random.nextInt(3)));
+            }
+            long count = 1 + random.nextInt(4);
+
+            // When: adds and removals interleaved, some of terms that are not there
+            if (random.nextInt(3) == 0) {
+                trie.remove(term.toString(), count);
+                counts.computeIfPresent(term.toString(), (key, old) -> old > count ? old - count : null);
+            } else {
+                trie.add(term.toString(), count);
+                counts.merge(term.toString(), count, Long::sum);
+            }
+        }
+
+        // Then
+        for (String prefix : List.of("", "a", "ab", "cba", "bbbb")) {
+            List<Map.Entry<String, Long>> expected = new ArrayList<>(counts.entrySet());
+            expected.removeIf(entry -> !entry.getKey().startsWith(prefix));
+            expected.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                    .thenComparing(Map.Entry.comparingByKey()));
+            List<String> top = trie.top(prefix, 8);
+            assertEquals(expected.stream().limit(8).map(Map.Entry::getValue).collect(Collectors.toList()),
+                    top.stream().map(trie::count).collect(Collectors.toList()), prefix);
+        }
+        assertEquals(counts.size(), trie.size());
+    }
+
+    @Test
+    void remove_ShouldDropATermOnceItHasNoUsesLeft() {
+        // Given
+        PrefixTrie trie = new PrefixTrie(new TermPool());
+        trie.add("Coffee", 2);
+        trie.add("Coffee beans", 3);
+        trie.add("Cinema", 1);
+
+        // When
+        trie.remove("coffee", 1);
+        trie.remove("Coffee beans", 3);
+        trie.remove("Cinema", 5);
+
+        // Then
+        assertEquals(List.of("Coffee"), trie.top("c", 10));
+        assertEquals(1, trie.count("Coffee"));
+        assertEquals(0, trie.count("Coffee beans"));
+        assertEquals(1, trie.size());
+        // A term added again after it went takes its new spelling
+        trie.add("cinema", 4);
+        assertEquals(List.of("cinema", "Coffee"), trie.top("", 10));
+    }
+
+    @Test
+    void terms_ShouldBeSharedThroughThePool() {
+        // Given
+        TermPool pool = new TermPool();
+        PrefixTrie first = new PrefixTrie(pool);
+        PrefixTrie second = new PrefixTrie(pool);
+
+        // When
+        first.add(new String("Groceries"), 1);
+        second.add(new String("Groceries"), 1);
+
+        // Then
+        assertSame(first.top("g", 1).get(0), second.top("g", 1).get(0));
+        assertThrows(IllegalArgumentException.class, () -> first.add("Rent", 0));
+    }
+}
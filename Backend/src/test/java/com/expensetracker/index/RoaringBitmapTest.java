@@ -0,0 +1,98 @@
+package com.expensetracker.index;
+
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoaringBitmapTest {
+
+    @Test
+    void operations_ShouldMatchBitSet_AcrossSparseAndDenseChunks() {
+        // Given: values in three chunks, one of them dense enough for a bitmap container
+        Random random = new Random(42);
+        RoaringBitmap a = new RoaringBitmap();
+        RoaringBitmap b = new RoaringBitmap();
+        BitSet expectedA = new BitSet();
+        BitSet expectedB = new BitSet();
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(3 * 65536);
+            a.add(value);
+            expectedA.set(value);
+            if (i % 3 == 0) {
+                int other = random.nextInt(65536) + (i % 2) * 131072;
+                b.add(other);
+                expectedB.set(other);
+            }
+        }
+        for (int i = 0; i < 2_000; i++) {
+            int value = random.nextInt(3 * 65536);
+            a.remove(value);
+            expectedA.clear(value);
+        }
+
+        // When
+        BitSet and = (BitSet) expectedA.clone();
+        and.and(expectedB);
+        BitSet or = (BitSet) expectedA.clone();
+        or.or(expectedB);
+        BitSet andNot = (BitSet) expectedA.clone();
+        andNot.andNot(expectedB);
+
+        // Then
+        assertArrayEquals(expectedA.stream().toArray(), a.toArray());
+        assertEquals(expectedA.cardinality(), a.getCardinality());
+        assertArrayEquals(and.stream().toArray(), RoaringBitmap.and(a, b).toArray());
+        assertArrayEquals(or.stream().toArray(), RoaringBitmap.or(a, b).toArray());
+        assertArrayEquals(andNot.stream().toArray(), RoaringBitmap.andNot(a, b).toArray());
+        assertArrayEquals(new int[0], RoaringBitmap.andNot(a, a).toArray());
+    }
+
+    @Test
+    void container_ShouldSwitchBetweenArrayAndBitmap() {
+        // Given
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 1000; i++) {
+            bitmap.add(i * 2);
+        }
+        long sparseBytes = bitmap.sizeInBytes();
+
+        // When
+        for (int i = 1000; i <= RoaringBitmap.ARRAY_MAX; i++) {
+            bitmap.add(i * 2);
+        }
+        long denseBytes = bitmap.sizeInBytes();
+        bitmap.remove(0);
+        bitmap.remove(2);
+
+        // Then
+        assertTrue(sparseBytes < 2200, "sparse " + sparseBytes);
+        assertTrue(denseBytes > 8192, "dense " + denseBytes);
+        assertEquals(RoaringBitmap.ARRAY_MAX - 1, bitmap.getCardinality());
+        assertFalse(bitmap.contains(2));
+        assertTrue(bitmap.contains(4));
+        assertTrue(bitmap.contains(RoaringBitmap.ARRAY_MAX * 2));
+        assertFalse(bitmap.contains(1));
+    }
+
+    @Test
+    void binaryOperations_ShouldNotShareStateWithInputs() {
+        // Given
+        RoaringBitmap a = RoaringBitmap.of(1, 2, 3);
+        RoaringBitmap b = RoaringBitmap.of(3, 70_000);
+
+        // When
+        RoaringBitmap or = RoaringBitmap.or(a, b);
+        or.add(4);
+        or.remove(70_000);
+
+        // Then
+        assertEquals(RoaringBitmap.of(1, 2, 3), a);
+        assertEquals(RoaringBitmap.of(3, 70_000), b);
+        assertEquals(RoaringBitmap.of(1, 2, 3, 4), or);
+        assertTrue(RoaringBitmap.and(a, RoaringBitmap.of(70_000)).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> a.add(-1));
+    }
+}
@@ -0,0 +1,243 @@
+package com.expensetracker.report;
+
+import com.expensetracker.dto.ReportJobResponse;
+import com.expensetracker.dto.ReportRequest;
+import com.expensetracker.entity.Budget;
+import com.expensetracker.entity.ReportJob;
+import com.expensetracker.entity.User;
+import com.expensetracker.repository.BudgetRepository;
+import com.expensetracker.repository.ReportJobRepository;
+import com.expensetracker.repository.UserRepository;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportJobServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private ReportJobRepository jobRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private BudgetRepository budgetRepository;
+
+    @Mock
+    private ReportWriter reportWriter;
+
+    @InjectMocks
+    private ReportJobService reportJobService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reportJobService, "directory", directory.toString());
+        ReflectionTestUtils.setField(reportJobService, "maxPendingPerUser", 2);
+        ReflectionTestUtils.setField(reportJobService, "maxAttempts", 3);
+        // Jobs run on the submitting thread, so each test sees them finished
+        ReflectionTestUtils.setField(reportJobService, "scheduler", new ReportScheduler(1, 1, 10, 60_000,
+                Runnable::run, reportJobService::run, System::nanoTime));
+
+        User user = new User("testuser", "test@example.com", "password");
+        user.setId(1L);
+        user.setExpensesVersion(4);
+        lenient().when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void submit_ShouldBuildTheReportIntoTheFileNamedByItsKey() throws IOException {
+        // Given
+        ReportJob[] saved = new ReportJob[1];
+        when(jobRepository.save(any(ReportJob.class))).thenAnswer(invocation -> {
+            saved[0] = invocation.getArgument(0);
+            if (saved[0].getId() == null) {
+                saved[0].setId(7L);
+            }
+            return saved[0];
+        });
+        when(jobRepository.findById(7L)).thenAnswer(invocation -> Optional.of(saved[0]));
+        when(jobRepository.findByIdAndUserId(7L, 1L)).thenAnswer(invocation -> Optional.of(saved[0]));
+        when(jobRepository.claim(eq(7L), any(), any(), eq(ReportJob.Status.QUEUED), eq(ReportJob.Status.RUNNING)))
+                .thenReturn(1);
+        doAnswer(invocation -> {
+            invocation.getArgument(1, Writer.class).write("month,category\n");
+            return null;
+        }).when(reportWriter).write(any(ReportJob.class), any(Writer.class));
+
+        // When
+        ReportJobResponse response = reportJobService.submit(request(ReportJob.Type.MONTHLY_SUMMARY), "testuser");
+
+        // Then
+        assertEquals(ReportJob.Status.DONE, response.getStatus());
+        assertEquals(15L, response.getResultBytes());
+        String key = ReportJobService.cacheKey(1L, ReportJob.Type.MONTHLY_SUMMARY, YearMonth.of(2024, 1),
+                YearMonth.of(2024, 12), 4, "");
+        assertEquals("month,category\n", Files.readString(directory.resolve("1").resolve(key + ".csv")));
+        ReportJobService.Result result = reportJobService.getResult(7L, "testuser");
+        assertEquals("summary-2024-01-to-2024-12.csv", result.getFilename());
+        assertEquals("\"" + key + "\"", result.getEtag());
+    }
+
+    @Test
+    void submit_ShouldReturnTheFinishedJobWhileNoExpenseChanged() throws IOException {
+        // Given
+        ReportJob done = job(ReportJob.Status.DONE);
+        Files.createDirectories(directory.resolve("1"));
+        Files.writeString(directory.resolve("1").resolve(done.getCacheKey() + ".csv"), "date\n");
+        when(jobRepository.findFirstByUserIdAndCacheKeyAndStatusInOrderByIdDesc(eq(1L), eq(done.getCacheKey()),
+                anyCollection())).thenReturn(Optional.of(done));
+
+        // When
+        ReportJobResponse response = reportJobService.submit(request(ReportJob.Type.EXPENSES_CSV), "testuser");
+
+        // Then
+        assertEquals(3L, response.getId());
+        verify(jobRepository, never()).save(any());
+        verifyNoInteractions(reportWriter);
+    }
+
+    @Test
+    void submit_ShouldNotReuseTheSummary_WhenABudgetChanged() {
+        // Given - a summary built before the Food budget was raised
+        String before = ReportJobService.cacheKey(1L, ReportJob.Type.MONTHLY_SUMMARY, YearMonth.of(2024, 1),
+                YearMonth.of(2024, 12), 4, "Food=200.00");
+        Budget food = new Budget();
+        food.setCategory("Food");
+        food.setMonthlyLimit(new BigDecimal("300.00"));
+        when(budgetRepository.findByUserIdOrderByCategoryAsc(1L)).thenReturn(List.of(food));
+        when(jobRepository.save(any(ReportJob.class))).thenAnswer(invocation -> {
+            ReportJob job = invocation.getArgument(0);
+            job.setId(8L);
+            return job;
+        });
+
+        // When
+        reportJobService.submit(request(ReportJob.Type.MONTHLY_SUMMARY), "testuser");
+
+        // Then
+        verify(jobRepository, never()).findFirstByUserIdAndCacheKeyAndStatusInOrderByIdDesc(eq(1L), eq(before),
+                anyCollection());
+        verify(jobRepository).findFirstByUserIdAndCacheKeyAndStatusInOrderByIdDesc(eq(1L),
+                eq(ReportJobService.cacheKey(1L, ReportJob.Type.MONTHLY_SUMMARY, YearMonth.of(2024, 1),
+                        YearMonth.of(2024, 12), 4, "Food=300.00")), anyCollection());
+    }
+
+    @Test
+    void submit_ShouldRefuseMoreThanTheAllowedPendingReports() {
+        // Given
+        when(jobRepository.countByUserIdAndStatusIn(eq(1L), anyCollection())).thenReturn(2L);
+
+        // When
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> reportJobService.submit(request(ReportJob.Type.EXPENSES_CSV), "testuser"));
+
+        // Then
+        assertEquals("At most 2 reports can be in progress at once", exception.getMessage());
+        verify(jobRepository, never()).save(any());
+    }
+
+    @Test
+    void getResult_ShouldRefuseUntilTheReportIsDoneAndAfterItExpired() {
+        // Given
+        ReportJob job = job(ReportJob.Status.QUEUED);
+        when(jobRepository.findByIdAndUserId(3L, 1L)).thenReturn(Optional.of(job));
+
+        // When
+        ReportNotReadyException queued = assertThrows(ReportNotReadyException.class,
+                () -> reportJobService.getResult(3L, "testuser"));
+        job.setStatus(ReportJob.Status.DONE);
+        ReportNotReadyException expired = assertThrows(ReportNotReadyException.class,
+                () -> reportJobService.getResult(3L, "testuser"));
+
+        // Then
+        assertEquals("Report is not ready yet", queued.getMessage());
+        assertEquals("Report has expired; request it again", expired.getMessage());
+    }
+
+    @Test
+    void sweep_ShouldRequeueOnlyJobsWhoseLeaseExpired() {
+        // Given - one job interrupted once, one interrupted every time it ran
+        ReportJob retried = job(ReportJob.Status.RUNNING);
+        retried.setAttempts(1);
+        ReportJob givenUp = job(ReportJob.Status.RUNNING);
+        givenUp.setAttempts(3);
+        when(jobRepository.findExpiredLeases(eq(ReportJob.Status.RUNNING), any(LocalDateTime.class)))
+                .thenReturn(List.of(retried, givenUp));
+
+        // When
+        reportJobService.sweep();
+
+        // Then
+        assertEquals(ReportJob.Status.QUEUED, retried.getStatus());
+        assertEquals(ReportJob.Status.FAILED, givenUp.getStatus());
+        verify(jobRepository, never()).findByStatusOrderByIdAsc(ReportJob.Status.RUNNING);
+        verify(jobRepository).findByStatusOrderByIdAsc(ReportJob.Status.QUEUED);
+        verify(jobRepository, never()).claim(anyLong(), any(), any(), any(), any());
+    }
+
+    @Test
+    void sweep_ShouldRenewTheLeaseOfJobsThisInstanceIsRunning() throws IOException {
+        // Given - job 7 is being written when the sweep comes
+        ReflectionTestUtils.setField(reportJobService, "retentionHours", 24L);
+        ReportJob job = job(ReportJob.Status.RUNNING);
+        job.setId(7L);
+        when(jobRepository.claim(eq(7L), any(), any(), eq(ReportJob.Status.QUEUED), eq(ReportJob.Status.RUNNING)))
+                .thenReturn(1);
+        when(jobRepository.findById(7L)).thenReturn(Optional.of(job));
+        when(jobRepository.findExpiredLeases(eq(ReportJob.Status.RUNNING), any(LocalDateTime.class)))
+                .thenReturn(List.of(job));
+        doAnswer(invocation -> {
+            reportJobService.sweep();
+            return null;
+        }).when(reportWriter).write(any(ReportJob.class), any(Writer.class));
+
+        // When
+        reportJobService.run(new ReportScheduler.Task(7L, 1L, 0, 0, 0, 0));
+
+        // Then - renewed, not requeued, and finished
+        verify(jobRepository).renewLeases(eq(List.of(7L)), any(LocalDateTime.class), eq(ReportJob.Status.RUNNING));
+        assertEquals(ReportJob.Status.DONE, job.getStatus());
+        assertNull(job.getLeaseUntil());
+        verify(jobRepository, times(1)).save(job);
+    }
+
+    private static ReportRequest request(ReportJob.Type type) {
+        return new ReportRequest(type, YearMonth.of(2024, 1), YearMonth.of(2024, 12));
+    }
+
+    private static ReportJob job(ReportJob.Status status) {
+        ReportJob job = new ReportJob(1L, ReportJob.Type.EXPENSES_CSV, LocalDate.of(2024, 1, 1),
+                LocalDate.of(2024, 12, 1), 12, 4, ReportJobService.cacheKey(1L, ReportJob.Type.EXPENSES_CSV,
+                YearMonth.of(2024, 1), YearMonth.of(2024, 12), 4, ""));
+        job.setId(3L);
+        job.setStatus(status);
+        return job;
+    }
+}
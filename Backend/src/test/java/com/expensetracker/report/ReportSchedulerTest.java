@@ -0,0 +1,107 @@
+package com.expensetracker.report;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportSchedulerTest {
+
+    // Runs nothing until told to, so the test decides when a worker finishes
+    private final Queue<Runnable> workers = new ArrayDeque<>();
+
+    private final List<Long> started = new ArrayList<>();
+
+    private long now;
+
+    private ReportScheduler scheduler(int workerCount, int maxRunningPerUser, int capacity) {
+        return new ReportScheduler(workerCount, maxRunningPerUser, capacity, 60_000, workers::add,
+                task -> started.add(task.getJobId()), () -> now);
+    }
+
+    @Test
+    void submit_ShouldRunTheLowestPriorityFirstOnceAWorkerIsFree() {
+        // Given - the only worker is busy
+        ReportScheduler scheduler = scheduler(1, 1, 10);
+        scheduler.submit(1, 1L, 5, 0);
+        scheduler.submit(2, 2L, 12, 0);
+        scheduler.submit(3, 3L, 0, 0);
+        scheduler.submit(4, 4L, 12, 0);
+
+        // When
+        runAll();
+
+        // Then - priority, then arrival among equals
+        assertEquals(List.of(1L, 3L, 2L, 4L), started);
+        assertEquals(0, scheduler.getRunning());
+    }
+
+    @Test
+    void submit_ShouldNotRunMoreThanTheCapOfOneUserAtOnce() {
+        // Given
+        ReportScheduler scheduler = scheduler(3, 1, 10);
+
+        // When
+        scheduler.submit(1, 1L, 0, 0);
+        scheduler.submit(2, 1L, 0, 0);
+        scheduler.submit(3, 2L, 5, 0);
+
+        // Then - user 1's second job waits although a worker is free
+        assertEquals(2, scheduler.getRunning());
+        assertEquals(1, scheduler.getQueued());
+        runNext();
+        runNext();
+        assertEquals(List.of(1L, 3L), started);
+        runAll();
+        assertEquals(List.of(1L, 3L, 2L), started);
+    }
+
+    @Test
+    void submit_ShouldRunAJobThatWaitedTooLongAheadOfPriority() {
+        // Given - a large job waits past the limit behind a busy worker
+        ReportScheduler scheduler = scheduler(1, 1, 10);
+        scheduler.submit(1, 1L, 0, 0);
+        scheduler.submit(2, 2L, 120, 0);
+        now += TimeUnit.SECONDS.toNanos(61);
+        scheduler.submit(3, 3L, 0, 0);
+
+        // When
+        runAll();
+
+        // Then
+        assertEquals(List.of(1L, 2L, 3L), started);
+    }
+
+    @Test
+    void submit_ShouldRefuseWhenFullAndIgnoreAJobItAlreadyHas() {
+        // Given
+        ReportScheduler scheduler = scheduler(1, 1, 1);
+        scheduler.submit(1, 1L, 0, 0);
+        scheduler.submit(2, 2L, 0, 0);
+
+        // When
+        boolean again = scheduler.submit(1, 1L, 0, 0);
+        boolean full = scheduler.submit(3, 3L, 0, 0);
+
+        // Then
+        assertTrue(again);
+        assertFalse(full);
+        runAll();
+        assertEquals(List.of(1L, 2L), started);
+    }
+
+    private void runNext() {
+        workers.remove().run();
+    }
+
+    private void runAll() {
+        while (!workers.isEmpty()) {
+            runNext();
+        }
+    }
+}
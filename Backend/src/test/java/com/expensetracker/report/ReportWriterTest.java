@@ -0,0 +1,123 @@
+package com.expensetracker.report;
+
+import com.expensetracker.archive.ExpenseArchiveService;
+import com.expensetracker.entity.Expense;
+import com.expensetracker.entity.ReportJob;
+import com.expensetracker.entity.TestSchema;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReportWriterTest {
+
+    private ReportWriter reportWriter;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ExpenseArchiveService archiveService;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:reports" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TestSchema.create(dataSource);
+        jdbcTemplate.update("insert into users (id, username, email, password) values (1, 'alice', 'alice@example.com', 'x')");
+
+        archiveService = mock(ExpenseArchiveService.class);
+        reportWriter = new ReportWriter();
+        ReflectionTestUtils.setField(reportWriter, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(reportWriter, "archiveService", archiveService);
+        ReflectionTestUtils.setField(reportWriter, "jdbcTimeZone", "UTC");
+    }
+
+    @Test
+    void write_ShouldListTheMonthsExpensesInDateOrderWithArchivedOnesMergedIn() throws IOException {
+        // Given - expense 2 was archived and restored, so its table row is the current one
+        insertExpense(1, "Lunch, with \"team\"", "Food", "12.50", "2024-02-10", null);
+        insertExpense(2, "Taxi", "Travel", "20.00", "2024-01-31", "airport");
+        insertExpense(3, "Outside the range", "Food", "1.00", "2024-03-01", null);
+        when(archiveService.findArchived(1L)).thenReturn(List.of(
+                archived(4L, "=HYPERLINK(\"x\")", "8.00", "2024-02-01"),
+                archived(2L, "Taxi (old)", "20.00", "2024-01-31"),
+                archived(5L, "Too old", "3.00", "2023-12-31")));
+
+        // When
+        String csv = write(new ReportJob(1L, ReportJob.Type.EXPENSES_CSV, LocalDate.of(2024, 1, 1),
+                LocalDate.of(2024, 2, 1), 2, 0, "key"));
+
+        // Then
+        assertEquals("date,title,category,tags,amount,description\n"
+                + "2024-01-31,Taxi,Travel,,20.00,airport\n"
+                + "2024-02-01,\"'=HYPERLINK(\"\"x\"\")\",Archived,,8.00,\n"
+                + "2024-02-10,\"Lunch, with \"\"team\"\"\",Food,,12.50,\n", csv);
+    }
+
+    @Test
+    void write_ShouldSummariseEachMonthAgainstTheBudgets() throws IOException {
+        // Given
+        jdbcTemplate.update("insert into budgets (category, monthly_limit, user_id) values ('Food', 100.00, 1)");
+        insertTotal("2024-01-01", "Food", "120.00");
+        insertTotal("2024-01-01", "Travel", "30.00");
+        insertTotal("2024-02-01", "Food", "40.00");
+
+        // When
+        String csv = write(new ReportJob(1L, ReportJob.Type.MONTHLY_SUMMARY, LocalDate.of(2024, 1, 1),
+                LocalDate.of(2024, 2, 1), 0, 0, "key"));
+
+        // Then
+        assertEquals("month,category,total,budget,remaining\n"
+                + "2024-01,Food,120.00,100.00,-20.00\n"
+                + "2024-01,Travel,30.00,,\n"
+                + "2024-01,All categories,150.00,,\n"
+                + "2024-02,Food,40.00,100.00,60.00\n"
+                + "2024-02,All categories,40.00,,\n"
+                + "All months,All categories,190.00,,\n", csv);
+    }
+
+    @Test
+    void csvField_ShouldQuoteSeparatorsAndDefuseFormulasButNotNegativeNumbers() {
+        assertEquals("plain", ReportWriter.csvField("plain"));
+        assertEquals("\"a\nb\"", ReportWriter.csvField("a\nb"));
+        assertEquals("'@SUM(A1)", ReportWriter.csvField("@SUM(A1)"));
+        assertEquals("-12.50", ReportWriter.csvField("-12.50"));
+    }
+
+    private String write(ReportJob job) throws IOException {
+        StringWriter out = new StringWriter();
+        reportWriter.write(job, out);
+        return out.toString();
+    }
+
+    private void insertExpense(long id, String title, String category, String amount, String date, String description) {
+        jdbcTemplate.update("insert into expenses (id, title, description, amount, category, expense_date, user_id) "
+                + "values (?, ?, ?, ?, ?, ?, 1)", id, title, description, new BigDecimal(amount), category,
+                LocalDate.parse(date));
+    }
+
+    private void insertTotal(String month, String category, String total) {
+        jdbcTemplate.update("insert into expense_month_totals (user_id, month_start, category, total) "
+                + "values (1, ?, ?, ?)", LocalDate.parse(month), category, new BigDecimal(total));
+    }
+
+    private static Expense archived(Long id, String title, String amount, String date) {
+        Expense expense = new Expense();
+        expense.setId(id);
+        expense.setTitle(title);
+        expense.setCategory("Archived");
+        expense.setAmount(new BigDecimal(amount));
+        expense.setExpenseDate(LocalDate.parse(date));
+        return expense;
+    }
+}
@@ -0,0 +1,144 @@
+package com.expensetracker.security;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private RateLimitFilter filter;
+
+    private final AtomicInteger chainCalls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        filter = new RateLimitFilter();
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "authCapacity", 2);
+        ReflectionTestUtils.setField(filter, "authRefillPerMinute", 1);
+        ReflectionTestUtils.setField(filter, "readCapacity", 3);
+        ReflectionTestUtils.setField(filter, "readRefillPerMinute", 1);
+        ReflectionTestUtils.setField(filter, "writeCapacity", 2);
+        ReflectionTestUtils.setField(filter, "writeRefillPerMinute", 1);
+        ReflectionTestUtils.setField(filter, "evictionIntervalMs", 60000L);
+        ReflectionTestUtils.invokeMethod(filter, "start");
+        authenticate("testuser");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(filter, "stop");
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doFilter_ShouldReturn429_WhenBucketIsEmpty() throws Exception {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, send("GET", "/api/expenses").getStatus());
+        }
+
+        // When
+        MockHttpServletResponse response = send("GET", "/api/expenses");
+
+        // Then
+        assertEquals(429, response.getStatus());
+        assertEquals(3, chainCalls.get());
+        assertEquals("3", response.getHeader("RateLimit-Limit"));
+        assertEquals("0", response.getHeader("RateLimit-Remaining"));
+        assertTrue(Long.parseLong(response.getHeader("Retry-After")) > 0);
+    }
+
+    @Test
+    void doFilter_ShouldReportRemainingTokens_WhenAllowed() throws Exception {
+        // When
+        MockHttpServletResponse first = send("POST", "/api/expenses");
+        MockHttpServletResponse second = send("POST", "/api/expenses");
+
+        // Then
+        assertEquals("1", first.getHeader("RateLimit-Remaining"));
+        assertEquals("0", second.getHeader("RateLimit-Remaining"));
+        assertNull(second.getHeader("Retry-After"));
+    }
+
+    @Test
+    void doFilter_ShouldKeepSeparateBucketsPerUserAndRouteClass() throws Exception {
+        // Given - testuser has used up its write bucket
+        send("POST", "/api/expenses");
+        send("PUT", "/api/expenses/1");
+        assertEquals(429, send("DELETE", "/api/expenses/1").getStatus());
+
+        // When & Then
+        assertEquals(200, send("GET", "/api/expenses").getStatus());
+        authenticate("otheruser");
+        assertEquals(200, send("POST", "/api/expenses").getStatus());
+    }
+
+    @Test
+    void doFilter_ShouldKeyAnonymousRequestsByRemoteAddress() throws Exception {
+        // Given
+        SecurityContextHolder.clearContext();
+        send("POST", "/api/auth/login");
+        send("POST", "/api/auth/login");
+
+        // When
+        MockHttpServletResponse response = send("POST", "/api/auth/login");
+
+        // Then
+        assertEquals(429, response.getStatus());
+        assertEquals(2, chainCalls.get());
+    }
+
+    @Test
+    void doFilter_ShouldSkipNonApiAndPreflightRequests() throws Exception {
+        // When
+        for (int i = 0; i < 10; i++) {
+            send("GET", "/actuator/health");
+            send("OPTIONS", "/api/expenses");
+        }
+
+        // Then
+        assertEquals(20, chainCalls.get());
+        assertEquals(0, filter.getBucketCount());
+    }
+
+    @Test
+    void evictIdle_ShouldRemoveOnlyRefilledBuckets() throws Exception {
+        // Given - refill a read token every millisecond, writes stay slow
+        ReflectionTestUtils.invokeMethod(filter, "stop");
+        ReflectionTestUtils.setField(filter, "readRefillPerMinute", 60000);
+        ReflectionTestUtils.invokeMethod(filter, "start");
+        send("GET", "/api/expenses");
+        send("POST", "/api/expenses");
+        assertEquals(2, filter.getBucketCount());
+        Thread.sleep(20);
+
+        // When
+        filter.evictIdle();
+
+        // Then
+        assertEquals(1, filter.getBucketCount());
+    }
+
+    private MockHttpServletResponse send(String method, String uri) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> chainCalls.incrementAndGet());
+        return response;
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                username, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+}
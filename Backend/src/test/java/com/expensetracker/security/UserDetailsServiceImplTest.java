@@ -1,5 +1,6 @@
 package com.expensetracker.security;
 
+import com.expensetracker.datasource.ReadYourWritesTracker;
 import com.expensetracker.entity.User;
 import com.expensetracker.repository.UserRepository;
 import java.util.Optional;
@@ -23,6 +24,9 @@ class UserDetailsServiceImplTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ReadYourWritesTracker readYourWrites;
+
     @InjectMocks
     private UserDetailsServiceImpl userDetailsService;
 
@@ -0,0 +1,72 @@
+package com.expensetracker.service;
+
+import com.expensetracker.datasource.ReadYourWritesTracker;
+import com.expensetracker.dto.RegisterRequest;
+import com.expensetracker.entity.User;
+import com.expensetracker.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuthServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private ReadYourWritesTracker readYourWrites;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private AuthService authService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(authService, "reservedUsername", "jit-warmup");
+        lenient().when(passwordEncoder.encode(any())).thenReturn("hashed");
+        lenient().when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void registerUser_ShouldRefuseWarmupUsername_InAnyCase() {
+        // Given
+        RegisterRequest request = new RegisterRequest("JIT-Warmup", "someone@example.com", "password");
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> authService.registerUser(request));
+
+        assertEquals("Error: Username is already taken!", exception.getMessage());
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void registerReservedUser_ShouldCreateWarmupUser() {
+        // Given
+        RegisterRequest request = new RegisterRequest("jit-warmup", "jit-warmup@warmup.invalid", "password");
+
+        // When
+        User user = authService.registerReservedUser(request);
+
+        // Then
+        assertEquals("jit-warmup", user.getUsername());
+        assertEquals("hashed", user.getPassword());
+        verify(readYourWrites).markWrite("jit-warmup");
+    }
+}
@@ -0,0 +1,170 @@
+package com.expensetracker.service;
+
+import com.expensetracker.datasource.ReadYourWritesTracker;
+import com.expensetracker.dto.BudgetRequest;
+import com.expensetracker.dto.BudgetResponse;
+import com.expensetracker.dto.BudgetStatusResponse;
+import com.expensetracker.entity.Budget;
+import com.expensetracker.entity.TestSchema;
+import com.expensetracker.entity.User;
+import com.expensetracker.event.BudgetAlertEvent;
+import com.expensetracker.repository.BudgetRepository;
+import com.expensetracker.repository.UserRepository;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BudgetServiceTest {
+
+    private static final LocalDate THIS_MONTH = LocalDate.now().withDayOfMonth(1);
+
+    private BudgetService budgetService;
+
+    private BudgetRepository budgetRepository;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ReadYourWritesTracker readYourWrites;
+
+    private final List<BudgetAlertEvent> alerts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:budgets" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TestSchema.create(dataSource);
+        jdbcTemplate.update("insert into users (id, username, email, password) values (1, 'alice', 'alice@example.com', 'x')");
+
+        budgetRepository = mock(BudgetRepository.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        User user = new User("testuser", "test@example.com", "password");
+        user.setId(1L);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        budgetService = new BudgetService();
+        ReflectionTestUtils.setField(budgetService, "nearThresholdPercent", 80);
+        ReflectionTestUtils.setField(budgetService, "jdbcTimeZone", "UTC");
+        ReflectionTestUtils.setField(budgetService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(budgetService, "budgetRepository", budgetRepository);
+        ReflectionTestUtils.setField(budgetService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(budgetService, "eventPublisher",
+                (ApplicationEventPublisher) event -> alerts.add((BudgetAlertEvent) event));
+        readYourWrites = mock(ReadYourWritesTracker.class);
+        ReflectionTestUtils.setField(budgetService, "readYourWrites", readYourWrites);
+    }
+
+    @Test
+    void saveBudget_ShouldKeepOwnerReadingFromPrimary() {
+        // Given
+        when(budgetRepository.findByUserIdAndCategory(1L, "Food")).thenReturn(Optional.empty());
+        when(budgetRepository.save(any(Budget.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        BudgetResponse response = budgetService.saveBudget(new BudgetRequest("Food", new BigDecimal("200.00")), "testuser");
+
+        // Then
+        assertEquals(new BigDecimal("200.00"), response.getMonthlyLimit());
+        verify(readYourWrites).markOnCommit("testuser");
+    }
+
+    @Test
+    void deleteBudget_ShouldKeepOwnerReadingFromPrimary() {
+        // Given
+        Budget budget = budget("Food", "200.00");
+        when(budgetRepository.findByIdAndUserId(3L, 1L)).thenReturn(Optional.of(budget));
+
+        // When
+        budgetService.deleteBudget(3L, "testuser");
+
+        // Then
+        verify(budgetRepository).delete(budget);
+        verify(readYourWrites).markOnCommit("testuser");
+    }
+
+    @Test
+    void adjust_ShouldKeepRunningTotalsPerCategoryAndMonth() {
+        // Given - two expenses this month
+        budgetService.adjust(1L, "testuser", "Food", THIS_MONTH.plusDays(2), new BigDecimal("40.00"));
+        budgetService.adjust(1L, "testuser", "Food", THIS_MONTH, new BigDecimal("10.50"));
+
+        // When - one moves to another category and month, as an update does
+        budgetService.adjust(List.of(
+                new BudgetService.TotalChange(1L, "testuser", "Food", THIS_MONTH, new BigDecimal("-10.50")),
+                new BudgetService.TotalChange(1L, "testuser", "Travel", THIS_MONTH.minusMonths(1), new BigDecimal("12.00"))));
+
+        // Then
+        assertEquals(new BigDecimal("40.00"), total("Food", THIS_MONTH));
+        assertEquals(new BigDecimal("12.00"), total("Travel", THIS_MONTH.minusMonths(1)));
+        assertEquals(2, jdbcTemplate.queryForObject("select count(*) from expense_month_totals", Integer.class));
+    }
+
+    @Test
+    void adjust_ShouldAlertOnlyWhenACategoryReachesAHigherLevel() {
+        // Given
+        jdbcTemplate.update("insert into budgets (category, monthly_limit, user_id) values ('Food', 100.00, 1)");
+
+        // When
+        budgetService.adjust(1L, "testuser", "Food", THIS_MONTH, new BigDecimal("50.00"));
+        budgetService.adjust(1L, "testuser", "Food", THIS_MONTH, new BigDecimal("30.00"));
+        budgetService.adjust(1L, "testuser", "Food", THIS_MONTH, new BigDecimal("10.00"));
+        budgetService.adjust(1L, "testuser", "Food", THIS_MONTH, new BigDecimal("20.00"));
+        budgetService.adjust(1L, "testuser", "Food", THIS_MONTH, new BigDecimal("-50.00"));
+        budgetService.adjust(1L, "testuser", "Food", THIS_MONTH.minusMonths(1), new BigDecimal("500.00"));
+
+        // Then
+        assertEquals(2, alerts.size());
+        assertEquals("NEAR", alerts.get(0).getStatus().getStatus());
+        assertEquals(new BigDecimal("80.00"), alerts.get(0).getStatus().getSpent());
+        assertEquals("OVER", alerts.get(1).getStatus().getStatus());
+        assertEquals(110, alerts.get(1).getStatus().getPercentUsed());
+        assertEquals("testuser", alerts.get(1).getUsername());
+    }
+
+    @Test
+    void getStatus_ShouldReportEveryBudgetFromTheMonthTotals() {
+        // Given
+        when(budgetRepository.findByUserIdOrderByCategoryAsc(1L)).thenReturn(List.of(
+                budget("Food", "200.00"), budget("Travel", "50.00")));
+        budgetService.adjust(1L, "testuser", "Food", THIS_MONTH, new BigDecimal("150.00"));
+        budgetService.adjust(1L, "testuser", "Food", THIS_MONTH.minusMonths(1), new BigDecimal("999.00"));
+
+        // When
+        List<BudgetStatusResponse> status = budgetService.getStatus(YearMonth.now(), "testuser");
+
+        // Then
+        assertEquals(2, status.size());
+        assertEquals(new BigDecimal("150.00"), status.get(0).getSpent());
+        assertEquals(new BigDecimal("50.00"), status.get(0).getRemaining());
+        assertEquals(75, status.get(0).getPercentUsed());
+        assertEquals("OK", status.get(0).getStatus());
+        assertEquals(BigDecimal.ZERO, status.get(1).getSpent());
+        assertEquals(THIS_MONTH, status.get(1).getMonth());
+    }
+
+    private BigDecimal total(String category, LocalDate month) {
+        return jdbcTemplate.queryForObject("select total from expense_month_totals where category = ? and month_start = ?",
+                BigDecimal.class, category, month);
+    }
+
+    private static Budget budget(String category, String limit) {
+        Budget budget = new Budget();
+        budget.setCategory(category);
+        budget.setMonthlyLimit(new BigDecimal(limit));
+        return budget;
+    }
+}
@@ -0,0 +1,174 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.ExpenseRequest;
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.entity.TestSchema;
+import com.expensetracker.event.ExpenseChangedEvent;
+import com.expensetracker.util.ExpenseFingerprints;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class ExpenseIngestServiceTest {
+
+    private ExpenseIngestService ingestService;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ExpenseService expenseService;
+
+    private final List<ExpenseChangedEvent> events = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:ingest" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TestSchema.create(dataSource);
+        jdbcTemplate.update("insert into users (username, email, password) values "
+                + "('alice', 'alice@example.com', 'x'), ('bob', 'bob@example.com', 'x')");
+
+        ingestService = new ExpenseIngestService();
+        ReflectionTestUtils.setField(ingestService, "enabled", true);
+        ReflectionTestUtils.setField(ingestService, "maxBatchSize", 50);
+        ReflectionTestUtils.setField(ingestService, "maxLingerMs", 20L);
+        ReflectionTestUtils.setField(ingestService, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(ingestService, "responseTimeoutMs", 10000L);
+        ReflectionTestUtils.setField(ingestService, "jdbcTimeZone", "");
+        ReflectionTestUtils.setField(ingestService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(ingestService, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(ingestService, "eventPublisher",
+                (ApplicationEventPublisher) event -> events.add((ExpenseChangedEvent) event));
+        BudgetService budgetService = new BudgetService();
+        ReflectionTestUtils.setField(budgetService, "nearThresholdPercent", 80);
+        ReflectionTestUtils.setField(budgetService, "jdbcTimeZone", "");
+        ReflectionTestUtils.setField(budgetService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(budgetService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.setField(ingestService, "budgetService", budgetService);
+        expenseService = mock(ExpenseService.class);
+        ReflectionTestUtils.setField(ingestService, "expenseService", expenseService);
+        ReflectionTestUtils.invokeMethod(ingestService, "start");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(ingestService, "stop");
+    }
+
+    @Test
+    void createExpense_ShouldGroupConcurrentCreatesIntoFewerCommits() throws Exception {
+        // Given
+        int count = 200;
+        ExecutorService clients = Executors.newFixedThreadPool(32);
+        List<Future<ExpenseResponse>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < count; i++) {
+            String username = i % 2 == 0 ? "alice" : "bob";
+            ExpenseRequest request = new ExpenseRequest("Item " + i, null, new BigDecimal("1.50"), "Food", LocalDate.now());
+            futures.add(clients.submit(() -> ingestService.createExpense(request, username, false)));
+        }
+        Set<Long> ids = new HashSet<>();
+        for (Future<ExpenseResponse> future : futures) {
+            ids.add(future.get().getId());
+        }
+        clients.shutdown();
+
+        // Then
+        assertEquals(count, ids.size());
+        assertEquals(count, jdbcTemplate.queryForObject("select count(*) from expenses", Integer.class));
+        assertTrue(ingestService.getBatchesCommitted() < count);
+        assertEquals(count, events.size());
+
+        // Change sequence numbers stay unique and gap-free per user, ending at the user's version
+        for (String username : List.of("alice", "bob")) {
+            Long version = jdbcTemplate.queryForObject(
+                    "select expenses_version from users where username = ?", Long.class, username);
+            List<Long> seqs = jdbcTemplate.queryForList("select e.change_seq from expenses e join users u "
+                    + "on e.user_id = u.id where u.username = ? order by e.change_seq", Long.class, username);
+            assertEquals(count / 2, version);
+            for (int i = 0; i < seqs.size(); i++) {
+                assertEquals(i + 1, seqs.get(i));
+            }
+        }
+    }
+
+    @Test
+    void createExpense_ShouldThrowException_WhenUserNotFound() {
+        // Given
+        ExpenseRequest request = new ExpenseRequest("Lunch", null, new BigDecimal("10.00"), "Food", LocalDate.now());
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> ingestService.createExpense(request, "nobody", false));
+        assertEquals("User not found", exception.getMessage());
+    }
+
+    @Test
+    void createExpense_ShouldRefuseTheSecondOfTwoIdenticalConcurrentRequests() throws Exception {
+        // Given - the check sees the stored rows and those earlier in the batch, like the real one
+        doAnswer(invocation -> {
+            ExpenseRequest request = invocation.getArgument(2);
+            Set<Long> pending = invocation.getArgument(3);
+            long fingerprint = ExpenseFingerprints.of(request.getTitle(), request.getAmount(), request.getExpenseDate());
+            List<Long> stored = jdbcTemplate.queryForList("select fingerprint from expenses where user_id = ?",
+                    Long.class, invocation.<Long>getArgument(0));
+            if (pending.contains(fingerprint) || stored.contains(fingerprint)) {
+                throw new DuplicateExpenseException("duplicate");
+            }
+            return null;
+        }).when(expenseService).checkNotDuplicate(anyLong(), anyLong(), any(ExpenseRequest.class), anySet());
+        ExpenseRequest request = new ExpenseRequest("Lunch", null, new BigDecimal("10.00"), "Food", LocalDate.now());
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+
+        // When
+        List<Future<ExpenseResponse>> retries = List.of(
+                clients.submit(() -> ingestService.createExpense(request, "alice", false)),
+                clients.submit(() -> ingestService.createExpense(request, "alice", false)));
+        int refused = 0;
+        for (Future<ExpenseResponse> retry : retries) {
+            try {
+                assertNotNull(retry.get().getId());
+            } catch (ExecutionException e) {
+                assertInstanceOf(DuplicateExpenseException.class, e.getCause());
+                refused++;
+            }
+        }
+        clients.shutdown();
+
+        // Then
+        assertEquals(1, refused);
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from expenses", Integer.class));
+        assertEquals(1L, jdbcTemplate.queryForObject(
+                "select expenses_version from users where username = 'alice'", Long.class));
+        assertEquals(1, events.size());
+
+        // An explicit repeat is stored
+        assertNotNull(ingestService.createExpense(request, "alice", true).getId());
+        assertEquals(2, jdbcTemplate.queryForObject("select count(*) from expenses", Integer.class));
+    }
+}
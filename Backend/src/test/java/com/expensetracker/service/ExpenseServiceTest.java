@@ -1,27 +1,52 @@
 package com.expensetracker.service;
 
+import com.expensetracker.archive.ExpenseArchiveService;
+import com.expensetracker.dto.ExpenseChangesResponse;
+import com.expensetracker.dto.ExpensePatch;
 import com.expensetracker.dto.ExpenseRequest;
 import com.expensetracker.dto.ExpenseResponse;
 import com.expensetracker.entity.Expense;
+import com.expensetracker.entity.ExpenseTombstone;
 import com.expensetracker.entity.User;
+import com.expensetracker.event.ExpenseChangedEvent;
+import com.expensetracker.index.AutocompleteIndex;
+import com.expensetracker.index.ExpenseBitmapIndex;
+import com.expensetracker.index.ExpenseFilter;
+import com.expensetracker.index.FingerprintIndex;
 import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.ExpenseTombstoneRepository;
 import com.expensetracker.repository.UserRepository;
+import com.expensetracker.util.ExpenseFingerprints;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
 
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -34,6 +59,27 @@ class ExpenseServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private ExpenseTombstoneRepository tombstoneRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ExpenseArchiveService archiveService;
+
+    @Mock
+    private BudgetService budgetService;
+
+    @Mock
+    private ExpenseBitmapIndex bitmapIndex;
+
+    @Mock
+    private AutocompleteIndex autocompleteIndex;
+
+    @Mock
+    private FingerprintIndex fingerprintIndex;
+
     @InjectMocks
     private ExpenseService expenseService;
 
@@ -71,11 +117,11 @@ class ExpenseServiceTest {
     @Test
     void createExpense_ShouldReturnExpenseResponse_WhenValidRequest() {
         // Given
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        when(userRepository.findByUsernameForUpdate("testuser")).thenReturn(Optional.of(user));
         when(expenseRepository.save(any(Expense.class))).thenReturn(expense);
 
         // When
-        ExpenseResponse result = expenseService.createExpense(expenseRequest, "testuser");
+        ExpenseResponse result = expenseService.createExpense(expenseRequest, "testuser", false);
 
         // Then
         assertNotNull(result);
@@ -85,22 +131,153 @@ class ExpenseServiceTest {
         assertEquals(new BigDecimal("150.00"), result.getAmount());
         assertEquals("Food", result.getCategory());
 
-        verify(userRepository).findByUsername("testuser");
+        verify(userRepository).findByUsernameForUpdate("testuser");
         verify(expenseRepository).save(any(Expense.class));
+        verify(userRepository).incrementExpensesVersion(1L);
+    }
+
+    @Test
+    void createExpense_ShouldStoreNormalizedTags() {
+        // Given
+        expenseRequest.setTags(List.of("Work", "reimbursable", "work"));
+        when(userRepository.findByUsernameForUpdate("testuser")).thenReturn(Optional.of(user));
+        when(expenseRepository.save(any(Expense.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        ExpenseResponse result = expenseService.createExpense(expenseRequest, "testuser", false);
+
+        // Then
+        verify(expenseRepository).save(argThat((Expense e) -> "reimbursable,work".equals(e.getTags())));
+        assertEquals(List.of("reimbursable", "work"), result.getTags());
+    }
+
+    @Test
+    void searchExpenses_ShouldFetchIndexMatchesFromTableAndArchive() {
+        // Given
+        user.setExpensesVersion(7L);
+        Expense archived = new Expense("Old taxi", null, new BigDecimal("20.00"), "Transport",
+                LocalDate.of(2023, 1, 5), null);
+        archived.setId(2L);
+        ExpenseFilter filter = new ExpenseFilter(List.of("Food", "Transport"), null, List.of("reimbursable"),
+                null, null);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        when(bitmapIndex.search(eq(1L), eq(7L), any(), eq(filter))).thenReturn(new long[] {1L, 2L});
+        when(expenseRepository.findByUserIdAndIdIn(1L, List.of(1L, 2L))).thenReturn(List.of(expense));
+        when(archiveService.findArchived(1L)).thenReturn(List.of(archived));
+
+        // When
+        List<ExpenseResponse> result = expenseService.searchExpenses(filter, "testuser");
+
+        // Then
+        assertEquals(2, result.size());
+        assertEquals(1L, result.get(0).getId());
+        assertEquals("Old taxi", result.get(1).getTitle());
+        verify(expenseRepository, never()).findByUserId(any());
+    }
+
+    @Test
+    void createExpense_ShouldPublishCreatedEvent() {
+        // Given
+        expense.setChangeSeq(3L);
+        when(userRepository.findByUsernameForUpdate("testuser")).thenReturn(Optional.of(user));
+        when(expenseRepository.save(any(Expense.class))).thenReturn(expense);
+
+        // When
+        expenseService.createExpense(expenseRequest, "testuser", false);
+
+        // Then
+        verify(eventPublisher).publishEvent(argThat((ExpenseChangedEvent e) ->
+                e.getType() == ExpenseChangedEvent.Type.CREATED
+                        && "testuser".equals(e.getUsername())
+                        && e.getExpenseId().equals(1L)
+                        && e.getChangeSeq() == 3L
+                        && e.getExpense() != null));
     }
 
     @Test
     void createExpense_ShouldThrowException_WhenUserNotFound() {
         // Given
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.empty());
+        when(userRepository.findByUsernameForUpdate("testuser")).thenReturn(Optional.empty());
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class,
-                () -> expenseService.createExpense(expenseRequest, "testuser"));
+                () -> expenseService.createExpense(expenseRequest, "testuser", false));
 
         assertEquals("User not found", exception.getMessage());
-        verify(userRepository).findByUsername("testuser");
+        verify(userRepository).findByUsernameForUpdate("testuser");
+        verify(expenseRepository, never()).save(any(Expense.class));
+    }
+
+    @Test
+    void createExpense_ShouldRefuseDuplicate_UnlessAllowed() {
+        // Given: at the version before this write, the index holds one of the window's fingerprints
+        ReflectionTestUtils.setField(expenseService, "duplicateDetection", true);
+        ReflectionTestUtils.setField(expenseService, "duplicateWindowDays", 1);
+        user.setExpensesVersion(4L);
+        when(userRepository.findByUsernameForUpdate("testuser")).thenReturn(Optional.of(user));
+        when(userRepository.findExpensesVersionById(1L)).thenReturn(5L);
+        when(fingerprintIndex.containsAny(eq(1L), eq(4L), any(), argThat(candidates -> candidates.length == 3)))
+                .thenReturn(true);
+        when(expenseRepository.save(any(Expense.class))).thenReturn(expense);
+
+        // When & Then
+        assertThrows(DuplicateExpenseException.class,
+                () -> expenseService.createExpense(expenseRequest, "testuser", false));
         verify(expenseRepository, never()).save(any(Expense.class));
+        verifyNoInteractions(budgetService);
+
+        assertNotNull(expenseService.createExpense(expenseRequest, "testuser", true));
+        verify(fingerprintIndex, times(1)).containsAny(any(), anyLong(), any(), any());
+    }
+
+    @Test
+    void createExpense_ShouldRefuseTheSecondOfTwoIdenticalConcurrentRequests() throws Exception {
+        // Given - a real fingerprint index over a table of one user; the users row lock is held
+        // from the locking read until the request is done, as until its commit
+        ReflectionTestUtils.setField(expenseService, "duplicateDetection", true);
+        ReflectionTestUtils.setField(expenseService, "duplicateWindowDays", 1);
+        FingerprintIndex index = new FingerprintIndex();
+        ReflectionTestUtils.setField(index, "maxBytes", 1L << 20);
+        ReflectionTestUtils.setField(expenseService, "fingerprintIndex", index);
+        Semaphore rowLock = new Semaphore(1);
+        AtomicLong usersVersion = new AtomicLong();
+        List<Long> stored = new CopyOnWriteArrayList<>();
+        when(userRepository.findByUsernameForUpdate("testuser")).thenAnswer(invocation -> {
+            rowLock.acquire();
+            return Optional.of(user);
+        });
+        when(userRepository.incrementExpensesVersion(1L)).thenAnswer(invocation -> {
+            usersVersion.incrementAndGet();
+            return 1;
+        });
+        when(userRepository.findExpensesVersionById(1L)).thenAnswer(invocation -> usersVersion.get());
+        when(expenseRepository.findFingerprintsByUserId(1L)).thenAnswer(invocation -> List.copyOf(stored));
+        when(expenseRepository.save(any(Expense.class))).thenAnswer(invocation -> {
+            Expense saved = invocation.getArgument(0);
+            saved.setId(10L + stored.size());
+            stored.add(ExpenseFingerprints.of(saved.getTitle(), saved.getAmount(), saved.getExpenseDate()));
+            return saved;
+        });
+        doAnswer(invocation -> {
+            index.onExpenseChanged(invocation.getArgument(0));
+            return null;
+        }).when(eventPublisher).publishEvent(any(ExpenseChangedEvent.class));
+        Runnable retry = () -> {
+            try {
+                expenseService.createExpense(expenseRequest, "testuser", false);
+            } finally {
+                rowLock.release();
+            }
+        };
+
+        // When
+        List<Throwable> failures = runConcurrently(retry, retry);
+
+        // Then
+        assertEquals(1, failures.size());
+        assertInstanceOf(DuplicateExpenseException.class, failures.get(0));
+        assertEquals(1, stored.size());
+        verify(expenseRepository, times(1)).save(any(Expense.class));
     }
 
     @Test
@@ -122,6 +299,28 @@ class ExpenseServiceTest {
         verify(expenseRepository).findByUserId(1L);
     }
 
+    @Test
+    void getAllExpenses_ShouldMergeArchivedExpenses_PreferringHotRows() {
+        // Given - expense 1 was restored from the archive, expense 2 is only archived
+        Expense archivedCopy = new Expense();
+        archivedCopy.setId(1L);
+        archivedCopy.setTitle("Stale copy");
+        Expense archivedOnly = new Expense();
+        archivedOnly.setId(2L);
+        archivedOnly.setTitle("Old expense");
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        when(expenseRepository.findByUserId(1L)).thenReturn(List.of(expense));
+        when(archiveService.findArchived(1L)).thenReturn(List.of(archivedCopy, archivedOnly));
+
+        // When
+        List<ExpenseResponse> result = expenseService.getAllExpenses("testuser");
+
+        // Then
+        assertEquals(2, result.size());
+        assertEquals("Grocery Shopping", result.get(0).getTitle());
+        assertEquals("Old expense", result.get(1).getTitle());
+    }
+
     @Test
     void getAllExpenses_ShouldThrowException_WhenUserNotFound() {
         // Given
@@ -180,21 +379,8 @@ class ExpenseServiceTest {
                 LocalDate.now()
         );
 
-        Expense updatedExpense = new Expense(
-                "Updated Title",
-                "Updated Description",
-                new BigDecimal("200.00"),
-                "Entertainment",
-                LocalDate.now(),
-                user
-        );
-        updatedExpense.setId(1L);
-        updatedExpense.setCreatedAt(LocalDateTime.now());
-        updatedExpense.setUpdatedAt(LocalDateTime.now());
-
-        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-        when(expenseRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(expense));
-        when(expenseRepository.save(any(Expense.class))).thenReturn(updatedExpense);
+        when(expenseRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.of(expense));
+        when(expenseRepository.updateIfVersion(any(Expense.class), eq(0L))).thenReturn(1);
 
         // When
         ExpenseResponse result = expenseService.updateExpense(1L, updateRequest, "testuser");
@@ -206,40 +392,353 @@ class ExpenseServiceTest {
         assertEquals("Updated Description", result.getDescription());
         assertEquals(new BigDecimal("200.00"), result.getAmount());
         assertEquals("Entertainment", result.getCategory());
+        assertEquals(1L, result.getVersion());
 
-        verify(userRepository).findByUsername("testuser");
-        verify(expenseRepository).findByIdAndUserId(1L, 1L);
-        verify(expenseRepository).save(any(Expense.class));
+        verify(expenseRepository).findByIdAndUsername(1L, "testuser");
+        verify(expenseRepository).updateIfVersion(argThat(e -> e.getTitle().equals("Updated Title")
+                && e.getFingerprint() != null && e.getUpdatedAt() != null), eq(0L));
+        verify(expenseRepository, never()).save(any(Expense.class));
+        verify(userRepository, never()).findByUsername(any());
+    }
+
+    @Test
+    void updateExpense_ShouldMoveAmountBetweenBudgetTotals() {
+        // Given
+        ExpenseRequest moved = new ExpenseRequest("Train ticket", null, new BigDecimal("40.00"),
+                "Travel", LocalDate.now().minusMonths(1));
+        when(expenseRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.of(expense));
+        when(expenseRepository.updateIfVersion(any(Expense.class), eq(0L))).thenReturn(1);
+
+        // When
+        ExpenseResponse result = expenseService.updateExpense(1L, moved, "testuser");
+
+        // Then
+        verify(budgetService).adjust(argThat((List<BudgetService.TotalChange> changes) -> changes.size() == 2));
+        assertEquals("Travel", result.getCategory());
+    }
+
+    @Test
+    void updateExpense_ShouldRefuseAStaleVersionWithoutWriting() {
+        // Given - the client read version 2, the expense is at 3
+        expense.setVersion(3L);
+        ExpenseRequest stale = new ExpenseRequest("Train ticket", null, new BigDecimal("40.00"),
+                "Travel", LocalDate.now());
+        stale.setVersion(2L);
+        when(expenseRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.of(expense));
+
+        // When & Then
+        assertThrows(ExpenseConflictException.class, () -> expenseService.updateExpense(1L, stale, "testuser"));
+        verify(expenseRepository, never()).updateIfVersion(any(), anyLong());
+        verifyNoInteractions(budgetService);
+    }
+
+    @Test
+    void updateExpense_ShouldRefuse_WhenAnotherWriteMatchedFirst() {
+        // Given - the row moved past the version read before the update ran
+        when(expenseRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.of(expense));
+        when(expenseRepository.updateIfVersion(any(Expense.class), eq(0L))).thenReturn(0);
+
+        // When & Then
+        assertThrows(ExpenseConflictException.class,
+                () -> expenseService.updateExpense(1L, expenseRequest, "testuser"));
+        verifyNoInteractions(budgetService, eventPublisher);
+    }
+
+    @Test
+    void updateExpense_ShouldLetOnlyOneOfTwoWritersOfTheSameVersionWin() throws Exception {
+        // Given - both writers read version 0 before either updates
+        AtomicLong rowVersion = new AtomicLong(0);
+        CyclicBarrier bothRead = new CyclicBarrier(2);
+        when(expenseRepository.findByIdAndUsername(1L, "testuser")).thenAnswer(invocation -> {
+            Optional<Expense> row = Optional.of(rowAt(rowVersion.get()));
+            bothRead.await(5, TimeUnit.SECONDS);
+            return row;
+        });
+        when(expenseRepository.updateIfVersion(any(Expense.class), anyLong())).thenAnswer(invocation ->
+                rowVersion.compareAndSet(invocation.getArgument(1), (long) invocation.getArgument(1) + 1) ? 1 : 0);
+        ExpenseRequest first = new ExpenseRequest("Train ticket", null, new BigDecimal("40.00"), "Travel",
+                LocalDate.now());
+        first.setVersion(0L);
+        ExpenseRequest second = new ExpenseRequest("Bus ticket", null, new BigDecimal("3.00"), "Travel",
+                LocalDate.now());
+        second.setVersion(0L);
+
+        // When
+        List<Throwable> failures = runConcurrently(
+                () -> expenseService.updateExpense(1L, first, "testuser"),
+                () -> expenseService.updateExpense(1L, second, "testuser"));
+
+        // Then
+        assertEquals(1, failures.size());
+        assertInstanceOf(ExpenseConflictException.class, failures.get(0));
+        assertEquals(1L, rowVersion.get());
+        verify(expenseRepository, times(2)).updateIfVersion(any(Expense.class), eq(0L));
+        verify(budgetService, times(1)).adjust(anyList());
+        verify(eventPublisher, times(1)).publishEvent(any(ExpenseChangedEvent.class));
+    }
+
+    @Test
+    void deleteExpense_ShouldConflict_WhenAnUpdateOfTheSameVersionWinsFirst() throws Exception {
+        // Given - both read version 0; the update writes before the delete runs
+        AtomicLong rowVersion = new AtomicLong(0);
+        CyclicBarrier bothRead = new CyclicBarrier(2);
+        CountDownLatch updated = new CountDownLatch(1);
+        when(expenseRepository.findByIdAndUsername(1L, "testuser")).thenAnswer(invocation -> {
+            Optional<Expense> row = Optional.of(rowAt(rowVersion.get()));
+            bothRead.await(5, TimeUnit.SECONDS);
+            return row;
+        });
+        when(expenseRepository.updateIfVersion(any(Expense.class), anyLong())).thenAnswer(invocation -> {
+            try {
+                return rowVersion.compareAndSet(invocation.getArgument(1), (long) invocation.getArgument(1) + 1)
+                        ? 1 : 0;
+            } finally {
+                updated.countDown();
+            }
+        });
+        when(expenseRepository.deleteIfVersion(eq(1L), eq(1L), anyLong())).thenAnswer(invocation -> {
+            updated.await(5, TimeUnit.SECONDS);
+            return rowVersion.compareAndSet(invocation.getArgument(2), -1L) ? 1 : 0;
+        });
+
+        // When
+        List<Throwable> failures = runConcurrently(
+                () -> expenseService.updateExpense(1L, expenseRequest, "testuser"),
+                () -> expenseService.deleteExpense(1L, 0L, "testuser"));
+
+        // Then
+        assertEquals(1, failures.size());
+        assertInstanceOf(ExpenseConflictException.class, failures.get(0));
+        assertEquals(1L, rowVersion.get());
+        verify(tombstoneRepository, never()).save(any(ExpenseTombstone.class));
+        verify(budgetService, times(1)).adjust(anyList());
+    }
+
+    @Test
+    void patchExpense_ShouldWriteOnlyTheChangedColumns() {
+        // Given - the amount moves, the category is sent unchanged
+        ExpensePatch patch = new ExpensePatch();
+        patch.setAmount(new BigDecimal("99.99"));
+        patch.setCategory("Food");
+        when(expenseRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.of(expense));
+        when(userRepository.findExpensesVersionById(1L)).thenReturn(7L);
+        when(expenseRepository.patchIfVersion(eq(1L), eq(1L), eq(0L), any())).thenReturn(1);
+
+        // When
+        ExpenseResponse result = expenseService.patchExpense(1L, patch, "testuser");
+
+        // Then
+        verify(expenseRepository).patchIfVersion(eq(1L), eq(1L), eq(0L), argThat(values ->
+                values.keySet().equals(Set.of("amount", "fingerprint", "updatedAt", "changeSeq"))
+                        && values.get("changeSeq").equals(7L)));
+        verify(budgetService).adjust(argThat((List<BudgetService.TotalChange> changes) -> changes.size() == 2));
+        assertEquals(new BigDecimal("99.99"), result.getAmount());
+        assertEquals("Grocery Shopping", result.getTitle());
+        assertEquals(1L, result.getVersion());
+    }
+
+    @Test
+    void patchExpense_ShouldClearTheDescriptionWithoutTouchingTheBudgets() {
+        // Given
+        ExpensePatch patch = new ExpensePatch();
+        patch.setDescription(null);
+        when(expenseRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.of(expense));
+        when(expenseRepository.patchIfVersion(eq(1L), eq(1L), eq(0L), any())).thenReturn(1);
+
+        // When
+        ExpenseResponse result = expenseService.patchExpense(1L, patch, "testuser");
+
+        // Then
+        verify(expenseRepository).patchIfVersion(eq(1L), eq(1L), eq(0L), argThat(values ->
+                values.containsKey("description") && values.get("description") == null
+                        && !values.containsKey("fingerprint")));
+        verifyNoInteractions(budgetService);
+        assertNull(result.getDescription());
+    }
+
+    @Test
+    void patchExpense_ShouldWriteNothing_WhenNothingChanges() {
+        // Given - 150.0 is the stored 150.00
+        ExpensePatch patch = new ExpensePatch();
+        patch.setTitle("Grocery Shopping");
+        patch.setAmount(new BigDecimal("150.0"));
+        when(expenseRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.of(expense));
+
+        // When
+        ExpenseResponse result = expenseService.patchExpense(1L, patch, "testuser");
+
+        // Then
+        assertEquals(0L, result.getVersion());
+        verify(expenseRepository, never()).patchIfVersion(any(), any(), anyLong(), any());
+        verify(userRepository, never()).incrementExpensesVersion(any());
+        verifyNoInteractions(budgetService, eventPublisher);
+    }
+
+    @Test
+    void patchExpense_ShouldRefuse_WhenAnotherWriteMatchedFirst() {
+        // Given
+        ExpensePatch patch = new ExpensePatch();
+        patch.setTitle("Groceries");
+        when(expenseRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.of(expense));
+        when(expenseRepository.patchIfVersion(eq(1L), eq(1L), eq(0L), any())).thenReturn(0);
+
+        // When & Then
+        assertThrows(ExpenseConflictException.class, () -> expenseService.patchExpense(1L, patch, "testuser"));
+        verifyNoInteractions(budgetService, eventPublisher);
     }
 
     @Test
     void deleteExpense_ShouldDeleteExpense_WhenExpenseExists() {
         // Given
+        when(expenseRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.of(expense));
+        when(expenseRepository.deleteIfVersion(1L, 1L, 0L)).thenReturn(1);
+
+        // When
+        assertDoesNotThrow(() -> expenseService.deleteExpense(1L, null, "testuser"));
+
+        // Then
+        verify(expenseRepository).findByIdAndUsername(1L, "testuser");
+        verify(expenseRepository).deleteIfVersion(1L, 1L, 0L);
+        verify(expenseRepository, never()).delete(any(Expense.class));
+        verify(userRepository).incrementExpensesVersion(1L);
+    }
+
+    @Test
+    void deleteExpense_ShouldRecordTombstone_WithNextChangeSeq() {
+        // Given
+        when(expenseRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.of(expense));
+        when(expenseRepository.deleteIfVersion(1L, 1L, 0L)).thenReturn(1);
+        when(userRepository.findExpensesVersionById(1L)).thenReturn(42L);
+
+        // When
+        expenseService.deleteExpense(1L, null, "testuser");
+
+        // Then
+        verify(tombstoneRepository).save(argThat(t ->
+                t.getExpenseId().equals(1L) && t.getUserId().equals(1L) && t.getChangeSeq() == 42L));
+        verify(eventPublisher).publishEvent(argThat((ExpenseChangedEvent e) ->
+                e.getType() == ExpenseChangedEvent.Type.DELETED
+                        && e.getChangeSeq() == 42L
+                        && e.getExpense() == null));
+    }
+
+    @Test
+    void getChanges_ShouldMergeWritesAndTombstonesInChangeOrder() {
+        // Given
+        Expense second = new Expense("Taxi", null, new BigDecimal("12.00"), "Transport", LocalDate.now(), user);
+        second.setId(2L);
+        expense.setChangeSeq(5L);
+        second.setChangeSeq(8L);
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-        when(expenseRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.of(expense));
+        when(expenseRepository.findByUserIdAndChangeSeqGreaterThanOrderByChangeSeqAsc(eq(1L), eq(4L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(expense, second));
+        when(tombstoneRepository.findByUserIdAndChangeSeqGreaterThanOrderByChangeSeqAsc(eq(1L), eq(4L), any(Pageable.class)))
+                .thenReturn(List.of(new ExpenseTombstone(3L, 1L, 6L)));
 
         // When
-        assertDoesNotThrow(() -> expenseService.deleteExpense(1L, "testuser"));
+        ExpenseChangesResponse page = expenseService.getChanges(4L, 2, "testuser");
 
         // Then
-        verify(userRepository).findByUsername("testuser");
-        verify(expenseRepository).findByIdAndUserId(1L, 1L);
-        verify(expenseRepository).delete(expense);
+        assertEquals(1, page.getUpserts().size());
+        assertEquals(1L, page.getUpserts().get(0).getId());
+        assertEquals(List.of(3L), page.getDeletedIds());
+        assertEquals(6L, page.getCursor());
+        assertTrue(page.isHasMore());
+    }
+
+    @Test
+    void getChanges_ShouldKeepCursor_WhenNothingChanged() {
+        // Given
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        // When
+        ExpenseChangesResponse page = expenseService.getChanges(9L, 100, "testuser");
+
+        // Then
+        assertTrue(page.getUpserts().isEmpty());
+        assertTrue(page.getDeletedIds().isEmpty());
+        assertEquals(9L, page.getCursor());
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    void getExpensesEtag_ShouldCombineUserIdAndVersion() {
+        // Given
+        user.setExpensesVersion(7L);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        // When
+        String etag = expenseService.getExpensesEtag("testuser");
+
+        // Then
+        assertEquals("W/\"1-7\"", etag);
+        verify(expenseRepository, never()).findByUserId(any());
+    }
+
+    @Test
+    void deleteExpense_ShouldRestoreArchivedExpense_BeforeDeletingIt() {
+        // Given
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        when(expenseRepository.findByIdAndUsername(1L, "testuser"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(expense));
+        when(archiveService.restore(1L, 1L)).thenReturn(true);
+        when(expenseRepository.deleteIfVersion(1L, 1L, 0L)).thenReturn(1);
+
+        // When
+        expenseService.deleteExpense(1L, null, "testuser");
+
+        // Then
+        verify(archiveService).restore(1L, 1L);
+        verify(expenseRepository).deleteIfVersion(1L, 1L, 0L);
+        verify(tombstoneRepository).save(any(ExpenseTombstone.class));
     }
 
     @Test
     void deleteExpense_ShouldThrowException_WhenExpenseNotFound() {
         // Given
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
-        when(expenseRepository.findByIdAndUserId(1L, 1L)).thenReturn(Optional.empty());
+        when(expenseRepository.findByIdAndUsername(1L, "testuser")).thenReturn(Optional.empty());
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class,
-                () -> expenseService.deleteExpense(1L, "testuser"));
+                () -> expenseService.deleteExpense(1L, null, "testuser"));
 
         assertEquals("Expense not found or access denied", exception.getMessage());
         verify(userRepository).findByUsername("testuser");
-        verify(expenseRepository).findByIdAndUserId(1L, 1L);
-        verify(expenseRepository, never()).delete(any(Expense.class));
+        verify(expenseRepository).findByIdAndUsername(1L, "testuser");
+        verify(expenseRepository, never()).deleteIfVersion(any(), any(), anyLong());
+        verify(userRepository, never()).incrementExpensesVersion(any());
+    }
+
+    // The stored row as a write would read it: a fresh copy at the row's current version
+    private Expense rowAt(long version) {
+        Expense row = new Expense(expense.getTitle(), expense.getDescription(), expense.getAmount(),
+                expense.getCategory(), expense.getExpenseDate(), user);
+        row.setId(1L);
+        row.setCreatedAt(expense.getCreatedAt());
+        row.setVersion(version);
+        return row;
+    }
+
+    // Runs the writers on their own threads at once and returns what they threw
+    private static List<Throwable> runConcurrently(Runnable... writers) throws InterruptedException {
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (Runnable writer : writers) {
+            Thread thread = new Thread(() -> {
+                try {
+                    writer.run();
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join(10_000);
+        }
+        return failures;
     }
 }
@@ -0,0 +1,117 @@
+package com.expensetracker.service;
+
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.event.ExpenseChangedEvent;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseStreamServiceTest {
+
+    private ExpenseStreamService streamService;
+
+    private ExpenseResponse expense;
+
+    @BeforeEach
+    void setUp() {
+        streamService = new ExpenseStreamService();
+        ReflectionTestUtils.setField(streamService, "timeoutMs", 60000L);
+        ReflectionTestUtils.setField(streamService, "heartbeatMs", 60000L);
+        ReflectionTestUtils.setField(streamService, "queueCapacity", 2);
+        ReflectionTestUtils.setField(streamService, "maxConnectionsPerUser", 2);
+        ReflectionTestUtils.setField(streamService, "senderThreads", 1);
+        ReflectionTestUtils.invokeMethod(streamService, "start");
+
+        expense = new ExpenseResponse(1L, "Lunch", null, new BigDecimal("10.00"), "Food",
+                LocalDate.now(), LocalDateTime.now(), LocalDateTime.now());
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(streamService, "stop");
+    }
+
+    @Test
+    void subscribe_ShouldEvictOldestConnection_WhenPerUserLimitExceeded() {
+        // When
+        streamService.subscribe("testuser");
+        streamService.subscribe("testuser");
+        streamService.subscribe("testuser");
+
+        // Then
+        assertEquals(2, streamService.getSubscriberCount("testuser"));
+        assertEquals(0, streamService.getSubscriberCount("otheruser"));
+    }
+
+    @Test
+    void subscribe_ShouldKeepNewestConnections_WhenUserSubscribesConcurrently() throws Exception {
+        // Given
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        List<Future<?>> done = new ArrayList<>();
+
+        // When - every subscribe beyond the limit evicts, and so removes, an older connection
+        for (int i = 0; i < 4; i++) {
+            done.add(clients.submit(() -> {
+                for (int n = 0; n < 500; n++) {
+                    streamService.subscribe("testuser");
+                }
+            }));
+        }
+        for (Future<?> future : done) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        clients.shutdown();
+
+        // Then
+        assertEquals(2, streamService.getSubscriberCount("testuser"));
+    }
+
+    @Test
+    void onExpenseChanged_ShouldDropSubscriber_WhenItsQueueOverflows() {
+        // Given - a sender pool that is stuck, so nothing is ever drained
+        ExecutorService stuck = Executors.newSingleThreadExecutor();
+        stuck.execute(() -> {
+            try {
+                Thread.sleep(Long.MAX_VALUE);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        ExecutorService original = (ExecutorService) ReflectionTestUtils.getField(streamService, "sender");
+        original.shutdownNow();
+        ReflectionTestUtils.setField(streamService, "sender", stuck);
+        SseEmitter emitter = streamService.subscribe("testuser");
+
+        // When - the "connected" frame plus two changes exceed the capacity of two
+        streamService.onExpenseChanged(event(1L));
+        assertEquals(1, streamService.getSubscriberCount("testuser"));
+        streamService.onExpenseChanged(event(2L));
+
+        // Then
+        assertNotNull(emitter);
+        assertEquals(0, streamService.getSubscriberCount("testuser"));
+    }
+
+    @Test
+    void onExpenseChanged_ShouldIgnoreUsersWithoutConnections() {
+        assertDoesNotThrow(() -> streamService.onExpenseChanged(event(1L)));
+    }
+
+    private ExpenseChangedEvent event(long seq) {
+        return new ExpenseChangedEvent(ExpenseChangedEvent.Type.UPDATED, 1L, "testuser", 1L, seq, expense);
+    }
+}
@@ -0,0 +1,193 @@
+package com.expensetracker.service;
+
+import com.expensetracker.archive.ExpenseArchiveService;
+import com.expensetracker.datasource.ReadYourWritesTracker;
+import com.expensetracker.dto.ReceiptResponse;
+import com.expensetracker.entity.Expense;
+import com.expensetracker.entity.ExpenseReceipt;
+import com.expensetracker.entity.User;
+import com.expensetracker.event.ExpenseChangedEvent;
+import com.expensetracker.repository.ExpenseReceiptRepository;
+import com.expensetracker.repository.ExpenseRepository;
+import com.expensetracker.repository.UserRepository;
+import com.expensetracker.storage.ReceiptStore;
+import com.expensetracker.storage.ReceiptTooLargeException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReceiptServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private ExpenseReceiptRepository receiptRepository;
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ExpenseArchiveService archiveService;
+
+    @Mock
+    private ReadYourWritesTracker readYourWrites;
+
+    @InjectMocks
+    private ReceiptService receiptService;
+
+    private ReceiptStore receiptStore;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        receiptStore = new ReceiptStore();
+        ReflectionTestUtils.setField(receiptStore, "directory", directory.toString());
+        ReflectionTestUtils.setField(receiptStore, "deleteUnreferenced", true);
+        ReflectionTestUtils.setField(receiptService, "receiptStore", receiptStore);
+        ReflectionTestUtils.setField(receiptService, "maxBytes", 1_000_000L);
+        ReflectionTestUtils.setField(receiptService, "maxPerExpense", 2);
+
+        user = new User("testuser", "test@example.com", "password");
+        user.setId(1L);
+        lenient().when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void upload_ShouldStoreTheFileAndRecordItsSniffedType() throws IOException {
+        // Given
+        byte[] pdf = "%PDF-1.7 receipt".getBytes(StandardCharsets.US_ASCII);
+        when(expenseRepository.findByIdAndUserId(5L, 1L)).thenReturn(Optional.of(new Expense()));
+        when(receiptRepository.save(any(ExpenseReceipt.class))).thenAnswer(invocation -> {
+            ExpenseReceipt receipt = invocation.getArgument(0);
+            receipt.setId(9L);
+            return receipt;
+        });
+
+        // When
+        ReceiptResponse response = receiptService.upload(5L, "C:\\scans\\taxi.pdf", pdf.length,
+                new ByteArrayInputStream(pdf), "testuser");
+
+        // Then
+        assertEquals(9L, response.getId());
+        assertEquals(5L, response.getExpenseId());
+        assertEquals("taxi.pdf", response.getFilename());
+        assertEquals("application/pdf", response.getContentType());
+        assertEquals(pdf.length, response.getSize());
+        assertArrayEquals(pdf, Files.readAllBytes(receiptService.getFile(response)));
+        verify(readYourWrites).markWrite("testuser");
+    }
+
+    @Test
+    void deleteReceipt_ShouldKeepOwnerReadingFromPrimary() throws IOException {
+        // Given
+        Path file = stored("%PDF-delete");
+        ExpenseReceipt receipt = new ExpenseReceipt(5L, 1L, file.getFileName().toString(), "application/pdf", 11, "a.pdf");
+        when(receiptRepository.findByIdAndUserIdAndExpenseId(9L, 1L, 5L)).thenReturn(Optional.of(receipt));
+
+        // When
+        receiptService.deleteReceipt(5L, 9L, "testuser");
+
+        // Then
+        verify(receiptRepository).delete(receipt);
+        verify(readYourWrites).markWrite("testuser");
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void upload_ShouldNotReadTheBodyForAnotherUsersExpense() {
+        // Given
+        when(expenseRepository.findByIdAndUserId(5L, 1L)).thenReturn(Optional.empty());
+        when(archiveService.findArchived(1L, 5L)).thenReturn(Optional.empty());
+        InputStream body = mock(InputStream.class);
+
+        // When
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> receiptService.upload(5L, null, 10, body, "testuser"));
+
+        // Then
+        assertEquals("Expense not found or access denied", exception.getMessage());
+        verifyNoInteractions(body);
+        verify(receiptRepository, never()).save(any());
+        verifyNoInteractions(readYourWrites);
+    }
+
+    @Test
+    void upload_ShouldRefuseOtherFormatsAndOversizedOrExtraReceipts() {
+        // Given
+        when(expenseRepository.findByIdAndUserId(5L, 1L)).thenReturn(Optional.of(new Expense()));
+        byte[] html = "<html><script>".getBytes(StandardCharsets.US_ASCII);
+
+        // When
+        RuntimeException notReceipt = assertThrows(RuntimeException.class,
+                () -> receiptService.upload(5L, "page.html", html.length, new ByteArrayInputStream(html), "testuser"));
+        assertThrows(ReceiptTooLargeException.class,
+                () -> receiptService.upload(5L, null, 2_000_000, new ByteArrayInputStream(html), "testuser"));
+        when(receiptRepository.countByUserIdAndExpenseId(1L, 5L)).thenReturn(2L);
+        RuntimeException tooMany = assertThrows(RuntimeException.class,
+                () -> receiptService.upload(5L, null, html.length, new ByteArrayInputStream(html), "testuser"));
+
+        // Then
+        assertEquals("Receipts must be JPEG, PNG, WebP or PDF files", notReceipt.getMessage());
+        assertEquals("An expense can have at most 2 receipts", tooMany.getMessage());
+        verify(receiptRepository, never()).save(any());
+    }
+
+    @Test
+    void onExpenseChanged_ShouldDropTheReceiptsAndUnsharedFiles() throws IOException {
+        // Given: two receipts, one of them with content another expense also has
+        Path shared = stored("%PDF-shared");
+        Path own = stored("%PDF-own");
+        ExpenseReceipt first = new ExpenseReceipt(5L, 1L, shared.getFileName().toString(), "application/pdf", 11, "a.pdf");
+        ExpenseReceipt second = new ExpenseReceipt(5L, 1L, own.getFileName().toString(), "application/pdf", 8, "b.pdf");
+        when(receiptRepository.findByUserIdAndExpenseIdOrderByIdAsc(1L, 5L)).thenReturn(List.of(first, second));
+        when(receiptRepository.existsBySha256(first.getSha256())).thenReturn(true);
+        when(receiptRepository.existsBySha256(second.getSha256())).thenReturn(false);
+
+        // When
+        receiptService.onExpenseChanged(new ExpenseChangedEvent(ExpenseChangedEvent.Type.DELETED,
+                1L, "testuser", 5L, 3L, null));
+
+        // Then
+        verify(receiptRepository).deleteAll(List.of(first, second));
+        assertTrue(Files.exists(shared));
+        assertFalse(Files.exists(own));
+    }
+
+    @Test
+    void cleanFilename_ShouldKeepOnlyTheFileName() {
+        assertEquals("scan.jpg", ReceiptService.cleanFilename("../../scan.jpg", "image/jpeg"));
+        assertEquals("receipt.png", ReceiptService.cleanFilename(" \r\n", "image/png"));
+        assertEquals("receipt.pdf", ReceiptService.cleanFilename(null, "application/pdf"));
+    }
+
+    private Path stored(String content) throws IOException {
+        ReceiptStore.Upload upload = receiptStore.receive(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII)), 1_000);
+        receiptStore.keep(upload, () -> null);
+        return receiptStore.path(upload.getSha256());
+    }
+}
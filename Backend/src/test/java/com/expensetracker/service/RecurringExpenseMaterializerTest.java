@@ -0,0 +1,142 @@
+package com.expensetracker.service;
+
+import com.expensetracker.entity.TestSchema;
+import com.expensetracker.event.ExpenseChangedEvent;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecurringExpenseMaterializerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 15);
+
+    private RecurringExpenseMaterializer materializer;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<ExpenseChangedEvent> events = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:recurring" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TestSchema.create(dataSource);
+        jdbcTemplate.update("insert into users (username, email, password) values "
+                + "('alice', 'alice@example.com', 'x'), ('bob', 'bob@example.com', 'x')");
+
+        materializer = new RecurringExpenseMaterializer();
+        ReflectionTestUtils.setField(materializer, "enabled", true);
+        ReflectionTestUtils.setField(materializer, "batchSize", 2);
+        ReflectionTestUtils.setField(materializer, "insertRows", 3);
+        ReflectionTestUtils.setField(materializer, "maxCatchUp", 366);
+        ReflectionTestUtils.setField(materializer, "jdbcTimeZone", "UTC");
+        ReflectionTestUtils.setField(materializer, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(materializer, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(materializer, "eventPublisher",
+                (ApplicationEventPublisher) event -> events.add((ExpenseChangedEvent) event));
+        BudgetService budgetService = new BudgetService();
+        ReflectionTestUtils.setField(budgetService, "nearThresholdPercent", 80);
+        ReflectionTestUtils.setField(budgetService, "jdbcTimeZone", "");
+        ReflectionTestUtils.setField(budgetService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(budgetService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.setField(materializer, "budgetService", budgetService);
+    }
+
+    @Test
+    void materializeDue_ShouldCreateEveryDueInstanceAndAdvanceTheRules() {
+        // Given - rent on the 1st since January, a weekly subscription, and a rule not yet due
+        long rent = insertRule(1L, "Rent", "0 0 0 1 * *", "2024-01-01", null);
+        long weekly = insertRule(2L, "Gym", "@weekly", "2024-02-25", null);
+        insertRule(1L, "Insurance", "@yearly", "2025-01-01", null);
+
+        // When
+        long created = materializer.materializeDue(TODAY);
+
+        // Then - rent for Jan, Feb, Mar; gym on the Sundays Feb 25, Mar 3, Mar 10
+        assertEquals(6, created);
+        assertEquals(6, events.size());
+        assertEquals(List.of("2024-01-01", "2024-02-01", "2024-03-01"), jdbcTemplate.queryForList(
+                "select cast(expense_date as varchar) from expenses where title = 'Rent' order by expense_date", String.class));
+        assertEquals(LocalDate.of(2024, 4, 1), nextDueDate(rent));
+        assertEquals(LocalDate.of(2024, 3, 17), nextDueDate(weekly));
+        assertEquals(3L, jdbcTemplate.queryForObject("select expenses_version from users where id = 1", Long.class));
+        assertEquals(List.of(1L, 2L, 3L), jdbcTemplate.queryForList(
+                "select change_seq from expenses where user_id = 1 order by change_seq", Long.class));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from recurring_expense_runs where finished_at is not null and instances = 6", Integer.class));
+    }
+
+    @Test
+    void materializeDue_ShouldBeIdempotent() {
+        // Given
+        insertRule(1L, "Rent", "@monthly", "2024-01-01", null);
+        materializer.materializeDue(TODAY);
+
+        // When
+        long created = materializer.materializeDue(TODAY);
+
+        // Then
+        assertEquals(0, created);
+        assertEquals(3, jdbcTemplate.queryForObject("select count(*) from expenses", Integer.class));
+    }
+
+    @Test
+    void materializeDue_ShouldResumeAnInterruptedRunFromItsCheckpoint() {
+        // Given - yesterday's run stopped after the first rule, which it had already handled
+        long first = insertRule(1L, "Rent", "@monthly", "2024-01-01", null);
+        insertRule(2L, "Salary", "@monthly", "2024-03-01", null);
+        jdbcTemplate.update("update recurring_expenses set next_due_date = '2024-04-01' where id = ?", first);
+        jdbcTemplate.update("insert into recurring_expense_runs (run_date, last_recurring_id, instances) "
+                + "values ('2024-03-14', ?, 3)", first);
+
+        // When
+        long created = materializer.materializeDue(TODAY);
+
+        // Then - the old run finishes with the salary, then today's run finds nothing new
+        assertEquals(1, created);
+        assertEquals(List.of("Salary"), jdbcTemplate.queryForList("select title from expenses", String.class));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "select count(*) from recurring_expense_runs where finished_at is not null", Integer.class));
+    }
+
+    @Test
+    void materializeDue_ShouldStopAtTheEndDate() {
+        // Given
+        long rule = insertRule(1L, "Loan", "@monthly", "2024-01-01", "2024-02-15");
+
+        // When
+        long created = materializer.materializeDue(TODAY);
+
+        // Then
+        assertEquals(2, created);
+        assertNull(nextDueDate(rule));
+    }
+
+    private long insertRule(Long userId, String title, String schedule, String startDate, String endDate) {
+        jdbcTemplate.update("insert into recurring_expenses (title, amount, category, schedule, start_date, end_date, "
+                + "next_due_date, user_id) values (?, 100.00, 'Bills', ?, ?, ?, ?, ?)",
+                title, schedule, startDate, endDate, startDate, userId);
+        long id = jdbcTemplate.queryForObject("select max(id) from recurring_expenses", Long.class);
+        // The service stores the first matching date, which for these rules is the start date or later
+        LocalDate first = RecurringExpenseService.nextOccurrence(RecurringExpenseService.parseSchedule(schedule),
+                LocalDate.parse(startDate), endDate == null ? null : LocalDate.parse(endDate));
+        jdbcTemplate.update("update recurring_expenses set next_due_date = ? where id = ?", first, id);
+        return id;
+    }
+
+    private LocalDate nextDueDate(long id) {
+        return jdbcTemplate.queryForObject("select next_due_date from recurring_expenses where id = ?",
+                LocalDate.class, id);
+    }
+}
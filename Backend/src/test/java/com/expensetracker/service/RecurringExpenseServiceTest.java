@@ -0,0 +1,96 @@
+package com.expensetracker.service;
+
+import com.expensetracker.datasource.ReadYourWritesTracker;
+import com.expensetracker.dto.RecurringExpenseRequest;
+import com.expensetracker.dto.RecurringExpenseResponse;
+import com.expensetracker.entity.RecurringExpense;
+import com.expensetracker.entity.User;
+import com.expensetracker.repository.RecurringExpenseRepository;
+import com.expensetracker.repository.UserRepository;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecurringExpenseServiceTest {
+
+    @Mock
+    private RecurringExpenseRepository recurringExpenseRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ReadYourWritesTracker readYourWrites;
+
+    @InjectMocks
+    private RecurringExpenseService recurringExpenseService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("testuser", "test@example.com", "password");
+        user.setId(1L);
+    }
+
+    @Test
+    void createRecurringExpense_ShouldScheduleFirstMatchingDate() {
+        // Given - the 15th of each month, starting on the 20th
+        RecurringExpenseRequest request = new RecurringExpenseRequest("Rent", null, new BigDecimal("900.00"),
+                "Housing", "0 0 0 15 * *", LocalDate.of(2024, 1, 20), null);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        when(recurringExpenseRepository.save(any(RecurringExpense.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        RecurringExpenseResponse result = recurringExpenseService.createRecurringExpense(request, "testuser");
+
+        // Then
+        assertEquals(LocalDate.of(2024, 2, 15), result.getNextDueDate());
+        assertEquals("0 0 0 15 * *", result.getSchedule());
+        verify(readYourWrites).markOnCommit("testuser");
+    }
+
+    @Test
+    void deleteRecurringExpense_ShouldKeepOwnerReadingFromPrimary() {
+        // Given
+        RecurringExpense recurring = new RecurringExpense();
+        recurring.setUser(user);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        when(recurringExpenseRepository.findByIdAndUserId(5L, 1L)).thenReturn(Optional.of(recurring));
+
+        // When
+        recurringExpenseService.deleteRecurringExpense(5L, "testuser");
+
+        // Then
+        verify(recurringExpenseRepository).delete(recurring);
+        verify(readYourWrites).markOnCommit("testuser");
+    }
+
+    @Test
+    void createRecurringExpense_ShouldThrowException_WhenScheduleIsInvalid() {
+        // Given
+        RecurringExpenseRequest request = new RecurringExpenseRequest("Rent", null, new BigDecimal("900.00"),
+                "Housing", "every month", LocalDate.of(2024, 1, 1), null);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> recurringExpenseService.createRecurringExpense(request, "testuser"));
+
+        assertTrue(exception.getMessage().startsWith("Invalid schedule"));
+        verify(recurringExpenseRepository, never()).save(any(RecurringExpense.class));
+        verify(readYourWrites, never()).markOnCommit(any());
+    }
+}
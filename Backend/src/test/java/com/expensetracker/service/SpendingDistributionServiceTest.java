@@ -0,0 +1,209 @@
+package com.expensetracker.service;
+
+import com.expensetracker.archive.ExpenseArchiveService;
+import com.expensetracker.dto.HistogramBin;
+import com.expensetracker.dto.RankedTitle;
+import com.expensetracker.dto.SpendingDistributionResponse;
+import com.expensetracker.dto.TopTitlesResponse;
+import com.expensetracker.entity.TestSchema;
+import com.expensetracker.entity.User;
+import com.expensetracker.repository.UserRepository;
+import com.expensetracker.stats.AmountSketch;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SpendingDistributionServiceTest {
+
+    private static final YearMonth JANUARY = YearMonth.of(2024, 1);
+
+    private SpendingDistributionService distributionService;
+
+    private BudgetService budgetService;
+
+    private ExpenseArchiveService archiveService;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:distribution" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        TestSchema.create(dataSource);
+        jdbcTemplate.update("insert into users (id, username, email, password) values (1, 'alice', 'alice@example.com', 'x')");
+
+        UserRepository userRepository = mock(UserRepository.class);
+        User user = new User("testuser", "test@example.com", "password");
+        user.setId(1L);
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(user));
+        archiveService = mock(ExpenseArchiveService.class);
+
+        budgetService = new BudgetService();
+        ReflectionTestUtils.setField(budgetService, "nearThresholdPercent", 80);
+        ReflectionTestUtils.setField(budgetService, "jdbcTimeZone", "UTC");
+        ReflectionTestUtils.setField(budgetService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(budgetService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+
+        distributionService = new SpendingDistributionService();
+        ReflectionTestUtils.setField(distributionService, "jdbcTimeZone", "UTC");
+        ReflectionTestUtils.setField(distributionService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(distributionService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(distributionService, "archiveService", archiveService);
+    }
+
+    @Test
+    void getDistribution_ShouldMergeMonthlySketchesWithinAccuracyOfExactQuantiles() {
+        // Given - a year of food expenses, written the way the expense services write them
+        Random random = new Random(3);
+        List<Double> food = new ArrayList<>();
+        for (int i = 0; i < 1_200; i++) {
+            BigDecimal amount = BigDecimal.valueOf(Math.max(1, Math.round(Math.exp(2.5 + random.nextGaussian()) * 100)), 2);
+            LocalDate date = JANUARY.plusMonths(i % 12).atDay(1 + i % 28);
+            budgetService.adjust(1L, "testuser", "Food", date, amount);
+            if (i % 10 == 0) {
+                // ... some are updated or deleted again
+                budgetService.adjust(List.of(BudgetService.TotalChange.removed(1L, "testuser", "Food", date, null, amount)));
+            } else {
+                food.add(amount.doubleValue());
+            }
+        }
+        budgetService.adjust(1L, "testuser", "Rent", JANUARY.atDay(1), new BigDecimal("950.00"));
+
+        // When
+        List<SpendingDistributionResponse> distributions = distributionService.getDistribution(JANUARY,
+                JANUARY.plusMonths(11), null, "testuser");
+
+        // Then
+        assertEquals(2, distributions.size());
+        SpendingDistributionResponse distribution = distributions.get(0);
+        assertEquals("Food", distribution.getCategory());
+        assertEquals(LocalDate.of(2024, 12, 31), distribution.getTo());
+        assertEquals(food.size(), distribution.getCount());
+        food.sort(null);
+        assertWithinAccuracy(food.get((int) (0.5 * (food.size() - 1))), distribution.getMedian());
+        assertWithinAccuracy(food.get((int) (0.9 * (food.size() - 1))), distribution.getP90());
+        assertWithinAccuracy(food.get((int) (0.99 * (food.size() - 1))), distribution.getP99());
+        assertWithinAccuracy(food.get(food.size() - 1), distribution.getMax());
+        assertEquals(food.size(), distribution.getHistogram().stream().mapToLong(HistogramBin::getCount).sum());
+        assertWithinAccuracy(950, distributions.get(1).getMedian());
+        assertEquals(List.of(BigDecimal.valueOf(500), BigDecimal.valueOf(1000)),
+                List.of(distributions.get(1).getHistogram().get(0).getLower(),
+                        distributions.get(1).getHistogram().get(0).getUpper()));
+    }
+
+    @Test
+    void getDistribution_ShouldOnlyMergeTheRequestedMonthsAndCategory() {
+        // Given
+        budgetService.adjust(1L, "testuser", "Food", JANUARY.atDay(5), new BigDecimal("10.00"));
+        budgetService.adjust(1L, "testuser", "Food", JANUARY.plusMonths(1).atDay(5), new BigDecimal("20.00"));
+        budgetService.adjust(1L, "testuser", "Food", JANUARY.plusMonths(2).atDay(5), new BigDecimal("400.00"));
+        budgetService.adjust(1L, "testuser", "Travel", JANUARY.atDay(5), new BigDecimal("99.00"));
+
+        // When
+        List<SpendingDistributionResponse> distributions = distributionService.getDistribution(JANUARY,
+                JANUARY.plusMonths(1), "Food", "testuser");
+
+        // Then
+        assertEquals(1, distributions.size());
+        assertEquals(2, distributions.get(0).getCount());
+        assertEquals(new BigDecimal("30.00"), distributions.get(0).getTotal());
+        assertWithinAccuracy(10, distributions.get(0).getMedian());
+        assertWithinAccuracy(20, distributions.get(0).getMax());
+        assertThrows(RuntimeException.class, () -> distributionService.getDistribution(JANUARY.plusMonths(1),
+                JANUARY, null, "testuser"));
+    }
+
+    @Test
+    void getDistribution_ShouldRebuildSketchesMissingFromOlderTotals() {
+        // Given - totals seeded from the expenses before sketches existed
+        jdbcTemplate.update("insert into expenses (title, amount, category, expense_date, user_id) values "
+                + "('Bakery', 10.00, 'Food', '2024-01-03', 1), ('Market', 30.00, 'Food', '2024-01-09', 1), "
+                + "('Bakery', 5.00, 'Food', '2024-02-01', 1)");
+        jdbcTemplate.update("insert into expense_month_totals (user_id, month_start, category, total) "
+                + "values (1, '2024-01-01', 'Food', 40.00)");
+
+        // When
+        SpendingDistributionResponse rebuilt = distributionService.getDistribution(JANUARY, JANUARY, null, "testuser")
+                .get(0);
+        budgetService.adjust(1L, "testuser", "Food", JANUARY.atDay(20), new BigDecimal("20.00"));
+        SpendingDistributionResponse updated = distributionService.getDistribution(JANUARY, JANUARY, null, "testuser")
+                .get(0);
+
+        // Then
+        assertEquals(2, rebuilt.getCount());
+        assertWithinAccuracy(30, rebuilt.getMax());
+        assertEquals(3, updated.getCount());
+        assertWithinAccuracy(20, updated.getMedian());
+        assertEquals(3, AmountSketch.fromBytes(jdbcTemplate.queryForObject(
+                "select amount_sketch from expense_month_totals", byte[].class)).getCount());
+        verify(archiveService, times(1)).findArchived(1L);
+        assertEquals("market", distributionService.getTopTitles(JANUARY, JANUARY, null, 1, "testuser")
+                .getByAmount().get(0).getTitle());
+    }
+
+    @Test
+    void getTopTitles_ShouldRankNormalizedTitlesAcrossCategoriesAndMonths() {
+        // Given - a long tail of one-off titles and a few frequent merchants
+        Random random = new Random(5);
+        for (int i = 0; i < 600; i++) {
+            LocalDate date = JANUARY.plusMonths(i % 3).atDay(1 + i % 28);
+            String category = i % 2 == 0 ? "Food" : "Shopping";
+            String title;
+            BigDecimal amount = BigDecimal.valueOf(100 + random.nextInt(900), 2);
+            if (i % 4 == 0) {
+                title = "STARBUCKS #" + (1000 + random.nextInt(50));
+            } else if (i % 6 == 1) {
+                title = "Corner Market";
+                amount = new BigDecimal("5.00");
+            } else if (i % 50 == 3) {
+                title = "Furniture";
+                amount = new BigDecimal("900.00");
+            } else {
+                title = "One-off " + i + "th";
+            }
+            budgetService.adjust(List.of(new BudgetService.TotalChange(1L, "testuser", category, date, title, amount)));
+        }
+        // ... and an update that only changes how one purchase is spelled
+        budgetService.adjust(List.of(
+                BudgetService.TotalChange.removed(1L, "testuser", "Shopping", JANUARY.atDay(2), "Corner Market",
+                        new BigDecimal("5.00")),
+                new BudgetService.TotalChange(1L, "testuser", "Shopping", JANUARY.atDay(2), "Corner  market!",
+                        new BigDecimal("5.00"))));
+
+        // When
+        TopTitlesResponse top = distributionService.getTopTitles(JANUARY, JANUARY.plusMonths(2), null, 3, "testuser");
+
+        // Then
+        assertEquals(List.of("starbucks", "corner market"),
+                top.getByCount().stream().limit(2).map(RankedTitle::getTitle).toList());
+        assertWithinError(150, top.getByCount().get(0));
+        assertWithinError(100, top.getByCount().get(1));
+        assertEquals("furniture", top.getByAmount().get(0).getTitle());
+        assertWithinError(7200, top.getByAmount().get(0));
+        assertEquals(3, top.getByAmount().size());
+    }
+
+    private static void assertWithinError(long exact, RankedTitle title) {
+        assertTrue(Math.abs(exact - title.getValue().doubleValue()) <= title.getError().doubleValue(),
+                title.getTitle() + ": " + title.getValue() + " +- " + title.getError() + ", exact " + exact);
+    }
+
+    private static void assertWithinAccuracy(double exact, BigDecimal estimate) {
+        assertEquals(exact, estimate.doubleValue(), exact * AmountSketch.RELATIVE_ACCURACY + 0.005, "exact " + exact);
+    }
+}
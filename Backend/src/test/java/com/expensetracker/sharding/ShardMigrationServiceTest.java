@@ -0,0 +1,264 @@
+package com.expensetracker.sharding;
+
+import com.expensetracker.dto.ExpenseRequest;
+import com.expensetracker.dto.ExpenseResponse;
+import com.expensetracker.service.BudgetService;
+import com.expensetracker.service.ExpenseIngestService;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class ShardMigrationServiceTest {
+
+    private List<DataSource> shards;
+
+    private ShardRoutingDataSource router;
+
+    private ShardDirectory directory;
+
+    private ShardMigrationService migrationService;
+
+    private ShardAdminService adminService;
+
+    private long aliceId;
+
+    @BeforeEach
+    void setUp() {
+        shards = ShardTestDatabases.create(3);
+        router = ShardTestDatabases.router(shards, 10);
+        directory = (ShardDirectory) ReflectionTestUtils.getField(router, "directory");
+        migrationService = new ShardMigrationService(router, directory);
+        adminService = new ShardAdminService(router);
+
+        aliceId = ShardTestDatabases.insertUser(shards.get(0), "alice");
+        directory.register("alice", aliceId, 0);
+        ShardTestDatabases.insertExpense(shards.get(0), aliceId, "Lunch", "12.50");
+        ShardTestDatabases.insertExpense(shards.get(0), aliceId, "Taxi", "30.00");
+        new JdbcTemplate(shards.get(0)).update(
+                "insert into expense_tombstones (expense_id, user_id, change_seq) values (99, ?, 3)", aliceId);
+
+        long bobId = ShardTestDatabases.insertUser(shards.get(1), "bob");
+        directory.register("bob", bobId, 1);
+        ShardTestDatabases.insertExpense(shards.get(1), bobId, "Rent", "500.00");
+        // Shard 2 generates ids in its own range, so copied rows never collide with its own
+        ShardTestDatabases.insertUser(shards.get(2), "carol");
+    }
+
+    @Test
+    void moveUser_ShouldCopyRowsWithTheirIdsAndRemoveThemFromSource() throws Exception {
+        // Given
+        List<Long> expenseIds = new JdbcTemplate(shards.get(0)).queryForList(
+                "select id from expenses where user_id = ? order by id", Long.class, aliceId);
+
+        // When
+        migrationService.moveUser("alice", 2);
+
+        // Then
+        JdbcTemplate target = new JdbcTemplate(shards.get(2));
+        JdbcTemplate source = new JdbcTemplate(shards.get(0));
+        assertEquals(aliceId, target.queryForObject("select id from users where username = 'alice'", Long.class));
+        assertEquals(expenseIds, target.queryForList(
+                "select id from expenses where user_id = ? order by id", Long.class, aliceId));
+        assertEquals(1, target.queryForObject(
+                "select count(*) from expense_tombstones where user_id = ?", Integer.class, aliceId));
+        assertEquals(0, source.queryForObject("select count(*) from users where username = 'alice'", Integer.class));
+        assertEquals(0, source.queryForObject("select count(*) from expenses", Integer.class));
+
+        directory.invalidate("alice");
+        ShardDirectory.Entry entry = directory.lookup("alice");
+        assertEquals(2, entry.getShard());
+        assertFalse(entry.isMoving());
+    }
+
+    @Test
+    void moveUser_ShouldCopyEveryPage_WhenUserHasMoreRowsThanOneBatch() throws Exception {
+        // Given
+        for (int i = 0; i < ShardMigrationService.COPY_BATCH * 2; i++) {
+            ShardTestDatabases.insertExpense(shards.get(0), aliceId, "Item " + i, "1.00");
+        }
+        List<Long> expenseIds = new JdbcTemplate(shards.get(0)).queryForList(
+                "select id from expenses where user_id = ? order by id", Long.class, aliceId);
+
+        // When
+        migrationService.moveUser("alice", 2);
+
+        // Then
+        assertEquals(expenseIds, new JdbcTemplate(shards.get(2)).queryForList(
+                "select id from expenses where user_id = ? order by id", Long.class, aliceId));
+    }
+
+    @Test
+    void moveUser_ShouldKeepUserOnSource_WhenCopyFails() {
+        // Given - the target already holds a row with alice's id
+        new JdbcTemplate(shards.get(1)).update(
+                "insert into users (id, username, email, password) values (?, 'clash', 'clash@example.com', 'x')", aliceId);
+
+        // When
+        assertThrows(RuntimeException.class, () -> migrationService.moveUser("alice", 1));
+
+        // Then
+        directory.invalidate("alice");
+        assertEquals(0, directory.lookup("alice").getShard());
+        assertFalse(directory.lookup("alice").isMoving());
+        assertEquals(2, new JdbcTemplate(shards.get(0)).queryForObject("select count(*) from expenses", Integer.class));
+        assertEquals(0, new JdbcTemplate(shards.get(1)).queryForObject(
+                "select count(*) from expenses where user_id = ?", Integer.class, aliceId));
+    }
+
+    @Test
+    void moveUser_ShouldRefuseBeforeMarking_WhenTargetAlreadyHoldsCopiedIds() throws Exception {
+        // Given - shard 0 handed out plain ids before sharding; shard 1 was added with only some
+        // of its tables raised above them, shard 2 with all of them
+        List<DataSource> plain = List.of(ShardTestDatabases.create(1, 1),
+                ShardTestDatabases.create(2, ShardTestDatabases.ID_STRIDE),
+                ShardTestDatabases.create(1_000_003, ShardTestDatabases.ID_STRIDE));
+        ShardRoutingDataSource plainRouter = ShardTestDatabases.router(plain, 10);
+        ShardDirectory plainDirectory = spy((ShardDirectory) ReflectionTestUtils.getField(plainRouter, "directory"));
+        JdbcTemplate partlyRaised = new JdbcTemplate(plain.get(1));
+        for (String table : List.of("users", "expenses", "expense_tombstones", "expense_receipts", "report_jobs")) {
+            partlyRaised.execute("alter table " + table + " alter column id restart with 1000002");
+        }
+        long daveId = ShardTestDatabases.insertUser(plain.get(0), "dave");
+        plainDirectory.register("dave", daveId, 0);
+        ShardTestDatabases.insertExpense(plain.get(0), daveId, "Lunch", "12.50");
+        for (String category : List.of("Food", "Travel")) {
+            new JdbcTemplate(plain.get(0)).update(
+                    "insert into budgets (category, monthly_limit, user_id) values (?, 100, ?)", category, daveId);
+        }
+        long erinId = ShardTestDatabases.insertUser(plain.get(1), "erin");
+        partlyRaised.update("insert into budgets (category, monthly_limit, user_id) values ('Rent', 900, ?)", erinId);
+        ShardMigrationService plainMigration = new ShardMigrationService(plainRouter, plainDirectory);
+
+        // When
+        IllegalStateException refused = assertThrows(IllegalStateException.class,
+                () -> plainMigration.moveUser("dave", 1));
+
+        // Then
+        assertTrue(refused.getMessage().contains("budgets rows with ids [2]"), refused.getMessage());
+        verify(plainDirectory, never()).markMoving(anyString(), anyLong(), anyInt());
+        assertEquals(0, partlyRaised.queryForObject(
+                "select count(*) from expenses where user_id = ?", Integer.class, daveId));
+        assertEquals(0, plainDirectory.lookup("dave").getShard());
+        assertFalse(plainDirectory.lookup("dave").isMoving());
+
+        plainMigration.moveUser("dave", 2);
+        assertEquals(List.of(1L, 2L), new JdbcTemplate(plain.get(2)).queryForList(
+                "select id from budgets where user_id = ? order by id", Long.class, daveId));
+    }
+
+    @Test
+    void ingestWriter_ShouldRefuseQueuedExpense_WhileUserIsBeingMoved() throws Exception {
+        // Given - a group-commit writer that lingers long enough for a move to start
+        ExpenseIngestService ingestService = ingestService(1000L);
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        try {
+            Future<ExpenseResponse> queued = client.submit(() -> createAs("alice", ingestService));
+            Thread.sleep(200);
+
+            // When
+            directory.markMoving("alice", aliceId, 0);
+
+            // Then - nothing was written behind the copy's back
+            ExecutionException exception = assertThrows(ExecutionException.class, () -> queued.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, exception.getCause());
+            assertEquals(2, new JdbcTemplate(shards.get(0)).queryForObject(
+                    "select count(*) from expenses where user_id = ?", Integer.class, aliceId));
+        } finally {
+            client.shutdown();
+            ReflectionTestUtils.invokeMethod(ingestService, "stop");
+        }
+    }
+
+    @Test
+    void ingestWriter_ShouldWriteToNewShard_AfterMove() throws Exception {
+        // Given
+        ExpenseIngestService ingestService = ingestService(10L);
+        migrationService.moveUser("alice", 2);
+
+        // When
+        try {
+            createAs("alice", ingestService);
+        } finally {
+            ReflectionTestUtils.invokeMethod(ingestService, "stop");
+        }
+
+        // Then
+        assertEquals(3, new JdbcTemplate(shards.get(2)).queryForObject(
+                "select count(*) from expenses where user_id = ?", Integer.class, aliceId));
+        assertEquals(0, new JdbcTemplate(shards.get(0)).queryForObject("select count(*) from expenses", Integer.class));
+    }
+
+    @Test
+    void collectStats_ShouldAggregateEveryShard() {
+        // When
+        List<ShardAdminService.ShardStats> stats = adminService.collectStats();
+
+        // Then
+        assertEquals(3, stats.size());
+        assertEquals(2, stats.get(0).getExpenses());
+        assertEquals(0, new BigDecimal("42.50").compareTo(stats.get(0).getTotalAmount()));
+        assertEquals(1, stats.get(1).getUsers());
+        assertEquals(0, new BigDecimal("500.00").compareTo(stats.get(1).getTotalAmount()));
+        assertEquals(0, stats.get(2).getExpenses());
+    }
+
+    private ExpenseIngestService ingestService(long lingerMs) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(router);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        ExpenseIngestService ingestService = new ExpenseIngestService();
+        ReflectionTestUtils.setField(ingestService, "enabled", true);
+        ReflectionTestUtils.setField(ingestService, "maxBatchSize", 50);
+        ReflectionTestUtils.setField(ingestService, "maxLingerMs", lingerMs);
+        ReflectionTestUtils.setField(ingestService, "queueCapacity", 100);
+        ReflectionTestUtils.setField(ingestService, "responseTimeoutMs", 10000L);
+        ReflectionTestUtils.setField(ingestService, "jdbcTimeZone", "");
+        ReflectionTestUtils.setField(ingestService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(ingestService, "transactionManager", new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(ingestService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.setField(ingestService, "shardRouting", router);
+        BudgetService budgetService = new BudgetService();
+        ReflectionTestUtils.setField(budgetService, "nearThresholdPercent", 80);
+        ReflectionTestUtils.setField(budgetService, "jdbcTimeZone", "");
+        ReflectionTestUtils.setField(budgetService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(budgetService, "eventPublisher", (ApplicationEventPublisher) event -> { });
+        ReflectionTestUtils.setField(ingestService, "budgetService", budgetService);
+        ReflectionTestUtils.invokeMethod(ingestService, "start");
+        return ingestService;
+    }
+
+    private static ExpenseResponse createAs(String username, ExpenseIngestService ingestService) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                username, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+        try {
+            return ingestService.createExpense(
+                    new ExpenseRequest("Coffee", null, new BigDecimal("3.20"), "Food", LocalDate.now()), username, true);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.expensetracker.sharding;
+
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardRoutingDataSourceTest {
+
+    private List<DataSource> shards;
+
+    private ShardRoutingDataSource router;
+
+    private ShardDirectory directory;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        shards = ShardTestDatabases.create(3);
+        // A user from before sharding, already on shard 0
+        ShardTestDatabases.insertUser(shards.get(0), "legacy");
+        router = ShardTestDatabases.router(shards, 60000);
+        directory = (ShardDirectory) ReflectionTestUtils.getField(router, "directory");
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(router);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly.setReadOnly(true);
+        // The lazy proxy probes connection defaults once, as the application does at startup
+        usernames();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void routing_ShouldFollowDirectory_ForAuthenticatedUser() {
+        // Given
+        long id = ShardTestDatabases.insertUser(shards.get(2), "alice");
+        directory.register("alice", id, 2);
+
+        // When
+        authenticate("alice");
+
+        // Then
+        assertEquals(List.of("alice"), usernames());
+        assertEquals(2, router.currentShard());
+    }
+
+    @Test
+    void routing_ShouldUseShardZero_ForBackfilledLegacyUserAndAnonymousWork() {
+        assertTrue(directory.lookup("legacy").isRegistered());
+        assertEquals(List.of("legacy"), usernames());
+
+        authenticate("legacy");
+        assertEquals(List.of("legacy"), usernames());
+    }
+
+    @Test
+    void routing_ShouldPlaceUnknownUserByUsernameHash() {
+        // When
+        authenticate("newcomer");
+
+        // Then
+        assertEquals(directory.placementFor("newcomer"), router.currentShard());
+        assertFalse(directory.lookup("newcomer").isRegistered());
+    }
+
+    @Test
+    void routing_ShouldPreferBoundShard() {
+        // Given
+        ShardTestDatabases.insertUser(shards.get(1), "bob");
+        authenticate("legacy");
+
+        // When
+        List<String> onShardOne = ShardContext.callOnShard(1, this::usernames);
+
+        // Then
+        assertEquals(List.of("bob"), onShardOne);
+        assertEquals(List.of("legacy"), usernames());
+    }
+
+    @Test
+    void routing_ShouldRefuseWritesButAllowReads_WhileUserIsMoving() {
+        // Given
+        directory.markMoving("legacy", 1L, 0);
+        authenticate("legacy");
+
+        // When & Then
+        assertEquals(List.of("legacy"), readOnly.execute(status -> usernames()));
+        Exception exception = assertThrows(Exception.class,
+                () -> jdbcTemplate.update("update users set expenses_version = 1 where username = 'legacy'"));
+        assertTrue(exception.getMessage().contains("being moved"));
+    }
+
+    private List<String> usernames() {
+        return jdbcTemplate.queryForList("select username from users order by username", String.class);
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                username, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+}
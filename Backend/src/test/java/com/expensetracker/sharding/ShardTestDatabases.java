@@ -0,0 +1,57 @@
+package com.expensetracker.sharding;
+
+import com.expensetracker.datasource.ReadYourWritesTracker;
+import com.expensetracker.entity.TestSchema;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Embedded H2 shards with the shared test schema, each generating ids in its own residue class.
+ */
+final class ShardTestDatabases {
+
+    static final int ID_STRIDE = 16;
+
+    private ShardTestDatabases() {
+    }
+
+    static List<DataSource> create(int count) {
+        List<DataSource> shards = new ArrayList<>();
+        for (int shard = 0; shard < count; shard++) {
+            shards.add(create(shard + 1, ID_STRIDE));
+        }
+        return shards;
+    }
+
+    /**
+     * One shard whose tables all hand out ids from {@code firstId} in steps of {@code increment}.
+     */
+    static DataSource create(long firstId, long increment) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:shard" + firstId + "-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        TestSchema.create(dataSource, firstId, increment);
+        return dataSource;
+    }
+
+    static ShardRoutingDataSource router(List<DataSource> shards, long ttlMs) {
+        ShardDirectory directory = new ShardDirectory(new JdbcTemplate(shards.get(0)), shards.size(), ttlMs);
+        directory.initialize();
+        return new ShardRoutingDataSource(shards, directory, new ReadYourWritesTracker());
+    }
+
+    static long insertUser(DataSource shard, String username) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(shard);
+        jdbcTemplate.update("insert into users (username, email, password) values (?, ?, 'secret')",
+                username, username + "@example.com");
+        return jdbcTemplate.queryForObject("select id from users where username = ?", Long.class, username);
+    }
+
+    static void insertExpense(DataSource shard, long userId, String title, String amount) {
+        new JdbcTemplate(shard).update("insert into expenses (title, amount, category, expense_date, user_id) "
+                + "values (?, ?, 'Food', current_date, ?)", title, new BigDecimal(amount), userId);
+    }
+}
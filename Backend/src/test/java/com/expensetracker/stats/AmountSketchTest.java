@@ -0,0 +1,115 @@
+package com.expensetracker.stats;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AmountSketchTest {
+
+    private static final double[] QUANTILES = {0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99, 0.999, 1};
+
+    @Test
+    void quantiles_ShouldStayWithinRelativeAccuracyOfExactOnes() {
+        // Given: log-normal amounts in cents, like real spending, plus some zeros
+        Random random = new Random(7);
+        for (int size : new int[] {1, 2, 10, 1_000, 100_000}) {
+            double[] amounts = new double[size];
+            AmountSketch sketch = new AmountSketch();
+            for (int i = 0; i < size; i++) {
+                amounts[i] = i % 50 == 49 ? 0 : Math.max(1, Math.round(Math.exp(3 + 1.5 * random.nextGaussian()) * 100)) / 100.0;
+                sketch.add(amounts[i]);
+            }
+
+            // When
+            Arrays.sort(amounts);
+
+            // Then
+            assertEquals(size, sketch.getCount());
+            for (double quantile : QUANTILES) {
+                double exact = amounts[(int) (quantile * (size - 1))];
+                double estimate = sketch.quantile(quantile);
+                assertEquals(exact, estimate, exact * AmountSketch.RELATIVE_ACCURACY + 1e-9,
+                        "q" + quantile + " of " + size);
+            }
+            assertEquals(amounts[size - 1], sketch.getMax(), amounts[size - 1] * AmountSketch.RELATIVE_ACCURACY + 1e-9);
+        }
+    }
+
+    @Test
+    void mergeAndRemove_ShouldMatchASketchOfTheRemainingAmounts() {
+        // Given
+        Random random = new Random(11);
+        AmountSketch january = new AmountSketch();
+        AmountSketch february = new AmountSketch();
+        AmountSketch expected = new AmountSketch();
+        double[] removed = new double[100];
+        for (int i = 0; i < 2_000; i++) {
+            double amount = random.nextInt(1_000_000) / 100.0;
+            (i % 2 == 0 ? january : february).add(amount);
+            if (i < removed.length) {
+                removed[i] = amount;
+            } else {
+                expected.add(amount);
+            }
+        }
+
+        // When
+        AmountSketch merged = new AmountSketch();
+        merged.merge(january);
+        merged.merge(february);
+        AmountSketch change = new AmountSketch();
+        for (double amount : removed) {
+            change.remove(amount);
+        }
+        merged.merge(change);
+
+        // Then
+        assertArrayEquals(expected.toBytes(), merged.toBytes());
+        assertEquals(1_900, merged.getCount());
+        assertTrue(new AmountSketch().isEmpty());
+        AmountSketch updated = new AmountSketch();
+        updated.add(12.5);
+        updated.remove(12.5);
+        assertTrue(updated.isEmpty());
+    }
+
+    @Test
+    void toBytes_ShouldRoundTripCompactly() {
+        // Given
+        AmountSketch sketch = new AmountSketch();
+        for (int cents = 1; cents <= 1_000_000; cents += 7) {
+            sketch.add(cents / 100.0);
+        }
+        sketch.add(0, 3);
+
+        // When
+        byte[] bytes = sketch.toBytes();
+        AmountSketch read = AmountSketch.fromBytes(bytes);
+
+        // Then: 0.01 to 10,000 spans about 700 buckets
+        assertTrue(bytes.length < 2_500, bytes.length + " bytes");
+        assertArrayEquals(bytes, read.toBytes());
+        assertEquals(sketch.getCount(), read.getCount());
+        assertEquals(sketch.quantile(0.5), read.quantile(0.5));
+        assertEquals(0, read.quantile(0));
+        assertTrue(Double.isNaN(new AmountSketch().quantile(0.5)));
+    }
+
+    @Test
+    void histogram_ShouldCountAmountsPerBin() {
+        // Given
+        AmountSketch sketch = new AmountSketch();
+        for (double amount : new double[] {0, 0.5, 1.5, 3, 4.5, 7, 15, 15, 60}) {
+            sketch.add(amount);
+        }
+
+        // When
+        long[] counts = sketch.histogram(new double[] {1, 2, 5, 10, 20, 50, 100});
+
+        // Then
+        assertArrayEquals(new long[] {2, 1, 2, 1, 2, 0, 1}, counts);
+    }
+}
@@ -0,0 +1,97 @@
+package com.expensetracker.stats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTest {
+
+    @Test
+    void union_ShouldBoundEveryTrueWeightAndFindTheHeavyHitters() {
+        // Given: twelve months of a Zipf-like stream, one summary each
+        Random random = new Random(17);
+        Map<String, Long> exact = new HashMap<>();
+        List<SpaceSaving> months = new ArrayList<>();
+        long total = 0;
+        for (int month = 0; month < 12; month++) {
+            SpaceSaving summary = new SpaceSaving(20);
+            for (int i = 0; i < 2_000; i++) {
+                String key = "title" + (int) Math.floor(Math.pow(1000, random.nextDouble()));
+                long weight = 1 + random.nextInt(100);
+                summary.add(key, weight);
+                exact.merge(key, weight, Long::sum);
+                total += weight;
+            }
+            months.add(summary);
+        }
+
+        // When
+        List<SpaceSaving.Entry> union = SpaceSaving.union(months);
+
+        // Then
+        Map<String, SpaceSaving.Entry> reported = new HashMap<>();
+        union.forEach(entry -> reported.put(entry.getKey(), entry));
+        for (SpaceSaving.Entry entry : union) {
+            long trueWeight = exact.get(entry.getKey());
+            assertTrue(Math.abs(entry.getWeight() - trueWeight) <= entry.getError(), entry.getKey());
+        }
+        // Every key above a twentieth of a month's weight in total is in the union
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            if (entry.getValue() > total / 20) {
+                assertTrue(reported.containsKey(entry.getKey()), entry.getKey());
+            }
+        }
+        List<String> heaviest = exact.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(3).map(Map.Entry::getKey).toList();
+        assertEquals(heaviest, union.stream().limit(3).map(SpaceSaving.Entry::getKey).toList());
+    }
+
+    @Test
+    void remove_ShouldTakeWeightOffMonitoredKeysOnly() {
+        // Given
+        SpaceSaving summary = new SpaceSaving(2);
+        summary.add("a", 5);
+        summary.add("b", 3);
+        summary.add("c", 1);
+
+        // When: c replaced b and inherited its weight as error
+        summary.remove("b", 3);
+        summary.remove("c", 2);
+
+        // Then
+        List<SpaceSaving.Entry> top = summary.top(5);
+        assertEquals(2, top.size());
+        assertEquals("a", top.get(0).getKey());
+        assertEquals(5, top.get(0).getWeight());
+        assertEquals(2, top.get(1).getWeight());
+        assertEquals(2, top.get(1).getError());
+        summary.remove("a", 5);
+        assertEquals(1, summary.size());
+        assertEquals(0, summary.getUnmonitoredBound());
+    }
+
+    @Test
+    void toBytes_ShouldRoundTrip() {
+        // Given
+        SpaceSaving summary = new SpaceSaving(3);
+        for (String key : new String[] {"café", "bakery", "café", "market", "tram", "café"}) {
+            summary.add(key, 250);
+        }
+
+        // When
+        SpaceSaving read = SpaceSaving.fromBytes(summary.toBytes(), 3);
+
+        // Then
+        assertEquals(summary.top(3).stream().map(SpaceSaving.Entry::getKey).toList(),
+                read.top(3).stream().map(SpaceSaving.Entry::getKey).toList());
+        assertEquals(750, read.top(1).get(0).getWeight());
+        assertEquals(summary.getUnmonitoredBound(), read.getUnmonitoredBound());
+    }
+}
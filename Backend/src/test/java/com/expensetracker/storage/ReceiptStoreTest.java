@@ -0,0 +1,153 @@
+package com.expensetracker.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceiptStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private ReceiptStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ReceiptStore();
+        ReflectionTestUtils.setField(store, "directory", directory.toString());
+        ReflectionTestUtils.setField(store, "deleteUnreferenced", true);
+    }
+
+    @Test
+    void receive_ShouldHashAndSniffWhileStreamingToDisk() throws IOException {
+        // Given: larger than the copy buffer, so it arrives in several reads
+        byte[] pdf = pdf(300_000);
+
+        // When
+        ReceiptStore.Upload upload = store.receive(new ByteArrayInputStream(pdf), 1_000_000);
+
+        // Then
+        assertEquals(pdf.length, upload.getSize());
+        assertEquals("application/pdf", upload.getContentType());
+        assertEquals(HexFormat.of().formatHex(sha256(pdf)), upload.getSha256());
+        assertArrayEquals(pdf, Files.readAllBytes(upload.getTemporary()));
+    }
+
+    @Test
+    void keep_ShouldStoreIdenticalContentOnce() throws IOException {
+        // Given
+        byte[] pdf = pdf(10_000);
+        ReceiptStore.Upload first = store.receive(new ByteArrayInputStream(pdf), 1_000_000);
+        ReceiptStore.Upload second = store.receive(new ByteArrayInputStream(pdf), 1_000_000);
+
+        // When
+        String kept = store.keep(first, () -> "first");
+        store.keep(second, () -> "second");
+
+        // Then
+        Path file = store.path(first.getSha256());
+        assertEquals("first", kept);
+        assertArrayEquals(pdf, Files.readAllBytes(file));
+        assertEquals(directory.resolve(first.getSha256().substring(0, 2)).resolve(first.getSha256().substring(2, 4))
+                .resolve(first.getSha256()), file);
+        assertEquals(0, temporaryFiles());
+    }
+
+    @Test
+    void keep_ShouldRemoveTheNewFileWhenTheReferenceFails() throws IOException {
+        // Given
+        ReceiptStore.Upload upload = store.receive(new ByteArrayInputStream(pdf(100)), 1_000_000);
+
+        // When
+        assertThrows(IllegalStateException.class, () -> store.keep(upload, () -> {
+            throw new IllegalStateException("insert failed");
+        }));
+
+        // Then
+        assertFalse(Files.exists(store.path(upload.getSha256())));
+    }
+
+    @Test
+    void receive_ShouldStopReadingPastTheLimit() throws IOException {
+        // Given: a body that never ends
+        InputStream endless = new InputStream() {
+            @Override
+            public int read() {
+                return 'x';
+            }
+        };
+
+        // When / Then
+        assertThrows(ReceiptTooLargeException.class, () -> store.receive(endless, 100_000));
+        assertEquals(0, temporaryFiles());
+    }
+
+    @Test
+    void release_ShouldDeleteOnlyUnreferencedContent() throws IOException {
+        // Given
+        ReceiptStore.Upload upload = store.receive(new ByteArrayInputStream(pdf(100)), 1_000_000);
+        store.keep(upload, () -> null);
+        Path file = store.path(upload.getSha256());
+
+        // When / Then
+        store.release(upload.getSha256(), () -> true);
+        assertTrue(Files.exists(file));
+        store.release(upload.getSha256(), () -> false);
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void sniff_ShouldRecogniseOnlyReceiptFormats() {
+        assertEquals("image/jpeg", ReceiptStore.sniff(bytes(0xFF, 0xD8, 0xFF, 0xE0)));
+        assertEquals("image/png", ReceiptStore.sniff(bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0)));
+        assertEquals("image/webp", ReceiptStore.sniff(bytes('R', 'I', 'F', 'F', 1, 2, 3, 4, 'W', 'E', 'B', 'P')));
+        assertEquals("application/pdf", ReceiptStore.sniff(bytes('%', 'P', 'D', 'F', '-', '1')));
+        assertNull(ReceiptStore.sniff(bytes('<', 'h', 't', 'm', 'l', '>')));
+        assertNull(ReceiptStore.sniff(bytes(0xFF, 0xD8)));
+        assertThrows(IllegalArgumentException.class, () -> store.path("../../etc/passwd"));
+    }
+
+    static byte[] pdf(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + 7);
+        }
+        System.arraycopy("%PDF-1.7".getBytes(), 0, bytes, 0, Math.min(8, length));
+        return bytes;
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long temporaryFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve("tmp"))) {
+            return files.count();
+        }
+    }
+}
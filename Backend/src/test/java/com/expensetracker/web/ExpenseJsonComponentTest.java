@@ -0,0 +1,169 @@
+package com.expensetracker.web;
+
+import com.expensetracker.dto.ExpenseRequest;
+import com.expensetracker.dto.ExpenseResponse;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpenseJsonComponentTest {
+
+    private ObjectMapper reflective;
+
+    private ObjectMapper streaming;
+
+    @BeforeEach
+    void setUp() {
+        reflective = bootLike(Jackson2ObjectMapperBuilder.json());
+        streaming = bootLike(Jackson2ObjectMapperBuilder.json().modulesToInstall(module()));
+    }
+
+    @Test
+    void responseList_ShouldBeByteIdenticalToBeanSerialization() throws Exception {
+        // Given
+        List<ExpenseResponse> expenses = new ArrayList<>();
+        int[] nanos = {0, 100_000_000, 120_000_000, 123_000_000, 123_400_000, 123_456_000, 123_456_789, 1};
+        for (int i = 0; i < nanos.length; i++) {
+            LocalDateTime at = LocalDateTime.of(2024, 1 + i, 9, 7, i, i % 2 == 0 ? 0 : 5, nanos[i]);
+            expenses.add(new ExpenseResponse((long) i, "Café \"Nord\" \\ €\n\t\u0001", i % 2 == 0 ? null : "desc</script>",
+                    new BigDecimal(i % 3 == 0 ? "1E+3" : "150.50"), "Food", at.toLocalDate(), at, at.plusDays(1)));
+        }
+        expenses.add(new ExpenseResponse(null, null, null, null, null, null, null, null));
+        expenses.add(new ExpenseResponse(99L, "Old", "", BigDecimal.ZERO, "", LocalDate.of(1, 2, 3),
+                LocalDateTime.of(999, 12, 31, 23, 59, 59), LocalDateTime.of(10000, 1, 1, 0, 0)));
+        expenses.add(new ExpenseResponse(100L, "Taxi", null, BigDecimal.ONE, "Transport",
+                List.of("reimbursable", "work-trip"), LocalDate.of(2025, 5, 6), null, null));
+        expenses.add(new ExpenseResponse(101L, "Taxi", null, BigDecimal.ONE, "Transport", null,
+                LocalDate.of(2025, 5, 6), null, null));
+
+        // When & Then - twice, so the second pass is spliced from the cache
+        String expected = reflective.writeValueAsString(expenses);
+        assertEquals(expected, streaming.writeValueAsString(expenses));
+        assertArrayEquals(reflective.writeValueAsBytes(expenses), streaming.writeValueAsBytes(expenses));
+    }
+
+    @Test
+    void cachedResponse_ShouldBeRefreshed_WhenExpenseChanges() throws Exception {
+        // Given
+        LocalDateTime at = LocalDateTime.of(2025, 3, 1, 12, 0, 0, 5000);
+        ExpenseResponse expense = new ExpenseResponse(1L, "Lunch", null, new BigDecimal("10.00"), "Food",
+                at.toLocalDate(), at, at);
+        streaming.writeValueAsString(expense);
+
+        // When
+        expense.setAmount(new BigDecimal("12.50"));
+        expense.setCategory("Dining");
+
+        // Then
+        assertEquals(reflective.writeValueAsString(expense), streaming.writeValueAsString(expense));
+    }
+
+    @Test
+    void binaryAndPrettyOutput_ShouldMatchBeanSerialization() throws Exception {
+        // Given
+        LocalDateTime at = LocalDateTime.of(2025, 3, 1, 12, 0, 0, 5000);
+        ExpenseResponse expense = new ExpenseResponse(1L, "Lunch", null, new BigDecimal("10.00"), "Food",
+                at.toLocalDate(), at, at);
+        ObjectMapper reflectiveCbor = bootLike(Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()));
+        ObjectMapper streamingCbor = bootLike(Jackson2ObjectMapperBuilder.json().factory(new CBORFactory())
+                .modulesToInstall(module()));
+
+        // When & Then
+        assertArrayEquals(reflectiveCbor.writeValueAsBytes(List.of(expense)), streamingCbor.writeValueAsBytes(List.of(expense)));
+        assertEquals(reflective.writerWithDefaultPrettyPrinter().writeValueAsString(expense),
+                streaming.writerWithDefaultPrettyPrinter().writeValueAsString(expense));
+    }
+
+    @Test
+    void escapedOutput_ShouldNotReuseCachedBytes() throws Exception {
+        // Given
+        LocalDateTime at = LocalDateTime.of(2025, 3, 1, 12, 0, 0, 5000);
+        ExpenseResponse expense = new ExpenseResponse(1L, "Café", null, new BigDecimal("10.00"), "Food",
+                at.toLocalDate(), at, at);
+        streaming.writeValueAsString(expense);
+
+        // When
+        String escaped = streaming.writer().with(JsonWriteFeature.ESCAPE_NON_ASCII).writeValueAsString(expense);
+
+        // Then
+        assertTrue(escaped.contains("Caf\\u00E9"));
+        assertEquals(reflective.writer().with(JsonWriteFeature.ESCAPE_NON_ASCII).writeValueAsString(expense), escaped);
+    }
+
+    @Test
+    void datesAsTimestamps_ShouldFallBackToDefaultTemporalSerializers() throws Exception {
+        // Given
+        LocalDateTime at = LocalDateTime.of(2025, 3, 1, 12, 0, 0, 5000);
+        ExpenseResponse expense = new ExpenseResponse(1L, "Lunch", null, new BigDecimal("10.00"), "Food",
+                at.toLocalDate(), at, at);
+
+        // When & Then
+        assertEquals(reflective.writer().with(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).writeValueAsString(expense),
+                streaming.writer().with(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).writeValueAsString(expense));
+    }
+
+    @Test
+    void fullCache_ShouldEvictLeastRecentlyUsedExpenseOnly() throws Exception {
+        // Given
+        ExpenseJsonComponent.ExpenseResponseSerializer serializer = new ExpenseJsonComponent.ExpenseResponseSerializer();
+        ObjectMapper mapper = bootLike(Jackson2ObjectMapperBuilder.json()
+                .modulesToInstall(new SimpleModule().addSerializer(ExpenseResponse.class, serializer)));
+        int max = (int) ReflectionTestUtils.getField(ExpenseJsonComponent.ExpenseResponseSerializer.class, "MAX_CACHED");
+        LocalDateTime at = LocalDateTime.of(2025, 3, 1, 12, 0);
+        List<ExpenseResponse> expenses = new ArrayList<>();
+        for (long id = 1; id <= max; id++) {
+            expenses.add(new ExpenseResponse(id, "Lunch", null, new BigDecimal("10.00"), "Food", at.toLocalDate(), at, at));
+        }
+        mapper.writeValueAsString(expenses);
+        mapper.writeValueAsString(expenses.get(0));
+
+        // When
+        mapper.writeValueAsString(new ExpenseResponse(max + 1L, "Taxi", null, BigDecimal.ONE, "Transport",
+                at.toLocalDate(), at, at));
+
+        // Then - expense 2 was the least recently serialised, expense 1 was touched again
+        Map<?, ?> cache = (Map<?, ?>) ReflectionTestUtils.getField(serializer, "cache");
+        assertEquals(max, cache.size());
+        assertTrue(cache.containsKey(1L));
+        assertFalse(cache.containsKey(2L));
+        assertTrue(cache.containsKey(max + 1L));
+    }
+
+    @Test
+    void request_ShouldBeByteIdenticalToBeanSerialization() throws Exception {
+        // Given
+        ExpenseRequest request = new ExpenseRequest("Taxi ü", null, new BigDecimal("7.5"), "Transport",
+                LocalDate.of(2025, 12, 31));
+
+        // When & Then
+        assertEquals(reflective.writeValueAsString(request), streaming.writeValueAsString(request));
+        request.setTags(List.of("reimbursable", "client_a"));
+        assertEquals(reflective.writeValueAsString(request), streaming.writeValueAsString(request));
+        assertEquals(reflective.writeValueAsString(new ExpenseRequest()), streaming.writeValueAsString(new ExpenseRequest()));
+    }
+
+    static SimpleModule module() {
+        return new SimpleModule()
+                .addSerializer(ExpenseResponse.class, new ExpenseJsonComponent.ExpenseResponseSerializer())
+                .addSerializer(ExpenseRequest.class, new ExpenseJsonComponent.ExpenseRequestSerializer());
+    }
+
+    static ObjectMapper bootLike(Jackson2ObjectMapperBuilder builder) {
+        return builder.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    }
+}
@@ -0,0 +1,179 @@
+package com.expensetracker.web;
+
+import com.expensetracker.service.ExpenseService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PrecompressedListFilterTest {
+
+    @Mock
+    private ExpenseService expenseService;
+
+    @InjectMocks
+    private PrecompressedListFilter filter;
+
+    private final String body = "[" + "{\"id\":1,\"category\":\"Food\"},".repeat(100) + "{}]";
+
+    private final AtomicInteger chainCalls = new AtomicInteger();
+
+    private FilterChain chain;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(filter, "maxBytes", 1_000_000L);
+        ReflectionTestUtils.setField(filter, "minResponseBytes", 64);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "testuser", null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+
+        chain = (request, response) -> {
+            chainCalls.incrementAndGet();
+            HttpServletResponse httpResponse = (HttpServletResponse) response;
+            httpResponse.setHeader("ETag", "W/\"1-3\"");
+            httpResponse.setContentType("application/json");
+            httpResponse.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void secondRequest_ShouldBeServedFromCache_WithoutInvokingController() throws Exception {
+        // Given
+        when(expenseService.getExpensesEtag("testuser")).thenReturn("W/\"1-3\"");
+
+        // When
+        MockHttpServletResponse first = perform();
+        MockHttpServletResponse second = perform();
+
+        // Then
+        assertEquals(1, chainCalls.get());
+        assertEquals("gzip", first.getHeader("Content-Encoding"));
+        assertEquals("gzip", second.getHeader("Content-Encoding"));
+        assertEquals("W/\"1-3-gzip\"", first.getHeader("ETag"));
+        assertEquals("W/\"1-3-gzip\"", second.getHeader("ETag"));
+        assertEquals("application/json", second.getContentType());
+        assertEquals(body, gunzip(second.getContentAsByteArray()));
+        assertArrayEquals(first.getContentAsByteArray(), second.getContentAsByteArray());
+    }
+
+    @Test
+    void newVersion_ShouldMissTheCache() throws Exception {
+        // Given
+        when(expenseService.getExpensesEtag("testuser")).thenReturn("W/\"1-3\"", "W/\"1-4\"");
+
+        // When
+        perform();
+        MockHttpServletResponse second = perform();
+
+        // Then - the controller answered with the old ETag, so nothing new was cached
+        assertEquals(2, chainCalls.get());
+        assertNull(second.getHeader("Content-Encoding"));
+        assertEquals(body, second.getContentAsString());
+    }
+
+    @Test
+    void gzipEtag_ShouldBeAnsweredNotModified_WithoutInvokingController() throws Exception {
+        // Given
+        when(expenseService.getExpensesEtag("testuser")).thenReturn("W/\"1-3\"");
+
+        // When
+        MockHttpServletResponse response = perform("W/\"1-3-gzip\"");
+
+        // Then
+        assertEquals(0, chainCalls.get());
+        assertEquals(304, response.getStatus());
+        assertEquals("W/\"1-3-gzip\"", response.getHeader("ETag"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void staleEtag_ShouldStillBeServedPrecompressed() throws Exception {
+        // Given
+        when(expenseService.getExpensesEtag("testuser")).thenReturn("W/\"1-3\"");
+
+        // When
+        MockHttpServletResponse response = perform("W/\"1-2-gzip\"");
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals(body, gunzip(response.getContentAsByteArray()));
+    }
+
+    @Test
+    void smallBody_ShouldKeepIdentityEtag_ForContainerCompression() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(filter, "minResponseBytes", 1_000_000);
+        when(expenseService.getExpensesEtag("testuser")).thenReturn("W/\"1-3\"");
+
+        // When
+        MockHttpServletResponse response = perform();
+
+        // Then
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("W/\"1-3\"", response.getHeader("ETag"));
+        assertEquals(body, response.getContentAsString());
+    }
+
+    @Test
+    void clientWithoutGzip_ShouldBypassFilter() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/expenses");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        filter.doFilter(request, response, chain);
+
+        // Then
+        assertEquals(1, chainCalls.get());
+        assertEquals(body, response.getContentAsString());
+    }
+
+    private MockHttpServletResponse perform() throws Exception {
+        return perform(null);
+    }
+
+    private MockHttpServletResponse perform(String ifNoneMatch) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/expenses");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        request.addHeader("Accept", "application/json");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
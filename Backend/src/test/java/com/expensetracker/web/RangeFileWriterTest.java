@@ -0,0 +1,144 @@
+package com.expensetracker.web;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangeFileWriterTest {
+
+    private static final String ETAG = "\"" + "ab".repeat(32) + "\"";
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        content = new byte[100_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        file = Files.write(directory.resolve("receipt"), content);
+    }
+
+    @Test
+    void write_ShouldServeTheWholeFileWithCachingHeaders() throws IOException {
+        // When
+        MockHttpServletResponse response = write(request());
+
+        // Then
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(content, response.getContentAsByteArray());
+        assertEquals(content.length, response.getContentLengthLong());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals(ETAG, response.getHeader("ETag"));
+        assertEquals("no-cache, private", response.getHeader("Cache-Control"));
+        assertEquals("application/pdf", response.getContentType());
+        assertTrue(response.getHeader("Content-Disposition").startsWith("inline; filename="));
+    }
+
+    @Test
+    void write_ShouldServeOneRange() throws IOException {
+        // Given
+        MockHttpServletRequest range = request();
+        range.addHeader("Range", "bytes=1000-1999");
+        MockHttpServletRequest suffix = request();
+        suffix.addHeader("Range", "bytes=-10");
+
+        // When
+        MockHttpServletResponse rangeResponse = write(range);
+        MockHttpServletResponse suffixResponse = write(suffix);
+
+        // Then
+        assertEquals(206, rangeResponse.getStatus());
+        assertEquals("bytes 1000-1999/100000", rangeResponse.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(content, 1000, 2000), rangeResponse.getContentAsByteArray());
+        assertEquals(206, suffixResponse.getStatus());
+        assertEquals("bytes 99990-99999/100000", suffixResponse.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(content, 99_990, 100_000), suffixResponse.getContentAsByteArray());
+    }
+
+    @Test
+    void write_ShouldRefuseARangePastTheEnd() throws IOException {
+        // Given
+        MockHttpServletRequest request = request();
+        request.addHeader("Range", "bytes=100000-");
+
+        // When
+        MockHttpServletResponse response = write(request);
+
+        // Then
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */100000", response.getHeader("Content-Range"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void write_ShouldServeTheWholeFileForAnotherVersionOrSeveralRanges() throws IOException {
+        // Given
+        MockHttpServletRequest otherVersion = request();
+        otherVersion.addHeader("Range", "bytes=0-9");
+        otherVersion.addHeader("If-Range", "\"other\"");
+        MockHttpServletRequest severalRanges = request();
+        severalRanges.addHeader("Range", "bytes=0-9,20-29");
+
+        // When / Then
+        assertArrayEquals(content, write(otherVersion).getContentAsByteArray());
+        assertArrayEquals(content, write(severalRanges).getContentAsByteArray());
+    }
+
+    @Test
+    void write_ShouldAnswerNotModifiedForTheSameContent() throws IOException {
+        // Given
+        MockHttpServletRequest request = request();
+        request.addHeader("If-None-Match", ETAG);
+
+        // When
+        MockHttpServletResponse response = write(request);
+
+        // Then
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void write_ShouldHandTheRangeToTomcatSendfileWhenSupported() throws IOException {
+        // Given
+        MockHttpServletRequest request = request();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=50000-");
+
+        // When
+        MockHttpServletResponse response = write(request);
+
+        // Then: nothing written by the request thread
+        assertEquals(206, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(50_000, response.getContentLengthLong());
+        assertEquals(file.toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(50_000L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(100_000L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    private MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/api/expenses/1/receipts/2");
+    }
+
+    private MockHttpServletResponse write(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RangeFileWriter.write(request, response, file, content.length, ETAG, "application/pdf", "receipt.pdf");
+        return response;
+    }
+}
@@ -1,6 +1,7 @@
 import React, { useState } from 'react';
 import { useNavigate } from 'react-router-dom';
 import api from '../api/api';
+import useSuggestions from '../utils/useSuggestions';
 
 const AddExpense = () => {
   const navigate = useNavigate();
@@ -13,6 +14,7 @@ const AddExpense = () => {
   });
 
   const [error, setError] = useState('');
+  const titleSuggestions = useSuggestions('title', formData.title);
 
   const handleChange = (e) => {
     setFormData(prev => ({
@@ -34,7 +36,16 @@ const AddExpense = () => {
         expenseDate: formData.expenseDate
       };
 
-      await api.post('/expenses', expenseData);
+      try {
+        await api.post('/expenses', expenseData);
+      } catch (err) {
+        // 409: a matching expense already exists within a day; let the user decide
+        if (err.response?.status !== 409 ||
+            !window.confirm(`${err.response.data?.error || 'This looks like a duplicate.'} Add it anyway?`)) {
+          throw err;
+        }
+        await api.post('/expenses', expenseData, { params: { allowDuplicate: true } });
+      }
       navigate('/');
     } catch (err) {
       console.error('Add expense error:', err);
@@ -60,10 +71,17 @@ const AddExpense = () => {
               className="form-control"
               id="title"
               name="title"
+              list="title-suggestions"
+              autoComplete="off"
               required
               value={formData.title}
               onChange={handleChange}
             />
+            <datalist id="title-suggestions">
+              {titleSuggestions.map(title => (
+                <option key={title} value={title} />
+              ))}
+            </datalist>
           </div>
 
           <div className="mb-3">
@@ -1,6 +1,7 @@
 import React, { useState, useEffect } from 'react';
 import { useParams, useNavigate } from 'react-router-dom';
 import api from '../api/api';
+import useSuggestions from '../utils/useSuggestions';
 
 const EditExpense = () => {
   const { id } = useParams();
@@ -16,6 +17,7 @@ const EditExpense = () => {
 
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState('');
+  const titleSuggestions = useSuggestions('title', formData.title);
 
   useEffect(() => {
     const fetchExpense = async () => {
@@ -95,10 +97,17 @@ const EditExpense = () => {
               className="form-control"
               id="title"
               name="title"
+              list="title-suggestions"
+              autoComplete="off"
               required
               value={formData.title}
               onChange={handleChange}
             />
+            <datalist id="title-suggestions">
+              {titleSuggestions.map(title => (
+                <option key={title} value={title} />
+              ))}
+            </datalist>
           </div>
 
           <div className="mb-3">
@@ -0,0 +1,40 @@
+import { useEffect, useState } from 'react';
+import api from '../api/api';
+
+// Waits for a pause in typing before asking the server
+const DEBOUNCE_MS = 150;
+
+/**
+ * The user's most used titles or categories starting with what was typed, for a <datalist>.
+ */
+const useSuggestions = (field, prefix) => {
+  const [suggestions, setSuggestions] = useState([]);
+
+  useEffect(() => {
+    let cancelled = false;
+    const timer = setTimeout(async () => {
+      try {
+        const response = await api.get('/expenses/suggestions', {
+          params: { field, prefix, limit: 8 }
+        });
+        if (!cancelled) {
+          setSuggestions(response.data);
+        }
+      } catch (err) {
+        // Suggestions are a convenience; the form works without them
+        if (!cancelled) {
+          setSuggestions([]);
+        }
+      }
+    }, DEBOUNCE_MS);
+
+    return () => {
+      cancelled = true;
+      clearTimeout(timer);
+    };
+  }, [field, prefix]);
+
+  return suggestions;
+};
+
+export default useSuggestions;